@@ -63,3 +63,136 @@ ALTER TABLE picture
 -- 创建基于 reviewStatus 列的索引
 CREATE INDEX idx_reviewStatus ON picture (reviewStatus);
 
+-- 分片上传会话：持久化在数据库中，服务重启或切换实例后仍可续传；过期会话由定时任务终止并删除
+create table if not exists picture_upload_session
+(
+    id               bigint auto_increment comment 'id' primary key,
+    uploadId         varchar(256)                       not null comment '存储的分片上传 ID',
+    objectKey        varchar(512)                       not null comment '对象键',
+    originalFilename varchar(256)                       not null comment '原始文件名',
+    fileSize         bigint                             not null comment '文件总大小',
+    partSize         bigint                             not null comment '分片大小',
+    partCount        int                                not null comment '分片总数',
+    userId           bigint                             not null comment '发起上传的用户 id',
+    pictureId        bigint                             null comment '图片 id（重新上传时不为空）',
+    expireTime       datetime                           not null comment '过期时间',
+    createTime       datetime default CURRENT_TIMESTAMP not null comment '创建时间',
+    UNIQUE KEY uk_uploadId (uploadId),
+    INDEX idx_userId_expireTime (userId, expireTime), -- 统计用户进行中的会话数
+    INDEX idx_expireTime (expireTime)                 -- 清理过期会话
+) comment '分片上传会话' collate = utf8mb4_unicode_ci;
+
+-- 内容去重：相同内容的图片共用同一个存储对象
+ALTER TABLE picture
+    ADD COLUMN contentHash CHAR(64) NULL COMMENT '内容哈希（SHA-256）';
+
+CREATE INDEX idx_contentHash ON picture (contentHash);
+
+-- URL 抓取缓存：记录来源地址对应的存储内容和校验信息，重复导入时通过条件请求复用已有对象
+create table if not exists picture_url_cache
+(
+    id             bigint auto_increment comment 'id' primary key,
+    urlHash        char(64)                           not null comment '来源地址哈希（SHA-256）',
+    url            varchar(2048)                      not null comment '来源地址',
+    contentHash    char(64)                           not null comment '内容哈希（SHA-256）',
+    etag           varchar(256)                       null comment 'ETag 响应头',
+    lastModified   varchar(64)                        null comment 'Last-Modified 响应头',
+    lastAccessTime datetime default CURRENT_TIMESTAMP not null comment '最近访问时间',
+    createTime     datetime default CURRENT_TIMESTAMP not null comment '创建时间',
+    updateTime     datetime default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP comment '更新时间',
+    UNIQUE KEY uk_urlHash (urlHash),
+    INDEX idx_lastAccessTime (lastAccessTime) -- 按最近访问时间淘汰
+) comment 'URL 抓取缓存' collate = utf8mb4_unicode_ci;
+
+-- 衍生尺寸：列表和详情页使用缩略图、预览图，减少传输体积
+ALTER TABLE picture
+    ADD COLUMN thumbnailUrl VARCHAR(512) NULL COMMENT '缩略图 url',
+    ADD COLUMN previewUrl   VARCHAR(512) NULL COMMENT '预览图 url';
+
+-- 感知哈希：查找近似重复的图片（内存中建立多索引哈希表，无需数据库索引）
+ALTER TABLE picture
+    ADD COLUMN phash BIGINT NULL COMMENT '感知哈希（64 位 dHash）';
+
+-- 颜色特征：按颜色搜索图片（内存中建立颜色网格索引，无需数据库索引）
+ALTER TABLE picture
+    ADD COLUMN dominantColor  CHAR(7)  NULL COMMENT '主色调，如 #3A7BD5',
+    ADD COLUMN colorHistogram CHAR(128) NULL COMMENT '颜色直方图（64 个区间占比，十六进制）';
+
+-- 存储对象回收队列：删除或重新上传后不再被引用的对象，宽限期结束后由后台任务批量删除
+create table if not exists picture_object_reap
+(
+    id          bigint auto_increment comment 'id' primary key,
+    url         varchar(512)                       not null comment '待回收对象的访问地址',
+    contentHash char(64)                           null comment '所属图片的内容哈希，用于确认是否仍被去重图片引用',
+    reason      varchar(32)                        not null comment '回收原因：delete/replace/abandon',
+    deleteAfter datetime                           not null comment '宽限期结束时间，之后才会删除',
+    retryCount  int      default 0                 not null comment '删除失败次数',
+    createTime  datetime default CURRENT_TIMESTAMP not null comment '创建时间',
+    INDEX idx_deleteAfter (deleteAfter) -- 按宽限期结束时间依次处理
+) comment '存储对象回收队列' collate = utf8mb4_unicode_ci;
+
+-- 存储对象回收：多实例认领，实例每轮先写入认领标识再处理
+ALTER TABLE picture_object_reap
+    ADD COLUMN claimToken VARCHAR(64) NULL COMMENT '认领标识，实例每轮回收前写入，只处理自己认领的记录',
+    ADD INDEX idx_claimToken (claimToken);
+-- 回收前按地址确认对象是否仍被引用，三个地址字段各自建立索引
+CREATE INDEX idx_url ON picture (url);
+CREATE INDEX idx_thumbnailUrl ON picture (thumbnailUrl);
+CREATE INDEX idx_previewUrl ON picture (previewUrl);
+
+-- 标签字典
+create table if not exists tag
+(
+    id         bigint auto_increment comment 'id' primary key,
+    name       varchar(64)                        not null comment '标签名称',
+    createTime datetime default CURRENT_TIMESTAMP not null comment '创建时间',
+    UNIQUE KEY uk_name (name)
+) comment '标签' collate = utf8mb4_unicode_ci;
+
+-- 图片标签关系：picture.tags 的规范化副本，用于按标签查询
+create table if not exists picture_tag
+(
+    id         bigint auto_increment comment 'id' primary key,
+    pictureId  bigint                             not null comment '图片 id',
+    tagId      bigint                             not null comment '标签 id',
+    createTime datetime default CURRENT_TIMESTAMP not null comment '创建时间',
+    UNIQUE KEY uk_pictureId_tagId (pictureId, tagId),
+    INDEX idx_tagId_pictureId (tagId, pictureId) -- 按标签查图片
+) comment '图片标签关系' collate = utf8mb4_unicode_ci;
+
+-- 迁移历史数据：把 picture.tags 中的 JSON 标签写入标签字典和关系表（MySQL 8.0+，可重复执行）
+insert ignore into tag (name)
+select distinct jt.name
+from picture p,
+     json_table(p.tags, '$[*]' columns (name varchar(512) path '$')) jt
+where p.isDelete = 0
+  and json_valid(p.tags)
+  and char_length(jt.name) between 1 and 64;
+
+insert ignore into picture_tag (pictureId, tagId)
+select p.id, t.id
+from picture p,
+     json_table(p.tags, '$[*]' columns (name varchar(512) path '$')) jt,
+     tag t
+where p.isDelete = 0
+  and json_valid(p.tags)
+  and t.name = jt.name;
+
+-- 旧的 tags 前缀索引无法支持 LIKE '%"x"%'，按标签查询已改用 picture_tag
+DROP INDEX idx_tags ON picture;
+
+-- 游标分页：等值条件在前、排序字段在后，InnoDB 二级索引末尾隐含主键 id，可直接按 (createTime, id) 定位下一页
+CREATE INDEX idx_isDelete_reviewStatus_createTime ON picture (isDelete, reviewStatus, createTime);
+CREATE INDEX idx_isDelete_createTime ON picture (isDelete, createTime);
+CREATE INDEX idx_isDelete_createTime ON user (isDelete, createTime);
+
+-- 分页总数计数器校准：按分类统计已过审图片数，只扫描索引
+CREATE INDEX idx_isDelete_reviewStatus_category ON picture (isDelete, reviewStatus, category);
+
+-- 分类 + 创建时间窗口的范围查询：上面的分类索引末尾追加 createTime，
+-- 前缀 (isDelete, reviewStatus, category) 仍用于分页总数计数器校准时按分类统计
+DROP INDEX idx_isDelete_reviewStatus_category ON picture;
+CREATE INDEX idx_isDelete_reviewStatus_category_createTime ON picture (isDelete, reviewStatus, category, createTime);
+-- 宽高比、文件体积的范围查询
+CREATE INDEX idx_isDelete_reviewStatus_picScale ON picture (isDelete, reviewStatus, picScale);
+CREATE INDEX idx_isDelete_reviewStatus_picSize ON picture (isDelete, reviewStatus, picSize);
@@ -0,0 +1,40 @@
+package com.yupi.yupicturebackend.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 接口限流
+ * 按用户、IP、全局三个维度分别限制每秒请求数，任一维度超限即拒绝（HTTP 429）
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimit {
+
+    /**
+     * 限流名称，默认使用方法签名
+     */
+    String key() default "";
+
+    /**
+     * 每个登录用户每秒允许的请求数，0 表示不限制（未登录请求只受 IP 和全局限制）
+     */
+    double userRate() default 0;
+
+    /**
+     * 每个 IP 每秒允许的请求数，0 表示不限制
+     */
+    double ipRate() default 0;
+
+    /**
+     * 所有请求合计每秒允许的请求数，0 表示不限制
+     */
+    double globalRate() default 0;
+
+    /**
+     * 允许的突发时长（秒），突发容量为速率乘以该时长，至少为 1 个请求
+     */
+    double burstSeconds() default 1;
+}
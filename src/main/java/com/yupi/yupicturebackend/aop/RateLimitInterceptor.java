@@ -0,0 +1,110 @@
+package com.yupi.yupicturebackend.aop;
+
+import cn.hutool.core.util.StrUtil;
+import com.yupi.yupicturebackend.annotation.RateLimit;
+import com.yupi.yupicturebackend.config.RateLimitConfig;
+import com.yupi.yupicturebackend.exception.RateLimitException;
+import com.yupi.yupicturebackend.manager.RateLimitManager;
+import com.yupi.yupicturebackend.model.entity.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+import java.util.concurrent.TimeUnit;
+
+import static com.yupi.yupicturebackend.model.constant.UserConstant.USER_LOGIN_STATE;
+
+/**
+ * 限流拦截
+ * 先于权限校验执行，只读取会话中的用户 id，超限请求不会访问数据库
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RateLimitInterceptor {
+
+    @Resource
+    private RateLimitManager rateLimitManager;
+
+    @Resource
+    private RateLimitConfig rateLimitConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 执行拦截
+     *
+     * @param joinPoint 切入点
+     * @param rateLimit 限流注解
+     */
+    @Around("@annotation(rateLimit)")
+    public Object doInterceptor(ProceedingJoinPoint joinPoint, RateLimit rateLimit) throws Throwable {
+        if (!rateLimitConfig.isEnabled()) {
+            return joinPoint.proceed();
+        }
+        RequestAttributes requestAttributes = RequestContextHolder.currentRequestAttributes();
+        HttpServletRequest request = ((ServletRequestAttributes) requestAttributes).getRequest();
+        String limitKey = StrUtil.isNotBlank(rateLimit.key()) ? rateLimit.key() : joinPoint.getSignature().toShortString();
+        double burstSeconds = rateLimit.burstSeconds();
+        // 先检查单个用户和 IP，被拒绝的请求不占用全局配额
+        // 单个用户，未登录时跳过
+        if (rateLimit.userRate() > 0) {
+            Long userId = getLoginUserId(request);
+            if (userId != null) {
+                check(limitKey, "user", limitKey + ":user:" + userId, rateLimit.userRate(), burstSeconds);
+            }
+        }
+        // 单个 IP
+        if (rateLimit.ipRate() > 0) {
+            check(limitKey, "ip", limitKey + ":ip:" + getClientIp(request), rateLimit.ipRate(), burstSeconds);
+        }
+        // 全局
+        if (rateLimit.globalRate() > 0) {
+            check(limitKey, "global", limitKey, rateLimit.globalRate(), burstSeconds);
+        }
+        return joinPoint.proceed();
+    }
+
+    private void check(String limitKey, String dimension, String bucketKey, double rate, double burstSeconds) {
+        long waitNanos = rateLimitManager.tryAcquire(bucketKey, rate, burstSeconds);
+        if (waitNanos > 0) {
+            meterRegistry.counter("rate.limit.rejected", "key", limitKey, "dimension", dimension).increment();
+            // Retry-After 以秒为单位，向上取整
+            throw new RateLimitException(Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1)));
+        }
+    }
+
+    /**
+     * 从会话中读取登录用户 id，不查询数据库
+     */
+    private Long getLoginUserId(HttpServletRequest request) {
+        HttpSession session = request.getSession(false);
+        if (session == null) {
+            return null;
+        }
+        Object userObj = session.getAttribute(USER_LOGIN_STATE);
+        return userObj instanceof User ? ((User) userObj).getId() : null;
+    }
+
+    private String getClientIp(HttpServletRequest request) {
+        if (rateLimitConfig.isTrustForwardedFor()) {
+            String forwardedFor = request.getHeader("X-Forwarded-For");
+            if (StrUtil.isNotBlank(forwardedFor)) {
+                // 第一个地址为原始客户端
+                return StrUtil.trim(StrUtil.subBefore(forwardedFor, ",", false));
+            }
+        }
+        return request.getRemoteAddr();
+    }
+}
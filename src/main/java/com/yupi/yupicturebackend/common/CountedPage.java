@@ -0,0 +1,50 @@
+package com.yupi.yupicturebackend.common;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 带总数来源的分页结果
+ * 总数可能来自缓存（近似值），此时 totalEstimated 为 true
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class CountedPage<T> extends Page<T> {
+
+    /**
+     * 总数是否为近似值
+     */
+    private boolean totalEstimated;
+
+    private static final long serialVersionUID = 1L;
+
+    public CountedPage() {
+    }
+
+    public CountedPage(long current, long size) {
+        super(current, size, 0, false);
+    }
+
+    /**
+     * 创建与原分页参数相同的空分页对象，保留总数来源和游标信息，用于实体分页转换为 VO 分页
+     */
+    public static <R> Page<R> newPageLike(Page<?> page) {
+        if (page instanceof CursorPage) {
+            CursorPage<?> cursorPage = (CursorPage<?>) page;
+            CursorPage<R> result = new CursorPage<>(cursorPage.getSize());
+            result.setTotal(cursorPage.getTotal());
+            result.setSearchCount(cursorPage.searchCount());
+            result.setNextCursor(cursorPage.getNextCursor());
+            result.setHasMore(cursorPage.isHasMore());
+            return result;
+        }
+        if (page instanceof CountedPage) {
+            CountedPage<R> result = new CountedPage<>(page.getCurrent(), page.getSize());
+            result.setTotal(page.getTotal());
+            result.setTotalEstimated(((CountedPage<?>) page).isTotalEstimated());
+            return result;
+        }
+        return new Page<>(page.getCurrent(), page.getSize(), page.getTotal());
+    }
+}
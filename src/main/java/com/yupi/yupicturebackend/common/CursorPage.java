@@ -0,0 +1,32 @@
+package com.yupi.yupicturebackend.common;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 游标分页结果
+ * 沿用 Page 的结构，额外返回下一页游标；未统计总数时 searchCount 为 false、total 为 0
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class CursorPage<T> extends CountedPage<T> {
+
+    /**
+     * 下一页游标，没有下一页时为空
+     */
+    private String nextCursor;
+
+    /**
+     * 是否还有下一页
+     */
+    private boolean hasMore;
+
+    private static final long serialVersionUID = 1L;
+
+    public CursorPage() {
+    }
+
+    public CursorPage(long size) {
+        super(1, size);
+    }
+}
@@ -0,0 +1,122 @@
+package com.yupi.yupicturebackend.common;
+
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.codec.Base64;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.yupi.yupicturebackend.exception.BusinessException;
+import com.yupi.yupicturebackend.exception.ErrorCode;
+import com.yupi.yupicturebackend.exception.ThrowUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 游标分页（keyset pagination）
+ * 游标记录上一页最后一条数据的排序字段值和 id，下一页用 (排序字段, id) < (?, ?)（升序为 >）定位，
+ * 配合以排序字段结尾的索引（InnoDB 二级索引末尾隐含主键 id）直接从索引定位，不需要扫描并丢弃前面的数据。
+ * 排序字段只允许 id 和有索引的非空时间字段；游标中包含排序方式，与请求不一致时视为无效。
+ */
+public final class PageCursor {
+
+    private static final String VERSION = "1";
+
+    private static final String ID_FIELD = "id";
+
+    private PageCursor() {
+    }
+
+    /**
+     * 添加游标条件、排序和数量限制（多查一条用于判断是否还有下一页）
+     *
+     * @param queryWrapper 查询条件
+     * @param pageRequest  分页请求
+     * @param sortFields   允许的排序字段
+     */
+    public static <T> void apply(QueryWrapper<T> queryWrapper, PageRequest pageRequest, Set<String> sortFields) {
+        String sortField = getSortField(pageRequest);
+        ThrowUtils.throwif(!sortFields.contains(sortField), ErrorCode.PARAMS_ERROR, "游标分页不支持按该字段排序");
+        ThrowUtils.throwif(pageRequest.getPageSize() <= 0, ErrorCode.PARAMS_ERROR, "分页大小必须大于0");
+        boolean ascend = isAscend(pageRequest);
+        if (StrUtil.isNotBlank(pageRequest.getCursor())) {
+            long[] values = decode(pageRequest.getCursor(), sortField, ascend);
+            String operator = ascend ? ">" : "<";
+            if (ID_FIELD.equals(sortField)) {
+                queryWrapper.apply("id " + operator + " {0}", values[1]);
+            } else {
+                // 排序字段来自白名单，可以直接拼接
+                queryWrapper.apply("(" + sortField + ", id) " + operator + " ({0}, {1})", new Date(values[0]), values[1]);
+            }
+        }
+        queryWrapper.orderBy(true, ascend, sortField);
+        if (!ID_FIELD.equals(sortField)) {
+            queryWrapper.orderBy(true, ascend, ID_FIELD);
+        }
+        queryWrapper.last("limit " + (pageRequest.getPageSize() + 1));
+    }
+
+    /**
+     * 把多查一条的结果转换为分页结果
+     *
+     * @param rows        按 {@link #apply} 条件查询到的数据
+     * @param pageRequest 分页请求
+     * @param idGetter    获取 id
+     */
+    public static <T> CursorPage<T> toPage(List<T> rows, PageRequest pageRequest, Function<T, Long> idGetter) {
+        int pageSize = pageRequest.getPageSize();
+        CursorPage<T> page = new CursorPage<>(pageSize);
+        boolean hasMore = rows.size() > pageSize;
+        List<T> records = hasMore ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+        page.setRecords(records);
+        page.setHasMore(hasMore);
+        if (hasMore) {
+            T last = records.get(records.size() - 1);
+            String sortField = getSortField(pageRequest);
+            Long id = idGetter.apply(last);
+            long sortValue = ID_FIELD.equals(sortField) ? id : toLong(BeanUtil.getProperty(last, sortField));
+            page.setNextCursor(encode(sortField, isAscend(pageRequest), sortValue, id));
+        }
+        return page;
+    }
+
+    private static String getSortField(PageRequest pageRequest) {
+        return StrUtil.blankToDefault(pageRequest.getSortField(), ID_FIELD);
+    }
+
+    private static boolean isAscend(PageRequest pageRequest) {
+        return "ascend".equals(pageRequest.getSortOrder());
+    }
+
+    private static long toLong(Object value) {
+        if (value instanceof Date) {
+            return ((Date) value).getTime();
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        throw new BusinessException(ErrorCode.SYSTEM_ERROR, "排序字段为空，无法生成游标");
+    }
+
+    private static String encode(String sortField, boolean ascend, long sortValue, long id) {
+        return Base64.encodeUrlSafe(StrUtil.join(":", VERSION, sortField, ascend ? "a" : "d", sortValue, id));
+    }
+
+    /**
+     * @return [排序字段值, id]
+     */
+    private static long[] decode(String cursor, String sortField, boolean ascend) {
+        try {
+            String[] parts = Base64.decodeStr(cursor).split(":");
+            if (parts.length == 5 && VERSION.equals(parts[0]) && sortField.equals(parts[1])
+                    && (ascend ? "a" : "d").equals(parts[2])) {
+                return new long[]{Long.parseLong(parts[3]), Long.parseLong(parts[4])};
+            }
+        } catch (IllegalArgumentException e) {
+            // 格式错误，按无效游标处理
+        }
+        throw new BusinessException(ErrorCode.PARAMS_ERROR, "游标无效");
+    }
+}
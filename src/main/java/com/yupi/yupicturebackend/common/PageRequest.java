@@ -31,4 +31,19 @@ public class PageRequest {
      * 排序顺序（默认降序）
      */
     private String sortOrder = "descend";
+
+    /**
+     * 是否使用游标分页：按 (排序字段, id) 定位下一页，不使用 OFFSET，深分页耗时不增长；默认不统计总数
+     */
+    private boolean useCursor = false;
+
+    /**
+     * 游标分页：上一页返回的 nextCursor，为空表示第一页
+     */
+    private String cursor;
+
+    /**
+     * 游标分页：是否统计总数，仅第一页生效
+     */
+    private boolean withTotal = false;
 }
@@ -0,0 +1,106 @@
+package com.yupi.yupicturebackend.config;
+
+import com.yupi.yupicturebackend.manager.cache.NoopRemoteCache;
+import com.yupi.yupicturebackend.manager.cache.RedisRemoteCache;
+import com.yupi.yupicturebackend.manager.cache.RemoteCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+/**
+ * 图片两级缓存配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "picture.cache")
+@Data
+public class PictureCacheConfig {
+
+    /**
+     * 是否启用 Redis 二级缓存和跨实例失效通知，关闭时只使用各实例的本地缓存
+     */
+    private boolean remoteEnabled = false;
+
+    /**
+     * Redis 键前缀
+     */
+    private String keyPrefix = "yupicture:";
+
+    /**
+     * 失效通知的发布订阅频道
+     */
+    private String invalidationChannel = "yupicture:cache:invalidation";
+
+    /**
+     * 图片详情本地缓存时间（秒），其他实例的变更通过失效通知即时生效，该时间只兜底通知丢失的情况
+     */
+    private int pictureLocalTtlSeconds = 60;
+
+    /**
+     * 图片详情本地缓存占用的最大字节数（按序列化后的大小计算）
+     */
+    private long pictureLocalMaxBytes = 32L * 1024 * 1024;
+
+    /**
+     * 图片详情 Redis 缓存时间（秒）
+     */
+    private int pictureRemoteTtlSeconds = 600;
+
+    /**
+     * 图片详情 VO 本地缓存时间（秒），VO 中的作者信息不随用户修改失效，因此较短
+     */
+    private int voLocalTtlSeconds = 10;
+
+    /**
+     * 图片详情 VO 本地缓存占用的最大字节数（按序列化后的大小计算）
+     */
+    private long voLocalMaxBytes = 16L * 1024 * 1024;
+
+    /**
+     * 图片详情 VO Redis 缓存时间（秒）
+     */
+    private int voRemoteTtlSeconds = 60;
+
+    /**
+     * 热点图片的访问次数阈值（频率估计值，计数器周期性减半，约等于最近一个周期内的访问次数）
+     */
+    private int hotKeyThreshold = 50;
+
+    /**
+     * 访问频率估计（Count-Min Sketch）每行的计数器数量
+     */
+    private int hotKeySketchWidth = 4096;
+
+    /**
+     * 访问频率计数器减半的周期（访问次数）
+     */
+    private long hotKeySampleSize = 100000;
+
+    /**
+     * 热点图片本地副本的缓存时间（秒）
+     */
+    private int hotReplicaTtlSeconds = 300;
+
+    /**
+     * 热点图片本地副本的最大数量
+     */
+    private long hotReplicaMaxSize = 1000;
+
+    /**
+     * 热点图片 Redis 缓存时间（秒）
+     */
+    private int hotRemoteTtlSeconds = 600;
+
+    @Bean
+    public RemoteCache remoteCache(ObjectProvider<RedisConnectionFactory> connectionFactoryProvider,
+                                   MeterRegistry meterRegistry) {
+        if (!remoteEnabled) {
+            return new NoopRemoteCache();
+        }
+        return new RedisRemoteCache(connectionFactoryProvider.getObject(), keyPrefix, invalidationChannel,
+                meterRegistry);
+    }
+}
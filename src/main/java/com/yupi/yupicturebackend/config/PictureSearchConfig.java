@@ -0,0 +1,64 @@
+package com.yupi.yupicturebackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 图片搜索配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "picture.search")
+@Data
+public class PictureSearchConfig {
+
+    /**
+     * 是否使用内存倒排索引处理综合搜索，关闭后回退到数据库模糊查询
+     */
+    private boolean textIndexEnabled = true;
+
+    /**
+     * 索引命中的图片数超过该值时回退到数据库模糊查询，避免拼出过长的 id 列表
+     */
+    private int textIndexMaxResults = 10000;
+
+    /**
+     * 是否使用标签位图索引处理按标签查询，关闭后通过标签关系表子查询
+     */
+    private boolean tagIndexEnabled = true;
+
+    /**
+     * 标签位图索引命中的图片数超过该值时改用标签关系表子查询
+     */
+    private int tagIndexMaxResults = 10000;
+
+    /**
+     * 分页总数缓存时间（秒），命中缓存时返回的总数标记为近似值
+     */
+    private int countCacheTtlSeconds = 60;
+
+    /**
+     * 分页总数缓存的最大条数
+     */
+    private int countCacheMaxSize = 10000;
+
+    /**
+     * 是否多实例部署：其他实例的写入要等定期校准后才反映到本实例的计数器，此时计数器给出的总数也标记为近似值
+     */
+    private boolean countMultiInstance = false;
+
+    /**
+     * 是否缓存公开图片列表（/picture/list/page/vo）的查询结果
+     */
+    private boolean listCacheEnabled = true;
+
+    /**
+     * 列表缓存时间（秒），兜底图片作者信息等不触发失效的变更
+     */
+    private int listCacheTtlSeconds = 30;
+
+    /**
+     * 列表缓存占用的最大字节数（按序列化后的大小计算）
+     */
+    private long listCacheMaxBytes = 64L * 1024 * 1024;
+}
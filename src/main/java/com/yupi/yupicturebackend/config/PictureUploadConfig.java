@@ -0,0 +1,144 @@
+package com.yupi.yupicturebackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 图片上传配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "picture.upload")
+@Data
+public class PictureUploadConfig {
+
+    /**
+     * 分片上传允许的最大文件大小（字节）
+     */
+    private long multipartMaxFileSize = 50 * 1024 * 1024L;
+
+    /**
+     * 分片大小（字节），COS 要求除最后一片外不小于 1MB
+     */
+    private long multipartPartSize = 5 * 1024 * 1024L;
+
+    /**
+     * 分片上传会话有效期（小时）
+     */
+    private int multipartExpireHours = 24;
+
+    /**
+     * 每个用户同时进行中的分片上传会话数上限
+     */
+    private int multipartMaxSessionsPerUser = 5;
+
+    /**
+     * 异步上传线程池核心线程数
+     */
+    private int asyncCorePoolSize = 4;
+
+    /**
+     * 异步上传线程池最大线程数
+     */
+    private int asyncMaxPoolSize = 8;
+
+    /**
+     * 异步上传任务队列容量，队列满时拒绝新任务
+     */
+    private int asyncQueueCapacity = 100;
+
+    /**
+     * 异步上传任务结果保留时间（分钟）
+     */
+    private int asyncTaskExpireMinutes = 30;
+
+    /**
+     * 批量上传时同时上传到对象存储的最大文件数
+     */
+    private int batchParallelism = 8;
+
+    /**
+     * 单次批量上传的最大文件数
+     */
+    private int batchMaxCount = 200;
+
+    /**
+     * URL 抓取：建立连接超时时间（毫秒）
+     */
+    private int fetchConnectTimeout = 3000;
+
+    /**
+     * URL 抓取：读取数据超时时间（毫秒）
+     */
+    private int fetchReadTimeout = 10000;
+
+    /**
+     * URL 抓取：从连接池获取连接的最长等待时间（毫秒）
+     */
+    private int fetchPoolWaitTimeout = 2000;
+
+    /**
+     * URL 抓取：连接池最大连接数
+     */
+    private int fetchMaxTotal = 200;
+
+    /**
+     * URL 抓取：单个域名的最大并发连接数，避免单个慢源站占满连接池
+     */
+    private int fetchMaxPerHost = 10;
+
+    /**
+     * URL 抓取缓存：最多保留的来源地址数量，超出后按最近访问时间淘汰
+     */
+    private int urlCacheMaxSize = 100000;
+
+    /**
+     * 是否开启历史图片衍生尺寸回填
+     */
+    private boolean derivativeBackfillEnabled = true;
+
+    /**
+     * 衍生尺寸回填：每轮处理的图片数量
+     */
+    private int derivativeBackfillBatchSize = 100;
+
+    /**
+     * 是否开启历史图片感知哈希回填
+     */
+    private boolean phashBackfillEnabled = true;
+
+    /**
+     * 感知哈希回填：每轮处理的图片数量
+     */
+    private int phashBackfillBatchSize = 100;
+
+    /**
+     * 上传时提示近似重复的最大汉明距离（不超过 3）
+     */
+    private int similarMaxDistance = 3;
+
+    /**
+     * 是否开启历史图片颜色特征回填
+     */
+    private boolean colorBackfillEnabled = true;
+
+    /**
+     * 颜色特征回填：每轮处理的图片数量
+     */
+    private int colorBackfillBatchSize = 100;
+
+    /**
+     * 是否开启内存缓冲上传：不超过缓冲区大小的图片读入池化的堆外缓冲区，不再落地临时文件；关闭后全部使用临时文件
+     */
+    private boolean bufferPoolEnabled = true;
+
+    /**
+     * 缓冲池最多分配的缓冲区数量，全部占用时回退到临时文件
+     */
+    private int bufferPoolSize = 32;
+
+    /**
+     * 单个缓冲区大小（字节），即走内存路径的图片大小上限，不小于单文件大小上限时所有图片都可走内存路径
+     */
+    private int bufferSize = 2 * 1024 * 1024;
+}
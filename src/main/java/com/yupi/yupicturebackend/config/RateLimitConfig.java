@@ -0,0 +1,34 @@
+package com.yupi.yupicturebackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 接口限流配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "rate-limit")
+@Data
+public class RateLimitConfig {
+
+    /**
+     * 是否开启限流
+     */
+    private boolean enabled = true;
+
+    /**
+     * 最多保留的限流桶数量，超出后淘汰最久未使用的桶
+     */
+    private long maxBuckets = 100000;
+
+    /**
+     * 桶闲置多久后回收（分钟），闲置超过突发时长的桶已经回满，回收不影响限流结果
+     */
+    private long bucketIdleMinutes = 10;
+
+    /**
+     * 是否信任 X-Forwarded-For 请求头获取客户端 IP，仅在经过可信反向代理时开启
+     */
+    private boolean trustForwardedFor = false;
+}
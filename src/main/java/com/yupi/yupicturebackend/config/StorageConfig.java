@@ -0,0 +1,118 @@
+package com.yupi.yupicturebackend.config;
+
+import com.yupi.yupicturebackend.manager.CosManager;
+import com.yupi.yupicturebackend.manager.storage.CachingPictureStorage;
+import com.yupi.yupicturebackend.manager.storage.CosPictureStorage;
+import com.yupi.yupicturebackend.manager.storage.LocalPictureStorage;
+import com.yupi.yupicturebackend.manager.storage.PictureStorage;
+import com.yupi.yupicturebackend.model.enums.PictureStorageTypeEnum;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 图片存储配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "picture.storage")
+@Data
+public class StorageConfig {
+
+    /**
+     * 存储类型：cos（腾讯云对象存储）、local（本地文件系统）
+     */
+    private String type = PictureStorageTypeEnum.COS.getValue();
+
+    /**
+     * 本地存储根目录
+     */
+    private String localRoot = "data/picture";
+
+    /**
+     * 本地存储的访问地址前缀，需要指向文件服务接口
+     */
+    private String localUrlPrefix = "http://localhost:8123/api/file/object";
+
+    /**
+     * 对象元数据缓存的最大条目数，用于条件请求直接返回 304
+     */
+    private long metadataCacheMaxSize = 100000;
+
+    /**
+     * 对象元数据缓存的过期时间（分钟）
+     */
+    private long metadataCacheExpireMinutes = 10;
+
+    /**
+     * 文件服务响应的浏览器缓存时间（秒），唯一键带随机串，内容不会原地变化
+     */
+    private long serveMaxAgeSeconds = 86400;
+
+    /**
+     * 是否在远程存储前启用本地磁盘缓存（本地存储不使用）
+     */
+    private boolean diskCacheEnabled = false;
+
+    /**
+     * 磁盘缓存目录，启动时会清空其中的缓存文件
+     */
+    private String diskCacheDir = "data/cache";
+
+    /**
+     * 磁盘缓存容量（字节）
+     */
+    private long diskCacheMaxBytes = 1024 * 1024 * 1024L;
+
+    /**
+     * 单个对象可缓存的最大大小（字节），更大的对象直接读取远程存储
+     */
+    private long diskCacheMaxObjectSize = 64 * 1024 * 1024L;
+
+    /**
+     * 磁盘缓存回源线程数
+     */
+    private int diskCacheFillThreads = 8;
+
+    /**
+     * 是否开启存储对象回收
+     */
+    private boolean reapEnabled = true;
+
+    /**
+     * 回收宽限期（小时），期间对象仍可访问，便于排查误删和等待 CDN 缓存过期
+     */
+    private int reapGraceHours = 24;
+
+    /**
+     * 每轮最多回收的对象数量，用于限制对存储和数据库的压力
+     */
+    private int reapBatchSize = 100;
+
+    /**
+     * 删除失败后的重试间隔（分钟）
+     */
+    private int reapRetryMinutes = 60;
+
+    @Bean
+    public PictureStorage pictureStorage(CosManager cosManager, CosClientConfig cosClientConfig,
+                                         MeterRegistry meterRegistry) {
+        PictureStorageTypeEnum storageTypeEnum = PictureStorageTypeEnum.getEnumByValue(type);
+        if (storageTypeEnum == null) {
+            throw new IllegalArgumentException("不支持的存储类型: " + type);
+        }
+        switch (storageTypeEnum) {
+            case LOCAL:
+                return new LocalPictureStorage(localRoot, localUrlPrefix);
+            case COS:
+            default:
+                PictureStorage cosPictureStorage = new CosPictureStorage(cosManager, cosClientConfig);
+                if (!diskCacheEnabled) {
+                    return cosPictureStorage;
+                }
+                return new CachingPictureStorage(cosPictureStorage, diskCacheDir, diskCacheMaxBytes,
+                        diskCacheMaxObjectSize, diskCacheFillThreads, meterRegistry);
+        }
+    }
+}
@@ -1,22 +1,25 @@
 package com.yupi.yupicturebackend.controller;
 
-import com.qcloud.cos.model.COSObject;
-import com.qcloud.cos.model.COSObjectInputStream;
-import com.qcloud.cos.utils.IOUtils;
+import cn.hutool.core.util.StrUtil;
 import com.yupi.yupicturebackend.annotation.AuthCheck;
 import com.yupi.yupicturebackend.common.BaseResponse;
 import com.yupi.yupicturebackend.common.ResultUtils;
 import com.yupi.yupicturebackend.exception.BusinessException;
 import com.yupi.yupicturebackend.exception.ErrorCode;
-import com.yupi.yupicturebackend.manager.CosManager;
+import com.yupi.yupicturebackend.exception.ThrowUtils;
+import com.yupi.yupicturebackend.manager.storage.PictureStorage;
+import com.yupi.yupicturebackend.manager.storage.StorageServeManager;
 import com.yupi.yupicturebackend.model.constant.UserConstant;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.HandlerMapping;
 import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * 文件上传控制器
@@ -31,11 +34,20 @@ import java.io.IOException;
 public class FileController {
 
     /**
-     * 注入COS文件管理服务
-     * 用于实际处理文件上传到腾讯云COS
+     * 注入图片存储服务
+     * 用于实际处理文件上传到当前配置的存储（腾讯云COS或本地）
      */
     @Resource
-    private CosManager cosManager;
+    private PictureStorage pictureStorage;
+
+    /**
+     * 注入存储对象输出服务
+     * 用于以流的方式输出文件
+     */
+    @Resource
+    private StorageServeManager storageServeManager;
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
 
     /**
      * 测试文件上传接口
@@ -50,92 +62,57 @@ public class FileController {
     public BaseResponse<String> testUploadFile(@RequestPart("file") MultipartFile multipartFile) {
         // 获取原始文件名
         String filename = multipartFile.getOriginalFilename();
-        // 构造文件在COS中的存储路径，格式为/test/文件名
+        // 构造文件在存储中的路径，格式为/test/文件名
         String filepath = String.format("/test/%s", filename);
 
-        // 声明临时文件变量
-        File file = null;
-        try {
-            // 1. 创建临时文件
-            // File.createTempFile会在系统临时目录创建文件
-            file = File.createTempFile(filepath, null);
-
-            // 2. 将上传的文件内容传输到临时文件
-            multipartFile.transferTo(file);
-
-            // 3. 调用COS管理器上传文件
-            cosManager.putObject(filepath, file);
-
-            // 4. 返回成功响应，包含文件路径
+        // 容器已接收完整内容，长度已知，直接以流的方式上传，不再落地临时文件
+        try (InputStream inputStream = multipartFile.getInputStream()) {
+            // 唯一键不以 / 开头，与下载接口保持一致
+            pictureStorage.putPicture(StrUtil.removePrefix(filepath, "/"), inputStream, multipartFile.getSize());
+            // 返回成功响应，包含文件路径
             return ResultUtils.success(filepath);
         } catch (Exception e) {
             // 捕获并记录上传过程中的异常
             log.error("file upload error, filepath = " + filepath, e);
             // 抛出业务异常，提示"上传失败"
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "上传失败");
-        } finally {
-            // 无论成功与否，都尝试删除临时文件
-            if (file != null) {
-                boolean delete = file.delete();
-                if (!delete) {
-                    log.error("file delete error, filepath = {}", filepath);
-                }
-            }
         }
     }
 
     /**
      * 测试文件下载接口
-     * 该接口用于从COS（腾讯云对象存储）下载指定路径的文件
+     * 该接口用于从存储下载指定路径的文件，内容以流的方式写入响应，不在内存中整体缓存
      * 需要管理员权限才能访问
      *
-     * @param filepath 要下载的文件在COS中的完整路径
+     * @param filepath 要下载的文件在存储中的完整路径
+     * @param request  HTTP请求对象，用于读取 Range 和条件请求头
      * @param response HTTP响应对象，用于返回文件数据
      * @throws IOException 当文件读取或写入响应流时发生错误
      */
     @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)  // 权限校验，要求用户具有管理员角色
     @GetMapping("/test/download/")
-    public void testDownloadFile(String filepath, HttpServletResponse response) throws IOException {
-        // 声明COS对象输入流，用于读取文件内容
-        COSObjectInputStream cosObjectInput = null;
-        try {
-            // 1. 从COS获取文件对象
-            COSObject cosObject = cosManager.getObject(filepath);
-
-            // 2. 获取文件内容输入流
-            cosObjectInput = cosObject.getObjectContent();
-
-            // 3. 将输入流转换为字节数组
-            byte[] bytes = IOUtils.toByteArray(cosObjectInput);
-
-            // 4. 设置响应头信息
-            // 设置内容类型为二进制流，强制浏览器下载而不是直接打开
-            response.setContentType("application/octet-stream;charset=UTF-8");
-            // 设置Content-Disposition头，指定下载文件名
-            response.setHeader("Content-Disposition", "attachment; filename=" + filepath);
-
-            // 5. 将文件内容写入响应输出流
-            response.getOutputStream().write(bytes);
-            // 刷新输出流，确保所有数据都已发送
-            response.getOutputStream().flush();
+    public void testDownloadFile(String filepath, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        ThrowUtils.throwif(StrUtil.isBlank(filepath), ErrorCode.PARAMS_ERROR);
+        // 唯一键不以 / 开头（COS 会自动去掉开头的 /）
+        storageServeManager.serve(StrUtil.removePrefix(filepath, "/"), true, request, response);
+    }
 
-        } catch (Exception e) {
-            // 捕获并记录异常
-            log.error("file download error, filepath = " + filepath, e);
-            // 抛出业务异常，返回系统错误信息
-            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "下载失败");
-        } finally {
-            // 6. 在finally块中确保资源被释放
-            if (cosObjectInput != null) {
-                try {
-                    // 关闭输入流
-                    cosObjectInput.close();
-                } catch (IOException e) {
-                    // 记录但不抛出关闭流时可能出现的异常
-                    log.error("Failed to close COS object input stream", e);
-                }
-            }
-        }
+    /**
+     * 文件服务接口
+     * 输出存储中的对象，支持 Range 分段下载、ETag 和 Last-Modified 条件请求
+     * 本地存储模式下图片地址指向该接口
+     *
+     * @param request  HTTP请求对象，路径 /file/object/ 之后的部分为唯一键
+     * @param response HTTP响应对象
+     */
+    @GetMapping("/object/**")
+    public void serveObject(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String path = (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
+        String pattern = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String key = PATH_MATCHER.extractPathWithinPattern(pattern, path);
+        ThrowUtils.throwif(StrUtil.isBlank(key), ErrorCode.PARAMS_ERROR);
+        storageServeManager.serve(key, false, request, response);
     }
 
 }
\ No newline at end of file
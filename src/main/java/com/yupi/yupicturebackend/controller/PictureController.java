@@ -1,8 +1,8 @@
 package com.yupi.yupicturebackend.controller;
 
-import cn.hutool.json.JSONUtil;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.yupi.yupicturebackend.annotation.AuthCheck;
+import com.yupi.yupicturebackend.annotation.RateLimit;
 import com.yupi.yupicturebackend.common.BaseResponse;
 import com.yupi.yupicturebackend.common.DeleteRequest;
 import com.yupi.yupicturebackend.common.ResultUtils;
@@ -10,24 +10,31 @@ import com.yupi.yupicturebackend.exception.BusinessException;
 import com.yupi.yupicturebackend.exception.ErrorCode;
 import com.yupi.yupicturebackend.exception.ThrowUtils;
 import com.yupi.yupicturebackend.manager.CosManager;
+import com.yupi.yupicturebackend.manager.PictureListCacheManager;
+import com.yupi.yupicturebackend.manager.cache.PictureCacheManager;
+import com.yupi.yupicturebackend.manager.cache.PictureVOCacheManager;
+import com.yupi.yupicturebackend.manager.facet.PictureFacetManager;
 import com.yupi.yupicturebackend.model.constant.UserConstant;
 import com.yupi.yupicturebackend.model.dto.picture.*;
 import com.yupi.yupicturebackend.model.entity.Picture;
 import com.yupi.yupicturebackend.model.entity.User;
 import com.yupi.yupicturebackend.model.enums.PictureReviewStatusEnum;
+import com.yupi.yupicturebackend.model.vo.PictureBatchUploadVO;
+import com.yupi.yupicturebackend.model.vo.PictureFacetVO;
+import com.yupi.yupicturebackend.model.vo.PictureMultipartUploadVO;
 import com.yupi.yupicturebackend.model.vo.PictureTagCategory;
+import com.yupi.yupicturebackend.model.vo.PictureUploadTaskVO;
 import com.yupi.yupicturebackend.model.vo.PictureVO;
 import com.yupi.yupicturebackend.service.PictureService;
 import com.yupi.yupicturebackend.service.UserService;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.BeanUtils;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
 import java.util.Arrays;
-import java.util.Date;
 import java.util.List;
 
 /**
@@ -44,6 +51,18 @@ public class PictureController {
     @Resource
     private PictureService pictureService;
 
+    @Resource
+    private PictureFacetManager pictureFacetManager;
+
+    @Resource
+    private PictureListCacheManager pictureListCacheManager;
+
+    @Resource
+    private PictureCacheManager pictureCacheManager;
+
+    @Resource
+    private PictureVOCacheManager pictureVOCacheManager;
+
 
 
 
@@ -59,6 +78,7 @@ public class PictureController {
      * @permission 仅管理员可操作
      */
     @PostMapping("/upload")
+    @RateLimit(key = "picture:upload", userRate = 1, ipRate = 2, burstSeconds = 10)
     public BaseResponse<PictureVO> uploadPicture(
             @RequestPart("file") MultipartFile multipartFile,
             PictureUploadRequest pictureUploadRequest,
@@ -86,21 +106,40 @@ public class PictureController {
         }
 
         User loginUser = userService.getLoginUser(request);
-        long id = deleteRequest.getId();
-
-        // 检查图片是否存在
-        Picture oldPicture = pictureService.getById(id);
-        ThrowUtils.throwif(oldPicture == null, ErrorCode.NOT_FOUND_ERROR, "图片不存在");
+        pictureService.deletePicture(deleteRequest.getId(), loginUser);
+        return ResultUtils.success(true);
+    }
 
-        // 权限校验：仅本人或管理员可删除
-        if (!oldPicture.getUserId().equals(loginUser.getId()) && !userService.isAdmin(loginUser)) {
-            throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "无操作权限");
-        }
+    /**
+     * 查找近似重复的图片
+     *
+     * @param id          图片ID
+     * @param maxDistance 感知哈希的最大汉明距离（0-3，越小越相似）
+     * @param request     HTTP请求对象
+     * @return 相似图片列表，按相似度从高到低排序
+     */
+    @GetMapping("/similar")
+    @RateLimit(key = "picture:similar", userRate = 5, ipRate = 10, burstSeconds = 2)
+    public BaseResponse<List<PictureVO>> listSimilarPicture(long id,
+                                                            @RequestParam(defaultValue = "3") int maxDistance,
+                                                            HttpServletRequest request) {
+        ThrowUtils.throwif(id <= 0, ErrorCode.PARAMS_ERROR, "参数错误：ID必须大于0");
+        ThrowUtils.throwif(maxDistance < 0 || maxDistance > 3, ErrorCode.PARAMS_ERROR, "最大距离需在 0-3 之间");
+        return ResultUtils.success(pictureService.listSimilarPictureVO(id, maxDistance, request));
+    }
 
-        // 执行删除操作
-        boolean result = pictureService.removeById(id);
-        ThrowUtils.throwif(!result, ErrorCode.OPERATION_ERROR, "删除失败");
-        return ResultUtils.success(true);
+    /**
+     * 按颜色搜索图片
+     *
+     * @param searchByColorRequest 颜色搜索请求
+     * @param request              HTTP请求对象
+     * @return 主色调最接近的已过审图片
+     */
+    @PostMapping("/search/color")
+    @RateLimit(key = "picture:search:color", userRate = 5, ipRate = 10, burstSeconds = 2)
+    public BaseResponse<List<PictureVO>> searchPictureByColor(@RequestBody PictureSearchByColorRequest searchByColorRequest,
+                                                              HttpServletRequest request) {
+        return ResultUtils.success(pictureService.searchPictureByColor(searchByColorRequest, request));
     }
 
     /**
@@ -118,27 +157,8 @@ public class PictureController {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "参数错误：ID不能为空");
         }
 
-        // DTO转Entity
-        Picture picture = new Picture();
-        BeanUtils.copyProperties(pictureUpdateRequest, picture);
-        // 处理标签列表转JSON字符串
-        picture.setTags(JSONUtil.toJsonStr(pictureUpdateRequest.getTags()));
-
-        // 数据校验
-        pictureService.validPicture(picture);
-
-        // 检查图片是否存在
-        long id = pictureUpdateRequest.getId();
-        Picture oldPicture = pictureService.getById(id);
-        ThrowUtils.throwif(oldPicture == null, ErrorCode.NOT_FOUND_ERROR, "图片不存在");
-
-        //补充审核参数
         User loginUser = userService.getLoginUser(request);
-        pictureService.fillReviewParams(picture, loginUser);
-
-        // 执行更新操作
-        boolean result = pictureService.updateById(picture);
-        ThrowUtils.throwif(!result, ErrorCode.OPERATION_ERROR, "更新失败");
+        pictureService.updatePicture(pictureUpdateRequest, loginUser);
         return ResultUtils.success(true);
     }
 
@@ -156,8 +176,8 @@ public class PictureController {
         // 参数校验
         ThrowUtils.throwif(id <= 0, ErrorCode.PARAMS_ERROR, "参数错误：ID必须大于0");
 
-        // 查询数据库
-        Picture picture = pictureService.getById(id);
+        // 读取两级缓存，都未命中时查询数据库
+        Picture picture = pictureCacheManager.getPicture(id);
         ThrowUtils.throwif(picture == null, ErrorCode.NOT_FOUND_ERROR, "图片不存在");
 
         return ResultUtils.success(picture);
@@ -175,12 +195,16 @@ public class PictureController {
         // 参数校验
         ThrowUtils.throwif(id <= 0, ErrorCode.PARAMS_ERROR, "参数错误：ID必须大于0");
 
-        // 查询数据库
-        Picture picture = pictureService.getById(id);
-        ThrowUtils.throwif(picture == null, ErrorCode.NOT_FOUND_ERROR, "图片不存在");
+        // 读取 VO 缓存（热点图片由本地副本返回），未命中时同一 id 只有一个请求查询图片并转换为VO对象
+        PictureVO pictureVO = pictureVOCacheManager.getPictureVO(id, () -> {
+            Picture picture = pictureCacheManager.getPicture(id);
+            return picture != null ? PictureVO.objToVo(picture) : null;
+        });
+        ThrowUtils.throwif(pictureVO == null, ErrorCode.NOT_FOUND_ERROR, "图片不存在");
+        // 作者信息不进入缓存，每次读取最新资料
+        pictureService.fillPictureUser(pictureVO);
 
-        // 转换为VO对象
-        return ResultUtils.success(pictureService.getPictureVO(picture, request));
+        return ResultUtils.success(pictureVO);
     }
 
     /**
@@ -193,15 +217,10 @@ public class PictureController {
     @PostMapping("/list/page")
     @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
     public BaseResponse<Page<Picture>> listPictureByPage(@RequestBody PictureQueryRequest pictureQueryRequest) {
-        // 获取分页参数
-        long current = pictureQueryRequest.getCurrent();
-        long size = pictureQueryRequest.getPageSize();
-
-        // 构建查询条件并执行查询
-        Page<Picture> picturePage = pictureService.page(
-                new Page<>(current, size),
-                pictureService.getQueryWrapper(pictureQueryRequest)
-        );
+        // 游标分页不使用 OFFSET，也不统计总数；否则执行普通分页查询（总数取自计数器或缓存）
+        Page<Picture> picturePage = pictureQueryRequest.isUseCursor()
+                ? pictureService.listPictureByCursor(pictureQueryRequest)
+                : pictureService.listPictureByPage(pictureQueryRequest);
 
         return ResultUtils.success(picturePage);
     }
@@ -214,6 +233,7 @@ public class PictureController {
      * @return 分页结果（VO）
      */
     @PostMapping("/list/page/vo")
+    @RateLimit(key = "picture:list:vo", userRate = 10, ipRate = 20, globalRate = 2000, burstSeconds = 2)
     public BaseResponse<Page<PictureVO>> listPictureVOByPage(
             @RequestBody PictureQueryRequest pictureQueryRequest,
             HttpServletRequest request) {
@@ -224,14 +244,31 @@ public class PictureController {
         // 普通用户默认只能查看已过审的数据
         pictureQueryRequest.setReviewStatus(PictureReviewStatusEnum.PASS.getValue());
 
-        // 执行分页查询
-        Page<Picture> picturePage = pictureService.page(
-                new Page<>(pictureQueryRequest.getCurrent(), size),
-                pictureService.getQueryWrapper(pictureQueryRequest)
-        );
+        // 优先读取结果缓存，未命中时同一查询条件只有一个请求执行查询
+        Page<PictureVO> pictureVOPage = pictureListCacheManager.getPage(pictureQueryRequest, () -> {
+            // 执行分页查询（游标分页不使用 OFFSET，也不统计总数；普通分页的总数取自计数器或缓存）
+            Page<Picture> picturePage = pictureQueryRequest.isUseCursor()
+                    ? pictureService.listPictureByCursor(pictureQueryRequest)
+                    : pictureService.listPictureByPage(pictureQueryRequest);
+            // 转换为VO分页
+            return pictureService.getPictureVOPage(picturePage, request);
+        });
+        return ResultUtils.success(pictureVOPage);
+    }
 
-        // 转换为VO分页
-        return ResultUtils.success(pictureService.getPictureVOPage(picturePage, request));
+    /**
+     * 统计当前筛选条件下各分类、格式和宽高比区间的图片数量
+     *
+     * @param pictureQueryRequest 查询条件（分页和排序参数不参与统计）
+     * @return 分面统计结果
+     */
+    @PostMapping("/facets")
+    @RateLimit(key = "picture:facets", userRate = 5, ipRate = 10, globalRate = 1000, burstSeconds = 2)
+    public BaseResponse<PictureFacetVO> getPictureFacets(@RequestBody PictureQueryRequest pictureQueryRequest) {
+        ThrowUtils.throwif(pictureQueryRequest == null, ErrorCode.PARAMS_ERROR);
+        // 普通用户只能统计已过审的数据
+        pictureQueryRequest.setReviewStatus(PictureReviewStatusEnum.PASS.getValue());
+        return ResultUtils.success(pictureFacetManager.getFacets(pictureQueryRequest));
     }
 
     /**
@@ -251,33 +288,8 @@ public class PictureController {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "参数错误：ID不能为空");
         }
 
-        // DTO转Entity
-        Picture picture = new Picture();
-        BeanUtils.copyProperties(pictureEditRequest, picture);
-        // 处理标签列表
-        picture.setTags(JSONUtil.toJsonStr(pictureEditRequest.getTags()));
-        // 设置编辑时间
-        picture.setEditTime(new Date());
-
-        // 数据校验
-        pictureService.validPicture(picture);
-
-        // 权限校验
         User loginUser = userService.getLoginUser(request);
-        Picture oldPicture = pictureService.getById(pictureEditRequest.getId());
-        ThrowUtils.throwif(oldPicture == null, ErrorCode.NOT_FOUND_ERROR, "图片不存在");
-
-        // 仅本人或管理员可编辑
-        if (!oldPicture.getUserId().equals(loginUser.getId()) && !userService.isAdmin(loginUser)) {
-            throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "无编辑权限");
-        }
-
-        // 补充审核参数
-        pictureService.fillReviewParams(picture, loginUser);
-
-        // 执行更新
-        boolean result = pictureService.updateById(picture);
-        ThrowUtils.throwif(!result, ErrorCode.OPERATION_ERROR, "更新失败");
+        pictureService.editPicture(pictureEditRequest, loginUser);
         return ResultUtils.success(true);
     }
 
@@ -322,6 +334,7 @@ public class PictureController {
      * 通过 URL 上传图片（可重新上传）
      */
     @PostMapping("/upload/url")
+    @RateLimit(key = "picture:upload:url", userRate = 1, ipRate = 2, globalRate = 50, burstSeconds = 5)
     public BaseResponse<PictureVO> uploadPictureByUrl(
             @RequestBody PictureUploadRequest pictureUploadRequest,
             HttpServletRequest request) {
@@ -331,6 +344,122 @@ public class PictureController {
         return ResultUtils.success(pictureVO);
     }
 
+    /**
+     * 批量上传图片
+     * 文件并行上传到对象存储，返回每个文件的成功或失败结果
+     *
+     * @permission 仅管理员可操作
+     */
+    @PostMapping("/upload/batch")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<PictureBatchUploadVO> uploadPictureBatch(
+            @RequestPart("files") List<MultipartFile> multipartFiles,
+            HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.uploadPictureBatch(multipartFiles, loginUser));
+    }
+
+    /**
+     * 异步上传图片（可重新上传）
+     * 接收文件后立即返回任务 id（HTTP 202），上传和入库在后台线程池中完成
+     */
+    @PostMapping("/upload/async")
+    @RateLimit(key = "picture:upload", userRate = 1, ipRate = 2, burstSeconds = 10)
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public BaseResponse<String> uploadPictureAsync(
+            @RequestPart("file") MultipartFile multipartFile,
+            PictureUploadRequest pictureUploadRequest,
+            HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.submitUploadTask(multipartFile, pictureUploadRequest, loginUser));
+    }
+
+    /**
+     * 通过 URL 异步上传图片（可重新上传）
+     */
+    @PostMapping("/upload/url/async")
+    @RateLimit(key = "picture:upload:url", userRate = 1, ipRate = 2, globalRate = 50, burstSeconds = 5)
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public BaseResponse<String> uploadPictureByUrlAsync(
+            @RequestBody PictureUploadRequest pictureUploadRequest,
+            HttpServletRequest request) {
+        ThrowUtils.throwif(pictureUploadRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        String fileUrl = pictureUploadRequest.getFileUrl();
+        return ResultUtils.success(pictureService.submitUploadTask(fileUrl, pictureUploadRequest, loginUser));
+    }
+
+    /**
+     * 查询异步上传任务的进度和结果
+     */
+    @GetMapping("/upload/task/{id}")
+    public BaseResponse<PictureUploadTaskVO> getUploadTask(@PathVariable("id") String taskId,
+                                                           HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.getUploadTask(taskId, loginUser));
+    }
+
+    /**
+     * 初始化分片上传（可重新上传）
+     * 大文件拆分为多个分片分别上传，连接中断后可只补传缺失的分片
+     */
+    @PostMapping("/upload/multipart/init")
+    public BaseResponse<PictureMultipartUploadVO> initMultipartUpload(
+            @RequestBody PictureMultipartUploadInitRequest initRequest,
+            HttpServletRequest request) {
+        ThrowUtils.throwif(initRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.initMultipartUpload(initRequest, loginUser));
+    }
+
+    /**
+     * 上传单个分片，各分片可并行上传
+     */
+    @PostMapping("/upload/multipart/part")
+    public BaseResponse<Boolean> uploadPicturePart(
+            @RequestPart("file") MultipartFile multipartFile,
+            String uploadId,
+            int partNumber,
+            HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        pictureService.uploadPicturePart(uploadId, partNumber, multipartFile, loginUser);
+        return ResultUtils.success(true);
+    }
+
+    /**
+     * 查询分片上传进度，返回已上传的分片编号（用于断点续传）
+     */
+    @GetMapping("/upload/multipart/parts")
+    public BaseResponse<PictureMultipartUploadVO> getMultipartUpload(String uploadId, HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.getMultipartUpload(uploadId, loginUser));
+    }
+
+    /**
+     * 完成分片上传，合并分片并保存图片
+     */
+    @PostMapping("/upload/multipart/complete")
+    public BaseResponse<PictureVO> completeMultipartUpload(
+            @RequestBody PictureMultipartUploadRequest multipartUploadRequest,
+            HttpServletRequest request) {
+        ThrowUtils.throwif(multipartUploadRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.completeMultipartUpload(multipartUploadRequest.getUploadId(), loginUser));
+    }
+
+    /**
+     * 终止分片上传，释放已上传的分片
+     */
+    @PostMapping("/upload/multipart/abort")
+    public BaseResponse<Boolean> abortMultipartUpload(
+            @RequestBody PictureMultipartUploadRequest multipartUploadRequest,
+            HttpServletRequest request) {
+        ThrowUtils.throwif(multipartUploadRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        pictureService.abortMultipartUpload(multipartUploadRequest.getUploadId(), loginUser);
+        return ResultUtils.success(true);
+    }
+
 
 
 }
@@ -3,6 +3,7 @@ package com.yupi.yupicturebackend.controller;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.yupi.yupicturebackend.annotation.AuthCheck;
 import com.yupi.yupicturebackend.common.BaseResponse;
+import com.yupi.yupicturebackend.common.CountedPage;
 import com.yupi.yupicturebackend.common.DeleteRequest;
 import com.yupi.yupicturebackend.common.ResultUtils;
 import com.yupi.yupicturebackend.exception.BusinessException;
@@ -177,14 +178,17 @@ public class UserController {
         // 3. 执行分页查询（两步操作）
         // 3.1 构建分页对象（Page是MyBatis-Plus的分页对象）
         // 3.2 调用service的page方法执行查询，传入分页参数和查询条件包装器
-        Page<User> userPage = userService.page(
-                new Page<>(current, pageSize),
-                userService.getQueryWrapper(userQueryRequest)
-        );
+        // 3.3 游标分页不使用 OFFSET，也不统计总数
+        Page<User> userPage = userQueryRequest.isUseCursor()
+                ? userService.listUserByCursor(userQueryRequest)
+                : userService.page(
+                        new Page<>(current, pageSize),
+                        userService.getQueryWrapper(userQueryRequest)
+                );
 
         // 4. 数据转换处理
-        // 4.1 创建新的分页VO对象（保留原分页信息）
-        Page<UserVO> userVOPage = new Page<>(current, pageSize, userPage.getTotal());
+        // 4.1 创建新的分页VO对象（保留原分页信息，游标分页保留下一页游标）
+        Page<UserVO> userVOPage = CountedPage.newPageLike(userPage);
         // 4.2 将User实体列表转换为UserVO列表（脱敏等处理）
         List<UserVO> userVOList = userService.getUserVOList(userPage.getRecords());
         // 4.3 设置VO数据到分页对象
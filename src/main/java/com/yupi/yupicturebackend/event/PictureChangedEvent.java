@@ -0,0 +1,71 @@
+package com.yupi.yupicturebackend.event;
+
+import com.yupi.yupicturebackend.model.entity.Picture;
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 图片变更事件
+ * 图片入库、更新或删除后发布，供各类内存索引同步更新；
+ * 其他实例的变更由 {@link PictureChangedRelay} 转发为本地事件（{@link #isRemote()}），只用于同步内存索引
+ */
+@Getter
+public class PictureChangedEvent extends ApplicationEvent {
+
+    /**
+     * 变更类型
+     */
+    private final ChangeType changeType;
+
+    /**
+     * 变更后的图片
+     * 保存时只保证 id 和本次写入的字段有值，为空的字段表示未变更；删除时只保证有 id
+     */
+    private final List<Picture> pictureList;
+
+    /**
+     * 变更前的图片（完整数据），与 pictureList 一一对应，新增的图片对应 null
+     */
+    private final List<Picture> oldPictureList;
+
+    /**
+     * 是否为其他实例发生的变更
+     * 此时保存的图片为从数据库读取的完整数据，删除的图片只有 id，变更前的图片均为 null
+     */
+    private final boolean remote;
+
+    public PictureChangedEvent(Object source, ChangeType changeType, List<Picture> pictureList) {
+        this(source, changeType, pictureList, Collections.nCopies(pictureList.size(), null));
+    }
+
+    public PictureChangedEvent(Object source, ChangeType changeType, List<Picture> pictureList,
+                               List<Picture> oldPictureList) {
+        this(source, changeType, pictureList, oldPictureList, false);
+    }
+
+    public PictureChangedEvent(Object source, ChangeType changeType, List<Picture> pictureList,
+                               List<Picture> oldPictureList, boolean remote) {
+        super(source);
+        this.changeType = changeType;
+        this.pictureList = pictureList;
+        this.oldPictureList = oldPictureList;
+        this.remote = remote;
+    }
+
+    /**
+     * 变更类型
+     */
+    public enum ChangeType {
+        /**
+         * 新增或重新上传
+         */
+        SAVE,
+        /**
+         * 删除
+         */
+        DELETE
+    }
+}
@@ -0,0 +1,87 @@
+package com.yupi.yupicturebackend.event;
+
+import com.yupi.yupicturebackend.manager.cache.CacheInvalidationBus;
+import com.yupi.yupicturebackend.mapper.PictureMapper;
+import com.yupi.yupicturebackend.model.entity.Picture;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 图片变更跨实例转发
+ * 本地的图片变更通过 {@link CacheInvalidationBus} 广播图片 id，其他实例收到后从数据库读取最新数据，
+ * 发布 {@link PictureChangedEvent#isRemote()} 为 true 的本地事件，使标签、搜索、分面等内存索引与数据库一致。
+ * 未启用远程缓存时不广播，多实例部署需要启用远程缓存。
+ */
+@Slf4j
+@Component
+public class PictureChangedRelay {
+
+    /**
+     * 广播频道中的名称前缀，后接变更类型
+     */
+    private static final String CHANNEL_PREFIX = "picture:changed:";
+
+    @Resource
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @PostConstruct
+    public void init() {
+        for (PictureChangedEvent.ChangeType changeType : PictureChangedEvent.ChangeType.values()) {
+            cacheInvalidationBus.register(CHANNEL_PREFIX + changeType.name(), keys -> onRemoteChanged(changeType, keys));
+        }
+    }
+
+    @EventListener
+    public void onPictureChanged(PictureChangedEvent event) {
+        if (event.isRemote()) {
+            return;
+        }
+        Set<String> keys = new LinkedHashSet<>();
+        for (Picture picture : event.getPictureList()) {
+            if (picture.getId() != null) {
+                keys.add(String.valueOf(picture.getId()));
+            }
+        }
+        cacheInvalidationBus.publish(CHANNEL_PREFIX + event.getChangeType().name(), keys);
+    }
+
+    private void onRemoteChanged(PictureChangedEvent.ChangeType changeType, List<String> keys) {
+        List<Long> pictureIds = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            pictureIds.add(Long.valueOf(key));
+        }
+        List<Picture> pictureList;
+        if (changeType == PictureChangedEvent.ChangeType.DELETE) {
+            pictureList = new ArrayList<>(pictureIds.size());
+            for (Long pictureId : pictureIds) {
+                Picture picture = new Picture();
+                picture.setId(pictureId);
+                pictureList.add(picture);
+            }
+        } else {
+            // 按数据库中的最新数据同步，消息乱序时已删除的图片不会被读到
+            pictureList = pictureMapper.selectBatchIds(pictureIds);
+        }
+        if (pictureList.isEmpty()) {
+            return;
+        }
+        applicationEventPublisher.publishEvent(new PictureChangedEvent(this, changeType, pictureList,
+                Collections.nCopies(pictureList.size(), null), true));
+    }
+}
@@ -0,0 +1,28 @@
+package com.yupi.yupicturebackend.exception;
+
+import lombok.Getter;
+
+/**
+ * 限流异常，由全局异常处理器转换为 HTTP 429
+ */
+@Getter
+public class RateLimitException extends BusinessException {
+
+    /**
+     * 建议的重试等待时间（秒）
+     */
+    private final long retryAfterSeconds;
+
+    public RateLimitException(long retryAfterSeconds) {
+        super(ErrorCode.TOO_MANY_REQUEST_ERROR);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * 超限请求可能很多，不收集堆栈
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -1,16 +1,28 @@
 package com.yupi.yupicturebackend.manager;
 
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
 import com.qcloud.cos.COSClient;
-import com.qcloud.cos.model.COSObject;
-import com.qcloud.cos.model.GetObjectRequest;
-import com.qcloud.cos.model.PutObjectRequest;
-import com.qcloud.cos.model.PutObjectResult;
-import com.qcloud.cos.model.ciModel.persistence.PicOperations;
+import com.qcloud.cos.exception.CosClientException;
+import com.qcloud.cos.model.*;
+import com.qcloud.cos.model.ciModel.common.ImageProcessRequest;
+import com.qcloud.cos.model.ciModel.persistence.*;
 import com.yupi.yupicturebackend.config.CosClientConfig;
+import com.yupi.yupicturebackend.model.enums.PictureDerivativeEnum;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 腾讯云COS(对象存储)管理类
@@ -59,6 +71,22 @@ public class CosManager {
         return cosClient.putObject(putObjectRequest);
     }
 
+    /**
+     * 以流的方式上传文件到腾讯云COS，不经过本地临时文件
+     *
+     * @param key           文件在COS中的唯一标识
+     * @param inputStream   文件输入流（由调用方负责关闭）
+     * @param contentLength 内容长度，必须已知，否则 SDK 会将整个流缓存到内存
+     * @return PutObjectResult 上传结果对象
+     */
+    public PutObjectResult putObject(String key, InputStream inputStream, long contentLength) {
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentLength(contentLength);
+        PutObjectRequest putObjectRequest = new PutObjectRequest(cosClientConfig.getBucket(), key,
+                inputStream, objectMetadata);
+        return cosClient.putObject(putObjectRequest);
+    }
+
     /**
      * 从腾讯云COS下载文件对象
      * @param key 文件在COS中的唯一标识(包含路径的文件名)
@@ -83,6 +111,79 @@ public class CosManager {
     }
 
 
+    /**
+     * 按字节范围下载对象
+     *
+     * @param key   唯一键
+     * @param start 起始位置（包含）
+     * @param end   结束位置（包含）
+     * @return COSObject，使用后必须关闭
+     */
+    public COSObject getObject(String key, long start, long end) {
+        GetObjectRequest getObjectRequest = new GetObjectRequest(cosClientConfig.getBucket(), key);
+        getObjectRequest.setRange(start, end);
+        return cosClient.getObject(getObjectRequest);
+    }
+
+    /**
+     * 查询对象元数据（HEAD 请求，不下载内容）
+     *
+     * @param key 唯一键
+     */
+    public ObjectMetadata getObjectMetadata(String key) {
+        return cosClient.getObjectMetadata(cosClientConfig.getBucket(), key);
+    }
+
+    /**
+     * 删除对象
+     *
+     * @param key 唯一键
+     */
+    public void deleteObject(String key) {
+        cosClient.deleteObject(cosClientConfig.getBucket(), key);
+    }
+
+    /**
+     * 批量删除对象（单次请求最多 1000 个）
+     *
+     * @param keys 唯一键列表
+     * @return 删除成功的唯一键
+     */
+    public List<String> deleteObjects(List<String> keys) {
+        List<String> deletedKeys = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += 1000) {
+            List<DeleteObjectsRequest.KeyVersion> keyVersions = new ArrayList<>();
+            for (String key : keys.subList(from, Math.min(from + 1000, keys.size()))) {
+                keyVersions.add(new DeleteObjectsRequest.KeyVersion(key));
+            }
+            DeleteObjectsRequest deleteObjectsRequest = new DeleteObjectsRequest(cosClientConfig.getBucket());
+            deleteObjectsRequest.setKeys(keyVersions);
+            // 非 quiet 模式，返回删除成功的对象列表
+            deleteObjectsRequest.setQuiet(false);
+            DeleteObjectsResult deleteObjectsResult = cosClient.deleteObjects(deleteObjectsRequest);
+            for (DeleteObjectsResult.DeletedObject deletedObject : deleteObjectsResult.getDeletedObjects()) {
+                deletedKeys.add(deletedObject.getKey());
+            }
+        }
+        return deletedKeys;
+    }
+
+    /**
+     * 列出对象
+     *
+     * @param prefix  前缀
+     * @param marker  从该唯一键之后开始列出，为空表示从头开始
+     * @param maxKeys 最大数量（不超过 1000）
+     */
+    public ObjectListing listObjects(String prefix, String marker, int maxKeys) {
+        ListObjectsRequest listObjectsRequest = new ListObjectsRequest();
+        listObjectsRequest.setBucketName(cosClientConfig.getBucket());
+        listObjectsRequest.setPrefix(prefix);
+        listObjectsRequest.setMarker(marker);
+        listObjectsRequest.setMaxKeys(maxKeys);
+        return cosClient.listObjects(listObjectsRequest);
+    }
+
     /**
      * 上传对象（附带图片信息）
      *
@@ -92,13 +193,214 @@ public class CosManager {
     public PutObjectResult putPictureObject(String key, File file) {
         PutObjectRequest putObjectRequest = new PutObjectRequest(cosClientConfig.getBucket(), key,
                 file);
+        // 构造处理参数
+        putObjectRequest.setPicOperations(buildPicOperations(key));
+        return cosClient.putObject(putObjectRequest);
+    }
+
+    /**
+     * 以流的方式上传对象（附带图片信息）
+     * 数据直接从输入流写入 COS，不经过本地临时文件
+     *
+     * @param key           唯一键
+     * @param inputStream   文件输入流（由调用方负责关闭）
+     * @param contentLength 内容长度，必须已知，否则 SDK 会将整个流缓存到内存
+     */
+    public PutObjectResult putPictureObject(String key, InputStream inputStream, long contentLength) {
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentLength(contentLength);
+        PutObjectRequest putObjectRequest = new PutObjectRequest(cosClientConfig.getBucket(), key,
+                inputStream, objectMetadata);
+        // 构造处理参数
+        putObjectRequest.setPicOperations(buildPicOperations(key));
+        return cosClient.putObject(putObjectRequest);
+    }
+
+    /**
+     * 对已存储的图片生成衍生尺寸（数据万象云上处理）
+     * 用于分片上传合并后以及历史图片回填
+     *
+     * @param key 原图唯一键
+     * @return 处理结果
+     */
+    public CIUploadResult processPictureObject(String key) {
+        ImageProcessRequest imageProcessRequest = new ImageProcessRequest(cosClientConfig.getBucket(), key);
+        imageProcessRequest.setPicOperations(buildPicOperations(key));
+        return cosClient.processImage(imageProcessRequest);
+    }
+
+    /**
+     * 获取衍生尺寸的唯一键：原图路径去掉扩展名，加上尺寸后缀，统一为 webp 格式
+     * 例如 public/1/20250612_abc.png => public/1/20250612_abc_thumbnail.webp
+     */
+    public static String getDerivativeKey(String key, PictureDerivativeEnum derivative) {
+        int dotIndex = key.lastIndexOf('.');
+        String mainKey = dotIndex > key.lastIndexOf('/') ? key.substring(0, dotIndex) : key;
+        return mainKey + "_" + derivative.getValue() + ".webp";
+    }
+
+    /**
+     * 获取衍生尺寸的访问地址
+     *
+     * @param key            原图唯一键
+     * @param derivative     衍生尺寸
+     * @param ciUploadResult 处理结果，未生成该尺寸时返回 null
+     */
+    public String getDerivativeUrl(String key, PictureDerivativeEnum derivative, CIUploadResult ciUploadResult) {
+        if (ciUploadResult == null || ciUploadResult.getProcessResults() == null
+                || CollUtil.isEmpty(ciUploadResult.getProcessResults().getObjectList())) {
+            return null;
+        }
+        String derivativeKey = getDerivativeKey(key, derivative);
+        for (CIObject ciObject : ciUploadResult.getProcessResults().getObjectList()) {
+            if (derivativeKey.equals(StrUtil.removePrefix(ciObject.getKey(), "/"))) {
+                return cosClientConfig.getHost() + "/" + derivativeKey;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 构造图片处理参数：返回原图信息，并生成各衍生尺寸
+     */
+    private PicOperations buildPicOperations(String key) {
         // 对图片进行处理（获取基本信息也被视作为一种处理）
         PicOperations picOperations = new PicOperations();
         // 1表示返回原图信息
         picOperations.setIsPicInfo(1);
-        // 构造处理参数
-        putObjectRequest.setPicOperations(picOperations);
-        return cosClient.putObject(putObjectRequest);
+        List<PicOperations.Rule> rules = new ArrayList<>();
+        for (PictureDerivativeEnum derivative : PictureDerivativeEnum.values()) {
+            PicOperations.Rule rule = new PicOperations.Rule();
+            rule.setBucket(cosClientConfig.getBucket());
+            rule.setFileId("/" + getDerivativeKey(key, derivative));
+            // 等比缩放到最长边不超过指定尺寸，原图更小时不放大
+            int maxSize = derivative.getMaxSize();
+            rule.setRule(String.format("imageMogr2/thumbnail/%dx%d>/format/webp", maxSize, maxSize));
+            rules.add(rule);
+        }
+        picOperations.setRules(rules);
+        return picOperations;
+    }
+
+    /**
+     * 查询图片基本信息（数据万象 imageInfo 接口）
+     * 用于分片上传等无法在上传时附带处理规则的场景
+     *
+     * @param key 唯一键
+     * @return 图片信息，包含格式、宽高等
+     */
+    public ImageInfo getPictureInfo(String key) {
+        GetObjectRequest getObjectRequest = new GetObjectRequest(cosClientConfig.getBucket(), key);
+        getObjectRequest.putCustomQueryParameter("imageInfo", null);
+        try (COSObject cosObject = cosClient.getObject(getObjectRequest)) {
+            String json = IoUtil.read(cosObject.getObjectContent(), StandardCharsets.UTF_8);
+            JSONObject jsonObject = JSONUtil.parseObj(json);
+            ImageInfo imageInfo = new ImageInfo();
+            imageInfo.setFormat(jsonObject.getStr("format"));
+            imageInfo.setWidth(jsonObject.getInt("width", 0));
+            imageInfo.setHeight(jsonObject.getInt("height", 0));
+            return imageInfo;
+        } catch (IOException e) {
+            throw new CosClientException("读取图片信息失败", e);
+        }
+    }
+
+    /**
+     * 获取缩放后的图片（数据万象实时处理，不保存结果）
+     * 用于计算感知哈希等只需要极小尺寸的场景
+     *
+     * @param key    唯一键
+     * @param width  宽度
+     * @param height 高度（忽略原图比例，强制缩放）
+     */
+    public BufferedImage getScaledPicture(String key, int width, int height) {
+        GetObjectRequest getObjectRequest = new GetObjectRequest(cosClientConfig.getBucket(), key);
+        getObjectRequest.putCustomQueryParameter(
+                String.format("imageMogr2/thumbnail/%dx%d!/format/png", width, height), null);
+        try (COSObject cosObject = cosClient.getObject(getObjectRequest)) {
+            return ImageIO.read(cosObject.getObjectContent());
+        } catch (IOException e) {
+            throw new CosClientException("读取缩放图片失败", e);
+        }
+    }
+
+    // region 分片上传
+
+    /**
+     * 初始化分片上传
+     *
+     * @param key 唯一键
+     * @return 分片上传 ID
+     */
+    public String initiateMultipartUpload(String key) {
+        InitiateMultipartUploadRequest request = new InitiateMultipartUploadRequest(cosClientConfig.getBucket(), key);
+        return cosClient.initiateMultipartUpload(request).getUploadId();
     }
 
+    /**
+     * 上传单个分片，分片内容直接以流的方式写入 COS
+     *
+     * @param key        唯一键
+     * @param uploadId   分片上传 ID
+     * @param partNumber 分片编号（从 1 开始）
+     * @param inputStream 分片内容
+     * @param partSize   分片大小
+     * @return 分片 ETag，用于完成上传
+     */
+    public PartETag uploadPart(String key, String uploadId, int partNumber, InputStream inputStream, long partSize) {
+        UploadPartRequest request = new UploadPartRequest();
+        request.setBucketName(cosClientConfig.getBucket());
+        request.setKey(key);
+        request.setUploadId(uploadId);
+        request.setPartNumber(partNumber);
+        request.setInputStream(inputStream);
+        request.setPartSize(partSize);
+        return cosClient.uploadPart(request).getPartETag();
+    }
+
+    /**
+     * 列出已上传的分片（自动翻页）
+     * 以 COS 记录为准，服务重启或连接中断后也能据此续传
+     *
+     * @param key      唯一键
+     * @param uploadId 分片上传 ID
+     * @return 已上传分片列表
+     */
+    public List<PartSummary> listParts(String key, String uploadId) {
+        List<PartSummary> partList = new ArrayList<>();
+        ListPartsRequest request = new ListPartsRequest(cosClientConfig.getBucket(), key, uploadId);
+        PartListing partListing;
+        do {
+            partListing = cosClient.listParts(request);
+            partList.addAll(partListing.getParts());
+            request.setPartNumberMarker(partListing.getNextPartNumberMarker());
+        } while (partListing.isTruncated());
+        return partList;
+    }
+
+    /**
+     * 完成分片上传，COS 按分片编号合并为完整对象
+     *
+     * @param key       唯一键
+     * @param uploadId  分片上传 ID
+     * @param partETags 全部分片的 ETag
+     */
+    public CompleteMultipartUploadResult completeMultipartUpload(String key, String uploadId, List<PartETag> partETags) {
+        CompleteMultipartUploadRequest request = new CompleteMultipartUploadRequest(
+                cosClientConfig.getBucket(), key, uploadId, partETags);
+        return cosClient.completeMultipartUpload(request);
+    }
+
+    /**
+     * 终止分片上传，释放已上传的分片
+     *
+     * @param key      唯一键
+     * @param uploadId 分片上传 ID
+     */
+    public void abortMultipartUpload(String key, String uploadId) {
+        cosClient.abortMultipartUpload(new AbortMultipartUploadRequest(cosClientConfig.getBucket(), key, uploadId));
+    }
+
+    // endregion
+
 }
\ No newline at end of file
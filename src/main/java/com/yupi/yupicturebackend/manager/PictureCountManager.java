@@ -0,0 +1,296 @@
+package com.yupi.yupicturebackend.manager;
+
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.ObjUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yupi.yupicturebackend.common.CountedPage;
+import com.yupi.yupicturebackend.config.PictureSearchConfig;
+import com.yupi.yupicturebackend.event.PictureChangedEvent;
+import com.yupi.yupicturebackend.mapper.PictureMapper;
+import com.yupi.yupicturebackend.model.dto.picture.PictureQueryRequest;
+import com.yupi.yupicturebackend.model.entity.Picture;
+import com.yupi.yupicturebackend.model.enums.PictureReviewStatusEnum;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 图片分页总数管理
+ * 分页查询不再由分页插件对每一页执行 COUNT(*)，总数按以下顺序获取：
+ * 1. 只按“已过审”（可选再加分类）筛选时，使用内存计数器；计数器随本实例的图片变更增量更新，并定期与数据库校准，
+ *    单实例部署时为精确值，多实例部署时其他实例的写入要等校准后才反映出来，标记为近似值
+ * 2. 其他条件按规范化后的查询条件缓存总数，缓存命中时为近似值（可能滞后于最新数据）
+ * 3. 缓存未命中时执行一次 COUNT(*) 并写入缓存，同一条件的并发请求只查询一次
+ */
+@Slf4j
+@Component
+public class PictureCountManager {
+
+    /**
+     * 与查询条件无关的分页参数
+     */
+    private static final Set<String> PAGING_FIELDS = new HashSet<>(Arrays.asList(
+            "current", "pageSize", "sortField", "sortOrder", "useCursor", "cursor", "withTotal"));
+
+    /**
+     * 计数器可以精确回答的查询条件
+     */
+    private static final Set<String> COUNTER_FIELDS = new HashSet<>(Arrays.asList("reviewStatus", "category"));
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private PictureSearchConfig pictureSearchConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 规范化的查询条件 => 总数
+     */
+    private Cache<String, Long> countCache;
+
+    /**
+     * 已过审的图片总数
+     */
+    private final AtomicLong passCount = new AtomicLong();
+
+    /**
+     * 分类 => 已过审的图片数
+     */
+    private final Map<String, AtomicLong> passCountByCategory = new ConcurrentHashMap<>();
+
+    /**
+     * 计数器是否已从数据库加载
+     */
+    private volatile boolean ready;
+
+    private Counter counterSourceCounter;
+
+    private Counter cacheSourceCounter;
+
+    private Counter databaseSourceCounter;
+
+    @PostConstruct
+    public void init() {
+        countCache = Caffeine.newBuilder()
+                .maximumSize(pictureSearchConfig.getCountCacheMaxSize())
+                .expireAfterWrite(pictureSearchConfig.getCountCacheTtlSeconds(), TimeUnit.SECONDS)
+                .build();
+        counterSourceCounter = meterRegistry.counter("picture.count.query", "source", "counter");
+        cacheSourceCounter = meterRegistry.counter("picture.count.query", "source", "cache");
+        databaseSourceCounter = meterRegistry.counter("picture.count.query", "source", "database");
+        meterRegistry.gauge("picture.count.pass", passCount);
+    }
+
+    /**
+     * 填充分页总数
+     *
+     * @param page                分页结果
+     * @param pictureQueryRequest 查询请求
+     * @param queryWrapper        与分页查询相同的查询条件
+     */
+    public void fillTotal(CountedPage<Picture> page, PictureQueryRequest pictureQueryRequest,
+                          QueryWrapper<Picture> queryWrapper) {
+        Map<String, Object> predicate = normalize(pictureQueryRequest);
+        Long counterValue = getCounterValue(predicate);
+        if (counterValue != null) {
+            counterSourceCounter.increment();
+            page.setTotal(counterValue);
+            page.setTotalEstimated(pictureSearchConfig.isCountMultiInstance());
+            return;
+        }
+        AtomicBoolean loaded = new AtomicBoolean();
+        Long total = countCache.get(JSONUtil.toJsonStr(predicate), key -> {
+            loaded.set(true);
+            return pictureMapper.selectCount(queryWrapper);
+        });
+        (loaded.get() ? databaseSourceCounter : cacheSourceCounter).increment();
+        page.setTotal(total != null ? total : 0);
+        page.setTotalEstimated(!loaded.get());
+    }
+
+    /**
+     * 规范化查询条件：去掉分页参数和空值，字符串去空白，标签排序，键按字典序排列
+     */
+    static Map<String, Object> normalize(PictureQueryRequest pictureQueryRequest) {
+        Map<String, Object> predicate = canonicalize(pictureQueryRequest);
+        predicate.keySet().removeAll(PAGING_FIELDS);
+        return predicate;
+    }
+
+    /**
+     * 规范化全部请求参数（包括分页参数）：去掉空值，字符串去空白，标签排序，键按字典序排列
+     */
+    static Map<String, Object> canonicalize(PictureQueryRequest pictureQueryRequest) {
+        Map<String, Object> predicate = new TreeMap<>();
+        Map<String, Object> fieldMap = BeanUtil.beanToMap(pictureQueryRequest, false, true);
+        for (Map.Entry<String, Object> entry : fieldMap.entrySet()) {
+            String field = entry.getKey();
+            Object value = entry.getValue();
+            if (ObjUtil.isEmpty(value)) {
+                continue;
+            }
+            if (value instanceof String) {
+                if (StrUtil.isBlank((String) value)) {
+                    continue;
+                }
+                value = StrUtil.trim((String) value);
+            } else if (value instanceof List) {
+                List<String> tags = new ArrayList<>();
+                for (Object tag : (List<?>) value) {
+                    if (tag != null && StrUtil.isNotBlank(tag.toString())) {
+                        tags.add(StrUtil.trim(tag.toString()));
+                    }
+                }
+                if (tags.isEmpty()) {
+                    continue;
+                }
+                Collections.sort(tags);
+                value = tags;
+            }
+            predicate.put(field, value);
+        }
+        return predicate;
+    }
+
+    /**
+     * 只按已过审（和分类）筛选时返回计数器的值，否则返回 null
+     */
+    private Long getCounterValue(Map<String, Object> predicate) {
+        if (!ready || !COUNTER_FIELDS.containsAll(predicate.keySet())
+                || !ObjUtil.equals(predicate.get("reviewStatus"), PictureReviewStatusEnum.PASS.getValue())) {
+            return null;
+        }
+        Object category = predicate.get("category");
+        if (category == null) {
+            return passCount.get();
+        }
+        AtomicLong categoryCount = passCountByCategory.get(category.toString());
+        return categoryCount != null ? categoryCount.get() : 0L;
+    }
+
+    @EventListener
+    public void onPictureChanged(PictureChangedEvent event) {
+        // 其他实例的变更没有变更前的数据，无法计算增量，由定期校准反映到计数器
+        if (event.isRemote()) {
+            return;
+        }
+        List<Picture> pictureList = event.getPictureList();
+        List<Picture> oldPictureList = event.getOldPictureList();
+        for (int i = 0; i < pictureList.size(); i++) {
+            Picture picture = pictureList.get(i);
+            Picture oldPicture = oldPictureList.get(i);
+            if (event.getChangeType() == PictureChangedEvent.ChangeType.DELETE) {
+                applyDelta(oldPicture != null ? oldPicture : picture, -1);
+                continue;
+            }
+            if (oldPicture != null) {
+                applyDelta(oldPicture, -1);
+            }
+            // 为空的字段表示未变更，沿用变更前的值
+            Integer reviewStatus = picture.getReviewStatus() != null ? picture.getReviewStatus()
+                    : (oldPicture != null ? oldPicture.getReviewStatus() : null);
+            String category = picture.getCategory() != null ? picture.getCategory()
+                    : (oldPicture != null ? oldPicture.getCategory() : null);
+            applyDelta(reviewStatus, category, 1);
+        }
+    }
+
+    private void applyDelta(Picture picture, long delta) {
+        applyDelta(picture.getReviewStatus(), picture.getCategory(), delta);
+    }
+
+    private void applyDelta(Integer reviewStatus, String category, long delta) {
+        if (!ObjUtil.equals(reviewStatus, PictureReviewStatusEnum.PASS.getValue())) {
+            return;
+        }
+        passCount.addAndGet(delta);
+        if (StrUtil.isNotBlank(category)) {
+            passCountByCategory.computeIfAbsent(category, k -> new AtomicLong()).addAndGet(delta);
+        }
+    }
+
+    /**
+     * 启动后在后台加载计数器，不阻塞启动
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        ThreadUtil.execute(this::reconcile);
+    }
+
+    /**
+     * 定期与数据库校准计数器，修正多实例部署时其他实例的写入以及异常导致的偏差
+     * 以查询前的计数器值为基准，只把与数据库的差值累加到计数器上，查询期间本实例的增量不会被覆盖
+     */
+    @Scheduled(initialDelay = 10 * 60 * 1000L, fixedDelay = 10 * 60 * 1000L)
+    public void reconcile() {
+        try {
+            long passCountBefore = passCount.get();
+            Map<String, Long> countByCategoryBefore = new TreeMap<>();
+            passCountByCategory.forEach((category, count) -> countByCategoryBefore.put(category, count.get()));
+            QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+            queryWrapper.select("category", "count(*) as total")
+                    .eq("reviewStatus", PictureReviewStatusEnum.PASS.getValue())
+                    .groupBy("category");
+            List<Map<String, Object>> rows = pictureMapper.selectMaps(queryWrapper);
+            long total = 0;
+            Map<String, Long> countByCategory = new TreeMap<>();
+            for (Map<String, Object> row : CollUtil.emptyIfNull(rows)) {
+                long count = ((Number) row.get("total")).longValue();
+                total += count;
+                Object category = row.get("category");
+                if (category != null && StrUtil.isNotBlank(category.toString())) {
+                    countByCategory.put(category.toString(), count);
+                }
+            }
+            passCount.addAndGet(total - passCountBefore);
+            for (Map.Entry<String, Long> entry : countByCategoryBefore.entrySet()) {
+                if (!countByCategory.containsKey(entry.getKey())) {
+                    countByCategory.put(entry.getKey(), 0L);
+                }
+            }
+            for (Map.Entry<String, Long> entry : countByCategory.entrySet()) {
+                String category = entry.getKey();
+                long delta = entry.getValue() - countByCategoryBefore.getOrDefault(category, 0L);
+                if (delta != 0) {
+                    passCountByCategory.computeIfAbsent(category, k -> new AtomicLong()).addAndGet(delta);
+                }
+                // 已没有图片的分类不再保留
+                passCountByCategory.computeIfPresent(category, (k, count) -> count.get() == 0 ? null : count);
+            }
+            if (!ready) {
+                ready = true;
+                log.info("图片计数器加载完成: 已过审 {} 张, {} 个分类", total, countByCategory.size());
+            }
+        } catch (Exception e) {
+            log.error("图片计数器校准失败", e);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.yupi.yupicturebackend.manager;
+
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.yupi.yupicturebackend.mapper.PictureMapper;
+import com.yupi.yupicturebackend.model.dto.file.UploadPictureResult;
+import com.yupi.yupicturebackend.model.entity.Picture;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 图片内容去重管理
+ * 根据内容哈希查找已存储的相同图片，命中时复用其存储对象，不再重复上传。
+ * 存储对象的引用计数即未删除且内容哈希相同的图片数量。
+ */
+@Slf4j
+@Component
+public class PictureDedupManager {
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    /**
+     * 命中次数
+     */
+    private final AtomicLong hitCount = new AtomicLong();
+
+    /**
+     * 未命中次数
+     */
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * 根据内容哈希查找可复用的存储对象
+     *
+     * @param contentHash 内容哈希
+     * @return 已存储图片的信息，未命中返回 null
+     */
+    public UploadPictureResult findByContentHash(String contentHash) {
+        if (StrUtil.isBlank(contentHash)) {
+            return null;
+        }
+        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("url", "thumbnailUrl", "previewUrl", "picSize", "picWidth", "picHeight", "picScale", "picFormat", "phash", "dominantColor", "colorHistogram")
+                .eq("contentHash", contentHash)
+                .last("limit 1");
+        Picture picture = pictureMapper.selectOne(queryWrapper);
+        if (picture == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        log.info("图片内容去重命中: {} (命中率: {}%)", picture.getUrl(), String.format("%.2f", getHitRate() * 100));
+
+        UploadPictureResult result = new UploadPictureResult();
+        result.setUrl(picture.getUrl());
+        result.setThumbnailUrl(picture.getThumbnailUrl());
+        result.setPreviewUrl(picture.getPreviewUrl());
+        result.setPicSize(picture.getPicSize());
+        result.setPicWidth(picture.getPicWidth() != null ? picture.getPicWidth() : 0);
+        result.setPicHeight(picture.getPicHeight() != null ? picture.getPicHeight() : 0);
+        result.setPicScale(picture.getPicScale());
+        result.setPicFormat(picture.getPicFormat());
+        result.setContentHash(contentHash);
+        result.setPhash(picture.getPhash());
+        result.setDominantColor(picture.getDominantColor());
+        result.setColorHistogram(picture.getColorHistogram());
+        result.setDeduplicated(true);
+        return result;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * 去重命中率
+     */
+    public double getHitRate() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return total == 0 ? 0 : hits * 1.0 / total;
+    }
+}
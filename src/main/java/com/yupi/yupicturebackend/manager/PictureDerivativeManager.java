@@ -0,0 +1,91 @@
+package com.yupi.yupicturebackend.manager;
+
+import cn.hutool.core.collection.CollUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.yupi.yupicturebackend.config.PictureUploadConfig;
+import com.yupi.yupicturebackend.mapper.PictureMapper;
+import com.yupi.yupicturebackend.model.entity.Picture;
+import com.yupi.yupicturebackend.manager.storage.PictureStorage;
+import com.yupi.yupicturebackend.manager.storage.PictureStorageResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.List;
+
+/**
+ * 图片衍生尺寸回填
+ * 为缺少缩略图的历史图片在存储上生成衍生尺寸（存储不支持衍生尺寸时跳过），按 id 顺序分批处理，每轮处理一批
+ */
+@Slf4j
+@Component
+public class PictureDerivativeManager {
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private PictureStorage pictureStorage;
+
+    @Resource
+    private PictureUploadConfig pictureUploadConfig;
+
+    /**
+     * 已处理到的图片 id，之后新增的图片 id 更大，仍会被后续轮次覆盖
+     * 处理失败的图片会被跳过，服务重启后从头重试
+     */
+    private volatile long lastPictureId;
+
+    @Scheduled(initialDelay = 60 * 1000L, fixedDelay = 60 * 1000L)
+    public void backfillDerivatives() {
+        if (!pictureUploadConfig.isDerivativeBackfillEnabled()) {
+            return;
+        }
+        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("id", "url")
+                .isNull("thumbnailUrl")
+                .gt("id", lastPictureId)
+                .orderByAsc("id")
+                .last("limit " + pictureUploadConfig.getDerivativeBackfillBatchSize());
+        List<Picture> pictureList = pictureMapper.selectList(queryWrapper);
+        if (CollUtil.isEmpty(pictureList)) {
+            return;
+        }
+        int successCount = 0;
+        for (Picture picture : pictureList) {
+            if (backfill(picture)) {
+                successCount++;
+            }
+            lastPictureId = picture.getId();
+        }
+        log.info("衍生尺寸回填: 本轮 {} 张，成功 {} 张，进度 id = {}", pictureList.size(), successCount, lastPictureId);
+    }
+
+    private boolean backfill(Picture picture) {
+        String key = pictureStorage.getKey(picture.getUrl());
+        // 不是本存储的图片无法处理
+        if (key == null) {
+            return false;
+        }
+        try {
+            PictureStorageResult storageResult = pictureStorage.processPicture(key);
+            String thumbnailUrl = storageResult != null ? storageResult.getThumbnailUrl() : null;
+            if (thumbnailUrl == null) {
+                return false;
+            }
+            // 内容去重的图片共用同一个存储对象，一并更新
+            UpdateWrapper<Picture> updateWrapper = new UpdateWrapper<>();
+            updateWrapper.eq("url", picture.getUrl())
+                    .isNull("thumbnailUrl")
+                    .set("thumbnailUrl", thumbnailUrl)
+                    .set("previewUrl", storageResult.getPreviewUrl());
+            pictureMapper.update(null, updateWrapper);
+            return true;
+        } catch (Exception e) {
+            log.warn("衍生尺寸回填失败, pictureId = {}, key = {}", picture.getId(), key, e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.yupi.yupicturebackend.manager;
+
+import cn.hutool.core.util.ObjUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.yupi.yupicturebackend.config.PictureSearchConfig;
+import com.yupi.yupicturebackend.event.PictureChangedEvent;
+import com.yupi.yupicturebackend.manager.cache.CacheInvalidationBus;
+import com.yupi.yupicturebackend.manager.cache.RemoteCache;
+import com.yupi.yupicturebackend.manager.cache.TwoLevelCache;
+import com.yupi.yupicturebackend.model.dto.picture.PictureQueryRequest;
+import com.yupi.yupicturebackend.model.entity.Picture;
+import com.yupi.yupicturebackend.model.enums.PictureReviewStatusEnum;
+import com.yupi.yupicturebackend.model.vo.PictureVO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 公开图片列表结果缓存
+ * 缓存 /picture/list/page/vo 的分页结果，使用 {@link TwoLevelCache}（本地 W-TinyLFU + 可选的 Redis 共享缓存）。
+ * 缓存键 = 查询条件规范化后的哈希 + 版本号：带分类条件的查询使用该分类的版本号，其他查询使用全局版本号；
+ * 已过审的图片新增、编辑、审核或删除时，递增全局版本号和变更前后所属分类的版本号，旧版本的结果不再命中，随后被淘汰。
+ * 启用 Redis 时版本号保存在 Redis 中并通过失效通知同步到其他实例，各实例算出相同的键，新实例可以直接读取共享缓存。
+ */
+@Component
+public class PictureListCacheManager {
+
+    /**
+     * 缓存名称
+     */
+    private static final String CACHE_NAME = "picture:list";
+
+    /**
+     * 版本号变更通知的名称
+     */
+    private static final String VERSION_CACHE_NAME = "picture:list:version";
+
+    private static final String GLOBAL_VERSION_KEY = "global";
+
+    private static final String CATEGORY_VERSION_KEY_PREFIX = "category:";
+
+    @Resource
+    private PictureSearchConfig pictureSearchConfig;
+
+    @Resource
+    private RemoteCache remoteCache;
+
+    @Resource
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private TwoLevelCache<Page<PictureVO>> pageCache;
+
+    /**
+     * 版本号键（global 或 category:分类小写）=> 版本号
+     */
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    private Counter invalidationCounter;
+
+    @PostConstruct
+    public void init() {
+        int ttlSeconds = pictureSearchConfig.getListCacheTtlSeconds();
+        pageCache = new TwoLevelCache<>(CACHE_NAME, pictureSearchConfig.getListCacheMaxBytes(), ttlSeconds,
+                ttlSeconds, remoteCache, cacheInvalidationBus, meterRegistry);
+        cacheInvalidationBus.register(VERSION_CACHE_NAME, this::onRemoteVersionChanged);
+        invalidationCounter = meterRegistry.counter("picture.list.cache.invalidation");
+    }
+
+    /**
+     * 读取缓存的分页结果，未命中时执行查询并写入缓存
+     *
+     * @param pictureQueryRequest 查询条件
+     * @param loader              查询分页结果
+     */
+    public Page<PictureVO> getPage(PictureQueryRequest pictureQueryRequest, Supplier<Page<PictureVO>> loader) {
+        if (!pictureSearchConfig.isListCacheEnabled()) {
+            return loader.get();
+        }
+        return pageCache.get(buildKey(pictureQueryRequest), loader);
+    }
+
+    @EventListener
+    public void onPictureChanged(PictureChangedEvent event) {
+        // 其他实例的变更已由发生变更的实例递增版本并广播
+        if (event.isRemote()) {
+            return;
+        }
+        List<Picture> pictureList = event.getPictureList();
+        List<Picture> oldPictureList = event.getOldPictureList();
+        Set<String> versionKeys = new LinkedHashSet<>();
+        for (int i = 0; i < pictureList.size(); i++) {
+            Picture picture = pictureList.get(i);
+            Picture oldPicture = oldPictureList.get(i);
+            // 为空的字段表示未变更，沿用变更前的值
+            Integer reviewStatus = picture.getReviewStatus() != null ? picture.getReviewStatus()
+                    : (oldPicture != null ? oldPicture.getReviewStatus() : null);
+            String category = picture.getCategory() != null ? picture.getCategory()
+                    : (oldPicture != null ? oldPicture.getCategory() : null);
+            boolean wasVisible = oldPicture != null && isVisible(oldPicture.getReviewStatus());
+            boolean visible = event.getChangeType() != PictureChangedEvent.ChangeType.DELETE
+                    && (reviewStatus == null || isVisible(reviewStatus));
+            // 变更前后都不在公开列表中（如待审核图片的上传和编辑），不影响缓存
+            if (!wasVisible && !visible) {
+                continue;
+            }
+            versionKeys.add(GLOBAL_VERSION_KEY);
+            if (wasVisible && StrUtil.isNotBlank(oldPicture.getCategory())) {
+                versionKeys.add(categoryVersionKey(oldPicture.getCategory()));
+            }
+            if (visible && StrUtil.isNotBlank(category)) {
+                versionKeys.add(categoryVersionKey(category));
+            }
+        }
+        if (versionKeys.isEmpty()) {
+            return;
+        }
+        invalidationCounter.increment();
+        for (String versionKey : versionKeys) {
+            Long remoteVersion = remoteCache.increment(remoteVersionKey(versionKey));
+            AtomicLong version = getVersion(versionKey);
+            if (remoteVersion != null) {
+                version.accumulateAndGet(remoteVersion, Math::max);
+            } else {
+                version.incrementAndGet();
+            }
+        }
+        cacheInvalidationBus.publish(VERSION_CACHE_NAME, versionKeys);
+    }
+
+    /**
+     * 其他实例递增了版本号，从 Redis 读取最新值
+     */
+    private void onRemoteVersionChanged(List<String> versionKeys) {
+        for (String versionKey : versionKeys) {
+            Long remoteVersion = remoteCache.getCounter(remoteVersionKey(versionKey));
+            AtomicLong version = getVersion(versionKey);
+            if (remoteVersion != null) {
+                version.accumulateAndGet(remoteVersion, Math::max);
+            } else {
+                // 读取失败时仍然让本地的旧结果失效
+                version.incrementAndGet();
+            }
+        }
+    }
+
+    private static boolean isVisible(Integer reviewStatus) {
+        return ObjUtil.equals(reviewStatus, PictureReviewStatusEnum.PASS.getValue());
+    }
+
+    /**
+     * 获取版本号，本实例首次使用时从 Redis 读取
+     */
+    private AtomicLong getVersion(String versionKey) {
+        AtomicLong version = versions.get(versionKey);
+        if (version != null) {
+            return version;
+        }
+        Long remoteVersion = remoteCache.getCounter(remoteVersionKey(versionKey));
+        version = versions.computeIfAbsent(versionKey, k -> new AtomicLong());
+        if (remoteVersion != null) {
+            version.accumulateAndGet(remoteVersion, Math::max);
+        }
+        return version;
+    }
+
+    private static String categoryVersionKey(String category) {
+        return CATEGORY_VERSION_KEY_PREFIX + category.trim().toLowerCase();
+    }
+
+    private static String remoteVersionKey(String versionKey) {
+        return VERSION_CACHE_NAME + ":" + versionKey;
+    }
+
+    /**
+     * 缓存键：规范化查询条件的哈希和当前版本号
+     */
+    private String buildKey(PictureQueryRequest pictureQueryRequest) {
+        Map<String, Object> canonical = PictureCountManager.canonicalize(pictureQueryRequest);
+        String category = pictureQueryRequest.getCategory();
+        String versionKey = StrUtil.isNotBlank(category) ? categoryVersionKey(category) : GLOBAL_VERSION_KEY;
+        return DigestUtil.sha256Hex(JSONUtil.toJsonStr(canonical)) + ":" + getVersion(versionKey).get();
+    }
+}
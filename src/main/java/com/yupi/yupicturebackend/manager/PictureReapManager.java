@@ -0,0 +1,298 @@
+package com.yupi.yupicturebackend.manager;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.yupi.yupicturebackend.config.StorageConfig;
+import com.yupi.yupicturebackend.manager.storage.PictureStorage;
+import com.yupi.yupicturebackend.manager.storage.StorageObject;
+import com.yupi.yupicturebackend.manager.storage.StorageServeManager;
+import com.yupi.yupicturebackend.mapper.PictureMapper;
+import com.yupi.yupicturebackend.mapper.PictureObjectReapMapper;
+import com.yupi.yupicturebackend.model.entity.Picture;
+import com.yupi.yupicturebackend.model.entity.PictureObjectReap;
+import com.yupi.yupicturebackend.model.enums.PictureReapReasonEnum;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 存储对象回收
+ * 图片删除或重新上传后，旧的存储对象（原图、缩略图、预览图）先写入回收队列表，宽限期结束后由定时任务分批删除。
+ * 队列持久化在数据库中，服务重启不会丢失；每轮数量有上限，删除失败的对象延后重试。
+ * 内容去重的图片共用同一个存储对象，删除前会确认没有未删除的图片仍在引用。
+ * 多实例部署时每个实例先认领一批记录（写入认领标识并推后宽限期），只处理自己认领的记录；
+ * 实例中途退出时，认领的记录在租期结束后由其他实例重新认领。
+ */
+@Slf4j
+@Component
+public class PictureReapManager {
+
+    /**
+     * 认领的租期（分钟），租期内其他实例不会处理这些记录
+     */
+    private static final int CLAIM_LEASE_MINUTES = 10;
+
+    /**
+     * 按地址确认引用时查询的字段
+     */
+    private static final String[] URL_COLUMNS = {"url", "thumbnailUrl", "previewUrl"};
+
+    @Resource
+    private PictureObjectReapMapper pictureObjectReapMapper;
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private PictureStorage pictureStorage;
+
+    @Resource
+    private StorageServeManager storageServeManager;
+
+    @Resource
+    private StorageConfig storageConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 待回收的对象数量，每轮回收后刷新
+     */
+    private final AtomicLong backlog = new AtomicLong();
+
+    private Counter reapedObjectCounter;
+
+    private Counter reapedBytesCounter;
+
+    private Counter failedObjectCounter;
+
+    @PostConstruct
+    public void init() {
+        reapedObjectCounter = meterRegistry.counter("picture.storage.reap.objects");
+        reapedBytesCounter = meterRegistry.counter("picture.storage.reap.bytes");
+        failedObjectCounter = meterRegistry.counter("picture.storage.reap.failed");
+        meterRegistry.gauge("picture.storage.reap.backlog", backlog);
+    }
+
+    /**
+     * 登记旧图片的存储对象，等待回收
+     *
+     * @param oldPicture 被删除或被替换的图片
+     * @param newPicture 替换后的图片，删除时为 null；新旧图片共用的对象不会登记
+     * @param reasonEnum 回收原因
+     */
+    public void enqueue(Picture oldPicture, Picture newPicture, PictureReapReasonEnum reasonEnum) {
+        if (!storageConfig.isReapEnabled() || oldPicture == null) {
+            return;
+        }
+        Set<String> urls = new LinkedHashSet<>();
+        urls.add(oldPicture.getUrl());
+        urls.add(oldPicture.getThumbnailUrl());
+        urls.add(oldPicture.getPreviewUrl());
+        if (newPicture != null) {
+            urls.remove(newPicture.getUrl());
+            urls.remove(newPicture.getThumbnailUrl());
+            urls.remove(newPicture.getPreviewUrl());
+        }
+        Date deleteAfter = DateUtil.offsetHour(new Date(), storageConfig.getReapGraceHours());
+        for (String url : urls) {
+            // 不是本存储的对象无法删除
+            if (StrUtil.isBlank(url) || pictureStorage.getKey(url) == null) {
+                continue;
+            }
+            PictureObjectReap objectReap = new PictureObjectReap();
+            objectReap.setUrl(url);
+            objectReap.setContentHash(oldPicture.getContentHash());
+            objectReap.setReason(reasonEnum.getValue());
+            objectReap.setDeleteAfter(deleteAfter);
+            objectReap.setRetryCount(0);
+            try {
+                pictureObjectReapMapper.insert(objectReap);
+                backlog.incrementAndGet();
+            } catch (Exception e) {
+                // 回收登记失败只会遗留对象，不影响图片操作本身
+                log.warn("登记存储对象回收失败, url = {}", url, e);
+            }
+        }
+    }
+
+    /**
+     * 定时回收宽限期已结束的对象，每轮处理一批
+     */
+    @Scheduled(initialDelay = 60 * 1000L, fixedDelay = 60 * 1000L)
+    public void reap() {
+        if (!storageConfig.isReapEnabled()) {
+            return;
+        }
+        try {
+            reapBatch();
+        } finally {
+            refreshBacklog();
+        }
+    }
+
+    private void reapBatch() {
+        List<PictureObjectReap> reapList = claimBatch();
+        if (CollUtil.isEmpty(reapList)) {
+            return;
+        }
+        Set<String> referencedUrls = findReferencedUrls(reapList);
+        // 唯一键 => 队列记录（同一对象可能被登记多次）
+        Map<String, List<Long>> keyToIds = new HashMap<>();
+        List<Long> discardIds = new ArrayList<>();
+        for (PictureObjectReap objectReap : reapList) {
+            String key = pictureStorage.getKey(objectReap.getUrl());
+            // 存储类型切换后无法定位，或仍被未删除的图片引用，直接出队
+            if (key == null || referencedUrls.contains(objectReap.getUrl())) {
+                discardIds.add(objectReap.getId());
+                continue;
+            }
+            keyToIds.computeIfAbsent(key, k -> new ArrayList<>()).add(objectReap.getId());
+        }
+        // 删除前读取大小用于统计回收量，对象已不存在的直接出队
+        List<String> keys = new ArrayList<>();
+        long totalBytes = 0;
+        Map<String, Long> keyToSize = new HashMap<>();
+        for (Map.Entry<String, List<Long>> entry : keyToIds.entrySet()) {
+            StorageObject metadata;
+            try {
+                metadata = pictureStorage.headObject(entry.getKey());
+            } catch (Exception e) {
+                log.warn("读取待回收对象失败, key = {}", entry.getKey(), e);
+                keys.add(entry.getKey());
+                continue;
+            }
+            if (metadata == null) {
+                discardIds.addAll(entry.getValue());
+                continue;
+            }
+            keys.add(entry.getKey());
+            keyToSize.put(entry.getKey(), metadata.getInstanceLength());
+        }
+        if (!discardIds.isEmpty()) {
+            pictureObjectReapMapper.deleteBatchIds(discardIds);
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+        List<String> deletedKeys;
+        try {
+            deletedKeys = pictureStorage.deleteObjects(keys);
+        } catch (Exception e) {
+            log.warn("批量删除存储对象失败, 数量 = {}", keys.size(), e);
+            deletedKeys = new ArrayList<>();
+        }
+        Set<String> deletedKeySet = new HashSet<>(deletedKeys);
+        List<Long> deletedIds = new ArrayList<>();
+        List<Long> failedIds = new ArrayList<>();
+        for (String key : keys) {
+            if (deletedKeySet.contains(key)) {
+                storageServeManager.invalidate(key);
+                deletedIds.addAll(keyToIds.get(key));
+                totalBytes += keyToSize.getOrDefault(key, 0L);
+            } else {
+                failedIds.addAll(keyToIds.get(key));
+            }
+        }
+        if (!deletedIds.isEmpty()) {
+            pictureObjectReapMapper.deleteBatchIds(deletedIds);
+        }
+        if (!failedIds.isEmpty()) {
+            // 删除失败的对象延后重试，避免阻塞队列头部
+            UpdateWrapper<PictureObjectReap> updateWrapper = new UpdateWrapper<>();
+            updateWrapper.in("id", failedIds)
+                    .setSql("retryCount = retryCount + 1")
+                    .set("deleteAfter", DateUtil.offsetMinute(new Date(), storageConfig.getReapRetryMinutes()))
+                    .set("claimToken", null);
+            pictureObjectReapMapper.update(null, updateWrapper);
+        }
+        reapedObjectCounter.increment(deletedKeySet.size());
+        reapedBytesCounter.increment(totalBytes);
+        failedObjectCounter.increment(keys.size() - deletedKeySet.size());
+        log.info("存储对象回收: 本轮 {} 条，删除对象 {} 个（{} 字节），失败 {} 个，跳过 {} 条",
+                reapList.size(), deletedKeySet.size(), totalBytes, keys.size() - deletedKeySet.size(), discardIds.size());
+    }
+
+    /**
+     * 认领一批宽限期已结束的记录
+     * 单条 UPDATE 写入本轮的认领标识，并把宽限期推后一个租期，其他实例在租期内不会再选中这些记录
+     */
+    private List<PictureObjectReap> claimBatch() {
+        Date now = new Date();
+        String claimToken = IdUtil.fastSimpleUUID();
+        UpdateWrapper<PictureObjectReap> claimWrapper = new UpdateWrapper<>();
+        claimWrapper.le("deleteAfter", now)
+                .set("claimToken", claimToken)
+                .set("deleteAfter", DateUtil.offsetMinute(now, CLAIM_LEASE_MINUTES))
+                .last("order by deleteAfter limit " + storageConfig.getReapBatchSize());
+        if (pictureObjectReapMapper.update(null, claimWrapper) <= 0) {
+            return new ArrayList<>();
+        }
+        QueryWrapper<PictureObjectReap> queryWrapper = new QueryWrapper<>();
+        queryWrapper.eq("claimToken", claimToken);
+        return pictureObjectReapMapper.selectList(queryWrapper);
+    }
+
+    /**
+     * 查找仍被未删除图片引用的地址
+     * 内容去重的图片内容哈希相同、共用存储对象，按内容哈希（有索引）查找；
+     * 地址仍被某行引用时内容哈希不一定相同（如历史图片没有哈希、重新上传后行内哈希已改变），所有记录还要按地址查找，
+     * 三个地址字段分别查询，各自使用对应的索引
+     */
+    private Set<String> findReferencedUrls(List<PictureObjectReap> reapList) {
+        Set<String> contentHashes = new HashSet<>();
+        Set<String> urls = new HashSet<>();
+        for (PictureObjectReap objectReap : reapList) {
+            if (StrUtil.isNotBlank(objectReap.getContentHash())) {
+                contentHashes.add(objectReap.getContentHash());
+            }
+            urls.add(objectReap.getUrl());
+        }
+        Set<String> referencedUrls = new HashSet<>();
+        if (!contentHashes.isEmpty()) {
+            QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+            queryWrapper.select("url", "thumbnailUrl", "previewUrl").in("contentHash", contentHashes);
+            addPictureUrls(pictureMapper.selectList(queryWrapper), referencedUrls);
+        }
+        for (String column : URL_COLUMNS) {
+            QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+            queryWrapper.select("url", "thumbnailUrl", "previewUrl").in(column, urls);
+            addPictureUrls(pictureMapper.selectList(queryWrapper), referencedUrls);
+        }
+        return referencedUrls;
+    }
+
+    private static void addPictureUrls(List<Picture> pictureList, Set<String> urls) {
+        for (Picture picture : pictureList) {
+            urls.add(picture.getUrl());
+            urls.add(picture.getThumbnailUrl());
+            urls.add(picture.getPreviewUrl());
+        }
+    }
+
+    private void refreshBacklog() {
+        try {
+            backlog.set(pictureObjectReapMapper.selectCount(null));
+        } catch (Exception e) {
+            log.warn("统计存储对象回收队列失败", e);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.yupi.yupicturebackend.manager;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.yupi.yupicturebackend.config.PictureUploadConfig;
+import com.yupi.yupicturebackend.mapper.PictureUrlCacheMapper;
+import com.yupi.yupicturebackend.model.dto.file.UploadPictureResult;
+import com.yupi.yupicturebackend.model.entity.PictureUrlCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * URL 抓取缓存管理
+ * 记录来源地址对应的内容哈希以及 ETag / Last-Modified，重复导入同一地址时发送条件请求，
+ * 源站返回 304 则直接复用已存储的对象，跳过下载和上传。
+ * 缓存条数有上限，超出后按最近访问时间（LRU）淘汰。
+ */
+@Slf4j
+@Component
+public class PictureUrlCacheManager {
+
+    /**
+     * 单次淘汰的最大条数，避免一次删除过多数据长时间锁表
+     */
+    private static final int EVICT_BATCH_SIZE = 1000;
+
+    @Resource
+    private PictureUrlCacheMapper pictureUrlCacheMapper;
+
+    @Resource
+    private PictureDedupManager pictureDedupManager;
+
+    @Resource
+    private PictureUploadConfig pictureUploadConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private Counter hitCounter;
+
+    private Counter missCounter;
+
+    private Counter evictedCounter;
+
+    @PostConstruct
+    public void init() {
+        hitCounter = meterRegistry.counter("picture.url.cache", "result", "hit");
+        missCounter = meterRegistry.counter("picture.url.cache", "result", "miss");
+        evictedCounter = meterRegistry.counter("picture.url.cache.evicted");
+    }
+
+    /**
+     * 根据来源地址查询缓存
+     *
+     * @param url 来源地址
+     * @return 缓存记录，不存在返回 null
+     */
+    public PictureUrlCache getByUrl(String url) {
+        QueryWrapper<PictureUrlCache> queryWrapper = new QueryWrapper<>();
+        queryWrapper.eq("urlHash", DigestUtil.sha256Hex(url));
+        PictureUrlCache urlCache = pictureUrlCacheMapper.selectOne(queryWrapper);
+        if (urlCache == null) {
+            missCounter.increment();
+        }
+        return urlCache;
+    }
+
+    /**
+     * 记录一次未命中（源站内容已变化）
+     */
+    public void recordMiss() {
+        missCounter.increment();
+    }
+
+    /**
+     * 构造条件请求头
+     *
+     * @param urlCache 缓存记录，可为空
+     * @return 条件请求头，没有可用的校验信息时为空
+     */
+    public Map<String, String> buildConditionalHeaders(PictureUrlCache urlCache) {
+        Map<String, String> headers = new HashMap<>();
+        if (urlCache == null) {
+            return headers;
+        }
+        if (StrUtil.isNotBlank(urlCache.getEtag())) {
+            headers.put("If-None-Match", urlCache.getEtag());
+        }
+        if (StrUtil.isNotBlank(urlCache.getLastModified())) {
+            headers.put("If-Modified-Since", urlCache.getLastModified());
+        }
+        return headers;
+    }
+
+    /**
+     * 源站确认内容未变化时复用已存储的对象
+     *
+     * @param urlCache 缓存记录
+     * @return 已存储图片的信息，存储对象已不再被引用时返回 null 并删除该缓存
+     */
+    public UploadPictureResult reuse(PictureUrlCache urlCache) {
+        UploadPictureResult result = pictureDedupManager.findByContentHash(urlCache.getContentHash());
+        if (result == null) {
+            // 引用该内容的图片都已删除，存储对象可能已被回收，缓存失效
+            missCounter.increment();
+            pictureUrlCacheMapper.deleteById(urlCache.getId());
+            return null;
+        }
+        hitCounter.increment();
+        UpdateWrapper<PictureUrlCache> updateWrapper = new UpdateWrapper<>();
+        updateWrapper.eq("id", urlCache.getId())
+                .set("lastAccessTime", new Date());
+        pictureUrlCacheMapper.update(null, updateWrapper);
+        return result;
+    }
+
+    /**
+     * 记录来源地址对应的内容和校验信息
+     * 源站既没有返回 ETag 也没有返回 Last-Modified 时无法发起条件请求，不缓存
+     *
+     * @param url          来源地址
+     * @param contentHash  内容哈希
+     * @param etag         ETag 响应头
+     * @param lastModified Last-Modified 响应头
+     */
+    public void save(String url, String contentHash, String etag, String lastModified) {
+        if (StrUtil.isBlank(contentHash) || (StrUtil.isBlank(etag) && StrUtil.isBlank(lastModified))) {
+            return;
+        }
+        String urlHash = DigestUtil.sha256Hex(url);
+        Date now = new Date();
+        UpdateWrapper<PictureUrlCache> updateWrapper = new UpdateWrapper<>();
+        updateWrapper.eq("urlHash", urlHash)
+                .set("contentHash", contentHash)
+                .set("etag", etag)
+                .set("lastModified", lastModified)
+                .set("lastAccessTime", now);
+        if (pictureUrlCacheMapper.update(null, updateWrapper) > 0) {
+            return;
+        }
+        PictureUrlCache urlCache = new PictureUrlCache();
+        urlCache.setUrlHash(urlHash);
+        urlCache.setUrl(url);
+        urlCache.setContentHash(contentHash);
+        urlCache.setEtag(etag);
+        urlCache.setLastModified(lastModified);
+        urlCache.setLastAccessTime(now);
+        try {
+            pictureUrlCacheMapper.insert(urlCache);
+        } catch (DuplicateKeyException e) {
+            // 并发导入同一地址，已由其他请求写入
+            pictureUrlCacheMapper.update(null, updateWrapper);
+        }
+    }
+
+    /**
+     * 定时淘汰超出容量的缓存，优先删除最久未访问的记录
+     */
+    @Scheduled(fixedDelay = 10 * 60 * 1000L)
+    public void evictExpiredEntries() {
+        long overflow = pictureUrlCacheMapper.selectCount(null) - pictureUploadConfig.getUrlCacheMaxSize();
+        while (overflow > 0) {
+            int batchSize = (int) Math.min(overflow, EVICT_BATCH_SIZE);
+            QueryWrapper<PictureUrlCache> queryWrapper = new QueryWrapper<>();
+            queryWrapper.orderByAsc("lastAccessTime").last("limit " + batchSize);
+            int deleted = pictureUrlCacheMapper.delete(queryWrapper);
+            if (deleted <= 0) {
+                break;
+            }
+            evictedCounter.increment(deleted);
+            overflow -= deleted;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.yupi.yupicturebackend.manager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yupi.yupicturebackend.config.RateLimitConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 令牌桶限流
+ * 使用 GCRA（通用信元速率算法）实现，与令牌桶等价：每个桶只保存“理论到达时间”一个 long，
+ * 通过 CAS 无锁更新，不需要后台补充令牌。桶数量有上限，闲置的桶自动回收。
+ */
+@Component
+public class RateLimitManager {
+
+    @Resource
+    private RateLimitConfig rateLimitConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 桶标识 => 理论到达时间（System.nanoTime 时间轴）
+     */
+    private Cache<String, AtomicLong> bucketCache;
+
+    @PostConstruct
+    public void init() {
+        bucketCache = Caffeine.newBuilder()
+                .maximumSize(rateLimitConfig.getMaxBuckets())
+                .expireAfterAccess(rateLimitConfig.getBucketIdleMinutes(), TimeUnit.MINUTES)
+                .build();
+        meterRegistry.gauge("rate.limit.buckets", bucketCache, Cache::estimatedSize);
+    }
+
+    /**
+     * 尝试获取一个令牌
+     *
+     * @param bucketKey    桶标识
+     * @param rate         每秒允许的请求数
+     * @param burstSeconds 允许的突发时长（秒）
+     * @return 0 表示通过；否则为需要等待的纳秒数
+     */
+    public long tryAcquire(String bucketKey, double rate, double burstSeconds) {
+        long now = System.nanoTime();
+        // 每个请求占用的时间间隔
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        // 允许提前的时长，即突发容量（至少 1 个请求）
+        long tolerance = Math.max((long) (TimeUnit.SECONDS.toNanos(1) * burstSeconds), interval);
+        AtomicLong theoreticalArrivalTime = bucketCache.get(bucketKey, key -> new AtomicLong(now));
+        while (true) {
+            long tat = theoreticalArrivalTime.get();
+            long newTat = Math.max(tat, now) + interval;
+            long waitNanos = newTat - now - tolerance;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (theoreticalArrivalTime.compareAndSet(tat, newTat)) {
+                return 0;
+            }
+        }
+    }
+}
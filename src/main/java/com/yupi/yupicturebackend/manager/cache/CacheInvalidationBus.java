@@ -0,0 +1,92 @@
+package com.yupi.yupicturebackend.manager.cache;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 跨实例缓存失效通知
+ * 通过远程缓存的发布订阅频道广播“某个缓存的哪些键已失效”，其他实例收到后清除本地缓存；
+ * 消息带发送实例的标识，实例不处理自己发出的消息。未启用远程缓存时不广播。
+ */
+@Slf4j
+@Component
+public class CacheInvalidationBus {
+
+    @Resource
+    private RemoteCache remoteCache;
+
+    /**
+     * 当前实例的标识
+     */
+    private final String nodeId = IdUtil.fastSimpleUUID();
+
+    /**
+     * 缓存名称 => 失效处理
+     */
+    private final Map<String, List<Consumer<List<String>>>> handlers = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        remoteCache.subscribe(this::onMessage);
+    }
+
+    /**
+     * 注册其他实例发来的失效通知的处理，同一个缓存可以注册多个
+     *
+     * @param cacheName 缓存名称
+     * @param handler   处理失效的键
+     */
+    public void register(String cacheName, Consumer<List<String>> handler) {
+        handlers.computeIfAbsent(cacheName, k -> new CopyOnWriteArrayList<>()).add(handler);
+    }
+
+    /**
+     * 通知其他实例
+     *
+     * @param cacheName 缓存名称
+     * @param keys      失效的键
+     */
+    public void publish(String cacheName, Collection<String> keys) {
+        if (!remoteCache.isEnabled() || CollUtil.isEmpty(keys)) {
+            return;
+        }
+        JSONObject message = new JSONObject();
+        message.set("nodeId", nodeId);
+        message.set("cacheName", cacheName);
+        message.set("keys", new ArrayList<>(keys));
+        remoteCache.publish(message.toString());
+    }
+
+    private void onMessage(String text) {
+        try {
+            JSONObject message = JSONUtil.parseObj(text);
+            if (nodeId.equals(message.getStr("nodeId"))) {
+                return;
+            }
+            List<Consumer<List<String>>> cacheHandlers = handlers.get(message.getStr("cacheName"));
+            if (cacheHandlers == null) {
+                return;
+            }
+            List<String> keys = message.getJSONArray("keys").toList(String.class);
+            for (Consumer<List<String>> handler : cacheHandlers) {
+                handler.accept(keys);
+            }
+        } catch (Exception e) {
+            log.error("处理缓存失效通知失败: {}", text, e);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.yupi.yupicturebackend.manager.cache;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Count-Min Sketch 访问频率估计
+ * 用 depth 行、每行 width 个计数器估计每个键的访问次数，内存固定，估计值只会偏大不会偏小；
+ * 递增时只增加各行中最小的计数器（保守更新），减小偏差。
+ * 累计递增 sampleSize 次后所有计数器减半，使频率反映最近的访问，过气的热点会逐渐冷却。
+ */
+public class CountMinSketch {
+
+    private static final int DEPTH = 4;
+
+    private static final long[] SEEDS = {0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L,
+            0xD6E8FEB86659FD93L};
+
+    private final AtomicIntegerArray[] rows = new AtomicIntegerArray[DEPTH];
+
+    private final int mask;
+
+    private final long sampleSize;
+
+    private final AtomicLong additions = new AtomicLong();
+
+    /**
+     * @param width      每行计数器数量，向上取整为 2 的幂
+     * @param sampleSize 计数器减半的周期（递增次数）
+     */
+    public CountMinSketch(int width, long sampleSize) {
+        int tableSize = Integer.highestOneBit(Math.max(width - 1, 1)) << 1;
+        for (int i = 0; i < DEPTH; i++) {
+            rows[i] = new AtomicIntegerArray(tableSize);
+        }
+        this.mask = tableSize - 1;
+        this.sampleSize = sampleSize;
+    }
+
+    /**
+     * 记录一次访问
+     *
+     * @return 记录后的频率估计
+     */
+    public int increment(long key) {
+        int[] indexes = new int[DEPTH];
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            indexes[i] = index(key, i);
+            min = Math.min(min, rows[i].get(indexes[i]));
+        }
+        if (min == Integer.MAX_VALUE) {
+            return min;
+        }
+        for (int i = 0; i < DEPTH; i++) {
+            int index = indexes[i];
+            rows[i].accumulateAndGet(index, min + 1, Math::max);
+        }
+        if (additions.incrementAndGet() % sampleSize == 0) {
+            halve();
+        }
+        return min + 1;
+    }
+
+    /**
+     * 频率估计
+     */
+    public int estimate(long key) {
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            min = Math.min(min, rows[i].get(index(key, i)));
+        }
+        return min;
+    }
+
+    /**
+     * 所有计数器减半
+     */
+    private void halve() {
+        for (AtomicIntegerArray row : rows) {
+            for (int i = 0; i < row.length(); i++) {
+                row.updateAndGet(i, count -> count >>> 1);
+            }
+        }
+    }
+
+    private int index(long key, int row) {
+        long hash = (key + SEEDS[row]) * SEEDS[(row + 1) % DEPTH];
+        hash ^= hash >>> 32;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 29;
+        return (int) hash & mask;
+    }
+}
@@ -0,0 +1,46 @@
+package com.yupi.yupicturebackend.manager.cache;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * 未启用远程缓存时使用，只保留本地缓存
+ */
+public class NoopRemoteCache implements RemoteCache {
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @Override
+    public byte[] get(String key) {
+        return null;
+    }
+
+    @Override
+    public void set(String key, byte[] value, long ttlSeconds) {
+    }
+
+    @Override
+    public void delete(Collection<String> keys) {
+    }
+
+    @Override
+    public Long getCounter(String key) {
+        return null;
+    }
+
+    @Override
+    public Long increment(String key) {
+        return null;
+    }
+
+    @Override
+    public void publish(String message) {
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+    }
+}
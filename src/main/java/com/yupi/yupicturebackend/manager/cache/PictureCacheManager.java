@@ -0,0 +1,77 @@
+package com.yupi.yupicturebackend.manager.cache;
+
+import com.yupi.yupicturebackend.config.PictureCacheConfig;
+import com.yupi.yupicturebackend.event.PictureChangedEvent;
+import com.yupi.yupicturebackend.mapper.PictureMapper;
+import com.yupi.yupicturebackend.model.entity.Picture;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 图片详情缓存
+ * 按 id 缓存图片，两级缓存都未命中时才查询数据库；图片新增、编辑、审核或删除时清除两级缓存并通知其他实例。
+ * 只用于只读展示，修改图片前的读取仍直接查询数据库。
+ */
+@Component
+public class PictureCacheManager {
+
+    /**
+     * 缓存名称
+     */
+    private static final String CACHE_NAME = "picture:detail";
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private PictureCacheConfig pictureCacheConfig;
+
+    @Resource
+    private RemoteCache remoteCache;
+
+    @Resource
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private TwoLevelCache<Picture> pictureCache;
+
+    @PostConstruct
+    public void init() {
+        pictureCache = new TwoLevelCache<>(CACHE_NAME, pictureCacheConfig.getPictureLocalMaxBytes(),
+                pictureCacheConfig.getPictureLocalTtlSeconds(), pictureCacheConfig.getPictureRemoteTtlSeconds(),
+                remoteCache, cacheInvalidationBus, meterRegistry);
+    }
+
+    /**
+     * 根据 id 获取图片
+     *
+     * @param id 图片 id
+     * @return 图片，不存在时返回 null
+     */
+    public Picture getPicture(long id) {
+        return pictureCache.get(String.valueOf(id), () -> pictureMapper.selectById(id));
+    }
+
+    @EventListener
+    public void onPictureChanged(PictureChangedEvent event) {
+        // 其他实例的变更已由发生变更的实例清除并广播
+        if (event.isRemote()) {
+            return;
+        }
+        Set<String> keys = new LinkedHashSet<>();
+        for (Picture picture : event.getPictureList()) {
+            if (picture.getId() != null) {
+                keys.add(String.valueOf(picture.getId()));
+            }
+        }
+        pictureCache.invalidate(keys);
+    }
+}
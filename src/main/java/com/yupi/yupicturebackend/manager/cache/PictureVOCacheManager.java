@@ -0,0 +1,140 @@
+package com.yupi.yupicturebackend.manager.cache;
+
+import cn.hutool.core.util.ObjectUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yupi.yupicturebackend.config.PictureCacheConfig;
+import com.yupi.yupicturebackend.event.PictureChangedEvent;
+import com.yupi.yupicturebackend.model.entity.Picture;
+import com.yupi.yupicturebackend.model.vo.PictureVO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 图片详情 VO 缓存（/picture/get/vo）
+ * 按 id 缓存组装好的 VO，使用 {@link TwoLevelCache}：同一个 id 并发未命中时只有一个请求查询，其他请求等待其结果。
+ * 缓存的 VO 不含作者信息，由调用方在读取后附加，作者修改资料后无需清除缓存。
+ * 每次访问记入 {@link CountMinSketch}，访问频率超过阈值的热点图片写入二级缓存时使用更长的过期时间，
+ * 并在本实例保留一份长期的本地副本，热点请求直接由副本返回，不再访问 Redis 和数据库。
+ * 图片变更时清除两级缓存和本地副本，并通知其他实例。
+ */
+@Component
+public class PictureVOCacheManager {
+
+    /**
+     * 缓存名称
+     */
+    private static final String CACHE_NAME = "picture:vo";
+
+    @Resource
+    private PictureCacheConfig pictureCacheConfig;
+
+    @Resource
+    private RemoteCache remoteCache;
+
+    @Resource
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private TwoLevelCache<PictureVO> voCache;
+
+    /**
+     * 热点图片 id => 序列化的 VO 副本
+     */
+    private Cache<Long, byte[]> hotReplicas;
+
+    private CountMinSketch accessSketch;
+
+    /**
+     * 失效次数，用于判断加载期间是否发生过失效，避免把旧数据写入本地副本
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private Counter hotPromotedCounter;
+
+    private Counter hotHitCounter;
+
+    @PostConstruct
+    public void init() {
+        voCache = new TwoLevelCache<>(CACHE_NAME, pictureCacheConfig.getVoLocalMaxBytes(),
+                pictureCacheConfig.getVoLocalTtlSeconds(), pictureCacheConfig.getVoRemoteTtlSeconds(),
+                remoteCache, cacheInvalidationBus, meterRegistry);
+        hotReplicas = Caffeine.newBuilder()
+                .maximumSize(pictureCacheConfig.getHotReplicaMaxSize())
+                .expireAfterWrite(pictureCacheConfig.getHotReplicaTtlSeconds(), TimeUnit.SECONDS)
+                .build();
+        accessSketch = new CountMinSketch(pictureCacheConfig.getHotKeySketchWidth(),
+                pictureCacheConfig.getHotKeySampleSize());
+        // 其他实例的变更同时清除本地副本
+        cacheInvalidationBus.register(CACHE_NAME, this::invalidateReplicas);
+        hotPromotedCounter = meterRegistry.counter("picture.vo.cache.hot.promoted");
+        hotHitCounter = meterRegistry.counter("picture.vo.cache.hot.hit");
+        meterRegistry.gauge("picture.vo.cache.hot.keys", hotReplicas, Cache::estimatedSize);
+    }
+
+    /**
+     * 读取图片 VO，未命中时执行加载
+     *
+     * @param id     图片 id
+     * @param loader 加载 VO（不含作者信息），图片不存在时返回 null（不缓存）
+     * @return 每次调用返回新的对象，调用方可以直接修改
+     */
+    public PictureVO getPictureVO(long id, Supplier<PictureVO> loader) {
+        int frequency = accessSketch.increment(id);
+        String key = String.valueOf(id);
+        if (frequency < pictureCacheConfig.getHotKeyThreshold()) {
+            return voCache.get(key, loader);
+        }
+        byte[] replica = hotReplicas.getIfPresent(id);
+        if (replica != null) {
+            hotHitCounter.increment();
+            return (PictureVO) ObjectUtil.deserialize(replica);
+        }
+        long invalidationsBeforeLoad = invalidations.get();
+        PictureVO pictureVO = voCache.get(key, loader, pictureCacheConfig.getHotRemoteTtlSeconds());
+        if (pictureVO != null && invalidations.get() == invalidationsBeforeLoad
+                && hotReplicas.asMap().putIfAbsent(id, ObjectUtil.serialize(pictureVO)) == null) {
+            hotPromotedCounter.increment();
+        }
+        return pictureVO;
+    }
+
+    @EventListener
+    public void onPictureChanged(PictureChangedEvent event) {
+        // 其他实例的变更已由发生变更的实例清除并广播
+        if (event.isRemote()) {
+            return;
+        }
+        Set<String> keys = new LinkedHashSet<>();
+        for (Picture picture : event.getPictureList()) {
+            if (picture.getId() != null) {
+                keys.add(String.valueOf(picture.getId()));
+            }
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+        invalidateReplicas(keys);
+        voCache.invalidate(keys);
+    }
+
+    private void invalidateReplicas(Collection<String> keys) {
+        invalidations.incrementAndGet();
+        for (String key : keys) {
+            hotReplicas.invalidate(Long.valueOf(key));
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.yupi.yupicturebackend.manager.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 基于 Redis 的远程缓存，键统一加前缀，值为原始字节；失效通知使用 Redis 发布订阅
+ */
+@Slf4j
+public class RedisRemoteCache implements RemoteCache {
+
+    private final String keyPrefix;
+
+    private final String channel;
+
+    private final RedisTemplate<String, byte[]> bytesTemplate;
+
+    private final StringRedisTemplate stringTemplate;
+
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final Counter errorCounter;
+
+    public RedisRemoteCache(RedisConnectionFactory connectionFactory, String keyPrefix, String channel,
+                            MeterRegistry meterRegistry) {
+        this.keyPrefix = keyPrefix;
+        this.channel = channel;
+        bytesTemplate = new RedisTemplate<>();
+        bytesTemplate.setConnectionFactory(connectionFactory);
+        bytesTemplate.setKeySerializer(RedisSerializer.string());
+        bytesTemplate.setValueSerializer(RedisSerializer.byteArray());
+        bytesTemplate.afterPropertiesSet();
+        stringTemplate = new StringRedisTemplate(connectionFactory);
+        listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(connectionFactory);
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+        errorCounter = meterRegistry.counter("picture.cache.remote.error");
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public byte[] get(String key) {
+        try {
+            return bytesTemplate.opsForValue().get(keyPrefix + key);
+        } catch (Exception e) {
+            onError("读取", key, e);
+            return null;
+        }
+    }
+
+    @Override
+    public void set(String key, byte[] value, long ttlSeconds) {
+        try {
+            bytesTemplate.opsForValue().set(keyPrefix + key, value, ttlSeconds, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            onError("写入", key, e);
+        }
+    }
+
+    @Override
+    public void delete(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        List<String> prefixedKeys = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            prefixedKeys.add(keyPrefix + key);
+        }
+        try {
+            bytesTemplate.delete(prefixedKeys);
+        } catch (Exception e) {
+            onError("删除", String.join(",", keys), e);
+        }
+    }
+
+    @Override
+    public Long getCounter(String key) {
+        try {
+            String value = stringTemplate.opsForValue().get(keyPrefix + key);
+            return value != null ? Long.valueOf(value) : null;
+        } catch (Exception e) {
+            onError("读取计数器", key, e);
+            return null;
+        }
+    }
+
+    @Override
+    public Long increment(String key) {
+        try {
+            return stringTemplate.opsForValue().increment(keyPrefix + key);
+        } catch (Exception e) {
+            onError("递增计数器", key, e);
+            return null;
+        }
+    }
+
+    @Override
+    public void publish(String message) {
+        try {
+            stringTemplate.convertAndSend(channel, message);
+        } catch (Exception e) {
+            onError("广播", channel, e);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        listenerContainer.addMessageListener((message, pattern) ->
+                listener.accept(new String(message.getBody(), StandardCharsets.UTF_8)), new ChannelTopic(channel));
+    }
+
+    /**
+     * 由 Spring 在容器关闭时调用
+     */
+    public void shutdown() throws Exception {
+        listenerContainer.destroy();
+    }
+
+    private void onError(String operation, String key, Exception e) {
+        errorCounter.increment();
+        // Redis 不可用时每次请求都会失败，只记录异常信息，不打印堆栈
+        log.warn("远程缓存{}失败, key = {}: {}", operation, key, e.getMessage());
+    }
+}
@@ -0,0 +1,66 @@
+package com.yupi.yupicturebackend.manager.cache;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * 多实例共享的远程缓存（二级缓存）
+ * 远程缓存只是加速手段，实现需要吞掉连接异常：读取失败视为未命中，写入、删除失败直接忽略。
+ */
+public interface RemoteCache {
+
+    /**
+     * 是否启用，未启用时所有读取都未命中
+     */
+    boolean isEnabled();
+
+    /**
+     * 读取缓存
+     *
+     * @param key 键（不含前缀）
+     * @return 缓存的字节，未命中时返回 null
+     */
+    byte[] get(String key);
+
+    /**
+     * 写入缓存
+     *
+     * @param key        键（不含前缀）
+     * @param value      值
+     * @param ttlSeconds 过期时间（秒）
+     */
+    void set(String key, byte[] value, long ttlSeconds);
+
+    /**
+     * 删除缓存
+     *
+     * @param keys 键（不含前缀）
+     */
+    void delete(Collection<String> keys);
+
+    /**
+     * 读取计数器
+     *
+     * @param key 键（不含前缀）
+     * @return 计数器的值，不存在或读取失败时返回 null
+     */
+    Long getCounter(String key);
+
+    /**
+     * 计数器加一
+     *
+     * @param key 键（不含前缀）
+     * @return 加一后的值，失败时返回 null
+     */
+    Long increment(String key);
+
+    /**
+     * 向失效通知频道广播消息
+     */
+    void publish(String message);
+
+    /**
+     * 订阅失效通知频道
+     */
+    void subscribe(Consumer<String> listener);
+}
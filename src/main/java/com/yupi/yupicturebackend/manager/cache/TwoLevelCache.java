@@ -0,0 +1,175 @@
+package com.yupi.yupicturebackend.manager.cache;
+
+import cn.hutool.core.util.ObjectUtil;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 两级缓存
+ * 一级为本实例的 Caffeine 缓存（W-TinyLFU 淘汰，按字节数限制容量），二级为多实例共享的 {@link RemoteCache}，
+ * 两级都未命中时才执行加载。值以序列化后的字节保存，每次读取得到独立的副本。
+ * 同一个键同时只有一个请求读取二级缓存或执行加载，其他请求等待其结果。
+ * 失效时清除本地缓存和二级缓存，并通过 {@link CacheInvalidationBus} 通知其他实例清除本地缓存。
+ *
+ * @param <V> 值类型
+ */
+public class TwoLevelCache<V extends Serializable> {
+
+    private final String name;
+
+    private final AsyncCache<String, byte[]> localCache;
+
+    private final RemoteCache remoteCache;
+
+    private final int remoteTtlSeconds;
+
+    private final CacheInvalidationBus invalidationBus;
+
+    private final Counter localHitCounter;
+
+    private final Counter remoteHitCounter;
+
+    private final Counter missCounter;
+
+    private final Counter coalescedCounter;
+
+    /**
+     * @param name             缓存名称，同时作为二级缓存键的前缀和指标标签
+     * @param localMaxBytes    本地缓存最大字节数
+     * @param localTtlSeconds  本地缓存时间（秒）
+     * @param remoteTtlSeconds 二级缓存时间（秒）
+     */
+    public TwoLevelCache(String name, long localMaxBytes, int localTtlSeconds, int remoteTtlSeconds,
+                         RemoteCache remoteCache, CacheInvalidationBus invalidationBus, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.remoteCache = remoteCache;
+        this.remoteTtlSeconds = remoteTtlSeconds;
+        this.invalidationBus = invalidationBus;
+        localCache = Caffeine.newBuilder()
+                .maximumWeight(localMaxBytes)
+                .<String, byte[]>weigher((key, value) -> key.length() + value.length)
+                .expireAfterWrite(localTtlSeconds, TimeUnit.SECONDS)
+                .buildAsync();
+        localHitCounter = meterRegistry.counter("picture.cache.request", "cache", name, "result", "local");
+        remoteHitCounter = meterRegistry.counter("picture.cache.request", "cache", name, "result", "remote");
+        missCounter = meterRegistry.counter("picture.cache.request", "cache", name, "result", "miss");
+        coalescedCounter = meterRegistry.counter("picture.cache.request", "cache", name, "result", "coalesced");
+        meterRegistry.gauge("picture.cache.local.size", Tags.of("cache", name), localCache,
+                cache -> cache.synchronous().estimatedSize());
+        invalidationBus.register(name, this::invalidateLocal);
+    }
+
+    /**
+     * 读取缓存，两级都未命中时执行加载并写入两级缓存
+     *
+     * @param key    键
+     * @param loader 加载数据，返回 null 时不缓存
+     */
+    public V get(String key, Supplier<V> loader) {
+        return get(key, loader, remoteTtlSeconds);
+    }
+
+    /**
+     * 读取缓存，两级都未命中时执行加载并写入两级缓存
+     *
+     * @param key              键
+     * @param loader           加载数据，返回 null 时不缓存
+     * @param remoteTtlSeconds 本次写入二级缓存的过期时间（秒）
+     */
+    public V get(String key, Supplier<V> loader, int remoteTtlSeconds) {
+        CompletableFuture<byte[]> future = localCache.getIfPresent(key);
+        if (future != null) {
+            (future.isDone() ? localHitCounter : coalescedCounter).increment();
+            return deserialize(join(future));
+        }
+        CompletableFuture<byte[]> newFuture = new CompletableFuture<>();
+        future = localCache.asMap().putIfAbsent(key, newFuture);
+        if (future != null) {
+            // 其他请求正在加载同一个键
+            coalescedCounter.increment();
+            return deserialize(join(future));
+        }
+        try {
+            byte[] bytes = remoteCache.get(remoteKey(key));
+            if (bytes != null) {
+                remoteHitCounter.increment();
+                newFuture.complete(bytes);
+                return deserialize(bytes);
+            }
+            missCounter.increment();
+            V value = loader.get();
+            if (value == null) {
+                // 值为空的键由 Caffeine 自动移除
+                newFuture.complete(null);
+                return null;
+            }
+            bytes = ObjectUtil.serialize(value);
+            // 加载期间已失效（本实例或其他实例修改了数据）时不写入二级缓存，避免把旧数据写回共享缓存
+            if (localCache.asMap().get(key) == newFuture) {
+                remoteCache.set(remoteKey(key), bytes, remoteTtlSeconds);
+            }
+            newFuture.complete(bytes);
+            return value;
+        } catch (RuntimeException e) {
+            // 失败的结果不缓存，等待中的请求收到同样的异常
+            newFuture.completeExceptionally(e);
+            localCache.asMap().remove(key, newFuture);
+            throw e;
+        }
+    }
+
+    /**
+     * 使缓存失效：清除本地缓存和二级缓存，并通知其他实例
+     */
+    public void invalidate(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        localCache.synchronous().invalidateAll(keys);
+        List<String> remoteKeys = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            remoteKeys.add(remoteKey(key));
+        }
+        remoteCache.delete(remoteKeys);
+        invalidationBus.publish(name, keys);
+    }
+
+    /**
+     * 只清除本地缓存，用于处理其他实例的失效通知
+     */
+    public void invalidateLocal(Collection<String> keys) {
+        localCache.synchronous().invalidateAll(keys);
+    }
+
+    private String remoteKey(String key) {
+        return name + ":" + key;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V deserialize(byte[] bytes) {
+        return bytes != null ? (V) ObjectUtil.deserialize(bytes) : null;
+    }
+
+    private static byte[] join(CompletableFuture<byte[]> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
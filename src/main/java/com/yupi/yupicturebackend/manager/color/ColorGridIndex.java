@@ -0,0 +1,281 @@
+package com.yupi.yupicturebackend.manager.color;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 颜色网格索引，用于按颜色查找最近邻
+ * RGB 空间每个通道切成 16 段，共 4096 个格子，每个格子用并列的基本类型数组存放图片 id、颜色和审核状态。
+ * 查询时从目标颜色所在的格子开始一圈圈向外扩展，当已找到的第 k 近距离不大于未访问格子可能的最小距离时停止，
+ * 只会访问目标颜色附近的少量格子，无需扫描全部数据。
+ */
+public class ColorGridIndex {
+
+    private static final int CELL_BITS = 4;
+
+    private static final int CELLS_PER_CHANNEL = 1 << CELL_BITS;
+
+    private static final int CELL_WIDTH = 256 / CELLS_PER_CHANNEL;
+
+    private final Cell[] cells = new Cell[CELLS_PER_CHANNEL * CELLS_PER_CHANNEL * CELLS_PER_CHANNEL];
+
+    /**
+     * id => 颜色，用于删除和替换
+     */
+    private final Map<Long, Integer> colorById = new HashMap<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 添加或替换
+     *
+     * @param id           图片 id
+     * @param rgb          颜色（0xRRGGBB）
+     * @param reviewStatus 审核状态
+     */
+    public void put(long id, int rgb, int reviewStatus) {
+        lock.writeLock().lock();
+        try {
+            Integer oldRgb = colorById.put(id, rgb);
+            if (oldRgb != null) {
+                cells[cellIndex(oldRgb)].remove(id);
+            }
+            int cellIndex = cellIndex(rgb);
+            if (cells[cellIndex] == null) {
+                cells[cellIndex] = new Cell();
+            }
+            cells[cellIndex].add(id, rgb, (byte) reviewStatus);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 更新审核状态
+     */
+    public void updateReviewStatus(long id, int reviewStatus) {
+        lock.writeLock().lock();
+        try {
+            Integer rgb = colorById.get(id);
+            if (rgb != null) {
+                cells[cellIndex(rgb)].updateStatus(id, (byte) reviewStatus);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Integer oldRgb = colorById.remove(id);
+            if (oldRgb != null) {
+                cells[cellIndex(oldRgb)].remove(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查找颜色最接近的 k 张图片
+     *
+     * @param rgb          目标颜色（0xRRGGBB）
+     * @param k            数量
+     * @param reviewStatus 审核状态，为空表示不限
+     * @return id => 颜色距离（RGB 欧氏距离的平方），按距离从小到大排序
+     */
+    public Map<Long, Integer> searchNearest(int rgb, int k, Integer reviewStatus) {
+        if (k <= 0) {
+            return new LinkedHashMap<>();
+        }
+        int r = (rgb >> 16) & 0xFF;
+        int g = (rgb >> 8) & 0xFF;
+        int b = rgb & 0xFF;
+        int cr = r >> (8 - CELL_BITS);
+        int cg = g >> (8 - CELL_BITS);
+        int cb = b >> (8 - CELL_BITS);
+        TopK topK = new TopK(k);
+        lock.readLock().lock();
+        try {
+            for (int ring = 0; ring < CELLS_PER_CHANNEL; ring++) {
+                // 访问与中心格子切比雪夫距离恰好为 ring 的格子
+                for (int x = Math.max(0, cr - ring); x <= Math.min(CELLS_PER_CHANNEL - 1, cr + ring); x++) {
+                    for (int y = Math.max(0, cg - ring); y <= Math.min(CELLS_PER_CHANNEL - 1, cg + ring); y++) {
+                        for (int z = Math.max(0, cb - ring); z <= Math.min(CELLS_PER_CHANNEL - 1, cb + ring); z++) {
+                            if (Math.max(Math.abs(x - cr), Math.max(Math.abs(y - cg), Math.abs(z - cb))) != ring) {
+                                continue;
+                            }
+                            Cell cell = cells[(x << (2 * CELL_BITS)) | (y << CELL_BITS) | z];
+                            if (cell != null) {
+                                cell.collect(r, g, b, reviewStatus, topK);
+                            }
+                        }
+                    }
+                }
+                if (topK.isFull()) {
+                    int bound = Math.min(channelBound(r, cr, ring), Math.min(channelBound(g, cg, ring), channelBound(b, cb, ring)));
+                    if ((long) bound * bound >= topK.maxDistance()) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return topK.toMap();
+    }
+
+    /**
+     * 已收录数量
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return colorById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 访问完 ring 圈之后，单个通道上到未访问区域的最小距离；该方向已到色彩空间边界时为无穷大
+     */
+    private static int channelBound(int value, int cell, int ring) {
+        int low = cell - ring > 0 ? value - (cell - ring) * CELL_WIDTH + 1 : Integer.MAX_VALUE;
+        int high = cell + ring < CELLS_PER_CHANNEL - 1 ? (cell + ring + 1) * CELL_WIDTH - value : Integer.MAX_VALUE;
+        return Math.min(low, high);
+    }
+
+    private static int cellIndex(int rgb) {
+        int x = ((rgb >> 16) & 0xFF) >> (8 - CELL_BITS);
+        int y = ((rgb >> 8) & 0xFF) >> (8 - CELL_BITS);
+        int z = (rgb & 0xFF) >> (8 - CELL_BITS);
+        return (x << (2 * CELL_BITS)) | (y << CELL_BITS) | z;
+    }
+
+    /**
+     * 格子：并列存放 id、颜色和审核状态的数组
+     */
+    private static class Cell {
+
+        private long[] ids = new long[8];
+
+        private int[] colors = new int[8];
+
+        private byte[] statuses = new byte[8];
+
+        private int size;
+
+        void add(long id, int rgb, byte status) {
+            if (size == ids.length) {
+                int newCapacity = size * 2;
+                long[] newIds = new long[newCapacity];
+                int[] newColors = new int[newCapacity];
+                byte[] newStatuses = new byte[newCapacity];
+                System.arraycopy(ids, 0, newIds, 0, size);
+                System.arraycopy(colors, 0, newColors, 0, size);
+                System.arraycopy(statuses, 0, newStatuses, 0, size);
+                ids = newIds;
+                colors = newColors;
+                statuses = newStatuses;
+            }
+            ids[size] = id;
+            colors[size] = rgb;
+            statuses[size] = status;
+            size++;
+        }
+
+        void remove(long id) {
+            int i = indexOf(id);
+            if (i >= 0) {
+                // 用最后一个元素填补空位
+                size--;
+                ids[i] = ids[size];
+                colors[i] = colors[size];
+                statuses[i] = statuses[size];
+            }
+        }
+
+        void updateStatus(long id, byte status) {
+            int i = indexOf(id);
+            if (i >= 0) {
+                statuses[i] = status;
+            }
+        }
+
+        void collect(int r, int g, int b, Integer reviewStatus, TopK topK) {
+            for (int i = 0; i < size; i++) {
+                if (reviewStatus != null && statuses[i] != reviewStatus) {
+                    continue;
+                }
+                int rgb = colors[i];
+                int dr = ((rgb >> 16) & 0xFF) - r;
+                int dg = ((rgb >> 8) & 0xFF) - g;
+                int db = (rgb & 0xFF) - b;
+                topK.offer(ids[i], dr * dr + dg * dg + db * db);
+            }
+        }
+
+        private int indexOf(long id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * 保留距离最小的 k 个结果（k 较小，使用有序数组插入）
+     */
+    private static class TopK {
+
+        private final long[] ids;
+
+        private final int[] distances;
+
+        private int size;
+
+        TopK(int k) {
+            ids = new long[k];
+            distances = new int[k];
+        }
+
+        void offer(long id, int distance) {
+            if (size == ids.length && distance >= distances[size - 1]) {
+                return;
+            }
+            int i = size == ids.length ? size - 1 : size++;
+            while (i > 0 && distances[i - 1] > distance) {
+                ids[i] = ids[i - 1];
+                distances[i] = distances[i - 1];
+                i--;
+            }
+            ids[i] = id;
+            distances[i] = distance;
+        }
+
+        boolean isFull() {
+            return size == ids.length;
+        }
+
+        int maxDistance() {
+            return distances[size - 1];
+        }
+
+        Map<Long, Integer> toMap() {
+            Map<Long, Integer> resultMap = new LinkedHashMap<>();
+            for (int i = 0; i < size; i++) {
+                resultMap.put(ids[i], distances[i]);
+            }
+            return resultMap;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.yupi.yupicturebackend.manager.color;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.HexUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.yupi.yupicturebackend.config.PictureUploadConfig;
+import com.yupi.yupicturebackend.event.PictureChangedEvent;
+import com.yupi.yupicturebackend.event.PictureChangedRelay;
+import com.yupi.yupicturebackend.manager.storage.PictureStorage;
+import com.yupi.yupicturebackend.mapper.PictureMapper;
+import com.yupi.yupicturebackend.model.entity.Picture;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 图片颜色管理
+ * 上传时计算主色调和颜色直方图，主色调保存在内存中的颜色网格索引里，用于按颜色搜索图片；
+ * 启动时从数据库加载，图片入库、审核和删除时同步更新（包括经 {@link PictureChangedRelay} 转发的其他实例的变更）。
+ */
+@Slf4j
+@Component
+public class PictureColorManager {
+
+    /**
+     * 计算颜色时使用的缩略图边长
+     */
+    private static final int SAMPLE_SIZE = 32;
+
+    /**
+     * 直方图每个通道的分段数，共 4 * 4 * 4 = 64 个区间
+     */
+    private static final int HISTOGRAM_LEVELS = 4;
+
+    /**
+     * 启动加载时每批读取的数量
+     */
+    private static final int LOAD_BATCH_SIZE = 10000;
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private PictureStorage pictureStorage;
+
+    @Resource
+    private PictureUploadConfig pictureUploadConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final ColorGridIndex colorIndex = new ColorGridIndex();
+
+    /**
+     * 回填进度：已处理到的图片 id
+     */
+    private volatile long lastBackfillPictureId;
+
+    /**
+     * 颜色特征
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class ColorFeature {
+
+        /**
+         * 主色调，如 #3A7BD5
+         */
+        private final String dominantColor;
+
+        /**
+         * 颜色直方图：64 个区间的占比（0-255），十六进制编码
+         */
+        private final String colorHistogram;
+    }
+
+    @PostConstruct
+    public void init() {
+        meterRegistry.gauge("picture.color.index.size", colorIndex, ColorGridIndex::size);
+    }
+
+    /**
+     * 计算图片的颜色特征
+     * 由存储缩放为 32x32 后统计，主色调取像素最多的直方图区间内的平均颜色
+     *
+     * @param url 图片地址
+     * @return 颜色特征，非本存储的图片或计算失败时返回 null
+     */
+    public ColorFeature computeColor(String url) {
+        String key = pictureStorage.getKey(url);
+        if (key == null) {
+            return null;
+        }
+        try {
+            BufferedImage image = pictureStorage.getScaledPicture(key, SAMPLE_SIZE, SAMPLE_SIZE);
+            return image != null ? sampleColor(image) : null;
+        } catch (Exception e) {
+            log.warn("计算图片颜色失败, key = {}", key, e);
+            return null;
+        }
+    }
+
+    /**
+     * 根据已解码的原图计算颜色特征，用于上传时内容已在本地的场景
+     *
+     * @param image 原图
+     * @return 颜色特征，图片全部透明时返回 null
+     */
+    public ColorFeature computeColor(BufferedImage image) {
+        return sampleColor(PictureStorage.scale(image, SAMPLE_SIZE, SAMPLE_SIZE));
+    }
+
+    /**
+     * 查找主色调最接近的图片
+     *
+     * @param color        目标颜色，如 #3A7BD5
+     * @param limit        数量
+     * @param reviewStatus 审核状态，为空表示不限
+     * @return 图片 id => 颜色距离，按距离从小到大排序
+     */
+    public Map<Long, Integer> searchByColor(String color, int limit, Integer reviewStatus) {
+        return colorIndex.searchNearest(parseColor(color), limit, reviewStatus);
+    }
+
+    /**
+     * 解析颜色字符串
+     *
+     * @param color 形如 #RRGGBB 或 RRGGBB
+     * @return 0xRRGGBB，格式错误时返回 -1
+     */
+    public static int parseColor(String color) {
+        String hex = StrUtil.removePrefix(StrUtil.trim(color), "#");
+        if (hex == null || !hex.matches("[0-9a-fA-F]{6}")) {
+            return -1;
+        }
+        return Integer.parseInt(hex, 16);
+    }
+
+    @EventListener
+    public void onPictureChanged(PictureChangedEvent event) {
+        for (Picture picture : event.getPictureList()) {
+            if (event.getChangeType() == PictureChangedEvent.ChangeType.DELETE) {
+                colorIndex.remove(picture.getId());
+            } else if (picture.getDominantColor() != null && picture.getReviewStatus() != null) {
+                colorIndex.put(picture.getId(), parseColor(picture.getDominantColor()), picture.getReviewStatus());
+            } else if (picture.getReviewStatus() != null) {
+                colorIndex.updateReviewStatus(picture.getId(), picture.getReviewStatus());
+            }
+        }
+    }
+
+    /**
+     * 启动后在后台分批加载所有图片的主色调，不阻塞启动
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        ThreadUtil.execute(this::loadIndex);
+    }
+
+    private void loadIndex() {
+        long start = System.currentTimeMillis();
+        long lastId = 0;
+        while (true) {
+            QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+            queryWrapper.select("id", "dominantColor", "reviewStatus")
+                    .isNotNull("dominantColor")
+                    .gt("id", lastId)
+                    .orderByAsc("id")
+                    .last("limit " + LOAD_BATCH_SIZE);
+            List<Picture> pictureList = pictureMapper.selectList(queryWrapper);
+            for (Picture picture : pictureList) {
+                colorIndex.put(picture.getId(), parseColor(picture.getDominantColor()), picture.getReviewStatus());
+            }
+            if (pictureList.size() < LOAD_BATCH_SIZE) {
+                break;
+            }
+            lastId = pictureList.get(pictureList.size() - 1).getId();
+        }
+        log.info("颜色索引加载完成: {} 张, 耗时 {}ms", colorIndex.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 为缺少颜色特征的历史图片分批补算
+     */
+    @Scheduled(initialDelay = 60 * 1000L, fixedDelay = 60 * 1000L)
+    public void backfillColors() {
+        if (!pictureUploadConfig.isColorBackfillEnabled()) {
+            return;
+        }
+        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("id", "url", "reviewStatus")
+                .isNull("dominantColor")
+                .gt("id", lastBackfillPictureId)
+                .orderByAsc("id")
+                .last("limit " + pictureUploadConfig.getColorBackfillBatchSize());
+        List<Picture> pictureList = pictureMapper.selectList(queryWrapper);
+        if (CollUtil.isEmpty(pictureList)) {
+            return;
+        }
+        int successCount = 0;
+        for (Picture picture : pictureList) {
+            lastBackfillPictureId = picture.getId();
+            ColorFeature colorFeature = computeColor(picture.getUrl());
+            if (colorFeature == null) {
+                continue;
+            }
+            UpdateWrapper<Picture> updateWrapper = new UpdateWrapper<>();
+            updateWrapper.eq("id", picture.getId())
+                    .set("dominantColor", colorFeature.getDominantColor())
+                    .set("colorHistogram", colorFeature.getColorHistogram());
+            if (pictureMapper.update(null, updateWrapper) > 0) {
+                colorIndex.put(picture.getId(), parseColor(colorFeature.getDominantColor()), picture.getReviewStatus());
+                successCount++;
+            }
+        }
+        log.info("图片颜色回填: 本轮 {} 张，成功 {} 张，进度 id = {}", pictureList.size(), successCount,
+                lastBackfillPictureId);
+    }
+
+    /**
+     * 统计缩放后的采样图片的颜色特征
+     */
+    static ColorFeature sampleColor(BufferedImage image) {
+        int binCount = HISTOGRAM_LEVELS * HISTOGRAM_LEVELS * HISTOGRAM_LEVELS;
+        int[] counts = new int[binCount];
+        long[] sumR = new long[binCount];
+        long[] sumG = new long[binCount];
+        long[] sumB = new long[binCount];
+        int total = 0;
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int argb = image.getRGB(x, y);
+                // 忽略透明像素
+                if ((argb >>> 24) < 128) {
+                    continue;
+                }
+                int r = (argb >> 16) & 0xFF;
+                int g = (argb >> 8) & 0xFF;
+                int b = argb & 0xFF;
+                int bin = (r / 64) * HISTOGRAM_LEVELS * HISTOGRAM_LEVELS + (g / 64) * HISTOGRAM_LEVELS + b / 64;
+                counts[bin]++;
+                sumR[bin] += r;
+                sumG[bin] += g;
+                sumB[bin] += b;
+                total++;
+            }
+        }
+        if (total == 0) {
+            return null;
+        }
+        int dominantBin = 0;
+        byte[] histogram = new byte[binCount];
+        for (int bin = 0; bin < binCount; bin++) {
+            if (counts[bin] > counts[dominantBin]) {
+                dominantBin = bin;
+            }
+            histogram[bin] = (byte) Math.round(counts[bin] * 255.0 / total);
+        }
+        int count = counts[dominantBin];
+        String dominantColor = String.format("#%02X%02X%02X",
+                sumR[dominantBin] / count, sumG[dominantBin] / count, sumB[dominantBin] / count);
+        return new ColorFeature(dominantColor, HexUtil.encodeHexStr(histogram));
+    }
+}
@@ -0,0 +1,57 @@
+package com.yupi.yupicturebackend.manager.facet;
+
+/**
+ * 分面统计的筛选条件，字段为空表示不限
+ */
+class FacetFilter {
+
+    Integer reviewStatus;
+
+    String category;
+
+    /**
+     * 格式包含的文本，对应 LIKE '%x%'
+     */
+    String picFormat;
+
+    Long userId;
+
+    Integer picWidth;
+
+    Integer minPicWidth;
+
+    Integer maxPicWidth;
+
+    Integer picHeight;
+
+    Integer minPicHeight;
+
+    Integer maxPicHeight;
+
+    Long picSize;
+
+    Long minPicSize;
+
+    Long maxPicSize;
+
+    Double picScale;
+
+    Double minPicScale;
+
+    Double maxPicScale;
+
+    /**
+     * 创建时间下限（毫秒，包含）
+     */
+    Long startCreateTime;
+
+    /**
+     * 创建时间上限（毫秒，不包含）
+     */
+    Long endCreateTime;
+
+    /**
+     * 候选图片 id（来自搜索或标签索引），为空时扫描全部图片
+     */
+    long[] candidateIds;
+}
@@ -0,0 +1,428 @@
+package com.yupi.yupicturebackend.manager.facet;
+
+import cn.hutool.core.util.StrUtil;
+import com.yupi.yupicturebackend.model.entity.Picture;
+import com.yupi.yupicturebackend.model.enums.PictureScaleBucketEnum;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 图片分面索引
+ * 每张图片的筛选字段按序号存放在并列的基本类型数组中（列存），分类和格式编码为字典序号；
+ * 同时按审核状态、审核状态 + 分类维护分类、格式、宽高比区间的计数器，随图片变更增量更新。
+ * 只按审核状态和分类筛选时直接返回计数器，其他条件在内存中扫描列（或只扫描候选图片），不访问数据库。
+ */
+public class PictureFacetIndex {
+
+    private static final int SCALE_BUCKET_COUNT = PictureScaleBucketEnum.values().length;
+
+    /**
+     * 图片 id => 序号
+     */
+    private final Map<Long, Integer> ordinalById = new HashMap<>();
+
+    private int nextOrdinal;
+
+    private long[] ids = new long[1024];
+
+    /**
+     * 审核状态，-1 表示已删除
+     */
+    private byte[] reviewStatuses = new byte[1024];
+
+    private int[] categoryCodes = new int[1024];
+
+    private int[] formatCodes = new int[1024];
+
+    /**
+     * 宽度，-1 表示为空
+     */
+    private int[] widths = new int[1024];
+
+    /**
+     * 高度，-1 表示为空
+     */
+    private int[] heights = new int[1024];
+
+    /**
+     * 文件体积，-1 表示为空
+     */
+    private long[] sizes = new long[1024];
+
+    /**
+     * 宽高比，NaN 表示为空
+     */
+    private double[] scales = new double[1024];
+
+    /**
+     * 创建时间（毫秒），0 表示为空
+     */
+    private long[] createTimes = new long[1024];
+
+    private long[] userIds = new long[1024];
+
+    /**
+     * 分类字典，序号 0 表示为空
+     */
+    private final Dictionary categoryDictionary = new Dictionary();
+
+    /**
+     * 格式字典，序号 0 表示为空
+     */
+    private final Dictionary formatDictionary = new Dictionary();
+
+    /**
+     * 审核状态 => 计数器
+     */
+    private final Map<Integer, FacetCounts> countsByStatus = new HashMap<>();
+
+    /**
+     * (审核状态, 分类序号) => 计数器
+     */
+    private final Map<Long, FacetCounts> countsByStatusCategory = new HashMap<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 添加或替换图片
+     *
+     * @param picture 图片，需要 id、审核状态、分类、格式、宽高、体积、宽高比、创建时间和用户 id
+     */
+    public void put(Picture picture) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalById.get(picture.getId());
+            if (ordinal == null) {
+                ensureCapacity(nextOrdinal + 1);
+                ordinal = nextOrdinal++;
+                ordinalById.put(picture.getId(), ordinal);
+            } else {
+                count(ordinal, -1);
+            }
+            ids[ordinal] = picture.getId();
+            reviewStatuses[ordinal] = (byte) (picture.getReviewStatus() != null ? picture.getReviewStatus() : 0);
+            categoryCodes[ordinal] = categoryDictionary.getOrCreateCode(picture.getCategory());
+            formatCodes[ordinal] = formatDictionary.getOrCreateCode(picture.getPicFormat());
+            widths[ordinal] = picture.getPicWidth() != null ? picture.getPicWidth() : -1;
+            heights[ordinal] = picture.getPicHeight() != null ? picture.getPicHeight() : -1;
+            sizes[ordinal] = picture.getPicSize() != null ? picture.getPicSize() : -1;
+            scales[ordinal] = picture.getPicScale() != null ? picture.getPicScale() : Double.NaN;
+            createTimes[ordinal] = picture.getCreateTime() != null ? picture.getCreateTime().getTime() : 0;
+            userIds[ordinal] = picture.getUserId() != null ? picture.getUserId() : 0;
+            count(ordinal, 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除图片，序号不再复用
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalById.remove(id);
+            if (ordinal != null) {
+                count(ordinal, -1);
+                reviewStatuses[ordinal] = -1;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 只按审核状态和分类筛选时，直接读取计数器
+     *
+     * @param reviewStatus 审核状态
+     * @param category     分类，为空时不限
+     */
+    public FacetResult getCounts(int reviewStatus, String category) {
+        lock.readLock().lock();
+        try {
+            FacetCounts counts;
+            if (category == null) {
+                counts = countsByStatus.get(reviewStatus);
+            } else {
+                int categoryCode = categoryDictionary.findCode(category);
+                counts = categoryCode > 0 ? countsByStatusCategory.get(statusCategoryKey(reviewStatus, categoryCode)) : null;
+            }
+            return toResult(counts != null ? counts : new FacetCounts());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按任意条件扫描统计
+     */
+    FacetResult scan(FacetFilter filter) {
+        lock.readLock().lock();
+        try {
+            FacetCounts counts = new FacetCounts();
+            int categoryCode = 0;
+            if (filter.category != null) {
+                categoryCode = categoryDictionary.findCode(filter.category);
+                if (categoryCode <= 0) {
+                    return toResult(counts);
+                }
+            }
+            boolean[] formatMatches = filter.picFormat != null ? formatDictionary.matchContains(filter.picFormat) : null;
+            if (filter.candidateIds != null) {
+                for (long id : filter.candidateIds) {
+                    Integer ordinal = ordinalById.get(id);
+                    if (ordinal != null && matches(ordinal, filter, categoryCode, formatMatches)) {
+                        counts.add(categoryCodes[ordinal], formatCodes[ordinal], scaleBucket(ordinal), 1);
+                    }
+                }
+            } else {
+                for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+                    if (matches(ordinal, filter, categoryCode, formatMatches)) {
+                        counts.add(categoryCodes[ordinal], formatCodes[ordinal], scaleBucket(ordinal), 1);
+                    }
+                }
+            }
+            return toResult(counts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 已收录的图片数量
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean matches(int ordinal, FacetFilter filter, int categoryCode, boolean[] formatMatches) {
+        byte reviewStatus = reviewStatuses[ordinal];
+        if (reviewStatus < 0 || (filter.reviewStatus != null && reviewStatus != filter.reviewStatus)) {
+            return false;
+        }
+        if (categoryCode > 0 && categoryCodes[ordinal] != categoryCode) {
+            return false;
+        }
+        if (formatMatches != null && !formatMatches[formatCodes[ordinal]]) {
+            return false;
+        }
+        if (filter.userId != null && userIds[ordinal] != filter.userId) {
+            return false;
+        }
+        return inRange(widths[ordinal], filter.picWidth, filter.minPicWidth, filter.maxPicWidth)
+                && inRange(heights[ordinal], filter.picHeight, filter.minPicHeight, filter.maxPicHeight)
+                && inRange(sizes[ordinal], filter.picSize, filter.minPicSize, filter.maxPicSize)
+                && inRange(scales[ordinal], filter.picScale, filter.minPicScale, filter.maxPicScale)
+                && (filter.startCreateTime == null || (createTimes[ordinal] != 0 && createTimes[ordinal] >= filter.startCreateTime))
+                && (filter.endCreateTime == null || (createTimes[ordinal] != 0 && createTimes[ordinal] < filter.endCreateTime));
+    }
+
+    /**
+     * 与 SQL 一致：字段为空时不满足任何条件
+     */
+    private static boolean inRange(long value, Long equal, Long min, Long max) {
+        if (equal == null && min == null && max == null) {
+            return true;
+        }
+        return value >= 0 && (equal == null || value == equal) && (min == null || value >= min) && (max == null || value <= max);
+    }
+
+    private static boolean inRange(int value, Integer equal, Integer min, Integer max) {
+        return inRange(value, equal != null ? Long.valueOf(equal) : null, min != null ? Long.valueOf(min) : null,
+                max != null ? Long.valueOf(max) : null);
+    }
+
+    private static boolean inRange(double value, Double equal, Double min, Double max) {
+        if (equal == null && min == null && max == null) {
+            return true;
+        }
+        return !Double.isNaN(value) && (equal == null || value == equal) && (min == null || value >= min)
+                && (max == null || value <= max);
+    }
+
+    private int scaleBucket(int ordinal) {
+        PictureScaleBucketEnum bucketEnum = PictureScaleBucketEnum.getEnumByScale(scales[ordinal]);
+        return bucketEnum != null ? bucketEnum.ordinal() : -1;
+    }
+
+    /**
+     * 把图片计入（delta 为 1）或移出（delta 为 -1）计数器
+     */
+    private void count(int ordinal, int delta) {
+        int reviewStatus = reviewStatuses[ordinal];
+        if (reviewStatus < 0) {
+            return;
+        }
+        int categoryCode = categoryCodes[ordinal];
+        int formatCode = formatCodes[ordinal];
+        int scaleBucket = scaleBucket(ordinal);
+        countsByStatus.computeIfAbsent(reviewStatus, k -> new FacetCounts())
+                .add(categoryCode, formatCode, scaleBucket, delta);
+        if (categoryCode > 0) {
+            countsByStatusCategory.computeIfAbsent(statusCategoryKey(reviewStatus, categoryCode), k -> new FacetCounts())
+                    .add(categoryCode, formatCode, scaleBucket, delta);
+        }
+    }
+
+    private static long statusCategoryKey(int reviewStatus, int categoryCode) {
+        return ((long) reviewStatus << 32) | categoryCode;
+    }
+
+    private FacetResult toResult(FacetCounts counts) {
+        FacetResult result = new FacetResult();
+        result.total = counts.total;
+        result.categoryCounts = categoryDictionary.toNamedCounts(counts.categoryCounts);
+        result.formatCounts = formatDictionary.toNamedCounts(counts.formatCounts);
+        result.scaleCounts = Arrays.copyOf(counts.scaleCounts, counts.scaleCounts.length);
+        return result;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newLength = Math.max(ids.length * 2, capacity);
+        ids = Arrays.copyOf(ids, newLength);
+        reviewStatuses = Arrays.copyOf(reviewStatuses, newLength);
+        categoryCodes = Arrays.copyOf(categoryCodes, newLength);
+        formatCodes = Arrays.copyOf(formatCodes, newLength);
+        widths = Arrays.copyOf(widths, newLength);
+        heights = Arrays.copyOf(heights, newLength);
+        sizes = Arrays.copyOf(sizes, newLength);
+        scales = Arrays.copyOf(scales, newLength);
+        createTimes = Arrays.copyOf(createTimes, newLength);
+        userIds = Arrays.copyOf(userIds, newLength);
+    }
+
+    /**
+     * 分面统计结果
+     */
+    public static class FacetResult {
+
+        public long total;
+
+        /**
+         * 分类 => 数量（不含为 0 的分类）
+         */
+        public Map<String, Long> categoryCounts;
+
+        /**
+         * 格式 => 数量（不含为 0 的格式）
+         */
+        public Map<String, Long> formatCounts;
+
+        /**
+         * 按 {@link PictureScaleBucketEnum} 顺序的数量
+         */
+        public long[] scaleCounts;
+    }
+
+    /**
+     * 计数器，分类和格式按字典序号计数
+     */
+    private static class FacetCounts {
+
+        private long total;
+
+        private long[] categoryCounts = new long[16];
+
+        private long[] formatCounts = new long[16];
+
+        private final long[] scaleCounts = new long[SCALE_BUCKET_COUNT];
+
+        void add(int categoryCode, int formatCode, int scaleBucket, int delta) {
+            total += delta;
+            if (categoryCode > 0) {
+                if (categoryCode >= categoryCounts.length) {
+                    categoryCounts = Arrays.copyOf(categoryCounts, Math.max(categoryCounts.length * 2, categoryCode + 1));
+                }
+                categoryCounts[categoryCode] += delta;
+            }
+            if (formatCode > 0) {
+                if (formatCode >= formatCounts.length) {
+                    formatCounts = Arrays.copyOf(formatCounts, Math.max(formatCounts.length * 2, formatCode + 1));
+                }
+                formatCounts[formatCode] += delta;
+            }
+            if (scaleBucket >= 0) {
+                scaleCounts[scaleBucket] += delta;
+            }
+        }
+    }
+
+    /**
+     * 字符串字典，序号从 1 开始，0 表示为空
+     */
+    private static class Dictionary {
+
+        private final Map<String, Integer> codeByName = new HashMap<>();
+
+        private final List<String> names = new ArrayList<>();
+
+        Dictionary() {
+            names.add(null);
+        }
+
+        int getOrCreateCode(String name) {
+            if (StrUtil.isBlank(name)) {
+                return 0;
+            }
+            Integer code = codeByName.get(name);
+            if (code == null) {
+                code = names.size();
+                names.add(name);
+                codeByName.put(name, code);
+            }
+            return code;
+        }
+
+        /**
+         * 查找序号，与数据库排序规则一致忽略大小写；不存在时返回 0
+         */
+        int findCode(String name) {
+            Integer code = codeByName.get(name);
+            if (code != null) {
+                return code;
+            }
+            for (int i = 1; i < names.size(); i++) {
+                if (names.get(i).equalsIgnoreCase(name)) {
+                    return i;
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * 每个序号是否包含给定文本（忽略大小写），对应 LIKE '%x%'
+         */
+        boolean[] matchContains(String text) {
+            String lowerText = text.toLowerCase();
+            boolean[] matches = new boolean[names.size()];
+            for (int i = 1; i < names.size(); i++) {
+                matches[i] = names.get(i).toLowerCase().contains(lowerText);
+            }
+            return matches;
+        }
+
+        Map<String, Long> toNamedCounts(long[] counts) {
+            Map<String, Long> namedCounts = new LinkedHashMap<>();
+            for (int code = 1; code < counts.length && code < names.size(); code++) {
+                if (counts[code] > 0) {
+                    namedCounts.put(names.get(code), counts[code]);
+                }
+            }
+            return namedCounts;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.yupi.yupicturebackend.manager.facet;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.ObjUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.yupi.yupicturebackend.event.PictureChangedEvent;
+import com.yupi.yupicturebackend.event.PictureChangedRelay;
+import com.yupi.yupicturebackend.exception.BusinessException;
+import com.yupi.yupicturebackend.exception.ErrorCode;
+import com.yupi.yupicturebackend.exception.ThrowUtils;
+import com.yupi.yupicturebackend.manager.search.PictureSearchManager;
+import com.yupi.yupicturebackend.manager.tag.PictureTagManager;
+import com.yupi.yupicturebackend.mapper.PictureMapper;
+import com.yupi.yupicturebackend.model.dto.picture.PictureQueryRequest;
+import com.yupi.yupicturebackend.model.entity.Picture;
+import com.yupi.yupicturebackend.model.enums.PictureScaleBucketEnum;
+import com.yupi.yupicturebackend.model.vo.PictureFacetVO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 图片分面统计
+ * 按分类、格式和宽高比区间统计符合条件的图片数量，数据来自内存中的 {@link PictureFacetIndex}，不在数据库中 GROUP BY：
+ * 只按审核状态和分类筛选时直接读取增量维护的计数器；带其他条件时在内存中扫描列，
+ * 综合搜索和标签条件先由搜索索引、标签位图索引得到候选图片，只扫描候选图片。
+ * 其他实例的变更经 {@link PictureChangedRelay} 转发后同步到本地索引。
+ */
+@Slf4j
+@Component
+public class PictureFacetManager {
+
+    /**
+     * 启动加载时每批读取的数量
+     */
+    private static final int LOAD_BATCH_SIZE = 10000;
+
+    /**
+     * 分面统计需要的列
+     */
+    private static final String[] FACET_COLUMNS = {"id", "reviewStatus", "category", "picFormat", "picWidth",
+            "picHeight", "picSize", "picScale", "createTime", "userId"};
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private PictureSearchManager pictureSearchManager;
+
+    @Resource
+    private PictureTagManager pictureTagManager;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final PictureFacetIndex facetIndex = new PictureFacetIndex();
+
+    /**
+     * 索引是否加载完成
+     */
+    private volatile boolean ready;
+
+    /**
+     * 加载期间删除的图片，加载完成后再次移除
+     */
+    private final Set<Long> deletedWhileLoading = ConcurrentHashMap.newKeySet();
+
+    private Counter counterSourceCounter;
+
+    private Counter scanSourceCounter;
+
+    @PostConstruct
+    public void init() {
+        counterSourceCounter = meterRegistry.counter("picture.facet.query", "source", "counter");
+        scanSourceCounter = meterRegistry.counter("picture.facet.query", "source", "scan");
+        meterRegistry.gauge("picture.facet.index.size", facetIndex, PictureFacetIndex::size);
+    }
+
+    /**
+     * 统计符合查询条件的图片在各分类、格式和宽高比区间的数量
+     *
+     * @param pictureQueryRequest 查询条件，分页和排序参数不参与统计
+     */
+    public PictureFacetVO getFacets(PictureQueryRequest pictureQueryRequest) {
+        ThrowUtils.throwif(pictureQueryRequest == null, ErrorCode.PARAMS_ERROR);
+        // 以下条件只能由数据库回答，分面统计不支持
+        ThrowUtils.throwif(ObjUtil.isNotEmpty(pictureQueryRequest.getId())
+                        || StrUtil.isNotBlank(pictureQueryRequest.getName())
+                        || StrUtil.isNotBlank(pictureQueryRequest.getIntroduction())
+                        || StrUtil.isNotBlank(pictureQueryRequest.getReviewMessage())
+                        || ObjUtil.isNotEmpty(pictureQueryRequest.getReviewerId()),
+                ErrorCode.PARAMS_ERROR, "分面统计不支持按 id、名称、简介和审核信息筛选");
+        if (!ready) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "分面统计索引加载中，请稍后重试");
+        }
+        FacetFilter filter = buildFilter(pictureQueryRequest);
+        PictureFacetIndex.FacetResult result;
+        if (filter.reviewStatus != null && isCounterAnswerable(filter)) {
+            counterSourceCounter.increment();
+            result = facetIndex.getCounts(filter.reviewStatus, filter.category);
+        } else {
+            scanSourceCounter.increment();
+            result = facetIndex.scan(filter);
+        }
+        return toFacetVO(result);
+    }
+
+    private FacetFilter buildFilter(PictureQueryRequest pictureQueryRequest) {
+        FacetFilter filter = new FacetFilter();
+        filter.reviewStatus = pictureQueryRequest.getReviewStatus();
+        filter.category = StrUtil.isNotBlank(pictureQueryRequest.getCategory()) ? pictureQueryRequest.getCategory() : null;
+        filter.picFormat = StrUtil.isNotBlank(pictureQueryRequest.getPicFormat()) ? pictureQueryRequest.getPicFormat() : null;
+        filter.userId = pictureQueryRequest.getUserId();
+        filter.picWidth = pictureQueryRequest.getPicWidth();
+        filter.minPicWidth = pictureQueryRequest.getMinPicWidth();
+        filter.maxPicWidth = pictureQueryRequest.getMaxPicWidth();
+        filter.picHeight = pictureQueryRequest.getPicHeight();
+        filter.minPicHeight = pictureQueryRequest.getMinPicHeight();
+        filter.maxPicHeight = pictureQueryRequest.getMaxPicHeight();
+        filter.picSize = pictureQueryRequest.getPicSize();
+        filter.minPicSize = pictureQueryRequest.getMinPicSize();
+        filter.maxPicSize = pictureQueryRequest.getMaxPicSize();
+        filter.picScale = pictureQueryRequest.getPicScale();
+        filter.minPicScale = pictureQueryRequest.getMinPicScale();
+        filter.maxPicScale = pictureQueryRequest.getMaxPicScale();
+        if (pictureQueryRequest.getStartCreateTime() != null) {
+            filter.startCreateTime = pictureQueryRequest.getStartCreateTime().getTime();
+        }
+        if (pictureQueryRequest.getEndCreateTime() != null) {
+            filter.endCreateTime = pictureQueryRequest.getEndCreateTime().getTime();
+        }
+        // 综合搜索和标签条件先得到候选图片
+        String searchText = pictureQueryRequest.getSearchText();
+        if (StrUtil.isNotBlank(searchText)) {
+            long[] matchedIds = pictureSearchManager.searchAll(searchText);
+            if (matchedIds == null) {
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, "搜索索引不可用或搜索词过短，暂不支持分面统计");
+            }
+            filter.candidateIds = matchedIds;
+        }
+        List<String> tags = pictureQueryRequest.getTags();
+        if (CollUtil.isNotEmpty(tags)) {
+            long[] taggedIds = pictureTagManager.findAllPictureIds(tags, filter.reviewStatus);
+            if (taggedIds == null) {
+                taggedIds = findTaggedIdsByTable(tags);
+            }
+            filter.candidateIds = filter.candidateIds == null ? taggedIds : intersect(filter.candidateIds, taggedIds);
+        }
+        return filter;
+    }
+
+    /**
+     * 是否只按审核状态和分类筛选
+     */
+    private static boolean isCounterAnswerable(FacetFilter filter) {
+        return filter.candidateIds == null && filter.picFormat == null && filter.userId == null
+                && filter.picWidth == null && filter.minPicWidth == null && filter.maxPicWidth == null
+                && filter.picHeight == null && filter.minPicHeight == null && filter.maxPicHeight == null
+                && filter.picSize == null && filter.minPicSize == null && filter.maxPicSize == null
+                && filter.picScale == null && filter.minPicScale == null && filter.maxPicScale == null
+                && filter.startCreateTime == null && filter.endCreateTime == null;
+    }
+
+    /**
+     * 标签索引不可用或标签不在字典中时，通过标签关系表查询同时带有全部标签的图片
+     *
+     * @return 升序排列的图片 id
+     */
+    private long[] findTaggedIdsByTable(List<String> tags) {
+        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("id");
+        for (String tag : tags) {
+            queryWrapper.apply("id in (select pt.pictureId from picture_tag pt join tag t on t.id = pt.tagId"
+                    + " where t.name = {0})", StrUtil.trim(tag));
+        }
+        queryWrapper.orderByAsc("id");
+        List<Object> idList = pictureMapper.selectObjs(queryWrapper);
+        long[] ids = new long[idList.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = ((Number) idList.get(i)).longValue();
+        }
+        return ids;
+    }
+
+    /**
+     * 两个升序 id 数组求交
+     */
+    private static long[] intersect(long[] a, long[] b) {
+        long[] result = new long[Math.min(a.length, b.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        long[] trimmed = new long[count];
+        System.arraycopy(result, 0, trimmed, 0, count);
+        return trimmed;
+    }
+
+    private static PictureFacetVO toFacetVO(PictureFacetIndex.FacetResult result) {
+        PictureFacetVO facetVO = new PictureFacetVO();
+        facetVO.setTotal(result.total);
+        facetVO.setCategoryList(toBucketList(result.categoryCounts));
+        facetVO.setFormatList(toBucketList(result.formatCounts));
+        List<PictureFacetVO.Bucket> scaleList = new ArrayList<>();
+        for (PictureScaleBucketEnum bucketEnum : PictureScaleBucketEnum.values()) {
+            scaleList.add(newBucket(bucketEnum.getValue(), bucketEnum.getText(), result.scaleCounts[bucketEnum.ordinal()]));
+        }
+        facetVO.setScaleList(scaleList);
+        return facetVO;
+    }
+
+    /**
+     * 按数量从多到少排列
+     */
+    private static List<PictureFacetVO.Bucket> toBucketList(Map<String, Long> counts) {
+        List<PictureFacetVO.Bucket> bucketList = new ArrayList<>(counts.size());
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            bucketList.add(newBucket(entry.getKey(), entry.getKey(), entry.getValue()));
+        }
+        bucketList.sort((a, b) -> Long.compare(b.getCount(), a.getCount()));
+        return bucketList;
+    }
+
+    private static PictureFacetVO.Bucket newBucket(String value, String text, long count) {
+        PictureFacetVO.Bucket bucket = new PictureFacetVO.Bucket();
+        bucket.setValue(value);
+        bucket.setText(text);
+        bucket.setCount(count);
+        return bucket;
+    }
+
+    @EventListener
+    public void onPictureChanged(PictureChangedEvent event) {
+        List<Long> savedIds = new ArrayList<>();
+        for (Picture picture : event.getPictureList()) {
+            if (picture.getId() == null) {
+                continue;
+            }
+            if (event.getChangeType() == PictureChangedEvent.ChangeType.DELETE) {
+                facetIndex.remove(picture.getId());
+                if (!ready) {
+                    deletedWhileLoading.add(picture.getId());
+                }
+            } else {
+                savedIds.add(picture.getId());
+            }
+        }
+        if (savedIds.isEmpty()) {
+            return;
+        }
+        try {
+            // 事件中的图片可能只包含本次修改的字段（如审核），按 id 读取完整的统计字段
+            QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+            queryWrapper.select(FACET_COLUMNS).in("id", savedIds);
+            for (Picture picture : pictureMapper.selectList(queryWrapper)) {
+                facetIndex.put(picture);
+            }
+        } catch (Exception e) {
+            log.error("更新分面统计索引失败, pictureIds = {}", savedIds, e);
+        }
+    }
+
+    /**
+     * 启动后在后台分批加载，不阻塞启动
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        ThreadUtil.execute(this::loadIndex);
+    }
+
+    private void loadIndex() {
+        long start = System.currentTimeMillis();
+        long lastId = 0;
+        try {
+            while (true) {
+                QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+                queryWrapper.select(FACET_COLUMNS)
+                        .gt("id", lastId)
+                        .orderByAsc("id")
+                        .last("limit " + LOAD_BATCH_SIZE);
+                List<Picture> pictureList = pictureMapper.selectList(queryWrapper);
+                for (Picture picture : pictureList) {
+                    facetIndex.put(picture);
+                }
+                if (pictureList.size() < LOAD_BATCH_SIZE) {
+                    break;
+                }
+                lastId = pictureList.get(pictureList.size() - 1).getId();
+            }
+        } catch (Exception e) {
+            // 加载失败时保持不可用，分面统计返回错误
+            log.error("分面统计索引加载失败, 进度 id = {}", lastId, e);
+            return;
+        }
+        ready = true;
+        for (Long id : deletedWhileLoading) {
+            facetIndex.remove(id);
+        }
+        deletedWhileLoading.clear();
+        log.info("分面统计索引加载完成: {} 张, 耗时 {}ms", facetIndex.size(), System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,196 @@
+package com.yupi.yupicturebackend.manager.search;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.yupi.yupicturebackend.config.PictureSearchConfig;
+import com.yupi.yupicturebackend.event.PictureChangedEvent;
+import com.yupi.yupicturebackend.event.PictureChangedRelay;
+import com.yupi.yupicturebackend.mapper.PictureMapper;
+import com.yupi.yupicturebackend.model.entity.Picture;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 图片综合搜索
+ * 名称、简介和标签建立内存倒排索引（中日韩文字 bigram + 单词），替代 name/introduction 的 LIKE '%x%' 全表扫描；
+ * 启动时从数据库加载，本实例和其他实例（经 {@link PictureChangedRelay} 转发）的图片新增、编辑、审核和删除时同步更新。
+ * 索引加载完成前由调用方回退到数据库查询。
+ */
+@Slf4j
+@Component
+public class PictureSearchManager {
+
+    /**
+     * 启动加载时每批读取的数量
+     */
+    private static final int LOAD_BATCH_SIZE = 10000;
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private PictureSearchConfig pictureSearchConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final PictureTextIndex textIndex = new PictureTextIndex();
+
+    /**
+     * 索引是否加载完成
+     */
+    private volatile boolean ready;
+
+    /**
+     * 加载期间删除的图片，加载完成后再次移除，避免被加载线程读到的旧数据写回
+     */
+    private final Set<Long> deletedWhileLoading = ConcurrentHashMap.newKeySet();
+
+    private Counter indexQueryCounter;
+
+    private Counter fallbackQueryCounter;
+
+    @PostConstruct
+    public void init() {
+        indexQueryCounter = meterRegistry.counter("picture.search.query", "source", "index");
+        fallbackQueryCounter = meterRegistry.counter("picture.search.query", "source", "database");
+        meterRegistry.gauge("picture.search.index.size", textIndex, PictureTextIndex::size);
+        meterRegistry.gauge("picture.search.index.terms", textIndex, PictureTextIndex::termCount);
+        meterRegistry.gauge("picture.search.index.bytes", textIndex, PictureTextIndex::memoryBytes);
+    }
+
+    /**
+     * 按综合搜索文本查找图片
+     *
+     * @param searchText 搜索文本
+     * @return 命中的图片 id（升序）；索引不可用、文本中没有可用的词或命中数过多时返回 null，由调用方回退到数据库查询
+     */
+    public List<Long> search(String searchText) {
+        if (!pictureSearchConfig.isTextIndexEnabled() || !ready) {
+            fallbackQueryCounter.increment();
+            return null;
+        }
+        long[] ids = textIndex.search(searchText);
+        if (ids == null || ids.length > pictureSearchConfig.getTextIndexMaxResults()) {
+            fallbackQueryCounter.increment();
+            return null;
+        }
+        indexQueryCounter.increment();
+        List<Long> idList = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            idList.add(id);
+        }
+        return idList;
+    }
+
+    /**
+     * 按综合搜索文本查找图片，不限命中数量，用于分面统计
+     *
+     * @param searchText 搜索文本
+     * @return 命中的图片 id（升序）；索引不可用或文本中没有可用的词时返回 null
+     */
+    public long[] searchAll(String searchText) {
+        if (!pictureSearchConfig.isTextIndexEnabled() || !ready) {
+            return null;
+        }
+        return textIndex.search(searchText);
+    }
+
+    @EventListener
+    public void onPictureChanged(PictureChangedEvent event) {
+        List<Long> savedIds = new ArrayList<>();
+        for (Picture picture : event.getPictureList()) {
+            if (event.getChangeType() == PictureChangedEvent.ChangeType.DELETE) {
+                textIndex.remove(picture.getId());
+                if (!ready) {
+                    deletedWhileLoading.add(picture.getId());
+                }
+            } else if (picture.getId() != null) {
+                savedIds.add(picture.getId());
+            }
+        }
+        if (savedIds.isEmpty()) {
+            return;
+        }
+        // 事件中的图片可能只包含本次修改的字段（如审核），按 id 读取完整文本
+        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("id", "name", "introduction", "tags").in("id", savedIds);
+        for (Picture picture : pictureMapper.selectList(queryWrapper)) {
+            textIndex.put(picture.getId(), buildText(picture));
+        }
+    }
+
+    /**
+     * 启动后在后台分批加载，不阻塞启动
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!pictureSearchConfig.isTextIndexEnabled()) {
+            return;
+        }
+        ThreadUtil.execute(this::loadIndex);
+    }
+
+    private void loadIndex() {
+        long start = System.currentTimeMillis();
+        long lastId = 0;
+        try {
+            while (true) {
+                QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+                queryWrapper.select("id", "name", "introduction", "tags")
+                        .gt("id", lastId)
+                        .orderByAsc("id")
+                        .last("limit " + LOAD_BATCH_SIZE);
+                List<Picture> pictureList = pictureMapper.selectList(queryWrapper);
+                for (Picture picture : pictureList) {
+                    textIndex.put(picture.getId(), buildText(picture));
+                }
+                if (pictureList.size() < LOAD_BATCH_SIZE) {
+                    break;
+                }
+                lastId = pictureList.get(pictureList.size() - 1).getId();
+            }
+        } catch (Exception e) {
+            // 加载失败时保持不可用，搜索继续走数据库
+            log.error("图片搜索索引加载失败, 进度 id = {}", lastId, e);
+            return;
+        }
+        ready = true;
+        for (Long id : deletedWhileLoading) {
+            textIndex.remove(id);
+        }
+        deletedWhileLoading.clear();
+        log.info("图片搜索索引加载完成: {} 张, {} 个词, 耗时 {}ms", textIndex.size(), textIndex.termCount(),
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 拼接索引文本：名称、简介和标签
+     */
+    private static String buildText(Picture picture) {
+        StringBuilder text = new StringBuilder();
+        text.append(StrUtil.nullToEmpty(picture.getName())).append('\n');
+        text.append(StrUtil.nullToEmpty(picture.getIntroduction())).append('\n');
+        if (StrUtil.isNotBlank(picture.getTags()) && JSONUtil.isTypeJSONArray(picture.getTags())) {
+            List<String> tagList = JSONUtil.toList(picture.getTags(), String.class);
+            if (CollUtil.isNotEmpty(tagList)) {
+                text.append(String.join(" ", tagList));
+            }
+        }
+        return text.toString();
+    }
+}
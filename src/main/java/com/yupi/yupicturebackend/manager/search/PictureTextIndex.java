@@ -0,0 +1,255 @@
+package com.yupi.yupicturebackend.manager.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 图片文本倒排索引
+ * 词典按字典序保存（单词前缀查询取一段连续的词），每个词对应一个压缩倒排列表；
+ * 同时保存每张图片的词列表（正排），更新时只改动新旧文本有差异的词。
+ * 查询结果是所有查询词倒排列表的交集，从最短的列表开始求交。
+ */
+public class PictureTextIndex {
+
+    /**
+     * 词 => 倒排列表
+     */
+    private final NavigableMap<String, PostingList> postings = new TreeMap<>();
+
+    /**
+     * 图片 id => 词列表（引用词典中的字符串）
+     */
+    private final Map<Long, String[]> termsById = new HashMap<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 添加或替换图片文本
+     *
+     * @param id   图片 id
+     * @param text 图片文本（名称、简介、标签）
+     */
+    public void put(long id, String text) {
+        Set<String> newTerms = TextTokenizer.tokenize(text);
+        lock.writeLock().lock();
+        try {
+            String[] oldTerms = termsById.get(id);
+            List<String> terms = new ArrayList<>(newTerms.size());
+            if (oldTerms != null) {
+                for (String term : oldTerms) {
+                    // 新旧文本都有的词保持不变，只处理差异
+                    if (newTerms.remove(term)) {
+                        terms.add(term);
+                    } else {
+                        removePosting(term, id);
+                    }
+                }
+            }
+            for (String term : newTerms) {
+                PostingList postingList = postings.get(term);
+                if (postingList == null) {
+                    postingList = new PostingList();
+                    postings.put(term, postingList);
+                } else {
+                    // 复用词典中的字符串
+                    term = postings.ceilingKey(term);
+                }
+                postingList.add(id);
+                terms.add(term);
+            }
+            if (terms.isEmpty()) {
+                termsById.remove(id);
+            } else {
+                termsById.put(id, terms.toArray(new String[0]));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除图片
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            String[] oldTerms = termsById.remove(id);
+            if (oldTerms != null) {
+                for (String term : oldTerms) {
+                    removePosting(term, id);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查询包含全部查询词的图片
+     *
+     * @param text 查询文本
+     * @return 升序排列的图片 id；查询文本中没有可用的词时返回 null
+     */
+    public long[] search(String text) {
+        List<TextTokenizer.QueryToken> tokens = TextTokenizer.tokenizeQuery(text);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            List<long[]> idLists = new ArrayList<>(tokens.size());
+            for (TextTokenizer.QueryToken token : tokens) {
+                long[] ids = token.prefix ? searchPrefix(token.term) : searchTerm(token.term);
+                if (ids.length == 0) {
+                    return ids;
+                }
+                idLists.add(ids);
+            }
+            idLists.sort(Comparator.comparingInt(ids -> ids.length));
+            long[] result = idLists.get(0);
+            for (int i = 1; i < idLists.size() && result.length > 0; i++) {
+                result = intersect(result, idLists.get(i));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 已收录的图片数量
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return termsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 词典大小
+     */
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 倒排列表占用的字节数（估算）
+     */
+    public long memoryBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (PostingList postingList : postings.values()) {
+                bytes += postingList.memoryBytes();
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long[] searchTerm(String term) {
+        PostingList postingList = postings.get(term);
+        return postingList != null ? postingList.toArray() : new long[0];
+    }
+
+    /**
+     * 单词前缀查询：合并所有以该前缀开头的词的倒排列表
+     */
+    private long[] searchPrefix(String prefix) {
+        Map<String, PostingList> subMap = postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        if (subMap.isEmpty()) {
+            return new long[0];
+        }
+        if (subMap.size() == 1) {
+            return subMap.values().iterator().next().toArray();
+        }
+        List<long[]> idLists = new ArrayList<>(subMap.size());
+        int total = 0;
+        for (PostingList postingList : subMap.values()) {
+            long[] ids = postingList.toArray();
+            idLists.add(ids);
+            total += ids.length;
+        }
+        long[] merged = new long[total];
+        int offset = 0;
+        for (long[] ids : idLists) {
+            System.arraycopy(ids, 0, merged, offset, ids.length);
+            offset += ids.length;
+        }
+        Arrays.sort(merged);
+        // 去重
+        int count = 0;
+        for (int i = 0; i < merged.length; i++) {
+            if (count == 0 || merged[i] != merged[count - 1]) {
+                merged[count++] = merged[i];
+            }
+        }
+        return count == merged.length ? merged : Arrays.copyOf(merged, count);
+    }
+
+    private void removePosting(String term, long id) {
+        PostingList postingList = postings.get(term);
+        if (postingList == null) {
+            return;
+        }
+        postingList.remove(id);
+        if (postingList.isEmpty()) {
+            postings.remove(term);
+        }
+    }
+
+    /**
+     * 两个升序数组求交集，长度相差悬殊时对长数组二分查找
+     */
+    static long[] intersect(long[] shorter, long[] longer) {
+        long[] result = new long[Math.min(shorter.length, longer.length)];
+        int count = 0;
+        if ((long) shorter.length * 16 < longer.length) {
+            int from = 0;
+            for (long id : shorter) {
+                int index = Arrays.binarySearch(longer, from, longer.length, id);
+                if (index >= 0) {
+                    result[count++] = id;
+                    from = index + 1;
+                } else {
+                    from = -index - 1;
+                }
+                if (from >= longer.length) {
+                    break;
+                }
+            }
+        } else {
+            int i = 0;
+            int j = 0;
+            while (i < shorter.length && j < longer.length) {
+                if (shorter[i] < longer[j]) {
+                    i++;
+                } else if (shorter[i] > longer[j]) {
+                    j++;
+                } else {
+                    result[count++] = shorter[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+}
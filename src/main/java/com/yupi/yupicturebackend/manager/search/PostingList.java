@@ -0,0 +1,183 @@
+package com.yupi.yupicturebackend.manager.search;
+
+import java.util.Arrays;
+
+/**
+ * 压缩倒排列表
+ * 主体是按 id 升序排列的差值变长编码（每字节 7 位），新图片 id 递增，直接追加到末尾；
+ * 乱序加入和删除先记在两个小的有序数组里，积累到一定数量后与主体合并重新编码。
+ * 非线程安全，由 {@link PictureTextIndex} 加锁访问。
+ */
+class PostingList {
+
+    private static final long[] EMPTY = new long[0];
+
+    /**
+     * 待合并数量超过 max(MIN_PENDING, count / 8) 时合并
+     */
+    private static final int MIN_PENDING = 32;
+
+    private byte[] data = new byte[8];
+
+    private int length;
+
+    /**
+     * 主体中的 id 数量
+     */
+    private int count;
+
+    /**
+     * 主体中最大的 id
+     */
+    private long lastId;
+
+    /**
+     * 不在主体中的新增 id（有序）
+     */
+    private long[] additions = EMPTY;
+
+    /**
+     * 主体中已删除的 id（有序）
+     */
+    private long[] removals = EMPTY;
+
+    /**
+     * 加入 id，调用方保证 id 当前不在列表中
+     */
+    void add(long id) {
+        int removalIndex = Arrays.binarySearch(removals, id);
+        if (removalIndex >= 0) {
+            removals = removeAt(removals, removalIndex);
+            return;
+        }
+        if (count == 0 || id > lastId) {
+            append(id);
+            return;
+        }
+        int index = Arrays.binarySearch(additions, id);
+        if (index < 0) {
+            additions = insertAt(additions, -index - 1, id);
+            compactIfNeeded();
+        }
+    }
+
+    /**
+     * 删除 id，调用方保证 id 当前在列表中
+     */
+    void remove(long id) {
+        int additionIndex = Arrays.binarySearch(additions, id);
+        if (additionIndex >= 0) {
+            additions = removeAt(additions, additionIndex);
+            return;
+        }
+        int index = Arrays.binarySearch(removals, id);
+        if (index < 0) {
+            removals = insertAt(removals, -index - 1, id);
+            compactIfNeeded();
+        }
+    }
+
+    /**
+     * 列表中的 id 数量
+     */
+    int size() {
+        return count + additions.length - removals.length;
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * 占用的字节数（估算）
+     */
+    long memoryBytes() {
+        return data.length + 8L * (additions.length + removals.length) + 48;
+    }
+
+    /**
+     * 解码为升序数组
+     */
+    long[] toArray() {
+        long[] result = new long[size()];
+        int resultIndex = 0;
+        int additionIndex = 0;
+        int removalIndex = 0;
+        int position = 0;
+        long id = 0;
+        for (int i = 0; i < count; i++) {
+            long delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                delta |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            id += delta;
+            while (additionIndex < additions.length && additions[additionIndex] < id) {
+                result[resultIndex++] = additions[additionIndex++];
+            }
+            if (removalIndex < removals.length && removals[removalIndex] == id) {
+                removalIndex++;
+                continue;
+            }
+            result[resultIndex++] = id;
+        }
+        while (additionIndex < additions.length) {
+            result[resultIndex++] = additions[additionIndex++];
+        }
+        return result;
+    }
+
+    private void append(long id) {
+        long delta = count == 0 ? id : id - lastId;
+        if (length + 10 > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + 10));
+        }
+        while ((delta & ~0x7FL) != 0) {
+            data[length++] = (byte) ((delta & 0x7F) | 0x80);
+            delta >>>= 7;
+        }
+        data[length++] = (byte) delta;
+        lastId = id;
+        count++;
+    }
+
+    private void compactIfNeeded() {
+        if (additions.length + removals.length <= Math.max(MIN_PENDING, count >>> 3)) {
+            return;
+        }
+        long[] ids = toArray();
+        data = new byte[Math.max(8, length + 2 * additions.length)];
+        length = 0;
+        count = 0;
+        lastId = 0;
+        additions = EMPTY;
+        removals = EMPTY;
+        for (long id : ids) {
+            append(id);
+        }
+        if (data.length > length * 2 + 8) {
+            data = Arrays.copyOf(data, length + 8);
+        }
+    }
+
+    private static long[] insertAt(long[] array, int index, long value) {
+        long[] result = new long[array.length + 1];
+        System.arraycopy(array, 0, result, 0, index);
+        result[index] = value;
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        return result;
+    }
+
+    private static long[] removeAt(long[] array, int index) {
+        if (array.length == 1) {
+            return EMPTY;
+        }
+        long[] result = new long[array.length - 1];
+        System.arraycopy(array, 0, result, 0, index);
+        System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+        return result;
+    }
+}
@@ -0,0 +1,140 @@
+package com.yupi.yupicturebackend.manager.search;
+
+import cn.hutool.core.util.StrUtil;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 文本分词
+ * 中日韩文字按单字和相邻两字（bigram）切分，其他字母和数字按连续的单词切分并转为小写，其余字符作为分隔符。
+ * 查询时中日韩文字只取 bigram（单字查询取单字），单词按前缀匹配，与 LIKE '%x%' 的效果接近。
+ */
+final class TextTokenizer {
+
+    /**
+     * 单词最大长度，超出部分截断
+     */
+    static final int MAX_WORD_LENGTH = 32;
+
+    private TextTokenizer() {
+    }
+
+    /**
+     * 查询词
+     */
+    static final class QueryToken {
+
+        final String term;
+
+        /**
+         * 是否按前缀匹配
+         */
+        final boolean prefix;
+
+        QueryToken(String term, boolean prefix) {
+            this.term = term;
+            this.prefix = prefix;
+        }
+    }
+
+    /**
+     * 切分索引词
+     */
+    static Set<String> tokenize(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (StrUtil.isBlank(text)) {
+            return terms;
+        }
+        forEachRun(text, (run, cjk) -> {
+            if (!cjk) {
+                terms.add(run);
+                return;
+            }
+            int[] codePoints = run.codePoints().toArray();
+            for (int i = 0; i < codePoints.length; i++) {
+                terms.add(new String(codePoints, i, 1));
+                if (i + 1 < codePoints.length) {
+                    terms.add(new String(codePoints, i, 2));
+                }
+            }
+        });
+        return terms;
+    }
+
+    /**
+     * 切分查询词
+     */
+    static List<QueryToken> tokenizeQuery(String text) {
+        List<QueryToken> tokens = new ArrayList<>();
+        if (StrUtil.isBlank(text)) {
+            return tokens;
+        }
+        forEachRun(text, (run, cjk) -> {
+            if (!cjk) {
+                tokens.add(new QueryToken(run, true));
+                return;
+            }
+            int[] codePoints = run.codePoints().toArray();
+            if (codePoints.length == 1) {
+                tokens.add(new QueryToken(run, false));
+                return;
+            }
+            for (int i = 0; i + 1 < codePoints.length; i++) {
+                tokens.add(new QueryToken(new String(codePoints, i, 2), false));
+            }
+        });
+        return tokens;
+    }
+
+    private interface RunConsumer {
+
+        void accept(String run, boolean cjk);
+    }
+
+    /**
+     * 把文本切成连续的中日韩文字段和单词段
+     */
+    private static void forEachRun(String text, RunConsumer consumer) {
+        StringBuilder run = new StringBuilder();
+        boolean runCjk = false;
+        int i = 0;
+        while (i < text.length()) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            boolean cjk = isCjk(codePoint);
+            boolean word = !cjk && Character.isLetterOrDigit(codePoint);
+            if ((!cjk && !word) || (run.length() > 0 && cjk != runCjk)) {
+                flush(run, runCjk, consumer);
+            }
+            if (cjk || word) {
+                runCjk = cjk;
+                run.appendCodePoint(codePoint);
+            }
+        }
+        flush(run, runCjk, consumer);
+    }
+
+    private static void flush(StringBuilder run, boolean cjk, RunConsumer consumer) {
+        if (run.length() == 0) {
+            return;
+        }
+        String value = run.toString();
+        if (!cjk && value.length() > MAX_WORD_LENGTH) {
+            value = value.substring(0, MAX_WORD_LENGTH);
+        }
+        consumer.accept(cjk ? value : value.toLowerCase(Locale.ROOT), cjk);
+        run.setLength(0);
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -0,0 +1,192 @@
+package com.yupi.yupicturebackend.manager.similar;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 64 位哈希的多索引哈希表，用于按汉明距离查找近似重复
+ * 把哈希切成 4 段 16 位，每段各建一张表。由抽屉原理，汉明距离不超过 3 的两个哈希至少有一段完全相同，
+ * 因此只需检查 4 个桶内的候选，查询耗时与总量基本无关（每个桶平均只有 总量 / 65536 条）。
+ */
+public class MultiIndexHashTable {
+
+    private static final int BLOCK_COUNT = 4;
+
+    private static final int BLOCK_BITS = 64 / BLOCK_COUNT;
+
+    private static final int BUCKET_COUNT = 1 << BLOCK_BITS;
+
+    /**
+     * 支持查询的最大汉明距离
+     */
+    public static final int MAX_DISTANCE = BLOCK_COUNT - 1;
+
+    private final Bucket[][] tables = new Bucket[BLOCK_COUNT][BUCKET_COUNT];
+
+    /**
+     * id => 哈希，用于删除和替换
+     */
+    private final Map<Long, Long> hashById = new HashMap<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 添加或替换
+     */
+    public void put(long id, long hash) {
+        lock.writeLock().lock();
+        try {
+            Long oldHash = hashById.put(id, hash);
+            if (oldHash != null) {
+                if (oldHash == hash) {
+                    return;
+                }
+                removeFromTables(id, oldHash);
+            }
+            for (int block = 0; block < BLOCK_COUNT; block++) {
+                int bucketIndex = bucketIndex(hash, block);
+                Bucket bucket = tables[block][bucketIndex];
+                if (bucket == null) {
+                    bucket = new Bucket();
+                    tables[block][bucketIndex] = bucket;
+                }
+                bucket.add(id, hash);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Long oldHash = hashById.remove(id);
+            if (oldHash != null) {
+                removeFromTables(id, oldHash);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 获取已收录的哈希
+     *
+     * @return 哈希，未收录返回 null
+     */
+    public Long get(long id) {
+        lock.readLock().lock();
+        try {
+            return hashById.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 查找汉明距离不超过 maxDistance 的记录
+     *
+     * @param hash        待查哈希
+     * @param maxDistance 最大汉明距离（不超过 {@link #MAX_DISTANCE}）
+     * @return id => 汉明距离，按距离从小到大排序
+     */
+    public Map<Long, Integer> search(long hash, int maxDistance) {
+        maxDistance = Math.min(maxDistance, MAX_DISTANCE);
+        Map<Long, Integer> resultMap = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (int block = 0; block < BLOCK_COUNT; block++) {
+                Bucket bucket = tables[block][bucketIndex(hash, block)];
+                if (bucket == null) {
+                    continue;
+                }
+                for (int i = 0; i < bucket.size; i++) {
+                    int distance = Long.bitCount(bucket.hashes[i] ^ hash);
+                    if (distance <= maxDistance) {
+                        resultMap.put(bucket.ids[i], distance);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Map.Entry<Long, Integer>> entryList = new ArrayList<>(resultMap.entrySet());
+        entryList.sort(Map.Entry.comparingByValue());
+        Map<Long, Integer> sortedMap = new LinkedHashMap<>();
+        for (Map.Entry<Long, Integer> entry : entryList) {
+            sortedMap.put(entry.getKey(), entry.getValue());
+        }
+        return sortedMap;
+    }
+
+    /**
+     * 已收录数量
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return hashById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeFromTables(long id, long hash) {
+        for (int block = 0; block < BLOCK_COUNT; block++) {
+            Bucket bucket = tables[block][bucketIndex(hash, block)];
+            if (bucket != null) {
+                bucket.remove(id);
+            }
+        }
+    }
+
+    private static int bucketIndex(long hash, int block) {
+        return (int) (hash >>> (block * BLOCK_BITS)) & (BUCKET_COUNT - 1);
+    }
+
+    /**
+     * 桶：并列存放 id 和哈希的数组，避免装箱
+     */
+    private static class Bucket {
+
+        private long[] ids = new long[4];
+
+        private long[] hashes = new long[4];
+
+        private int size;
+
+        void add(long id, long hash) {
+            if (size == ids.length) {
+                int newCapacity = size * 2;
+                long[] newIds = new long[newCapacity];
+                long[] newHashes = new long[newCapacity];
+                System.arraycopy(ids, 0, newIds, 0, size);
+                System.arraycopy(hashes, 0, newHashes, 0, size);
+                ids = newIds;
+                hashes = newHashes;
+            }
+            ids[size] = id;
+            hashes[size] = hash;
+            size++;
+        }
+
+        void remove(long id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    // 用最后一个元素填补空位
+                    size--;
+                    ids[i] = ids[size];
+                    hashes[i] = hashes[size];
+                    return;
+                }
+            }
+        }
+    }
+}
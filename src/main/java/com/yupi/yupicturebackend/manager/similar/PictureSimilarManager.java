@@ -0,0 +1,216 @@
+package com.yupi.yupicturebackend.manager.similar;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.thread.ThreadUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.yupi.yupicturebackend.config.PictureUploadConfig;
+import com.yupi.yupicturebackend.event.PictureChangedEvent;
+import com.yupi.yupicturebackend.event.PictureChangedRelay;
+import com.yupi.yupicturebackend.manager.storage.PictureStorage;
+import com.yupi.yupicturebackend.mapper.PictureMapper;
+import com.yupi.yupicturebackend.model.entity.Picture;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 相似图片管理
+ * 上传时计算 64 位感知哈希（dHash），所有图片的哈希保存在内存中的多索引哈希表里，
+ * 启动时从数据库加载，图片入库和删除时同步更新（包括经 {@link PictureChangedRelay} 转发的其他实例的变更）。
+ */
+@Slf4j
+@Component
+public class PictureSimilarManager {
+
+    /**
+     * 启动加载时每批读取的数量
+     */
+    private static final int LOAD_BATCH_SIZE = 10000;
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private PictureStorage pictureStorage;
+
+    @Resource
+    private PictureUploadConfig pictureUploadConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final MultiIndexHashTable hashTable = new MultiIndexHashTable();
+
+    /**
+     * 回填进度：已处理到的图片 id
+     */
+    private volatile long lastBackfillPictureId;
+
+    @PostConstruct
+    public void init() {
+        meterRegistry.gauge("picture.similar.index.size", hashTable, MultiIndexHashTable::size);
+    }
+
+    /**
+     * 计算图片的感知哈希
+     * 由存储缩放为 9x8（COS 使用数据万象云上缩放），灰度化后比较每行相邻像素的亮度，得到 64 位
+     *
+     * @param url 图片地址
+     * @return 感知哈希，非本存储的图片或计算失败时返回 null
+     */
+    public Long computeHash(String url) {
+        String key = pictureStorage.getKey(url);
+        if (key == null) {
+            return null;
+        }
+        try {
+            BufferedImage image = pictureStorage.getScaledPicture(key, 9, 8);
+            return image != null ? dHash(image) : null;
+        } catch (Exception e) {
+            log.warn("计算感知哈希失败, key = {}", key, e);
+            return null;
+        }
+    }
+
+    /**
+     * 根据已解码的原图计算感知哈希，用于上传时内容已在本地的场景
+     *
+     * @param image 原图
+     * @return 感知哈希
+     */
+    public Long computeHash(BufferedImage image) {
+        return dHash(PictureStorage.scale(image, 9, 8));
+    }
+
+    /**
+     * 查找相似图片
+     *
+     * @param phash       感知哈希
+     * @param maxDistance 最大汉明距离
+     * @return 图片 id => 汉明距离，按距离从小到大排序
+     */
+    public Map<Long, Integer> searchSimilar(Long phash, int maxDistance) {
+        if (phash == null) {
+            return Collections.emptyMap();
+        }
+        return hashTable.search(phash, maxDistance);
+    }
+
+    /**
+     * 获取已收录图片的感知哈希
+     */
+    public Long getHash(long pictureId) {
+        return hashTable.get(pictureId);
+    }
+
+    @EventListener
+    public void onPictureChanged(PictureChangedEvent event) {
+        for (Picture picture : event.getPictureList()) {
+            if (event.getChangeType() == PictureChangedEvent.ChangeType.DELETE) {
+                hashTable.remove(picture.getId());
+            } else if (picture.getPhash() != null) {
+                hashTable.put(picture.getId(), picture.getPhash());
+            }
+        }
+    }
+
+    /**
+     * 启动后在后台分批加载所有图片的感知哈希，不阻塞启动
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        ThreadUtil.execute(this::loadIndex);
+    }
+
+    private void loadIndex() {
+        long start = System.currentTimeMillis();
+        long lastId = 0;
+        while (true) {
+            QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+            queryWrapper.select("id", "phash")
+                    .isNotNull("phash")
+                    .gt("id", lastId)
+                    .orderByAsc("id")
+                    .last("limit " + LOAD_BATCH_SIZE);
+            List<Picture> pictureList = pictureMapper.selectList(queryWrapper);
+            for (Picture picture : pictureList) {
+                hashTable.put(picture.getId(), picture.getPhash());
+            }
+            if (pictureList.size() < LOAD_BATCH_SIZE) {
+                break;
+            }
+            lastId = pictureList.get(pictureList.size() - 1).getId();
+        }
+        log.info("相似图片索引加载完成: {} 张, 耗时 {}ms", hashTable.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 为缺少感知哈希的历史图片分批补算
+     */
+    @Scheduled(initialDelay = 60 * 1000L, fixedDelay = 60 * 1000L)
+    public void backfillHashes() {
+        if (!pictureUploadConfig.isPhashBackfillEnabled()) {
+            return;
+        }
+        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("id", "url")
+                .isNull("phash")
+                .gt("id", lastBackfillPictureId)
+                .orderByAsc("id")
+                .last("limit " + pictureUploadConfig.getPhashBackfillBatchSize());
+        List<Picture> pictureList = pictureMapper.selectList(queryWrapper);
+        if (CollUtil.isEmpty(pictureList)) {
+            return;
+        }
+        int successCount = 0;
+        for (Picture picture : pictureList) {
+            lastBackfillPictureId = picture.getId();
+            Long phash = computeHash(picture.getUrl());
+            if (phash == null) {
+                continue;
+            }
+            UpdateWrapper<Picture> updateWrapper = new UpdateWrapper<>();
+            updateWrapper.eq("id", picture.getId()).set("phash", phash);
+            if (pictureMapper.update(null, updateWrapper) > 0) {
+                hashTable.put(picture.getId(), phash);
+                successCount++;
+            }
+        }
+        log.info("感知哈希回填: 本轮 {} 张，成功 {} 张，进度 id = {}", pictureList.size(), successCount,
+                lastBackfillPictureId);
+    }
+
+    /**
+     * 差异哈希：输入 9x8 的图片，比较每行相邻两个像素的亮度，左边更亮记为 1
+     */
+    static long dHash(BufferedImage image) {
+        long hash = 0;
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                hash <<= 1;
+                if (luminance(image.getRGB(x, y)) > luminance(image.getRGB(x + 1, y))) {
+                    hash |= 1;
+                }
+            }
+        }
+        return hash;
+    }
+
+    private static int luminance(int rgb) {
+        int r = (rgb >> 16) & 0xFF;
+        int g = (rgb >> 8) & 0xFF;
+        int b = rgb & 0xFF;
+        return (r * 299 + g * 587 + b * 114) / 1000;
+    }
+}
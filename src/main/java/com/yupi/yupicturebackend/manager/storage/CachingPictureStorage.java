@@ -0,0 +1,436 @@
+package com.yupi.yupicturebackend.manager.storage;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.*;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 带本地磁盘缓存的图片存储
+ * 在远程存储（COS）前缓存热点对象，按字节预算以 W-TinyLFU 淘汰；
+ * 同一对象并发未命中时只回源一次，命中时由 FileChannel 输出，不再访问远程存储。
+ * <p>
+ * 缓存索引只在内存中，启动时清空缓存目录；写入和删除经过本类时同步失效对应缓存。
+ */
+@Slf4j
+public class CachingPictureStorage implements PictureStorage {
+
+    /**
+     * 缓存文件后缀，启动时只清理带该后缀的文件
+     */
+    private static final String CACHE_FILE_SUFFIX = ".cache";
+
+    /**
+     * 超过单对象上限、不缓存的对象占用的权重，使这类标记也受字节预算约束
+     */
+    private static final int BYPASS_WEIGHT = 4096;
+
+    private final PictureStorage delegate;
+
+    private final Path cacheDir;
+
+    private final long maxObjectSize;
+
+    private final ExecutorService fillExecutor;
+
+    /**
+     * 唯一键 => 缓存文件，正在回源的对象对应未完成的 future，并发请求共享同一次回源
+     */
+    private final AsyncCache<String, CachedObject> cache;
+
+    private final Counter hitCounter;
+
+    private final Counter missCounter;
+
+    private final Counter evictedCounter;
+
+    private final Counter bytesSavedCounter;
+
+    public CachingPictureStorage(PictureStorage delegate, String cacheDir, long maxBytes, long maxObjectSize,
+                                 int fillThreads, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.cacheDir = Paths.get(cacheDir).toAbsolutePath().normalize();
+        this.maxObjectSize = maxObjectSize;
+        cleanCacheDir();
+        hitCounter = meterRegistry.counter("picture.storage.cache", "result", "hit");
+        missCounter = meterRegistry.counter("picture.storage.cache", "result", "miss");
+        evictedCounter = meterRegistry.counter("picture.storage.cache.evicted");
+        bytesSavedCounter = meterRegistry.counter("picture.storage.cache.bytes.saved");
+        this.fillExecutor = new ThreadPoolExecutor(fillThreads, fillThreads,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                ThreadFactoryBuilder.create().setNamePrefix("picture-storage-cache-").build());
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, CachedObject cachedObject) -> cachedObject.getWeight())
+                .executor(fillExecutor)
+                .removalListener((String key, CachedObject cachedObject, RemovalCause cause) -> {
+                    if (cachedObject != null) {
+                        cachedObject.delete();
+                    }
+                    if (cause.wasEvicted()) {
+                        evictedCounter.increment();
+                    }
+                })
+                .buildAsync();
+
+        meterRegistry.gauge("picture.storage.cache.size.bytes", cache,
+                c -> c.synchronous().policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L));
+        meterRegistry.gauge("picture.storage.cache.hit.ratio", this, CachingPictureStorage::getHitRatio);
+        log.info("图片存储磁盘缓存初始化完成，目录: {}, 容量: {}MB", this.cacheDir, maxBytes / 1024 / 1024);
+    }
+
+    @Override
+    public PictureStorageResult putPicture(String key, InputStream inputStream, long contentLength) {
+        try {
+            return delegate.putPicture(key, inputStream, contentLength);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public PictureStorageResult putPicture(String key, File file) {
+        try {
+            return delegate.putPicture(key, file);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public PictureStorageResult putPicture(String key, ByteBuffer buffer) {
+        try {
+            return delegate.putPicture(key, buffer);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public PictureStorageResult processPicture(String key) {
+        return delegate.processPicture(key);
+    }
+
+    @Override
+    public StorageObject getObject(String key) {
+        return getObject(key, 0, Long.MAX_VALUE);
+    }
+
+    @Override
+    public StorageObject getObject(String key, long start, long end) {
+        CachedObject cachedObject = getCached(key);
+        if (cachedObject != null && !cachedObject.isBypass()) {
+            StorageObject storageObject = cachedObject.open(start, end);
+            if (storageObject != null) {
+                bytesSavedCounter.increment(storageObject.getContentLength());
+                return storageObject;
+            }
+            // 缓存文件已被淘汰删除
+            invalidate(key);
+        }
+        return delegate.getObject(key, start, end);
+    }
+
+    @Override
+    public StorageObject headObject(String key) {
+        CompletableFuture<CachedObject> future = cache.getIfPresent(key);
+        if (future != null && future.isDone() && !future.isCompletedExceptionally()) {
+            CachedObject cachedObject = future.join();
+            if (cachedObject != null && !cachedObject.isBypass()) {
+                return cachedObject.toStorageObject();
+            }
+        }
+        return delegate.headObject(key);
+    }
+
+    @Override
+    public void deleteObject(String key) {
+        try {
+            delegate.deleteObject(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public List<String> deleteObjects(List<String> keys) {
+        try {
+            return delegate.deleteObjects(keys);
+        } finally {
+            cache.synchronous().invalidateAll(keys);
+        }
+    }
+
+    @Override
+    public List<String> listKeys(String prefix, String startAfter, int maxKeys) {
+        return delegate.listKeys(prefix, startAfter, maxKeys);
+    }
+
+    @Override
+    public String getUrl(String key) {
+        return delegate.getUrl(key);
+    }
+
+    @Override
+    public String getKey(String url) {
+        return delegate.getKey(url);
+    }
+
+    @Override
+    public String initiateMultipartUpload(String key) {
+        return delegate.initiateMultipartUpload(key);
+    }
+
+    @Override
+    public void uploadPart(String key, String uploadId, int partNumber, InputStream inputStream, long partSize) {
+        delegate.uploadPart(key, uploadId, partNumber, inputStream, partSize);
+    }
+
+    @Override
+    public List<StoragePart> listParts(String key, String uploadId) {
+        return delegate.listParts(key, uploadId);
+    }
+
+    @Override
+    public PictureStorageResult completeMultipartUpload(String key, String uploadId, List<StoragePart> parts) {
+        try {
+            return delegate.completeMultipartUpload(key, uploadId, parts);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public void abortMultipartUpload(String key, String uploadId) {
+        delegate.abortMultipartUpload(key, uploadId);
+    }
+
+    @Override
+    public BufferedImage getScaledPicture(String key, int width, int height) {
+        // 远程存储通常支持云上缩放，只传输极小的结果图，比读取缓存的原图更省
+        return delegate.getScaledPicture(key, width, height);
+    }
+
+    /**
+     * 使缓存失效，缓存文件在移除回调中删除
+     */
+    public void invalidate(String key) {
+        cache.synchronous().invalidate(key);
+    }
+
+    /**
+     * 由 Spring 在容器关闭时调用
+     */
+    public void shutdown() {
+        fillExecutor.shutdownNow();
+    }
+
+    /**
+     * 获取缓存，未命中时回源写入缓存文件
+     *
+     * @return 缓存对象；对象不存在或回源失败时返回 null
+     */
+    private CachedObject getCached(String key) {
+        CompletableFuture<CachedObject> future = cache.getIfPresent(key);
+        if (future != null) {
+            // 包括正在回源的对象，等待同一次回源的结果
+            hitCounter.increment();
+        } else {
+            missCounter.increment();
+            future = cache.get(key, this::fill);
+        }
+        try {
+            return future.join();
+        } catch (Exception e) {
+            log.warn("磁盘缓存回源失败，直接读取远程存储, key = {}", key, e);
+            return null;
+        }
+    }
+
+    /**
+     * 回源：读取完整对象写入临时文件，完成后原子重命名为缓存文件
+     */
+    private CachedObject fill(String key) {
+        try (StorageObject storageObject = delegate.getObject(key)) {
+            if (storageObject == null) {
+                // 对象不存在，不缓存
+                return null;
+            }
+            long contentLength = storageObject.getContentLength();
+            if (contentLength > maxObjectSize) {
+                return CachedObject.bypass();
+            }
+            Path tempPath = Files.createTempFile(cacheDir, ".tmp-", null);
+            try {
+                ReadableByteChannel sourceChannel = Channels.newChannel(storageObject.getInputStream());
+                try (FileChannel targetChannel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+                    long position = 0;
+                    while (position < contentLength) {
+                        long transferred = targetChannel.transferFrom(sourceChannel, position, contentLength - position);
+                        if (transferred <= 0) {
+                            break;
+                        }
+                        position += transferred;
+                    }
+                    if (position != contentLength) {
+                        throw new IOException(String.format("内容长度不一致，期望 %d，实际 %d", contentLength, position));
+                    }
+                }
+                // 同一唯一键的新旧缓存文件名不同，删除旧文件不会影响新文件
+                Path path = cacheDir.resolve(DigestUtil.md5Hex(key) + "-" + IdUtil.fastSimpleUUID() + CACHE_FILE_SUFFIX);
+                Files.move(tempPath, path, StandardCopyOption.ATOMIC_MOVE);
+                return new CachedObject(path, contentLength, storageObject.getContentType(),
+                        storageObject.getEtag(), storageObject.getLastModified());
+            } finally {
+                Files.deleteIfExists(tempPath);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入磁盘缓存失败: " + key, e);
+        }
+    }
+
+    private double getHitRatio() {
+        double total = hitCounter.count() + missCounter.count();
+        return total > 0 ? hitCounter.count() / total : 0;
+    }
+
+    private void cleanCacheDir() {
+        try {
+            Files.createDirectories(cacheDir);
+            try (Stream<Path> pathStream = Files.list(cacheDir)) {
+                pathStream.filter(path -> {
+                    String fileName = path.getFileName().toString();
+                    return fileName.endsWith(CACHE_FILE_SUFFIX) || fileName.startsWith(".tmp-");
+                }).forEach(path -> {
+                    try {
+                        Files.deleteIfExists(path);
+                    } catch (IOException e) {
+                        log.warn("清理缓存文件失败: {}", path, e);
+                    }
+                });
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("初始化缓存目录失败: " + cacheDir, e);
+        }
+    }
+
+    /**
+     * 缓存文件
+     */
+    private static class CachedObject {
+
+        /**
+         * 缓存文件路径，为空表示对象超过单对象上限，不缓存
+         */
+        private final Path path;
+
+        private final long size;
+
+        private final String contentType;
+
+        private final String etag;
+
+        private final Date lastModified;
+
+        CachedObject(Path path, long size, String contentType, String etag, Date lastModified) {
+            this.path = path;
+            this.size = size;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        static CachedObject bypass() {
+            return new CachedObject(null, 0, null, null, null);
+        }
+
+        boolean isBypass() {
+            return path == null;
+        }
+
+        int getWeight() {
+            return isBypass() ? BYPASS_WEIGHT : (int) Math.min(size, Integer.MAX_VALUE);
+        }
+
+        /**
+         * 打开缓存文件
+         *
+         * @return 存储对象；缓存文件已被删除时返回 null
+         */
+        StorageObject open(long start, long end) {
+            FileChannel channel;
+            try {
+                channel = FileChannel.open(path, StandardOpenOption.READ);
+            } catch (NoSuchFileException e) {
+                return null;
+            } catch (IOException e) {
+                throw new UncheckedIOException("读取缓存文件失败: " + path, e);
+            }
+            long rangeStart = Math.min(start, size);
+            long rangeEnd = Math.min(end, size - 1);
+            long contentLength = Math.max(rangeEnd - rangeStart + 1, 0);
+            try {
+                channel.position(rangeStart);
+            } catch (IOException e) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // 忽略关闭异常
+                }
+                throw new UncheckedIOException("读取缓存文件失败: " + path, e);
+            }
+            StorageObject storageObject = toStorageObject();
+            storageObject.setFileChannel(channel);
+            storageObject.setInputStream(new FileRangeInputStream(channel, contentLength));
+            storageObject.setContentLength(contentLength);
+            storageObject.setRangeStart(rangeStart);
+            return storageObject;
+        }
+
+        StorageObject toStorageObject() {
+            StorageObject storageObject = new StorageObject();
+            storageObject.setContentLength(size);
+            storageObject.setInstanceLength(size);
+            storageObject.setContentType(contentType);
+            storageObject.setEtag(etag);
+            storageObject.setLastModified(lastModified);
+            return storageObject;
+        }
+
+        void delete() {
+            if (path == null) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("删除缓存文件失败: {}", path, e);
+            }
+        }
+    }
+}
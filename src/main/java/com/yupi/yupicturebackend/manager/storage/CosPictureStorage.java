@@ -0,0 +1,222 @@
+package com.yupi.yupicturebackend.manager.storage;
+
+import cn.hutool.core.util.StrUtil;
+import com.qcloud.cos.exception.CosClientException;
+import com.qcloud.cos.exception.CosServiceException;
+import com.qcloud.cos.model.COSObject;
+import com.qcloud.cos.model.COSObjectSummary;
+import com.qcloud.cos.model.ObjectListing;
+import com.qcloud.cos.model.ObjectMetadata;
+import com.qcloud.cos.model.PartETag;
+import com.qcloud.cos.model.PartSummary;
+import com.qcloud.cos.model.PutObjectResult;
+import com.qcloud.cos.model.ciModel.persistence.CIUploadResult;
+import com.qcloud.cos.model.ciModel.persistence.ImageInfo;
+import com.yupi.yupicturebackend.config.CosClientConfig;
+import com.yupi.yupicturebackend.manager.CosManager;
+import com.yupi.yupicturebackend.model.enums.PictureDerivativeEnum;
+import lombok.extern.slf4j.Slf4j;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 腾讯云 COS 图片存储
+ * 写入时由数据万象解析图片信息并生成衍生尺寸
+ */
+@Slf4j
+public class CosPictureStorage implements PictureStorage {
+
+    /**
+     * 单次列出的最大数量
+     */
+    private static final int MAX_LIST_KEYS = 1000;
+
+    private final CosManager cosManager;
+
+    private final CosClientConfig cosClientConfig;
+
+    public CosPictureStorage(CosManager cosManager, CosClientConfig cosClientConfig) {
+        this.cosManager = cosManager;
+        this.cosClientConfig = cosClientConfig;
+    }
+
+    @Override
+    public PictureStorageResult putPicture(String key, InputStream inputStream, long contentLength) {
+        PutObjectResult putObjectResult = cosManager.putPictureObject(key, inputStream, contentLength);
+        return toStorageResult(key, putObjectResult.getCiUploadResult());
+    }
+
+    @Override
+    public PictureStorageResult putPicture(String key, File file) {
+        PutObjectResult putObjectResult = cosManager.putPictureObject(key, file);
+        return toStorageResult(key, putObjectResult.getCiUploadResult());
+    }
+
+    @Override
+    public PictureStorageResult processPicture(String key) {
+        return toStorageResult(key, cosManager.processPictureObject(key));
+    }
+
+    @Override
+    public StorageObject getObject(String key) {
+        try {
+            return toStorageObject(cosManager.getObject(key), 0);
+        } catch (CosServiceException e) {
+            if (e.getStatusCode() == 404) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public StorageObject getObject(String key, long start, long end) {
+        try {
+            return toStorageObject(cosManager.getObject(key, start, end), start);
+        } catch (CosServiceException e) {
+            if (e.getStatusCode() == 404) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public StorageObject headObject(String key) {
+        try {
+            ObjectMetadata objectMetadata = cosManager.getObjectMetadata(key);
+            StorageObject storageObject = new StorageObject();
+            storageObject.setContentLength(objectMetadata.getContentLength());
+            storageObject.setInstanceLength(objectMetadata.getContentLength());
+            storageObject.setContentType(objectMetadata.getContentType());
+            storageObject.setEtag(objectMetadata.getETag());
+            storageObject.setLastModified(objectMetadata.getLastModified());
+            return storageObject;
+        } catch (CosServiceException e) {
+            if (e.getStatusCode() == 404) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void deleteObject(String key) {
+        cosManager.deleteObject(key);
+    }
+
+    @Override
+    public List<String> deleteObjects(List<String> keys) {
+        if (keys.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return cosManager.deleteObjects(keys);
+    }
+
+    @Override
+    public List<String> listKeys(String prefix, String startAfter, int maxKeys) {
+        ObjectListing objectListing = cosManager.listObjects(prefix, startAfter, Math.min(maxKeys, MAX_LIST_KEYS));
+        List<String> keys = new ArrayList<>();
+        for (COSObjectSummary objectSummary : objectListing.getObjectSummaries()) {
+            keys.add(objectSummary.getKey());
+        }
+        return keys;
+    }
+
+    @Override
+    public String getUrl(String key) {
+        return cosClientConfig.getHost() + "/" + key;
+    }
+
+    @Override
+    public String getKey(String url) {
+        String urlPrefix = cosClientConfig.getHost() + "/";
+        // 不是本存储桶的图片
+        if (!StrUtil.startWith(url, urlPrefix)) {
+            return null;
+        }
+        return StrUtil.removePrefix(url, urlPrefix);
+    }
+
+    @Override
+    public String initiateMultipartUpload(String key) {
+        return cosManager.initiateMultipartUpload(key);
+    }
+
+    @Override
+    public void uploadPart(String key, String uploadId, int partNumber, InputStream inputStream, long partSize) {
+        cosManager.uploadPart(key, uploadId, partNumber, inputStream, partSize);
+    }
+
+    @Override
+    public List<StoragePart> listParts(String key, String uploadId) {
+        return cosManager.listParts(key, uploadId).stream()
+                .sorted(Comparator.comparingInt(PartSummary::getPartNumber))
+                .map(part -> new StoragePart(part.getPartNumber(), part.getSize(), part.getETag()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public PictureStorageResult completeMultipartUpload(String key, String uploadId, List<StoragePart> parts) {
+        List<PartETag> partETags = parts.stream()
+                .map(part -> new PartETag(part.getPartNumber(), part.getEtag()))
+                .collect(Collectors.toList());
+        cosManager.completeMultipartUpload(key, uploadId, partETags);
+        // 分片上传无法附带处理规则，合并后再查询一次图片信息
+        PictureStorageResult result = new PictureStorageResult();
+        try {
+            ImageInfo imageInfo = cosManager.getPictureInfo(key);
+            result.setPicWidth(imageInfo.getWidth());
+            result.setPicHeight(imageInfo.getHeight());
+            result.setPicFormat(imageInfo.getFormat());
+        } catch (CosClientException e) {
+            log.warn("获取图片信息失败，由文件头探测, key = {}", key, e);
+        }
+        return result;
+    }
+
+    @Override
+    public void abortMultipartUpload(String key, String uploadId) {
+        cosManager.abortMultipartUpload(key, uploadId);
+    }
+
+    @Override
+    public BufferedImage getScaledPicture(String key, int width, int height) {
+        // 由数据万象实时缩放，只传输极小的结果图
+        return cosManager.getScaledPicture(key, width, height);
+    }
+
+    private PictureStorageResult toStorageResult(String key, CIUploadResult ciUploadResult) {
+        PictureStorageResult result = new PictureStorageResult();
+        if (ciUploadResult != null && ciUploadResult.getOriginalInfo() != null
+                && ciUploadResult.getOriginalInfo().getImageInfo() != null) {
+            ImageInfo imageInfo = ciUploadResult.getOriginalInfo().getImageInfo();
+            result.setPicWidth(imageInfo.getWidth());
+            result.setPicHeight(imageInfo.getHeight());
+            result.setPicFormat(imageInfo.getFormat());
+        }
+        // 衍生尺寸，处理失败时为空，展示时回退到原图
+        result.setThumbnailUrl(cosManager.getDerivativeUrl(key, PictureDerivativeEnum.THUMBNAIL, ciUploadResult));
+        result.setPreviewUrl(cosManager.getDerivativeUrl(key, PictureDerivativeEnum.PREVIEW, ciUploadResult));
+        return result;
+    }
+
+    private StorageObject toStorageObject(COSObject cosObject, long rangeStart) {
+        ObjectMetadata objectMetadata = cosObject.getObjectMetadata();
+        StorageObject storageObject = new StorageObject();
+        storageObject.setInputStream(cosObject.getObjectContent());
+        storageObject.setContentLength(objectMetadata.getContentLength());
+        storageObject.setInstanceLength(objectMetadata.getInstanceLength());
+        storageObject.setRangeStart(rangeStart);
+        storageObject.setContentType(objectMetadata.getContentType());
+        storageObject.setEtag(objectMetadata.getETag());
+        storageObject.setLastModified(objectMetadata.getLastModified());
+        return storageObject;
+    }
+}
@@ -0,0 +1,431 @@
+package com.yupi.yupicturebackend.manager.storage;
+
+import cn.hutool.core.codec.Base64;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.ReUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 本地文件系统图片存储
+ * 用于私有化部署和离线压测，数据通过 FileChannel 传输，不经过堆内缓冲
+ * <p>
+ * 目录结构：根目录/md5(key)[0,2)/md5(key)[2,4)/base64url(key)，
+ * 两级共 65536 个分片目录，避免单目录文件过多；文件名可还原出唯一键。
+ * 分片上传的分片暂存在 根目录/.multipart/uploadId/partNumber，合并后删除。
+ * 不支持衍生尺寸，图片尺寸由上传模板从文件头探测。
+ */
+@Slf4j
+public class LocalPictureStorage implements PictureStorage {
+
+    /**
+     * 写入中的临时文件前缀，base64url 编码的文件名不会以 . 开头
+     */
+    private static final String TEMP_FILE_PREFIX = ".tmp-";
+
+    /**
+     * 分片上传暂存目录，与分片目录（两位十六进制）不会重名
+     */
+    private static final String MULTIPART_DIR = ".multipart";
+
+    private final Path rootPath;
+
+    private final Path multipartPath;
+
+    private final String urlPrefix;
+
+    public LocalPictureStorage(String rootDir, String urlPrefix) {
+        this.rootPath = Paths.get(rootDir).toAbsolutePath().normalize();
+        this.multipartPath = rootPath.resolve(MULTIPART_DIR);
+        this.urlPrefix = StrUtil.removeSuffix(urlPrefix, "/") + "/";
+        try {
+            Files.createDirectories(rootPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException("创建存储目录失败: " + rootPath, e);
+        }
+        log.info("本地图片存储初始化完成，根目录: {}, 访问地址: {}", rootPath, this.urlPrefix);
+    }
+
+    @Override
+    public PictureStorageResult putPicture(String key, InputStream inputStream, long contentLength) {
+        Path path = resolve(key);
+        Path tempPath = null;
+        try {
+            tempPath = createTempFile(path);
+            writeFrom(inputStream, contentLength, tempPath);
+            commit(tempPath, path);
+            return new PictureStorageResult();
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入文件失败: " + key, e);
+        } finally {
+            deleteQuietly(tempPath);
+        }
+    }
+
+    @Override
+    public PictureStorageResult putPicture(String key, File file) {
+        Path path = resolve(key);
+        Path tempPath = null;
+        try {
+            tempPath = createTempFile(path);
+            try (FileChannel sourceChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                 FileChannel targetChannel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+                long size = sourceChannel.size();
+                long position = 0;
+                while (position < size) {
+                    position += sourceChannel.transferTo(position, size - position, targetChannel);
+                }
+            }
+            commit(tempPath, path);
+            return new PictureStorageResult();
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入文件失败: " + key, e);
+        } finally {
+            deleteQuietly(tempPath);
+        }
+    }
+
+    @Override
+    public PictureStorageResult putPicture(String key, ByteBuffer buffer) {
+        Path path = resolve(key);
+        Path tempPath = null;
+        try {
+            tempPath = createTempFile(path);
+            ByteBuffer source = buffer.duplicate();
+            try (FileChannel targetChannel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+                // 堆外缓冲区直接写入文件，不经过堆内拷贝
+                while (source.hasRemaining()) {
+                    targetChannel.write(source);
+                }
+            }
+            commit(tempPath, path);
+            return new PictureStorageResult();
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入文件失败: " + key, e);
+        } finally {
+            deleteQuietly(tempPath);
+        }
+    }
+
+    @Override
+    public StorageObject getObject(String key) {
+        return getObject(key, 0, Long.MAX_VALUE);
+    }
+
+    @Override
+    public StorageObject getObject(String key, long start, long end) {
+        Path path = resolve(key);
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            long size = attributes.size();
+            long rangeStart = Math.min(start, size);
+            long rangeEnd = Math.min(end, size - 1);
+            long contentLength = Math.max(rangeEnd - rangeStart + 1, 0);
+            channel.position(rangeStart);
+
+            StorageObject storageObject = toStorageObject(key, attributes);
+            storageObject.setFileChannel(channel);
+            storageObject.setInputStream(new FileRangeInputStream(channel, contentLength));
+            storageObject.setContentLength(contentLength);
+            storageObject.setRangeStart(rangeStart);
+            return storageObject;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw new UncheckedIOException("读取文件失败: " + key, e);
+        }
+    }
+
+    @Override
+    public StorageObject headObject(String key) {
+        try {
+            return toStorageObject(key, Files.readAttributes(resolve(key), BasicFileAttributes.class));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取文件属性失败: " + key, e);
+        }
+    }
+
+    @Override
+    public void deleteObject(String key) {
+        try {
+            Files.deleteIfExists(resolve(key));
+        } catch (IOException e) {
+            throw new UncheckedIOException("删除文件失败: " + key, e);
+        }
+    }
+
+    @Override
+    public List<String> deleteObjects(List<String> keys) {
+        List<String> deletedKeys = new ArrayList<>();
+        for (String key : keys) {
+            try {
+                Files.deleteIfExists(resolve(key));
+                deletedKeys.add(key);
+            } catch (IOException e) {
+                log.warn("删除文件失败, key = {}", key, e);
+            }
+        }
+        return deletedKeys;
+    }
+
+    /**
+     * 分片目录按哈希分布，无法按前缀定位，需要遍历全部文件，仅适用于运维和测试场景
+     */
+    @Override
+    public List<String> listKeys(String prefix, String startAfter, int maxKeys) {
+        TreeSet<String> keys = new TreeSet<>();
+        try (Stream<Path> pathStream = Files.walk(rootPath, 3)) {
+            pathStream.filter(path -> path.getNameCount() - rootPath.getNameCount() == 3)
+                    .filter(path -> !path.startsWith(multipartPath))
+                    .map(path -> path.getFileName().toString())
+                    .filter(fileName -> !fileName.startsWith(TEMP_FILE_PREFIX))
+                    .map(Base64::decodeStr)
+                    .filter(key -> StrUtil.isEmpty(prefix) || key.startsWith(prefix))
+                    .filter(key -> StrUtil.isEmpty(startAfter) || key.compareTo(startAfter) > 0)
+                    .forEach(key -> {
+                        keys.add(key);
+                        // 只保留字典序最小的 maxKeys 个
+                        if (keys.size() > maxKeys) {
+                            keys.pollLast();
+                        }
+                    });
+        } catch (IOException e) {
+            throw new UncheckedIOException("列出文件失败", e);
+        }
+        return new ArrayList<>(keys);
+    }
+
+    @Override
+    public String initiateMultipartUpload(String key) {
+        resolve(key);
+        String uploadId = IdUtil.fastSimpleUUID();
+        try {
+            Files.createDirectories(multipartPath.resolve(uploadId));
+        } catch (IOException e) {
+            throw new UncheckedIOException("创建分片上传目录失败: " + key, e);
+        }
+        return uploadId;
+    }
+
+    @Override
+    public void uploadPart(String key, String uploadId, int partNumber, InputStream inputStream, long partSize) {
+        Path uploadPath = resolveUpload(uploadId);
+        Path tempPath = null;
+        try {
+            tempPath = Files.createTempFile(uploadPath, TEMP_FILE_PREFIX, null);
+            writeFrom(inputStream, partSize, tempPath);
+            commit(tempPath, uploadPath.resolve(String.valueOf(partNumber)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入分片失败: " + key + ", partNumber = " + partNumber, e);
+        } finally {
+            deleteQuietly(tempPath);
+        }
+    }
+
+    @Override
+    public List<StoragePart> listParts(String key, String uploadId) {
+        List<StoragePart> partList = new ArrayList<>();
+        try (Stream<Path> pathStream = Files.list(resolveUpload(uploadId))) {
+            List<Path> partPaths = pathStream
+                    .filter(path -> !path.getFileName().toString().startsWith(TEMP_FILE_PREFIX))
+                    .collect(Collectors.toList());
+            for (Path partPath : partPaths) {
+                BasicFileAttributes attributes = Files.readAttributes(partPath, BasicFileAttributes.class);
+                int partNumber = Integer.parseInt(partPath.getFileName().toString());
+                partList.add(new StoragePart(partNumber, attributes.size(), toEtag(attributes)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("列出分片失败: " + key, e);
+        }
+        partList.sort(Comparator.comparingInt(StoragePart::getPartNumber));
+        return partList;
+    }
+
+    @Override
+    public PictureStorageResult completeMultipartUpload(String key, String uploadId, List<StoragePart> parts) {
+        Path uploadPath = resolveUpload(uploadId);
+        Path path = resolve(key);
+        Path tempPath = null;
+        try {
+            tempPath = createTempFile(path);
+            try (FileChannel targetChannel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+                for (StoragePart part : parts) {
+                    Path partPath = uploadPath.resolve(String.valueOf(part.getPartNumber()));
+                    BasicFileAttributes attributes = Files.readAttributes(partPath, BasicFileAttributes.class);
+                    if (!toEtag(attributes).equals(part.getEtag())) {
+                        throw new IOException("分片已被替换, partNumber = " + part.getPartNumber());
+                    }
+                    try (FileChannel sourceChannel = FileChannel.open(partPath, StandardOpenOption.READ)) {
+                        long size = sourceChannel.size();
+                        long position = 0;
+                        while (position < size) {
+                            position += sourceChannel.transferTo(position, size - position, targetChannel);
+                        }
+                    }
+                }
+            }
+            commit(tempPath, path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("合并分片失败: " + key, e);
+        } finally {
+            deleteQuietly(tempPath);
+        }
+        FileUtil.del(uploadPath.toFile());
+        return new PictureStorageResult();
+    }
+
+    @Override
+    public void abortMultipartUpload(String key, String uploadId) {
+        FileUtil.del(resolveUpload(uploadId).toFile());
+    }
+
+    @Override
+    public String getUrl(String key) {
+        return urlPrefix + key;
+    }
+
+    @Override
+    public String getKey(String url) {
+        if (!StrUtil.startWith(url, urlPrefix)) {
+            return null;
+        }
+        return StrUtil.removePrefix(url, urlPrefix);
+    }
+
+    /**
+     * 唯一键对应的文件路径
+     */
+    private Path resolve(String key) {
+        if (StrUtil.isBlank(key)) {
+            throw new IllegalArgumentException("唯一键不能为空");
+        }
+        String shard = DigestUtil.md5Hex(key);
+        return rootPath.resolve(shard.substring(0, 2))
+                .resolve(shard.substring(2, 4))
+                .resolve(Base64.encodeUrlSafe(key));
+    }
+
+    /**
+     * 分片上传 ID 对应的暂存目录，ID 由 {@link #initiateMultipartUpload(String)} 生成
+     */
+    private Path resolveUpload(String uploadId) {
+        if (!ReUtil.isMatch("[0-9a-f]{32}", StrUtil.nullToEmpty(uploadId))) {
+            throw new IllegalArgumentException("分片上传 ID 无效");
+        }
+        return multipartPath.resolve(uploadId);
+    }
+
+    /**
+     * 从输入流写入指定长度的内容
+     */
+    private static void writeFrom(InputStream inputStream, long contentLength, Path path) throws IOException {
+        ReadableByteChannel sourceChannel = Channels.newChannel(inputStream);
+        try (FileChannel targetChannel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            long position = 0;
+            while (position < contentLength) {
+                long transferred = targetChannel.transferFrom(sourceChannel, position, contentLength - position);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+            }
+            if (position != contentLength) {
+                throw new IOException(String.format("内容长度不一致，期望 %d，实际 %d", contentLength, position));
+            }
+        }
+    }
+
+    /**
+     * 在目标文件所在目录创建临时文件，保证可以原子重命名
+     */
+    private Path createTempFile(Path path) throws IOException {
+        Files.createDirectories(path.getParent());
+        return Files.createTempFile(path.getParent(), TEMP_FILE_PREFIX, null);
+    }
+
+    /**
+     * 写入完成后原子替换，读取方不会看到写了一半的文件
+     */
+    private void commit(Path tempPath, Path path) throws IOException {
+        try {
+            Files.move(tempPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private StorageObject toStorageObject(String key, BasicFileAttributes attributes) {
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        StorageObject storageObject = new StorageObject();
+        storageObject.setContentLength(size);
+        storageObject.setInstanceLength(size);
+        storageObject.setContentType(getContentType(key));
+        storageObject.setEtag(toEtag(attributes));
+        storageObject.setLastModified(new Date(lastModified));
+        return storageObject;
+    }
+
+    /**
+     * 与 nginx 相同，由修改时间和文件大小生成实体标签，文件只会整体替换
+     */
+    private static String toEtag(BasicFileAttributes attributes) {
+        return Long.toHexString(attributes.lastModifiedTime().toMillis()) + "-" + Long.toHexString(attributes.size());
+    }
+
+    private String getContentType(String key) {
+        String suffix = FileUtil.getSuffix(key);
+        // JDK 内置的类型表不包含 webp
+        if ("webp".equalsIgnoreCase(suffix)) {
+            return "image/webp";
+        }
+        return StrUtil.blankToDefault(FileUtil.getMimeType(key), "application/octet-stream");
+    }
+
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("临时文件删除失败: {}", path, e);
+        }
+    }
+
+    private void closeQuietly(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("关闭文件失败", e);
+        }
+    }
+}
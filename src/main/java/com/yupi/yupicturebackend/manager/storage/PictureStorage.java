@@ -0,0 +1,210 @@
+package com.yupi.yupicturebackend.manager.storage;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * 图片存储
+ * 屏蔽具体存储后端（腾讯云 COS、本地文件系统等），由配置 picture.storage.type 选择
+ */
+public interface PictureStorage {
+
+    /**
+     * 以流的方式写入图片
+     *
+     * @param key           唯一键
+     * @param inputStream   输入流（由调用方负责关闭）
+     * @param contentLength 内容长度，必须已知
+     * @return 写入结果
+     */
+    PictureStorageResult putPicture(String key, InputStream inputStream, long contentLength);
+
+    /**
+     * 写入图片文件
+     *
+     * @param key  唯一键
+     * @param file 本地文件
+     * @return 写入结果
+     */
+    PictureStorageResult putPicture(String key, File file);
+
+    /**
+     * 写入内存中的图片（缓冲区 position 到 limit 之间的内容，不改变缓冲区位置）
+     *
+     * @param key    唯一键
+     * @param buffer 缓冲区，可以是堆外缓冲区
+     * @return 写入结果
+     */
+    default PictureStorageResult putPicture(String key, ByteBuffer buffer) {
+        return putPicture(key, new ByteBufferInputStream(buffer.duplicate()), buffer.remaining());
+    }
+
+    /**
+     * 为已存储的图片生成衍生尺寸
+     *
+     * @param key 唯一键
+     * @return 处理结果，不支持衍生尺寸的存储返回 null
+     */
+    default PictureStorageResult processPicture(String key) {
+        return null;
+    }
+
+    /**
+     * 读取对象
+     *
+     * @param key 唯一键
+     * @return 对象，使用后必须关闭；不存在时返回 null
+     */
+    StorageObject getObject(String key);
+
+    /**
+     * 按字节范围读取对象
+     *
+     * @param key   唯一键
+     * @param start 起始位置（包含）
+     * @param end   结束位置（包含），超出对象长度时截断到末尾
+     * @return 对象，使用后必须关闭；不存在时返回 null
+     */
+    StorageObject getObject(String key, long start, long end);
+
+    /**
+     * 读取对象元数据，不读取内容
+     *
+     * @param key 唯一键
+     * @return 只包含元数据的对象（输入流为空），不存在时返回 null
+     */
+    StorageObject headObject(String key);
+
+    /**
+     * 删除对象，对象不存在时不报错
+     *
+     * @param key 唯一键
+     */
+    void deleteObject(String key);
+
+    /**
+     * 批量删除对象
+     *
+     * @param keys 唯一键列表
+     * @return 删除成功的唯一键
+     */
+    List<String> deleteObjects(List<String> keys);
+
+    /**
+     * 按唯一键字典序列出对象
+     *
+     * @param prefix     前缀，为空表示不限
+     * @param startAfter 从该唯一键之后开始，为空表示从头开始
+     * @param maxKeys    最大数量
+     * @return 唯一键列表
+     */
+    List<String> listKeys(String prefix, String startAfter, int maxKeys);
+
+    /**
+     * 获取对象的访问地址
+     */
+    String getUrl(String key);
+
+    /**
+     * 由访问地址解析唯一键
+     *
+     * @return 唯一键，不是本存储的地址时返回 null
+     */
+    String getKey(String url);
+
+    /**
+     * 初始化分片上传
+     *
+     * @param key 唯一键
+     * @return 分片上传 ID
+     */
+    String initiateMultipartUpload(String key);
+
+    /**
+     * 上传单个分片，同一分片重复上传会覆盖之前的内容
+     *
+     * @param key         唯一键
+     * @param uploadId    分片上传 ID
+     * @param partNumber  分片编号（从 1 开始）
+     * @param inputStream 分片内容（由调用方负责关闭）
+     * @param partSize    分片大小
+     */
+    void uploadPart(String key, String uploadId, int partNumber, InputStream inputStream, long partSize);
+
+    /**
+     * 列出已上传的分片，以存储的记录为准，服务重启或连接中断后也能据此续传
+     *
+     * @param key      唯一键
+     * @param uploadId 分片上传 ID
+     * @return 已上传分片，按分片编号升序
+     */
+    List<StoragePart> listParts(String key, String uploadId);
+
+    /**
+     * 按分片编号顺序合并分片为完整对象
+     *
+     * @param key      唯一键
+     * @param uploadId 分片上传 ID
+     * @param parts    全部分片，按分片编号升序
+     * @return 写入结果，存储后端能解析图片信息时填充宽高和格式
+     */
+    PictureStorageResult completeMultipartUpload(String key, String uploadId, List<StoragePart> parts);
+
+    /**
+     * 终止分片上传，释放已上传的分片
+     *
+     * @param key      唯一键
+     * @param uploadId 分片上传 ID
+     */
+    void abortMultipartUpload(String key, String uploadId);
+
+    /**
+     * 获取缩放后的图片
+     * 默认读取原图后在本地缩放，支持云上处理的存储可以覆盖
+     *
+     * @param key    唯一键
+     * @param width  宽度
+     * @param height 高度（忽略原图比例，强制缩放）
+     * @return 缩放后的图片，无法解码时返回 null
+     */
+    default BufferedImage getScaledPicture(String key, int width, int height) {
+        BufferedImage image;
+        try (StorageObject storageObject = getObject(key)) {
+            if (storageObject == null) {
+                return null;
+            }
+            image = ImageIO.read(storageObject.getInputStream());
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取图片失败: " + key, e);
+        }
+        return image != null ? scale(image, width, height) : null;
+    }
+
+    /**
+     * 在本地缩放图片，与 {@link #getScaledPicture} 的默认实现一致
+     *
+     * @param image  原图
+     * @param width  宽度
+     * @param height 高度（忽略原图比例，强制缩放）
+     * @return 缩放后的图片
+     */
+    static BufferedImage scale(BufferedImage image, int width, int height) {
+        BufferedImage scaledImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaledImage.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaledImage;
+    }
+}
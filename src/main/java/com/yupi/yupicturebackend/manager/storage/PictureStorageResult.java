@@ -0,0 +1,43 @@
+package com.yupi.yupicturebackend.manager.storage;
+
+import lombok.Data;
+
+/**
+ * 图片写入结果
+ * 存储后端能解析图片信息时填充宽高和格式，否则为空，由上传模板从文件头探测
+ */
+@Data
+public class PictureStorageResult {
+
+    /**
+     * 宽度
+     */
+    private Integer picWidth;
+
+    /**
+     * 高度
+     */
+    private Integer picHeight;
+
+    /**
+     * 格式
+     */
+    private String picFormat;
+
+    /**
+     * 缩略图地址，未生成时为空
+     */
+    private String thumbnailUrl;
+
+    /**
+     * 预览图地址，未生成时为空
+     */
+    private String previewUrl;
+
+    /**
+     * 是否包含图片尺寸信息
+     */
+    public boolean hasImageInfo() {
+        return picWidth != null && picHeight != null && picWidth > 0 && picHeight > 0;
+    }
+}
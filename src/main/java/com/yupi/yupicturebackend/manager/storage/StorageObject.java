@@ -0,0 +1,67 @@
+package com.yupi.yupicturebackend.manager.storage;
+
+import lombok.Data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.util.Date;
+
+/**
+ * 存储对象，读取完毕后必须关闭以释放连接或文件句柄
+ */
+@Data
+public class StorageObject implements Closeable {
+
+    /**
+     * 内容输入流（按范围读取时只包含该范围）
+     */
+    private InputStream inputStream;
+
+    /**
+     * 内容所在的本地文件通道，内容为 [rangeStart, rangeStart + contentLength) 区间
+     * 不为空时可以用 FileChannel.transferTo 直接输出，远程对象为空
+     */
+    private FileChannel fileChannel;
+
+    /**
+     * 本次返回的内容长度
+     */
+    private long contentLength;
+
+    /**
+     * 对象总长度
+     */
+    private long instanceLength;
+
+    /**
+     * 本次返回内容的起始位置
+     */
+    private long rangeStart;
+
+    /**
+     * 内容类型
+     */
+    private String contentType;
+
+    /**
+     * 实体标签，内容不变时保持不变
+     */
+    private String etag;
+
+    /**
+     * 最后修改时间
+     */
+    private Date lastModified;
+
+    @Override
+    public void close() throws IOException {
+        if (inputStream != null) {
+            inputStream.close();
+        }
+        if (fileChannel != null) {
+            fileChannel.close();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.yupi.yupicturebackend.manager.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 分片上传中已上传的分片
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoragePart {
+
+    /**
+     * 分片编号（从 1 开始）
+     */
+    private int partNumber;
+
+    /**
+     * 分片大小
+     */
+    private long size;
+
+    /**
+     * 分片实体标签，合并时用于校验分片未被替换
+     */
+    private String etag;
+}
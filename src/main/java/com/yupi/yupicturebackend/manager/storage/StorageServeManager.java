@@ -0,0 +1,247 @@
+package com.yupi.yupicturebackend.manager.storage;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.util.StrUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yupi.yupicturebackend.config.StorageConfig;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 存储对象的 HTTP 输出
+ * 本地文件通过 FileChannel.transferTo、远程对象通过固定大小的缓冲区把内容直接写入响应，
+ * 支持单段 Range（206/416）、强 ETag 和 Last-Modified；
+ * 对象元数据在本地缓存，条件请求命中时直接返回 304，不访问存储
+ */
+@Component
+public class StorageServeManager {
+
+    /**
+     * 输出缓冲区大小
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    @Resource
+    private PictureStorage pictureStorage;
+
+    @Resource
+    private StorageConfig storageConfig;
+
+    /**
+     * 唯一键 => 对象元数据（输入流为空）
+     */
+    private Cache<String, StorageObject> metadataCache;
+
+    @PostConstruct
+    public void init() {
+        metadataCache = Caffeine.newBuilder()
+                .maximumSize(storageConfig.getMetadataCacheMaxSize())
+                .expireAfterWrite(storageConfig.getMetadataCacheExpireMinutes(), TimeUnit.MINUTES)
+                .build();
+    }
+
+    /**
+     * 输出存储对象
+     *
+     * @param key        唯一键
+     * @param attachment 是否作为附件下载
+     */
+    public void serve(String key, boolean attachment, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        StorageObject metadata = metadataCache.get(key, pictureStorage::headObject);
+        if (metadata == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        String etag = toEntityTag(metadata.getEtag());
+        long lastModified = metadata.getLastModified() != null ? metadata.getLastModified().getTime() : -1;
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=" + storageConfig.getServeMaxAgeSeconds());
+        if (etag != null) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+        }
+        if (lastModified >= 0) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        }
+        if (isNotModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long instanceLength = metadata.getInstanceLength();
+        long[] range = null;
+        if (isRangeApplicable(request, etag, lastModified)) {
+            range = parseRange(request.getHeader(HttpHeaders.RANGE), instanceLength);
+            if (range != null && range.length == 0) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + instanceLength);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+        }
+
+        try (StorageObject storageObject = range != null
+                ? pictureStorage.getObject(key, range[0], range[1])
+                : pictureStorage.getObject(key)) {
+            if (storageObject == null) {
+                // 对象已被删除，元数据缓存失效
+                metadataCache.invalidate(key);
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            response.setContentType(StrUtil.blankToDefault(storageObject.getContentType(), "application/octet-stream"));
+            response.setContentLengthLong(storageObject.getContentLength());
+            if (attachment) {
+                response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + FileUtil.getName(key));
+            }
+            if (range != null) {
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, String.format("bytes %d-%d/%d", storageObject.getRangeStart(),
+                        storageObject.getRangeStart() + storageObject.getContentLength() - 1, instanceLength));
+            }
+            if ("HEAD".equals(request.getMethod())) {
+                return;
+            }
+            OutputStream outputStream = response.getOutputStream();
+            if (storageObject.getFileChannel() != null) {
+                transferFile(storageObject, outputStream);
+            } else {
+                IoUtil.copy(storageObject.getInputStream(), outputStream, BUFFER_SIZE);
+            }
+            outputStream.flush();
+        }
+    }
+
+    /**
+     * 本地文件（本地存储、磁盘缓存命中）由 FileChannel.transferTo 输出，不经过堆内缓冲
+     */
+    private void transferFile(StorageObject storageObject, OutputStream outputStream) throws IOException {
+        FileChannel fileChannel = storageObject.getFileChannel();
+        WritableByteChannel targetChannel = Channels.newChannel(outputStream);
+        long position = storageObject.getRangeStart();
+        long remaining = storageObject.getContentLength();
+        while (remaining > 0) {
+            long transferred = fileChannel.transferTo(position, remaining, targetChannel);
+            if (transferred <= 0) {
+                break;
+            }
+            position += transferred;
+            remaining -= transferred;
+        }
+    }
+
+    /**
+     * 对象被覆盖或删除后使元数据缓存失效
+     */
+    public void invalidate(String key) {
+        metadataCache.invalidate(key);
+    }
+
+    /**
+     * 条件请求判断：If-None-Match 优先，不存在时才使用 If-Modified-Since
+     */
+    private boolean isNotModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return etag != null && matchesEntityTag(ifNoneMatch, etag);
+        }
+        long ifModifiedSince = getDateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        // HTTP 日期精确到秒
+        return ifModifiedSince >= 0 && lastModified >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    /**
+     * If-Range 与当前对象不一致时忽略 Range，返回完整内容
+     */
+    private boolean isRangeApplicable(HttpServletRequest request, String etag, long lastModified) {
+        if (request.getHeader(HttpHeaders.RANGE) == null) {
+            return false;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // 必须使用强比较
+            return etag != null && ifRange.trim().equals(etag);
+        }
+        long ifRangeDate = getDateHeader(request, HttpHeaders.IF_RANGE);
+        return ifRangeDate >= 0 && lastModified >= 0 && lastModified / 1000 == ifRangeDate / 1000;
+    }
+
+    /**
+     * 解析单段字节范围，格式为 bytes=start-end、bytes=start- 或 bytes=-suffixLength
+     *
+     * @return [start, end]（包含）；不可满足时返回空数组；格式不支持（包括多段范围）时返回 null，按完整内容响应
+     */
+    static long[] parseRange(String rangeHeader, long instanceLength) {
+        if (rangeHeader == null || !rangeHeader.startsWith("bytes=")) {
+            return null;
+        }
+        String rangeSpec = rangeHeader.substring("bytes=".length()).trim();
+        int dashIndex = rangeSpec.indexOf('-');
+        if (dashIndex < 0 || rangeSpec.indexOf(',') >= 0) {
+            return null;
+        }
+        String startStr = rangeSpec.substring(0, dashIndex).trim();
+        String endStr = rangeSpec.substring(dashIndex + 1).trim();
+        try {
+            if (startStr.isEmpty()) {
+                long suffixLength = Long.parseLong(endStr);
+                if (suffixLength <= 0 || instanceLength == 0) {
+                    return new long[0];
+                }
+                return new long[]{Math.max(instanceLength - suffixLength, 0), instanceLength - 1};
+            }
+            long start = Long.parseLong(startStr);
+            long end = endStr.isEmpty() ? Long.MAX_VALUE : Long.parseLong(endStr);
+            if (start < 0 || end < start) {
+                return null;
+            }
+            if (start >= instanceLength) {
+                return new long[0];
+            }
+            return new long[]{start, Math.min(end, instanceLength - 1)};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean matchesEntityTag(String headerValue, String etag) {
+        // If-None-Match 使用弱比较，忽略 W/ 前缀
+        String opaqueTag = StrUtil.removePrefix(etag, "W/");
+        for (String candidate : StrUtil.splitTrim(headerValue, ',')) {
+            if ("*".equals(candidate) || opaqueTag.equals(StrUtil.removePrefix(candidate, "W/"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String toEntityTag(String etag) {
+        if (StrUtil.isBlank(etag)) {
+            return null;
+        }
+        return etag.startsWith("\"") ? etag : "\"" + etag + "\"";
+    }
+
+    private static long getDateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+}
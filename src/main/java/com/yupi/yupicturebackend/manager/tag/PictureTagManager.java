@@ -0,0 +1,371 @@
+package com.yupi.yupicturebackend.manager.tag;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.yupi.yupicturebackend.config.PictureSearchConfig;
+import com.yupi.yupicturebackend.event.PictureChangedEvent;
+import com.yupi.yupicturebackend.event.PictureChangedRelay;
+import com.yupi.yupicturebackend.mapper.PictureMapper;
+import com.yupi.yupicturebackend.mapper.PictureTagMapper;
+import com.yupi.yupicturebackend.mapper.TagMapper;
+import com.yupi.yupicturebackend.model.entity.Picture;
+import com.yupi.yupicturebackend.model.entity.PictureTag;
+import com.yupi.yupicturebackend.model.entity.Tag;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 图片标签管理
+ * picture.tags 中的 JSON 标签同步写入标签字典（tag）和图片标签关系表（picture_tag），
+ * 内存中保存标签名称到 id 的字典和每个标签的图片位图（{@link TagBitmapIndex}），多标签查询在内存中求交；
+ * 其他实例的变更经 {@link PictureChangedRelay} 转发后同步到本地索引；位图索引加载完成前或命中过多时，由调用方通过关系表子查询。
+ */
+@Slf4j
+@Component
+public class PictureTagManager {
+
+    /**
+     * 标签名称最大长度，超出的标签只保存在 picture.tags 中
+     */
+    public static final int TAG_MAX_LENGTH = 64;
+
+    /**
+     * 启动加载时每批读取的数量
+     */
+    private static final int LOAD_BATCH_SIZE = 10000;
+
+    @Resource
+    private TagMapper tagMapper;
+
+    @Resource
+    private PictureTagMapper pictureTagMapper;
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private PictureSearchConfig pictureSearchConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 标签名称（小写） => 标签 id
+     * tag.name 的唯一约束不区分大小写（utf8mb4_unicode_ci），字典与其保持一致
+     */
+    private final Map<String, Long> tagIdByName = new ConcurrentHashMap<>();
+
+    private final TagBitmapIndex bitmapIndex = new TagBitmapIndex();
+
+    /**
+     * 位图索引是否加载完成
+     */
+    private volatile boolean ready;
+
+    /**
+     * 加载期间删除的图片，加载完成后再次移除
+     */
+    private final Set<Long> deletedWhileLoading = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        meterRegistry.gauge("picture.tag.dictionary.size", tagIdByName, Map::size);
+        meterRegistry.gauge("picture.tag.index.size", bitmapIndex, TagBitmapIndex::size);
+        meterRegistry.gauge("picture.tag.index.bytes", bitmapIndex, TagBitmapIndex::memoryBytes);
+    }
+
+    /**
+     * 查询同时带有全部标签的图片
+     *
+     * @param tags         标签名称
+     * @param reviewStatus 审核状态，为空时不限
+     * @return 升序排列的图片 id；位图索引不可用、标签不在字典中或命中过多时返回 null，由调用方通过关系表查询
+     */
+    public List<Long> findPictureIds(List<String> tags, Integer reviewStatus) {
+        long[] ids = queryIndex(tags, reviewStatus, pictureSearchConfig.getTagIndexMaxResults());
+        if (ids == null) {
+            return null;
+        }
+        List<Long> idList = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            idList.add(id);
+        }
+        return idList;
+    }
+
+    /**
+     * 查询同时带有全部标签的图片，不限命中数量，用于分面统计
+     *
+     * @param tags         标签名称
+     * @param reviewStatus 审核状态，为空时不限
+     * @return 升序排列的图片 id；位图索引不可用或标签不在字典中时返回 null
+     */
+    public long[] findAllPictureIds(List<String> tags, Integer reviewStatus) {
+        return queryIndex(tags, reviewStatus, Integer.MAX_VALUE);
+    }
+
+    private long[] queryIndex(List<String> tags, Integer reviewStatus, int maxResults) {
+        if (!pictureSearchConfig.isTagIndexEnabled() || !ready) {
+            return null;
+        }
+        List<Long> tagIds = new ArrayList<>(tags.size());
+        for (String tag : tags) {
+            Long tagId = tagIdByName.get(dictionaryKey(tag));
+            // 字典中没有的标签可能刚由其他实例创建，交给关系表查询
+            if (tagId == null) {
+                return null;
+            }
+            tagIds.add(tagId);
+        }
+        return bitmapIndex.query(tagIds, reviewStatus, maxResults);
+    }
+
+    /**
+     * 同步图片的标签关系和位图索引
+     *
+     * @param picture 图片（需要 id、tags 和 reviewStatus）
+     */
+    public void syncPictureTags(Picture picture) {
+        Set<Long> tagIds = resolveTagIds(picture);
+        // 只改动有差异的关系
+        QueryWrapper<PictureTag> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("tagId").eq("pictureId", picture.getId());
+        Set<Long> oldTagIds = new HashSet<>();
+        for (PictureTag pictureTag : pictureTagMapper.selectList(queryWrapper)) {
+            oldTagIds.add(pictureTag.getTagId());
+        }
+        Set<Long> removedTagIds = new HashSet<>(oldTagIds);
+        removedTagIds.removeAll(tagIds);
+        if (!removedTagIds.isEmpty()) {
+            QueryWrapper<PictureTag> deleteWrapper = new QueryWrapper<>();
+            deleteWrapper.eq("pictureId", picture.getId()).in("tagId", removedTagIds);
+            pictureTagMapper.delete(deleteWrapper);
+        }
+        for (Long tagId : tagIds) {
+            if (oldTagIds.contains(tagId)) {
+                continue;
+            }
+            PictureTag pictureTag = new PictureTag();
+            pictureTag.setPictureId(picture.getId());
+            pictureTag.setTagId(tagId);
+            try {
+                pictureTagMapper.insert(pictureTag);
+            } catch (DuplicateKeyException e) {
+                // 并发同步同一张图片，已由其他请求写入
+            }
+        }
+        bitmapIndex.put(picture.getId(), tagIds, picture.getReviewStatus());
+    }
+
+    /**
+     * 解析图片的标签并转为标签 id，不存在的标签写入标签字典
+     */
+    private Set<Long> resolveTagIds(Picture picture) {
+        Set<Long> tagIds = new LinkedHashSet<>();
+        for (String tag : parseTags(picture.getTags())) {
+            tagIds.add(getOrCreateTagId(tag));
+        }
+        return tagIds;
+    }
+
+    /**
+     * 删除图片的标签关系和位图索引
+     */
+    public void removePictureTags(List<Long> pictureIds) {
+        if (pictureIds.isEmpty()) {
+            return;
+        }
+        for (Long pictureId : pictureIds) {
+            bitmapIndex.remove(pictureId);
+            if (!ready) {
+                deletedWhileLoading.add(pictureId);
+            }
+        }
+        QueryWrapper<PictureTag> deleteWrapper = new QueryWrapper<>();
+        deleteWrapper.in("pictureId", pictureIds);
+        pictureTagMapper.delete(deleteWrapper);
+    }
+
+    @EventListener
+    public void onPictureChanged(PictureChangedEvent event) {
+        List<Long> pictureIds = new ArrayList<>();
+        for (Picture picture : event.getPictureList()) {
+            if (picture.getId() != null) {
+                pictureIds.add(picture.getId());
+            }
+        }
+        if (pictureIds.isEmpty()) {
+            return;
+        }
+        try {
+            if (event.isRemote()) {
+                refreshIndex(event);
+                return;
+            }
+            if (event.getChangeType() == PictureChangedEvent.ChangeType.DELETE) {
+                removePictureTags(pictureIds);
+                return;
+            }
+            // 事件中的图片可能只包含本次修改的字段（如审核），按 id 读取标签和审核状态
+            QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+            queryWrapper.select("id", "tags", "reviewStatus").in("id", pictureIds);
+            for (Picture picture : pictureMapper.selectList(queryWrapper)) {
+                syncPictureTags(picture);
+            }
+        } catch (Exception e) {
+            // 图片本身已保存成功，标签关系同步失败不影响本次操作
+            log.error("同步图片标签失败, pictureIds = {}", pictureIds, e);
+        }
+    }
+
+    /**
+     * 同步其他实例的变更：关系表已由发生变更的实例写入，只更新本地的标签字典和位图索引
+     */
+    private void refreshIndex(PictureChangedEvent event) {
+        for (Picture picture : event.getPictureList()) {
+            if (event.getChangeType() == PictureChangedEvent.ChangeType.DELETE) {
+                bitmapIndex.remove(picture.getId());
+                if (!ready) {
+                    deletedWhileLoading.add(picture.getId());
+                }
+            } else {
+                bitmapIndex.put(picture.getId(), resolveTagIds(picture), picture.getReviewStatus());
+            }
+        }
+    }
+
+    /**
+     * 启动后在后台加载标签字典和位图索引，不阻塞启动
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        ThreadUtil.execute(this::loadIndex);
+    }
+
+    private void loadIndex() {
+        long start = System.currentTimeMillis();
+        try {
+            for (Tag tag : tagMapper.selectList(new QueryWrapper<Tag>().select("id", "name"))) {
+                tagIdByName.put(dictionaryKey(tag.getName()), tag.getId());
+            }
+            if (!pictureSearchConfig.isTagIndexEnabled()) {
+                return;
+            }
+            // 先按 id 顺序收录所有图片，使序号与 id 顺序基本一致
+            long lastId = 0;
+            while (true) {
+                QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+                queryWrapper.select("id", "reviewStatus")
+                        .gt("id", lastId)
+                        .orderByAsc("id")
+                        .last("limit " + LOAD_BATCH_SIZE);
+                List<Picture> pictureList = pictureMapper.selectList(queryWrapper);
+                for (Picture picture : pictureList) {
+                    bitmapIndex.put(picture.getId(), Collections.emptyList(), picture.getReviewStatus());
+                }
+                if (pictureList.size() < LOAD_BATCH_SIZE) {
+                    break;
+                }
+                lastId = pictureList.get(pictureList.size() - 1).getId();
+            }
+            long lastRelationId = 0;
+            while (true) {
+                QueryWrapper<PictureTag> queryWrapper = new QueryWrapper<>();
+                queryWrapper.select("id", "pictureId", "tagId")
+                        .gt("id", lastRelationId)
+                        .orderByAsc("id")
+                        .last("limit " + LOAD_BATCH_SIZE);
+                List<PictureTag> pictureTagList = pictureTagMapper.selectList(queryWrapper);
+                for (PictureTag pictureTag : pictureTagList) {
+                    bitmapIndex.addTag(pictureTag.getPictureId(), pictureTag.getTagId());
+                }
+                if (pictureTagList.size() < LOAD_BATCH_SIZE) {
+                    break;
+                }
+                lastRelationId = pictureTagList.get(pictureTagList.size() - 1).getId();
+            }
+        } catch (Exception e) {
+            // 加载失败时保持不可用，按标签查询继续走关系表
+            log.error("标签位图索引加载失败", e);
+            return;
+        }
+        ready = true;
+        for (Long pictureId : deletedWhileLoading) {
+            bitmapIndex.remove(pictureId);
+        }
+        deletedWhileLoading.clear();
+        log.info("标签位图索引加载完成: {} 个标签, {} 张图片, 耗时 {}ms", tagIdByName.size(), bitmapIndex.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 获取标签 id，不存在时写入标签字典
+     */
+    private Long getOrCreateTagId(String name) {
+        Long tagId = tagIdByName.get(dictionaryKey(name));
+        if (tagId != null) {
+            return tagId;
+        }
+        QueryWrapper<Tag> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("id").eq("name", name);
+        Tag tag = tagMapper.selectOne(queryWrapper);
+        if (tag == null) {
+            tag = new Tag();
+            tag.setName(name);
+            try {
+                tagMapper.insert(tag);
+            } catch (DuplicateKeyException e) {
+                // 并发写入同一标签
+                tag = tagMapper.selectOne(queryWrapper);
+            }
+        }
+        tagIdByName.put(dictionaryKey(name), tag.getId());
+        return tag.getId();
+    }
+
+    /**
+     * 字典键：去掉首尾空白并转为小写
+     */
+    private static String dictionaryKey(String name) {
+        return StrUtil.trim(name).toLowerCase();
+    }
+
+    /**
+     * 解析 JSON 标签，去掉空白、过长和重复的标签
+     */
+    private static Set<String> parseTags(String tagsJson) {
+        Set<String> tags = new LinkedHashSet<>();
+        if (StrUtil.isBlank(tagsJson) || !JSONUtil.isTypeJSONArray(tagsJson)) {
+            return tags;
+        }
+        List<String> tagList = JSONUtil.toList(tagsJson, String.class);
+        if (CollUtil.isEmpty(tagList)) {
+            return tags;
+        }
+        for (String tag : tagList) {
+            String trimmedTag = StrUtil.trim(tag);
+            if (StrUtil.isNotEmpty(trimmedTag) && trimmedTag.length() <= TAG_MAX_LENGTH) {
+                tags.add(trimmedTag);
+            }
+        }
+        return tags;
+    }
+}
@@ -0,0 +1,233 @@
+package com.yupi.yupicturebackend.manager.tag;
+
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 标签位图索引
+ * 图片 id 是 64 位雪花 id，先映射为连续的 32 位序号，再为每个标签、每种审核状态各保存一个序号的压缩位图（RoaringBitmap）。
+ * 多标签查询是若干位图求交，再与审核状态位图求交，只在最后把结果序号换回图片 id。
+ * 删除的图片序号不再复用。每个序号记录当前的标签和审核状态，更新或删除时只改动相关的位图。
+ */
+public class TagBitmapIndex {
+
+    private static final long[] EMPTY_TAG_IDS = new long[0];
+
+    /**
+     * 图片 id => 序号
+     */
+    private final Map<Long, Integer> ordinalById = new HashMap<>();
+
+    /**
+     * 序号 => 图片 id
+     */
+    private long[] idByOrdinal = new long[1024];
+
+    /**
+     * 序号 => 当前的标签 id
+     */
+    private long[][] tagIdsByOrdinal = new long[1024][];
+
+    /**
+     * 序号 => 当前的审核状态，未记录时为空
+     */
+    private Integer[] reviewStatusByOrdinal = new Integer[1024];
+
+    private int nextOrdinal;
+
+    /**
+     * 标签 id => 图片序号位图
+     */
+    private final Map<Long, RoaringBitmap> bitmapByTagId = new HashMap<>();
+
+    /**
+     * 审核状态 => 图片序号位图
+     */
+    private final Map<Integer, RoaringBitmap> bitmapByReviewStatus = new HashMap<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 添加或替换图片的标签和审核状态
+     *
+     * @param pictureId    图片 id
+     * @param tagIds       标签 id
+     * @param reviewStatus 审核状态，为空时不记录
+     */
+    public void put(long pictureId, Collection<Long> tagIds, Integer reviewStatus) {
+        lock.writeLock().lock();
+        try {
+            int ordinal = getOrCreateOrdinal(pictureId);
+            clearOrdinal(ordinal);
+            long[] ordinalTagIds = new long[tagIds.size()];
+            int index = 0;
+            for (Long tagId : tagIds) {
+                bitmapByTagId.computeIfAbsent(tagId, k -> new RoaringBitmap()).add(ordinal);
+                ordinalTagIds[index++] = tagId;
+            }
+            tagIdsByOrdinal[ordinal] = ordinalTagIds;
+            if (reviewStatus != null) {
+                bitmapByReviewStatus.computeIfAbsent(reviewStatus, k -> new RoaringBitmap()).add(ordinal);
+            }
+            reviewStatusByOrdinal[ordinal] = reviewStatus;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 为已收录的图片追加一个标签，用于启动加载
+     */
+    public void addTag(long pictureId, long tagId) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalById.get(pictureId);
+            if (ordinal != null
+                    && bitmapByTagId.computeIfAbsent(tagId, k -> new RoaringBitmap()).checkedAdd(ordinal)) {
+                long[] ordinalTagIds = tagIdsByOrdinal[ordinal];
+                ordinalTagIds = Arrays.copyOf(ordinalTagIds, ordinalTagIds.length + 1);
+                ordinalTagIds[ordinalTagIds.length - 1] = tagId;
+                tagIdsByOrdinal[ordinal] = ordinalTagIds;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除图片
+     */
+    public void remove(long pictureId) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalById.remove(pictureId);
+            if (ordinal != null) {
+                clearOrdinal(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查询同时带有全部标签的图片
+     *
+     * @param tagIds       标签 id
+     * @param reviewStatus 审核状态，为空时不限
+     * @param maxResults   结果数量上限
+     * @return 升序排列的图片 id；超出上限时返回 null
+     */
+    public long[] query(List<Long> tagIds, Integer reviewStatus, int maxResults) {
+        lock.readLock().lock();
+        try {
+            List<RoaringBitmap> bitmaps = new ArrayList<>(tagIds.size() + 1);
+            for (Long tagId : tagIds) {
+                RoaringBitmap bitmap = bitmapByTagId.get(tagId);
+                if (bitmap == null) {
+                    return new long[0];
+                }
+                bitmaps.add(bitmap);
+            }
+            if (reviewStatus != null) {
+                RoaringBitmap bitmap = bitmapByReviewStatus.get(reviewStatus);
+                if (bitmap == null) {
+                    return new long[0];
+                }
+                bitmaps.add(bitmap);
+            }
+            RoaringBitmap result = bitmaps.size() == 1 ? bitmaps.get(0)
+                    : FastAggregation.and(bitmaps.iterator());
+            if (result.getLongCardinality() > maxResults) {
+                return null;
+            }
+            long[] ids = new long[result.getCardinality()];
+            int index = 0;
+            for (int ordinal : result) {
+                ids[index++] = idByOrdinal[ordinal];
+            }
+            // 序号按加入顺序分配，与 id 顺序不一定一致
+            Arrays.sort(ids);
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 已收录的图片数量
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 位图占用的字节数（估算）
+     */
+    public long memoryBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (RoaringBitmap bitmap : bitmapByTagId.values()) {
+                bytes += bitmap.getLongSizeInBytes();
+            }
+            for (RoaringBitmap bitmap : bitmapByReviewStatus.values()) {
+                bytes += bitmap.getLongSizeInBytes();
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int getOrCreateOrdinal(long pictureId) {
+        Integer ordinal = ordinalById.get(pictureId);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        if (nextOrdinal == idByOrdinal.length) {
+            idByOrdinal = Arrays.copyOf(idByOrdinal, idByOrdinal.length * 2);
+            tagIdsByOrdinal = Arrays.copyOf(tagIdsByOrdinal, idByOrdinal.length);
+            reviewStatusByOrdinal = Arrays.copyOf(reviewStatusByOrdinal, idByOrdinal.length);
+        }
+        int newOrdinal = nextOrdinal++;
+        idByOrdinal[newOrdinal] = pictureId;
+        tagIdsByOrdinal[newOrdinal] = EMPTY_TAG_IDS;
+        ordinalById.put(pictureId, newOrdinal);
+        return newOrdinal;
+    }
+
+    /**
+     * 从序号当前所在的标签位图和审核状态位图中移除序号
+     */
+    private void clearOrdinal(int ordinal) {
+        for (long tagId : tagIdsByOrdinal[ordinal]) {
+            removeFrom(bitmapByTagId, tagId, ordinal);
+        }
+        tagIdsByOrdinal[ordinal] = EMPTY_TAG_IDS;
+        Integer reviewStatus = reviewStatusByOrdinal[ordinal];
+        if (reviewStatus != null) {
+            removeFrom(bitmapByReviewStatus, reviewStatus, ordinal);
+            reviewStatusByOrdinal[ordinal] = null;
+        }
+    }
+
+    private static <K> void removeFrom(Map<K, RoaringBitmap> bitmaps, K key, int ordinal) {
+        RoaringBitmap bitmap = bitmaps.get(key);
+        if (bitmap != null && bitmap.checkedRemove(ordinal) && bitmap.isEmpty()) {
+            bitmaps.remove(key);
+        }
+    }
+}
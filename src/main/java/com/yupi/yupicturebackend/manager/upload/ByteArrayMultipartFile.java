@@ -0,0 +1,79 @@
+package com.yupi.yupicturebackend.manager.upload;
+
+import cn.hutool.core.io.FileUtil;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 内存中的上传文件
+ * 请求结束后容器会清理上传的临时内容，异步处理前需先复制为该对象
+ */
+public class ByteArrayMultipartFile implements MultipartFile {
+
+    private final String name;
+
+    private final String originalFilename;
+
+    private final String contentType;
+
+    private final byte[] content;
+
+    public ByteArrayMultipartFile(String name, String originalFilename, String contentType, byte[] content) {
+        this.name = name;
+        this.originalFilename = originalFilename;
+        this.contentType = contentType;
+        this.content = content != null ? content : new byte[0];
+    }
+
+    /**
+     * 复制上传文件的内容
+     */
+    public static ByteArrayMultipartFile copyOf(MultipartFile multipartFile) throws IOException {
+        return new ByteArrayMultipartFile(multipartFile.getName(), multipartFile.getOriginalFilename(),
+                multipartFile.getContentType(), multipartFile.getBytes());
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return content.length == 0;
+    }
+
+    @Override
+    public long getSize() {
+        return content.length;
+    }
+
+    @Override
+    public byte[] getBytes() {
+        return content;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return new ByteArrayInputStream(content);
+    }
+
+    @Override
+    public void transferTo(File dest) {
+        FileUtil.writeBytes(content, dest);
+    }
+}
@@ -6,7 +6,6 @@ import com.yupi.yupicturebackend.exception.ThrowUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.util.Arrays;
 import java.util.List;
 
@@ -38,8 +37,9 @@ public class FilePictureUpload extends PictureUploadTemplate {
     }
 
     @Override
-    protected void processFile(Object inputSource, File file) throws Exception {
+    protected PictureUploadSource openUploadSource(Object inputSource) throws Exception {
         MultipartFile multipartFile = (MultipartFile) inputSource;
-        multipartFile.transferTo(file);
+        // 直接读取容器已接收的内容，长度已知
+        return new PictureUploadSource(multipartFile.getInputStream(), multipartFile.getSize());
     }
 }
@@ -0,0 +1,223 @@
+package com.yupi.yupicturebackend.manager.upload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 图片元数据探测
+ * 只解析文件头（JPEG SOF、PNG IHDR、WebP VP8/VP8L/VP8X），不解码像素，即可得到图片尺寸和格式
+ */
+public final class ImageMetadataProbe {
+
+    /**
+     * 探测所需的文件头长度上限
+     * JPEG 的 SOF 段位于 EXIF 等 APP 段之后，预留足够空间以覆盖带缩略图的 EXIF
+     */
+    public static final int HEADER_SIZE = 64 * 1024;
+
+    private ImageMetadataProbe() {
+    }
+
+    /**
+     * 图片元数据
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class ImageMetadata {
+
+        private final int width;
+
+        private final int height;
+
+        /**
+         * 图片格式：jpg / png / webp
+         */
+        private final String format;
+    }
+
+    /**
+     * 从文件头探测图片元数据
+     *
+     * @param header 文件头
+     * @param length 文件头有效长度
+     * @return 图片元数据，无法识别时返回 null
+     */
+    public static ImageMetadata probe(byte[] header, int length) {
+        if (header == null) {
+            return null;
+        }
+        length = Math.min(length, header.length);
+        if (length >= 4 && u8(header, 0) == 0xFF && u8(header, 1) == 0xD8) {
+            return probeJpeg(header, length);
+        }
+        if (length >= 24 && startsWith(header, PNG_SIGNATURE)) {
+            return probePng(header);
+        }
+        if (length >= 30 && matches(header, 0, "RIFF") && matches(header, 8, "WEBP")) {
+            return probeWebp(header, length);
+        }
+        return null;
+    }
+
+    /**
+     * 从内存中的图片内容探测元数据（缓冲区 position 到 limit 之间的内容，不改变缓冲区位置）
+     *
+     * @return 图片元数据，无法识别时返回 null
+     */
+    public static ImageMetadata probe(ByteBuffer buffer) {
+        ByteBuffer view = buffer.duplicate();
+        byte[] header = new byte[Math.min(view.remaining(), HEADER_SIZE)];
+        view.get(header);
+        return probe(header, header.length);
+    }
+
+    /**
+     * 读取文件开头并探测图片元数据
+     *
+     * @return 图片元数据，无法识别或读取失败时返回 null
+     */
+    public static ImageMetadata probe(File file) {
+        try (InputStream inputStream = new FileInputStream(file)) {
+            return probe(inputStream);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 读取输入流开头（最多 {@link #HEADER_SIZE} 字节）并探测图片元数据，输入流由调用方关闭
+     *
+     * @return 图片元数据，无法识别时返回 null
+     */
+    public static ImageMetadata probe(InputStream inputStream) throws IOException {
+        byte[] header = new byte[HEADER_SIZE];
+        int length = 0;
+        int n;
+        while (length < header.length && (n = inputStream.read(header, length, header.length - length)) != -1) {
+            length += n;
+        }
+        return probe(header, length);
+    }
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private static ImageMetadata probeJpeg(byte[] data, int length) {
+        int i = 2;
+        while (i + 3 < length) {
+            if (u8(data, i) != 0xFF) {
+                return null;
+            }
+            // 标记前可能有多个填充字节 0xFF
+            int marker = u8(data, i + 1);
+            if (marker == 0xFF) {
+                i++;
+                continue;
+            }
+            i += 2;
+            // 无长度字段的独立标记
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+                continue;
+            }
+            // 图像数据或文件结束前仍未找到 SOF
+            if (marker == 0xD9 || marker == 0xDA) {
+                return null;
+            }
+            int segmentLength = u16be(data, i);
+            if (segmentLength < 2) {
+                return null;
+            }
+            // SOF0 ~ SOF15，排除 DHT(C4)、JPG(C8)、DAC(CC)
+            if (marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC) {
+                if (i + 7 > length) {
+                    return null;
+                }
+                int height = u16be(data, i + 3);
+                int width = u16be(data, i + 5);
+                return valid(width, height, "jpg");
+            }
+            i += segmentLength;
+        }
+        return null;
+    }
+
+    private static ImageMetadata probePng(byte[] data) {
+        if (!matches(data, 12, "IHDR")) {
+            return null;
+        }
+        return valid(u32be(data, 16), u32be(data, 20), "png");
+    }
+
+    private static ImageMetadata probeWebp(byte[] data, int length) {
+        if (matches(data, 12, "VP8 ")) {
+            // 有损：帧标记（3 字节）+ 起始码 9D 01 2A + 宽高（各 14 位）
+            if (u8(data, 23) != 0x9D || u8(data, 24) != 0x01 || u8(data, 25) != 0x2A) {
+                return null;
+            }
+            return valid(u16le(data, 26) & 0x3FFF, u16le(data, 28) & 0x3FFF, "webp");
+        }
+        if (matches(data, 12, "VP8L")) {
+            // 无损：签名 0x2F + 宽高减一（各 14 位）
+            if (u8(data, 20) != 0x2F) {
+                return null;
+            }
+            int bits = u8(data, 21) | (u8(data, 22) << 8) | (u8(data, 23) << 16) | (u8(data, 24) << 24);
+            return valid((bits & 0x3FFF) + 1, ((bits >>> 14) & 0x3FFF) + 1, "webp");
+        }
+        if (matches(data, 12, "VP8X") && length >= 30) {
+            // 扩展格式：标志位（4 字节）+ 画布宽高减一（各 24 位）
+            return valid(u24le(data, 24) + 1, u24le(data, 27) + 1, "webp");
+        }
+        return null;
+    }
+
+    private static ImageMetadata valid(int width, int height, String format) {
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        return new ImageMetadata(width, height, format);
+    }
+
+    private static boolean startsWith(byte[] data, byte[] prefix) {
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(byte[] data, int offset, String ascii) {
+        for (int i = 0; i < ascii.length(); i++) {
+            if (data[offset + i] != (byte) ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int u8(byte[] data, int offset) {
+        return data[offset] & 0xFF;
+    }
+
+    private static int u16be(byte[] data, int offset) {
+        return (u8(data, offset) << 8) | u8(data, offset + 1);
+    }
+
+    private static int u16le(byte[] data, int offset) {
+        return u8(data, offset) | (u8(data, offset + 1) << 8);
+    }
+
+    private static int u24le(byte[] data, int offset) {
+        return u8(data, offset) | (u8(data, offset + 1) << 8) | (u8(data, offset + 2) << 16);
+    }
+
+    private static int u32be(byte[] data, int offset) {
+        return (u8(data, offset) << 24) | (u8(data, offset + 1) << 16) | (u8(data, offset + 2) << 8) | u8(data, offset + 3);
+    }
+}
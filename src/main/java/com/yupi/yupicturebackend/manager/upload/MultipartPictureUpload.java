@@ -0,0 +1,320 @@
+package com.yupi.yupicturebackend.manager.upload;
+
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.yupi.yupicturebackend.config.PictureUploadConfig;
+import com.yupi.yupicturebackend.exception.BusinessException;
+import com.yupi.yupicturebackend.exception.ErrorCode;
+import com.yupi.yupicturebackend.exception.ThrowUtils;
+import com.yupi.yupicturebackend.manager.storage.PictureStorage;
+import com.yupi.yupicturebackend.manager.storage.PictureStorageResult;
+import com.yupi.yupicturebackend.manager.storage.StorageObject;
+import com.yupi.yupicturebackend.manager.storage.StoragePart;
+import com.yupi.yupicturebackend.mapper.PictureUploadSessionMapper;
+import com.yupi.yupicturebackend.model.dto.file.UploadPictureResult;
+import com.yupi.yupicturebackend.model.entity.PictureUploadSession;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.Resource;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 分片图片上传（可断点续传）
+ * 客户端可以并行上传各个分片，分片内容直接流式写入存储，不占用完整文件的内存。
+ * 会话持久化在数据库中，服务重启或请求落到其他实例时仍可续传；过期会话由定时任务终止对应的分片上传。
+ */
+@Slf4j
+@Service
+public class MultipartPictureUpload {
+
+    /**
+     * 允许上传的文件后缀
+     */
+    private static final List<String> ALLOW_FORMAT_LIST = Arrays.asList("jpeg", "png", "jpg", "webp");
+
+    /**
+     * 最大分片数（与 COS 的限制一致）
+     */
+    private static final int MAX_PART_COUNT = 10000;
+
+    /**
+     * 每轮清理的过期会话数
+     */
+    private static final int CLEAN_BATCH_SIZE = 100;
+
+    @Resource
+    private PictureStorage pictureStorage;
+
+    @Resource
+    private PictureUploadConfig pictureUploadConfig;
+
+    @Resource
+    private PictureUploadSessionMapper pictureUploadSessionMapper;
+
+    /**
+     * 初始化分片上传
+     *
+     * @param originalFilename 原始文件名
+     * @param fileSize         文件总大小
+     * @param pictureId        图片 id（重新上传时不为空）
+     * @param userId           用户 id
+     * @return 上传会话
+     */
+    public MultipartUploadSession initUpload(String originalFilename, long fileSize, Long pictureId, Long userId) {
+        ThrowUtils.throwif(StrUtil.isBlank(originalFilename), ErrorCode.PARAMS_ERROR, "文件名不能为空");
+        String fileSuffix = FileUtil.getSuffix(originalFilename);
+        ThrowUtils.throwif(!ALLOW_FORMAT_LIST.contains(StrUtil.nullToEmpty(fileSuffix).toLowerCase()),
+                ErrorCode.PARAMS_ERROR, "文件类型错误");
+        long maxFileSize = pictureUploadConfig.getMultipartMaxFileSize();
+        ThrowUtils.throwif(fileSize <= 0, ErrorCode.PARAMS_ERROR, "文件内容为空");
+        ThrowUtils.throwif(fileSize > maxFileSize, ErrorCode.PARAMS_ERROR,
+                String.format("文件大小不能超过 %dMB", maxFileSize / 1024 / 1024));
+        long partSize = pictureUploadConfig.getMultipartPartSize();
+        int partCount = (int) ((fileSize + partSize - 1) / partSize);
+        ThrowUtils.throwif(partCount > MAX_PART_COUNT, ErrorCode.PARAMS_ERROR, "分片数量过多");
+
+        QueryWrapper<PictureUploadSession> countWrapper = new QueryWrapper<>();
+        countWrapper.eq("userId", userId).gt("expireTime", new Date());
+        ThrowUtils.throwif(pictureUploadSessionMapper.selectCount(countWrapper)
+                        >= pictureUploadConfig.getMultipartMaxSessionsPerUser(),
+                ErrorCode.OPERATION_ERROR, "进行中的分片上传过多，请先完成或终止已有上传");
+
+        String key = PictureUploadTemplate.generateUploadPath(String.format("public/%s", userId), fileSuffix);
+        String uploadId = pictureStorage.initiateMultipartUpload(key);
+
+        MultipartUploadSession session = new MultipartUploadSession();
+        session.setUploadId(uploadId);
+        session.setKey(key);
+        session.setOriginalFilename(originalFilename);
+        session.setFileSize(fileSize);
+        session.setPartSize(partSize);
+        session.setPartCount(partCount);
+        session.setUserId(userId);
+        session.setPictureId(pictureId);
+        session.setExpireTime(DateUtil.offsetHour(new Date(), pictureUploadConfig.getMultipartExpireHours()));
+        try {
+            pictureUploadSessionMapper.insert(toEntity(session));
+        } catch (Exception e) {
+            abortQuietly(key, uploadId);
+            throw e;
+        }
+        log.info("初始化分片上传: {} (大小: {}KB, 分片数: {})", key, fileSize / 1024, partCount);
+        return session;
+    }
+
+    /**
+     * 获取上传会话，并校验归属
+     *
+     * @param uploadId 分片上传 ID
+     * @param userId   当前用户 id
+     */
+    public MultipartUploadSession getSession(String uploadId, Long userId) {
+        ThrowUtils.throwif(StrUtil.isBlank(uploadId), ErrorCode.PARAMS_ERROR, "uploadId 不能为空");
+        QueryWrapper<PictureUploadSession> queryWrapper = new QueryWrapper<>();
+        queryWrapper.eq("uploadId", uploadId);
+        PictureUploadSession sessionEntity = pictureUploadSessionMapper.selectOne(queryWrapper);
+        if (sessionEntity == null || sessionEntity.getExpireTime().before(new Date())) {
+            throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "上传会话不存在或已过期");
+        }
+        MultipartUploadSession session = toSession(sessionEntity);
+        ThrowUtils.throwif(!session.getUserId().equals(userId), ErrorCode.NO_AUTH_ERROR);
+        return session;
+    }
+
+    /**
+     * 上传单个分片
+     * 同一分片重复上传会覆盖之前的内容，客户端可据此重试失败的分片
+     *
+     * @param session       上传会话
+     * @param partNumber    分片编号（从 1 开始）
+     * @param multipartFile 分片内容
+     */
+    public void uploadPart(MultipartUploadSession session, int partNumber, MultipartFile multipartFile) {
+        ThrowUtils.throwif(multipartFile == null, ErrorCode.PARAMS_ERROR, "分片不能为空");
+        ThrowUtils.throwif(partNumber < 1 || partNumber > session.getPartCount(),
+                ErrorCode.PARAMS_ERROR, "分片编号错误");
+        long expectedSize = session.getExpectedPartSize(partNumber);
+        ThrowUtils.throwif(multipartFile.getSize() != expectedSize, ErrorCode.PARAMS_ERROR,
+                String.format("分片大小错误，期望 %d 字节", expectedSize));
+        try (InputStream inputStream = multipartFile.getInputStream()) {
+            pictureStorage.uploadPart(session.getKey(), session.getUploadId(), partNumber, inputStream, expectedSize);
+        } catch (Exception e) {
+            log.error("分片上传失败, key = {}, partNumber = {}", session.getKey(), partNumber, e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "分片上传失败");
+        }
+    }
+
+    /**
+     * 查询已上传的分片编号，用于断点续传
+     */
+    public List<Integer> listUploadedPartNumbers(MultipartUploadSession session) {
+        return pictureStorage.listParts(session.getKey(), session.getUploadId()).stream()
+                .map(StoragePart::getPartNumber)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 完成分片上传，合并分片并返回图片信息
+     * 分片以存储的记录为准，重复提交时只要分片完整即可完成
+     * 会话在图片入库后由调用方通过 {@link #finishSession(MultipartUploadSession)} 结束
+     */
+    public UploadPictureResult completeUpload(MultipartUploadSession session) {
+        List<StoragePart> partList = pictureStorage.listParts(session.getKey(), session.getUploadId());
+        long uploadedSize = partList.stream().mapToLong(StoragePart::getSize).sum();
+        ThrowUtils.throwif(partList.size() != session.getPartCount() || uploadedSize != session.getFileSize(),
+                ErrorCode.PARAMS_ERROR, "分片未全部上传");
+        PictureStorageResult storageResult;
+        try {
+            storageResult = pictureStorage.completeMultipartUpload(session.getKey(), session.getUploadId(), partList);
+        } catch (Exception e) {
+            log.error("合并分片失败, key = {}", session.getKey(), e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "合并分片失败");
+        }
+        log.info("分片上传完成: {}", session.getKey());
+        return buildResult(session, storageResult);
+    }
+
+    /**
+     * 结束已合并的上传会话
+     */
+    public void finishSession(MultipartUploadSession session) {
+        deleteSession(session.getUploadId());
+    }
+
+    /**
+     * 终止分片上传
+     */
+    public void abortUpload(MultipartUploadSession session) {
+        abortQuietly(session.getKey(), session.getUploadId());
+        deleteSession(session.getUploadId());
+    }
+
+    private UploadPictureResult buildResult(MultipartUploadSession session, PictureStorageResult storageResult) {
+        UploadPictureResult result = new UploadPictureResult();
+        result.setUrl(pictureStorage.getUrl(session.getKey()));
+        result.setPicName(FileUtil.mainName(session.getOriginalFilename()));
+        result.setPicSize(session.getFileSize());
+        result.setPicFormat(FileUtil.getSuffix(session.getOriginalFilename()));
+        int width = 0;
+        int height = 0;
+        if (storageResult.hasImageInfo()) {
+            // 优先使用存储后端解析的图片信息
+            width = storageResult.getPicWidth();
+            height = storageResult.getPicHeight();
+            if (StrUtil.isNotBlank(storageResult.getPicFormat())) {
+                result.setPicFormat(storageResult.getPicFormat());
+            }
+        } else {
+            ImageMetadataProbe.ImageMetadata metadata = probeStoredPicture(session.getKey());
+            if (metadata != null) {
+                width = metadata.getWidth();
+                height = metadata.getHeight();
+                result.setPicFormat(metadata.getFormat());
+            }
+        }
+        result.setPicWidth(width);
+        result.setPicHeight(height);
+        result.setPicScale(height > 0 ? NumberUtil.round(width * 1.0 / height, 2).doubleValue() : 0);
+        try {
+            // 合并后再生成衍生尺寸，不支持衍生尺寸的存储返回 null
+            PictureStorageResult processResult = pictureStorage.processPicture(session.getKey());
+            if (processResult != null) {
+                result.setThumbnailUrl(processResult.getThumbnailUrl());
+                result.setPreviewUrl(processResult.getPreviewUrl());
+            }
+        } catch (Exception e) {
+            log.warn("生成衍生尺寸失败，将由回填任务重试, key = {}", session.getKey(), e);
+        }
+        return result;
+    }
+
+    /**
+     * 读取合并后对象的文件头，探测图片尺寸和格式
+     *
+     * @return 图片元数据，无法识别或读取失败时返回 null
+     */
+    private ImageMetadataProbe.ImageMetadata probeStoredPicture(String key) {
+        try (StorageObject storageObject = pictureStorage.getObject(key, 0, ImageMetadataProbe.HEADER_SIZE - 1)) {
+            return storageObject == null ? null : ImageMetadataProbe.probe(storageObject.getInputStream());
+        } catch (Exception e) {
+            log.warn("获取图片信息失败，使用基础信息, key = {}", key, e);
+            return null;
+        }
+    }
+
+    /**
+     * 定时清理过期会话，并终止对应的分片上传
+     * 多个实例同时清理时，以删除会话记录成功的实例为准，只有它去终止分片上传
+     */
+    @Scheduled(initialDelay = 60 * 1000L, fixedDelay = 10 * 60 * 1000L)
+    public void cleanExpiredSessions() {
+        while (true) {
+            QueryWrapper<PictureUploadSession> queryWrapper = new QueryWrapper<>();
+            queryWrapper.lt("expireTime", new Date())
+                    .orderByAsc("expireTime")
+                    .last("limit " + CLEAN_BATCH_SIZE);
+            List<PictureUploadSession> expiredList = pictureUploadSessionMapper.selectList(queryWrapper);
+            for (PictureUploadSession expired : expiredList) {
+                if (pictureUploadSessionMapper.deleteById(expired.getId()) > 0) {
+                    abortQuietly(expired.getObjectKey(), expired.getUploadId());
+                    log.info("分片上传会话已过期并终止: {}", expired.getObjectKey());
+                }
+            }
+            if (expiredList.size() < CLEAN_BATCH_SIZE) {
+                return;
+            }
+        }
+    }
+
+    private void abortQuietly(String key, String uploadId) {
+        try {
+            pictureStorage.abortMultipartUpload(key, uploadId);
+        } catch (Exception e) {
+            log.warn("终止分片上传失败, key = {}", key, e);
+        }
+    }
+
+    private void deleteSession(String uploadId) {
+        QueryWrapper<PictureUploadSession> queryWrapper = new QueryWrapper<>();
+        queryWrapper.eq("uploadId", uploadId);
+        pictureUploadSessionMapper.delete(queryWrapper);
+    }
+
+    private static PictureUploadSession toEntity(MultipartUploadSession session) {
+        PictureUploadSession sessionEntity = new PictureUploadSession();
+        sessionEntity.setUploadId(session.getUploadId());
+        sessionEntity.setObjectKey(session.getKey());
+        sessionEntity.setOriginalFilename(session.getOriginalFilename());
+        sessionEntity.setFileSize(session.getFileSize());
+        sessionEntity.setPartSize(session.getPartSize());
+        sessionEntity.setPartCount(session.getPartCount());
+        sessionEntity.setUserId(session.getUserId());
+        sessionEntity.setPictureId(session.getPictureId());
+        sessionEntity.setExpireTime(session.getExpireTime());
+        return sessionEntity;
+    }
+
+    private static MultipartUploadSession toSession(PictureUploadSession sessionEntity) {
+        MultipartUploadSession session = new MultipartUploadSession();
+        session.setUploadId(sessionEntity.getUploadId());
+        session.setKey(sessionEntity.getObjectKey());
+        session.setOriginalFilename(sessionEntity.getOriginalFilename());
+        session.setFileSize(sessionEntity.getFileSize());
+        session.setPartSize(sessionEntity.getPartSize());
+        session.setPartCount(sessionEntity.getPartCount());
+        session.setUserId(sessionEntity.getUserId());
+        session.setPictureId(sessionEntity.getPictureId());
+        session.setExpireTime(sessionEntity.getExpireTime());
+        return session;
+    }
+}
@@ -0,0 +1,71 @@
+package com.yupi.yupicturebackend.manager.upload;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 分片上传会话
+ * 记录一次分片上传的元信息，分片本身的上传状态以存储的记录为准
+ */
+@Data
+public class MultipartUploadSession implements Serializable {
+
+    /**
+     * 存储的分片上传 ID
+     */
+    private String uploadId;
+
+    /**
+     * 对象键
+     */
+    private String key;
+
+    /**
+     * 原始文件名
+     */
+    private String originalFilename;
+
+    /**
+     * 文件总大小
+     */
+    private long fileSize;
+
+    /**
+     * 分片大小
+     */
+    private long partSize;
+
+    /**
+     * 分片总数
+     */
+    private int partCount;
+
+    /**
+     * 发起上传的用户 id
+     */
+    private Long userId;
+
+    /**
+     * 图片 id（重新上传时不为空）
+     */
+    private Long pictureId;
+
+    /**
+     * 过期时间
+     */
+    private Date expireTime;
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 指定分片的期望大小，最后一片为剩余部分
+     */
+    public long getExpectedPartSize(int partNumber) {
+        if (partNumber < partCount) {
+            return partSize;
+        }
+        return fileSize - partSize * (partCount - 1);
+    }
+}
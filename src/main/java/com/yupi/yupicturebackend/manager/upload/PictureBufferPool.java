@@ -0,0 +1,85 @@
+package com.yupi.yupicturebackend.manager.upload;
+
+import com.yupi.yupicturebackend.config.PictureUploadConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 图片上传缓冲池
+ * 复用固定大小的堆外缓冲区承载小文件上传内容，按需分配，数量有上限；
+ * 缓冲区全部占用时不等待，由调用方回退到临时文件
+ */
+@Component
+public class PictureBufferPool {
+
+    @Resource
+    private PictureUploadConfig pictureUploadConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 空闲的缓冲区
+     */
+    private BlockingQueue<ByteBuffer> idleBuffers;
+
+    /**
+     * 已分配的缓冲区数量
+     */
+    private final AtomicInteger allocatedCount = new AtomicInteger();
+
+    private Counter exhaustedCounter;
+
+    @PostConstruct
+    public void init() {
+        idleBuffers = new ArrayBlockingQueue<>(Math.max(pictureUploadConfig.getBufferPoolSize(), 1));
+        exhaustedCounter = meterRegistry.counter("picture.upload.buffer.exhausted");
+        meterRegistry.gauge("picture.upload.buffer.allocated", allocatedCount);
+        meterRegistry.gauge("picture.upload.buffer.in.use", this, pool -> pool.allocatedCount.get() - pool.idleBuffers.size());
+    }
+
+    /**
+     * 借出一个缓冲区，使用后必须调用 {@link #release(ByteBuffer)} 归还
+     *
+     * @return 已清空的缓冲区；未开启或缓冲区全部占用时返回 null
+     */
+    public ByteBuffer acquire() {
+        if (!pictureUploadConfig.isBufferPoolEnabled()) {
+            return null;
+        }
+        ByteBuffer buffer = idleBuffers.poll();
+        if (buffer != null) {
+            return buffer;
+        }
+        int count;
+        while ((count = allocatedCount.get()) < pictureUploadConfig.getBufferPoolSize()) {
+            if (allocatedCount.compareAndSet(count, count + 1)) {
+                return ByteBuffer.allocateDirect(pictureUploadConfig.getBufferSize());
+            }
+        }
+        exhaustedCounter.increment();
+        return null;
+    }
+
+    /**
+     * 归还缓冲区
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        buffer.clear();
+        if (!idleBuffers.offer(buffer)) {
+            // 不会发生：已分配数量不超过队列容量
+            allocatedCount.decrementAndGet();
+        }
+    }
+}
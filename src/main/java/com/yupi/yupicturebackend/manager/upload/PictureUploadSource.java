@@ -0,0 +1,82 @@
+package com.yupi.yupicturebackend.manager.upload;
+
+import cn.hutool.core.io.IoUtil;
+import com.yupi.yupicturebackend.model.dto.file.UploadPictureResult;
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 图片上传数据源
+ * 封装流式上传所需的输入流和内容长度，关闭时一并释放底层资源（如 HTTP 连接）
+ */
+@Getter
+public class PictureUploadSource implements Closeable {
+
+    /**
+     * 输入流
+     */
+    private final InputStream inputStream;
+
+    /**
+     * 内容长度，未知时为 -1
+     */
+    private final long contentLength;
+
+    /**
+     * 需要随数据源一起关闭的底层资源，可为空
+     */
+    private final Closeable resource;
+
+    /**
+     * 可直接复用的已存储图片信息（如源站内容未变化），不为空时无需读取输入流
+     */
+    private final UploadPictureResult reusedResult;
+
+    public PictureUploadSource(InputStream inputStream, long contentLength) {
+        this(inputStream, contentLength, null);
+    }
+
+    public PictureUploadSource(InputStream inputStream, long contentLength, Closeable resource) {
+        this.inputStream = inputStream;
+        this.contentLength = contentLength;
+        this.resource = resource;
+        this.reusedResult = null;
+    }
+
+    private PictureUploadSource(UploadPictureResult reusedResult) {
+        this.inputStream = null;
+        this.contentLength = -1;
+        this.resource = null;
+        this.reusedResult = reusedResult;
+    }
+
+    /**
+     * 复用已存储对象的数据源
+     */
+    public static PictureUploadSource reused(UploadPictureResult reusedResult) {
+        return new PictureUploadSource(reusedResult);
+    }
+
+    /**
+     * 先释放底层资源，再关闭输入流
+     * HTTP 分块响应体的输入流关闭时会读完剩余内容，若先关闭输入流，超限或无限长的响应体会被完整下载；
+     * 先关闭 HTTP 响应会直接断开连接，之后关闭输入流不再读取
+     */
+    @Override
+    public void close() throws IOException {
+        if (resource == null) {
+            if (inputStream != null) {
+                inputStream.close();
+            }
+            return;
+        }
+        try {
+            resource.close();
+        } finally {
+            IoUtil.close(inputStream);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.yupi.yupicturebackend.manager.upload;
+
+import com.yupi.yupicturebackend.model.enums.PictureUploadTaskStatusEnum;
+import com.yupi.yupicturebackend.model.vo.PictureVO;
+import lombok.Getter;
+
+import java.util.Date;
+
+/**
+ * 异步上传任务
+ * 由工作线程更新状态，请求线程轮询读取
+ */
+@Getter
+public class PictureUploadTask {
+
+    /**
+     * 任务 id
+     */
+    private final String taskId;
+
+    /**
+     * 提交任务的用户 id
+     */
+    private final Long userId;
+
+    /**
+     * 创建时间
+     */
+    private final Date createTime = new Date();
+
+    private volatile PictureUploadTaskStatusEnum status = PictureUploadTaskStatusEnum.WAITING;
+
+    private volatile int progress;
+
+    private volatile String message = "排队中";
+
+    private volatile PictureVO pictureVO;
+
+    private volatile Date finishTime;
+
+    public PictureUploadTask(String taskId, Long userId) {
+        this.taskId = taskId;
+        this.userId = userId;
+    }
+
+    /**
+     * 更新进度
+     *
+     * @param progress 进度（0-100）
+     * @param message  当前阶段
+     */
+    public void updateProgress(int progress, String message) {
+        this.status = PictureUploadTaskStatusEnum.RUNNING;
+        this.progress = progress;
+        this.message = message;
+    }
+
+    void succeed(PictureVO pictureVO) {
+        this.pictureVO = pictureVO;
+        this.progress = 100;
+        this.message = "上传成功";
+        this.finishTime = new Date();
+        this.status = PictureUploadTaskStatusEnum.SUCCEED;
+    }
+
+    void fail(String message) {
+        this.message = message;
+        this.finishTime = new Date();
+        this.status = PictureUploadTaskStatusEnum.FAILED;
+    }
+}
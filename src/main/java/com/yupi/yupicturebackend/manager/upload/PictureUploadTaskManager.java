@@ -0,0 +1,173 @@
+package com.yupi.yupicturebackend.manager.upload;
+
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.IdUtil;
+import com.yupi.yupicturebackend.config.PictureUploadConfig;
+import com.yupi.yupicturebackend.exception.BusinessException;
+import com.yupi.yupicturebackend.exception.ErrorCode;
+import com.yupi.yupicturebackend.model.vo.PictureVO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 异步上传任务管理
+ * 上传、图片信息提取和入库在有界线程池中执行，请求线程只负责接收数据并立即返回任务 id
+ */
+@Slf4j
+@Component
+public class PictureUploadTaskManager {
+
+    @Resource
+    private PictureUploadConfig pictureUploadConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 任务表，taskId => 任务
+     */
+    private final Map<String, PictureUploadTask> taskMap = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor uploadExecutor;
+
+    /**
+     * 批量上传线程池，线程数即批量上传的并行度
+     */
+    private ThreadPoolExecutor batchExecutor;
+
+    private Counter rejectedCounter;
+
+    private Counter failedCounter;
+
+    private Timer taskTimer;
+
+    @PostConstruct
+    public void init() {
+        uploadExecutor = new ThreadPoolExecutor(
+                pictureUploadConfig.getAsyncCorePoolSize(),
+                pictureUploadConfig.getAsyncMaxPoolSize(),
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(pictureUploadConfig.getAsyncQueueCapacity()),
+                ThreadFactoryBuilder.create().setNamePrefix("picture-upload-").build(),
+                new ThreadPoolExecutor.AbortPolicy());
+        // 线程池指标：活跃线程数、队列长度、完成任务数等
+        new ExecutorServiceMetrics(uploadExecutor, "picture.upload.async", Collections.emptyList())
+                .bindTo(meterRegistry);
+        rejectedCounter = meterRegistry.counter("picture.upload.async.rejected");
+        failedCounter = meterRegistry.counter("picture.upload.async.failed");
+        taskTimer = meterRegistry.timer("picture.upload.async.duration");
+        meterRegistry.gaugeMapSize("picture.upload.async.tasks", Collections.emptyList(), taskMap);
+
+        int batchParallelism = pictureUploadConfig.getBatchParallelism();
+        batchExecutor = new ThreadPoolExecutor(batchParallelism, batchParallelism,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                ThreadFactoryBuilder.create().setNamePrefix("picture-batch-upload-").build());
+        new ExecutorServiceMetrics(batchExecutor, "picture.upload.batch", Collections.emptyList())
+                .bindTo(meterRegistry);
+    }
+
+    /**
+     * 在批量上传线程池中执行单个文件的上传
+     * 同时执行的数量不超过配置的并行度，其余排队等待
+     *
+     * @param supplier 上传逻辑
+     */
+    public <T> CompletableFuture<T> submitBatchItem(Supplier<T> supplier) {
+        return CompletableFuture.supplyAsync(supplier, batchExecutor);
+    }
+
+    /**
+     * 提交上传任务
+     *
+     * @param userId 提交任务的用户 id
+     * @param action 任务逻辑，可通过任务对象汇报进度
+     * @return 任务 id
+     */
+    public String submit(Long userId, Function<PictureUploadTask, PictureVO> action) {
+        PictureUploadTask task = new PictureUploadTask(IdUtil.fastSimpleUUID(), userId);
+        taskMap.put(task.getTaskId(), task);
+        try {
+            uploadExecutor.execute(() -> run(task, action));
+        } catch (RejectedExecutionException e) {
+            taskMap.remove(task.getTaskId());
+            rejectedCounter.increment();
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "上传任务繁忙，请稍后再试");
+        }
+        return task.getTaskId();
+    }
+
+    /**
+     * 获取任务，仅提交者本人可查看
+     *
+     * @param taskId 任务 id
+     * @param userId 当前用户 id
+     */
+    public PictureUploadTask getTask(String taskId, Long userId) {
+        PictureUploadTask task = taskMap.get(taskId);
+        if (task == null) {
+            throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "任务不存在或已过期");
+        }
+        if (!task.getUserId().equals(userId)) {
+            throw new BusinessException(ErrorCode.NO_AUTH_ERROR);
+        }
+        return task;
+    }
+
+    private void run(PictureUploadTask task, Function<PictureUploadTask, PictureVO> action) {
+        long start = System.nanoTime();
+        try {
+            task.updateProgress(5, "开始上传");
+            task.succeed(action.apply(task));
+        } catch (BusinessException e) {
+            failedCounter.increment();
+            task.fail(e.getMessage());
+        } catch (Exception e) {
+            failedCounter.increment();
+            log.error("异步上传任务执行失败, taskId = {}", task.getTaskId(), e);
+            task.fail("上传服务暂时不可用");
+        } finally {
+            taskTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 定期清理已结束且超过保留时间的任务
+     */
+    @Scheduled(fixedDelay = 60 * 1000)
+    public void cleanExpiredTasks() {
+        Date expireBefore = DateUtil.offsetMinute(new Date(), -pictureUploadConfig.getAsyncTaskExpireMinutes());
+        taskMap.values().removeIf(task -> task.getStatus().isFinished()
+                && task.getFinishTime().before(expireBefore));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        batchExecutor.shutdownNow();
+        uploadExecutor.shutdown();
+        try {
+            if (!uploadExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+                uploadExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            uploadExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
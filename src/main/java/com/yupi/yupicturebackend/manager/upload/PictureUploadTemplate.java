@@ -1,28 +1,40 @@
 package com.yupi.yupicturebackend.manager.upload;
 
-import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.exceptions.ExceptionUtil;
 import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
 import cn.hutool.core.util.NumberUtil;
 import cn.hutool.core.util.RandomUtil;
+import cn.hutool.core.util.HexUtil;
 import cn.hutool.core.util.StrUtil;
-import com.qcloud.cos.model.PutObjectResult;
-import com.qcloud.cos.model.ciModel.persistence.CIObject;
-import com.qcloud.cos.model.ciModel.persistence.ImageInfo;
-import com.qcloud.cos.model.ciModel.persistence.ProcessResults;
-import com.yupi.yupicturebackend.config.CosClientConfig;
+import com.yupi.yupicturebackend.config.PictureUploadConfig;
 import com.yupi.yupicturebackend.exception.BusinessException;
 import com.yupi.yupicturebackend.exception.ErrorCode;
-import com.yupi.yupicturebackend.manager.CosManager;
+import com.yupi.yupicturebackend.manager.PictureDedupManager;
+import com.yupi.yupicturebackend.manager.color.PictureColorManager;
+import com.yupi.yupicturebackend.manager.similar.PictureSimilarManager;
+import com.yupi.yupicturebackend.manager.storage.ByteBufferInputStream;
+import com.yupi.yupicturebackend.manager.storage.PictureStorage;
+import com.yupi.yupicturebackend.manager.storage.PictureStorageResult;
 import com.yupi.yupicturebackend.model.dto.file.UploadPictureResult;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.Date;
-import java.util.List;
 
 /**
  * 完整的图片上传模板实现
@@ -32,72 +44,237 @@ import java.util.List;
 @Service
 public abstract class PictureUploadTemplate {
 
+    /**
+     * 单个文件大小上限 (2MB)
+     */
+    public static final long MAX_FILE_SIZE = 2 * 1024 * 1024L;
+
+    @Resource
+    private PictureStorage pictureStorage;
+
+    @Resource
+    private PictureUploadConfig pictureUploadConfig;
+
     @Resource
-    private CosClientConfig cosClientConfig;
+    private PictureDedupManager pictureDedupManager;
 
     @Resource
-    private CosManager cosManager;
+    private PictureBufferPool pictureBufferPool;
+
+    @Resource
+    private PictureSimilarManager pictureSimilarManager;
+
+    @Resource
+    private PictureColorManager pictureColorManager;
 
     @PostConstruct
     public void init() {
-        log.info("COS配置初始化完成，Bucket: {}, Host: {}",
-                cosClientConfig.getBucket(), cosClientConfig.getHost());
+        log.info("图片存储初始化完成: {}", pictureStorage.getClass().getSimpleName());
     }
 
     public UploadPictureResult uploadPicture(Object inputSource, String uploadPathPrefix) {
         // 1. 前置检查
         checkPrerequisites(inputSource, uploadPathPrefix);
+        validPicture(inputSource);
 
         // 2. 准备上传参数
         String originalFilename = getOriginFilename(inputSource);
         String fileSuffix = FileUtil.getSuffix(originalFilename);
         String uploadPath = generateUploadPath(uploadPathPrefix, fileSuffix);
 
-        File tempFile = null;
-        try {
-            // 3. 创建并验证临时文件
-            tempFile = createAndProcessTempFile(inputSource, fileSuffix);
+        UploadContent content = new UploadContent();
+        try (PictureUploadSource uploadSource = openUploadSource(inputSource)) {
+            UploadPictureResult reusedResult = uploadSource.getReusedResult();
+            if (reusedResult != null) {
+                reusedResult.setPicName(FileUtil.mainName(originalFilename));
+                return reusedResult;
+            }
+            long contentLength = uploadSource.getContentLength();
+            if (contentLength > MAX_FILE_SIZE) {
+                throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件大小超过2MB限制");
+            }
 
-            // 4. 执行上传
-            log.info("正在上传文件到COS: {} (大小: {}KB)",
-                    uploadPath, FileUtil.size(tempFile) / 1024);
-            PutObjectResult putObjectResult = cosManager.putPictureObject(uploadPath, tempFile);
+            // 3. 读取内容，同时计算摘要；数据源只读取一次
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            InputStream inputStream = new DigestInputStream(
+                    new SizeLimitInputStream(uploadSource.getInputStream(), MAX_FILE_SIZE), messageDigest);
+            readContent(inputStream, contentLength, fileSuffix, content);
+            long picSize = content.size();
+            if (picSize == 0) {
+                throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件内容为空");
+            }
+            if (contentLength >= 0 && picSize != contentLength) {
+                throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件内容不完整");
+            }
+
+            // 4. 内容去重，命中则复用已有的存储对象
+            String contentHash = HexUtil.encodeHexStr(messageDigest.digest());
+            UploadPictureResult duplicateResult = findDuplicate(contentHash, originalFilename);
+            if (duplicateResult != null) {
+                afterUpload(inputSource, uploadSource, duplicateResult);
+                return duplicateResult;
+            }
 
-            // 5. 处理结果
-            return processUploadResult(putObjectResult, originalFilename, uploadPath, tempFile);
+            // 5. 执行上传
+            log.info("正在上传文件到存储: {} (大小: {}KB, {})", uploadPath, picSize / 1024,
+                    content.buffer != null ? "内存缓冲" : "临时文件");
+            PictureStorageResult storageResult = content.buffer != null
+                    ? pictureStorage.putPicture(uploadPath, content.buffer)
+                    : pictureStorage.putPicture(uploadPath, content.tempFile);
+
+            // 6. 处理结果
+            ImageMetadataProbe.ImageMetadata metadata = content.buffer != null
+                    ? ImageMetadataProbe.probe(content.buffer)
+                    : ImageMetadataProbe.probe(content.tempFile);
+            UploadPictureResult uploadPictureResult = processUploadResult(storageResult, originalFilename,
+                    uploadPath, picSize, metadata);
+            uploadPictureResult.setContentHash(contentHash);
+            fillFeatures(content, uploadPath, uploadPictureResult);
+            afterUpload(inputSource, uploadSource, uploadPictureResult);
+            return uploadPictureResult;
         } catch (BusinessException e) {
             throw e;
         } catch (Exception e) {
+            // 大小超限等业务异常可能被 SDK 包装，需要还原
+            Throwable cause = ExceptionUtil.getCausedBy(e, BusinessException.class);
+            if (cause != null) {
+                throw (BusinessException) cause;
+            }
             log.error("文件上传过程中出现系统异常", e);
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "上传服务暂时不可用");
         } finally {
-            cleanTempFile(tempFile);
+            pictureBufferPool.release(content.buffer);
+            cleanTempFile(content.tempFile);
         }
     }
 
+    /**
+     * 根据本地内容计算感知哈希和颜色特征，只解码一次，不从存储读回
+     * 计算失败时留空，由定时回填补算
+     */
+    private void fillFeatures(UploadContent content, String uploadPath, UploadPictureResult uploadPictureResult) {
+        try {
+            BufferedImage image = content.decode();
+            if (image == null) {
+                return;
+            }
+            uploadPictureResult.setPhash(pictureSimilarManager.computeHash(image));
+            PictureColorManager.ColorFeature colorFeature = pictureColorManager.computeColor(image);
+            if (colorFeature != null) {
+                uploadPictureResult.setDominantColor(colorFeature.getDominantColor());
+                uploadPictureResult.setColorHistogram(colorFeature.getColorHistogram());
+            }
+        } catch (Exception e) {
+            log.warn("计算图片特征失败, key = {}", uploadPath, e);
+        }
+    }
+
+    /**
+     * 读取上传内容
+     * 优先读入池化的堆外缓冲区；声明的长度超过缓冲区或缓冲池耗尽时写入临时文件，
+     * 长度未知且内容超出缓冲区时，已读入的部分连同剩余内容转存到临时文件
+     */
+    private void readContent(InputStream inputStream, long contentLength, String fileSuffix, UploadContent content)
+            throws IOException {
+        if (contentLength <= pictureUploadConfig.getBufferSize()) {
+            content.buffer = pictureBufferPool.acquire();
+        }
+        if (content.buffer != null) {
+            int next = readFully(inputStream, content.buffer);
+            content.buffer.flip();
+            if (next < 0) {
+                return;
+            }
+            // 超出缓冲区，转存到临时文件
+            content.tempFile = createTempFile(fileSuffix);
+            try (FileOutputStream outputStream = new FileOutputStream(content.tempFile)) {
+                outputStream.getChannel().write(content.buffer);
+                outputStream.write(next);
+                IoUtil.copy(inputStream, outputStream);
+            }
+            pictureBufferPool.release(content.buffer);
+            content.buffer = null;
+            return;
+        }
+        content.tempFile = createTempFile(fileSuffix);
+        FileUtil.writeFromStream(inputStream, content.tempFile, false);
+    }
+
+    /**
+     * 把输入流读满缓冲区
+     *
+     * @return 缓冲区写满后读到的下一个字节；内容已读完时返回 -1
+     */
+    private static int readFully(InputStream inputStream, ByteBuffer buffer) throws IOException {
+        ReadableByteChannel channel = Channels.newChannel(inputStream);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                return -1;
+            }
+        }
+        return inputStream.read();
+    }
+
+    private static File createTempFile(String fileSuffix) throws IOException {
+        File tempFile = File.createTempFile("upload_", "." + fileSuffix);
+        log.debug("创建临时文件: {}", tempFile.getAbsolutePath());
+        return tempFile;
+    }
+
+    /**
+     * 读取到本地的上传内容，二者只有一个不为空
+     */
+    private static class UploadContent {
+
+        /**
+         * 池化的堆外缓冲区，position 到 limit 之间为内容
+         */
+        private ByteBuffer buffer;
+
+        /**
+         * 临时文件
+         */
+        private File tempFile;
+
+        private long size() {
+            return buffer != null ? buffer.remaining() : tempFile.length();
+        }
+
+        private BufferedImage decode() throws IOException {
+            return buffer != null ? ImageIO.read(new ByteBufferInputStream(buffer.duplicate())) : ImageIO.read(tempFile);
+        }
+    }
+
+    /**
+     * 查找内容相同的已存储图片，命中时复用其存储对象
+     */
+    private UploadPictureResult findDuplicate(String contentHash, String originalFilename) {
+        UploadPictureResult duplicateResult = pictureDedupManager.findByContentHash(contentHash);
+        if (duplicateResult != null) {
+            duplicateResult.setPicName(FileUtil.mainName(originalFilename));
+        }
+        return duplicateResult;
+    }
+
     private void checkPrerequisites(Object inputSource, String uploadPathPrefix) {
         // 检查输入源
         if (inputSource == null) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "上传内容不能为空");
         }
 
-        // 检查COS配置
-        if (cosManager == null || cosClientConfig == null) {
-            log.error("COS服务未正确注入");
+        // 检查存储配置
+        if (pictureStorage == null) {
+            log.error("存储服务未正确注入");
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "存储服务配置错误");
         }
 
-        if (StrUtil.isBlank(cosClientConfig.getBucket())) {
-            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "存储桶未配置");
-        }
-
         // 检查路径前缀
         if (StrUtil.isBlank(uploadPathPrefix)) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "上传路径前缀不能为空");
         }
     }
 
-    private String generateUploadPath(String prefix, String suffix) {
+    static String generateUploadPath(String prefix, String suffix) {
         // 标准化路径前缀
         String normalizedPrefix = prefix.replaceAll("^/|/$", "");
         String dateStr = DateUtil.format(new Date(), "yyyyMMdd");
@@ -107,86 +284,52 @@ public abstract class PictureUploadTemplate {
                 normalizedPrefix, dateStr, randomStr, suffix);
     }
 
-    private File createAndProcessTempFile(Object inputSource, String suffix) {
-        File tempFile = null;
-        try {
-            // 创建临时文件
-            tempFile = File.createTempFile("upload_", "." + suffix);
-            log.debug("创建临时文件: {}", tempFile.getAbsolutePath());
-
-            // 处理文件内容
-            processFile(inputSource, tempFile);
-
-            // 验证文件
-            if (!tempFile.exists() || tempFile.length() == 0) {
-                throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件内容为空");
-            }
-
-            // 检查文件大小 (2MB限制)
-            if (tempFile.length() > 2 * 1024 * 1024) {
-                throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件大小超过2MB限制");
-            }
-
-            return tempFile;
-        } catch (BusinessException e) {
-            cleanTempFile(tempFile);
-            throw e;
-        } catch (Exception e) {
-            cleanTempFile(tempFile);
-            log.error("处理临时文件失败", e);
-            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "文件处理失败");
-        }
-    }
-
     private UploadPictureResult processUploadResult(
-            PutObjectResult putObjectResult,
+            PictureStorageResult storageResult,
             String originalFilename,
             String uploadPath,
-            File tempFile) {
+            long picSize,
+            ImageMetadataProbe.ImageMetadata metadata) {
+        UploadPictureResult result;
         try {
-            // 尝试获取高级图片信息
-            if (putObjectResult.getCiUploadResult() != null &&
-                    putObjectResult.getCiUploadResult().getProcessResults() != null) {
-                ProcessResults processResults = putObjectResult.getCiUploadResult().getProcessResults();
-                List<CIObject> objectList = processResults.getObjectList();
-
-                if (CollUtil.isNotEmpty(objectList)) {
-                    CIObject compressedObj = objectList.get(0);
-                    CIObject thumbnailObj = objectList.size() > 1 ? objectList.get(1) : compressedObj;
-                    return buildEnhancedResult(originalFilename, compressedObj, thumbnailObj,
-                            putObjectResult.getCiUploadResult().getOriginalInfo().getImageInfo());
-                }
+            // 优先使用存储后端解析的图片信息
+            if (storageResult.hasImageInfo()) {
+                result = buildEnhancedResult(originalFilename, uploadPath, picSize, storageResult);
+            } else {
+                // 降级处理：使用基础信息
+                result = buildBasicResult(originalFilename, uploadPath, picSize, metadata);
             }
-
-            // 降级处理：使用基础信息
-            return buildBasicResult(originalFilename, uploadPath, tempFile);
         } catch (Exception e) {
             log.warn("获取高级图片信息失败，使用基础信息", e);
-            return buildBasicResult(originalFilename, uploadPath, tempFile);
+            result = buildBasicResult(originalFilename, uploadPath, picSize, metadata);
         }
+        // 衍生尺寸，处理失败时为空，展示时回退到原图
+        result.setThumbnailUrl(storageResult.getThumbnailUrl());
+        result.setPreviewUrl(storageResult.getPreviewUrl());
+        return result;
     }
 
     private UploadPictureResult buildEnhancedResult(
             String originalFilename,
-            CIObject compressedObj,
-            CIObject thumbnailObj,
-            ImageInfo imageInfo) {
+            String uploadPath,
+            long picSize,
+            PictureStorageResult storageResult) {
         UploadPictureResult result = new UploadPictureResult();
 
         // 设置基础信息
-        result.setUrl(cosClientConfig.getHost() + "/" + compressedObj.getKey());
+        result.setUrl(pictureStorage.getUrl(uploadPath));
         result.setPicName(FileUtil.mainName(originalFilename));
-        result.setPicSize(compressedObj.getSize().longValue());
+        result.setPicSize(picSize);
 
         // 设置图片尺寸信息
-        int width = compressedObj.getWidth() != null ? compressedObj.getWidth() : 0;
-        int height = compressedObj.getHeight() != null ? compressedObj.getHeight() : 0;
+        int width = storageResult.getPicWidth();
+        int height = storageResult.getPicHeight();
         result.setPicWidth(width);
         result.setPicHeight(height);
         result.setPicScale(height > 0 ? NumberUtil.round(width * 1.0 / height, 2).doubleValue() : 0);
 
         // 设置格式
-        result.setPicFormat(compressedObj.getFormat());
+        result.setPicFormat(storageResult.getPicFormat());
 
         return result;
     }
@@ -194,16 +337,27 @@ public abstract class PictureUploadTemplate {
     private UploadPictureResult buildBasicResult(
             String originalFilename,
             String uploadPath,
-            File tempFile) {
+            long picSize,
+            ImageMetadataProbe.ImageMetadata metadata) {
         UploadPictureResult result = new UploadPictureResult();
 
-        result.setUrl(cosClientConfig.getHost() + "/" + uploadPath);
+        result.setUrl(pictureStorage.getUrl(uploadPath));
         result.setPicName(FileUtil.mainName(originalFilename));
-        result.setPicSize(FileUtil.size(tempFile));
-        result.setPicWidth(0); // 未知尺寸
-        result.setPicHeight(0);
-        result.setPicScale((double) 0);
-        result.setPicFormat(FileUtil.getSuffix(originalFilename));
+        result.setPicSize(picSize);
+        if (metadata != null) {
+            // 使用本地探测的文件头信息
+            int width = metadata.getWidth();
+            int height = metadata.getHeight();
+            result.setPicWidth(width);
+            result.setPicHeight(height);
+            result.setPicScale(NumberUtil.round(width * 1.0 / height, 2).doubleValue());
+            result.setPicFormat(metadata.getFormat());
+        } else {
+            result.setPicWidth(0); // 未知尺寸
+            result.setPicHeight(0);
+            result.setPicScale((double) 0);
+            result.setPicFormat(FileUtil.getSuffix(originalFilename));
+        }
 
         return result;
     }
@@ -223,5 +377,18 @@ public abstract class PictureUploadTemplate {
     // 抽象方法 - 需要子类实现
     protected abstract void validPicture(Object inputSource);
     protected abstract String getOriginFilename(Object inputSource);
-    protected abstract void processFile(Object inputSource, File file) throws Exception;
+
+    /**
+     * 打开上传的数据源，每次上传只打开一次
+     */
+    protected abstract PictureUploadSource openUploadSource(Object inputSource) throws Exception;
+
+    /**
+     * 数据源内容已存储（包括去重命中）后的回调
+     *
+     * @param uploadSource 已读取完毕的数据源
+     * @param result       存储结果
+     */
+    protected void afterUpload(Object inputSource, PictureUploadSource uploadSource, UploadPictureResult result) {
+    }
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+package com.yupi.yupicturebackend.manager.upload;
+
+import com.yupi.yupicturebackend.exception.BusinessException;
+import com.yupi.yupicturebackend.exception.ErrorCode;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 限制读取字节数的输入流
+ * 读取量一旦超过上限立即中断，避免在长度未知时把超大文件完整读完
+ */
+public class SizeLimitInputStream extends FilterInputStream {
+
+    private final long maxSize;
+
+    private long readCount;
+
+    public SizeLimitInputStream(InputStream in, long maxSize) {
+        super(in);
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            count(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        count(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * 已读取的字节数
+     */
+    public long getReadCount() {
+        return readCount;
+    }
+
+    private void count(long n) {
+        readCount += n;
+        if (readCount > maxSize) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR,
+                    String.format("文件大小超过%dMB限制", maxSize / 1024 / 1024));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.yupi.yupicturebackend.manager.upload;
+
+import lombok.Getter;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * URL 抓取响应
+ * 响应体以流的形式提供，关闭时归还（或丢弃）连接
+ */
+@Getter
+public class UrlFetchResponse implements Closeable {
+
+    /**
+     * HTTP 状态码
+     */
+    private final int statusCode;
+
+    /**
+     * 内容类型
+     */
+    private final String contentType;
+
+    /**
+     * 内容长度，未知时为 -1
+     */
+    private final long contentLength;
+
+    /**
+     * 响应体（已限制最大读取字节数），无响应体时为 null
+     */
+    private final InputStream body;
+
+    private final CloseableHttpResponse httpResponse;
+
+    public UrlFetchResponse(int statusCode, String contentType, long contentLength, InputStream body,
+                            CloseableHttpResponse httpResponse) {
+        this.statusCode = statusCode;
+        this.contentType = contentType;
+        this.contentLength = contentLength;
+        this.body = body;
+        this.httpResponse = httpResponse;
+    }
+
+    /**
+     * 源站内容是否未变化（条件请求返回 304）
+     */
+    public boolean isNotModified() {
+        return statusCode == HttpStatus.SC_NOT_MODIFIED;
+    }
+
+    /**
+     * 读取响应头
+     */
+    public String getHeader(String name) {
+        return httpResponse.containsHeader(name) ? httpResponse.getFirstHeader(name).getValue() : null;
+    }
+
+    /**
+     * 转换为上传数据源，数据源关闭时一并释放连接
+     */
+    public PictureUploadSource toUploadSource() {
+        return new PictureUploadSource(body, contentLength, this);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // 未读完的响应体直接关闭，连接不会被复用，从而尽快中断超大文件的传输
+        httpResponse.close();
+    }
+}
@@ -0,0 +1,154 @@
+package com.yupi.yupicturebackend.manager.upload;
+
+import cn.hutool.core.util.StrUtil;
+import com.yupi.yupicturebackend.config.PictureUploadConfig;
+import com.yupi.yupicturebackend.exception.BusinessException;
+import com.yupi.yupicturebackend.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * URL 图片抓取器
+ * 基于共享连接池，一次 GET 请求同时完成校验和下载：
+ * 1. 从响应头校验 Content-Type 和 Content-Length
+ * 2. 下载过程中超过大小上限立即中断
+ * 3. 单个域名的连接数受限，慢源站只会占用自己的连接配额
+ */
+@Slf4j
+@Component
+public class UrlPictureFetcher {
+
+    /**
+     * 允许的图片类型
+     */
+    private static final List<String> ALLOW_CONTENT_TYPES = Arrays.asList("image/jpeg", "image/jpg", "image/png", "image/webp");
+
+    @Resource
+    private PictureUploadConfig pictureUploadConfig;
+
+    private PoolingHttpClientConnectionManager connectionManager;
+
+    private CloseableHttpClient httpClient;
+
+    @PostConstruct
+    public void init() {
+        connectionManager = new PoolingHttpClientConnectionManager(60, TimeUnit.SECONDS);
+        connectionManager.setMaxTotal(pictureUploadConfig.getFetchMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(pictureUploadConfig.getFetchMaxPerHost());
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(pictureUploadConfig.getFetchConnectTimeout())
+                .setSocketTimeout(pictureUploadConfig.getFetchReadTimeout())
+                .setConnectionRequestTimeout(pictureUploadConfig.getFetchPoolWaitTimeout())
+                .build();
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(30, TimeUnit.SECONDS)
+                .disableAutomaticRetries()
+                .build();
+    }
+
+    /**
+     * 抓取图片
+     *
+     * @param fileUrl 图片地址
+     * @param maxSize 最大字节数
+     * @return 抓取响应，调用方负责关闭
+     */
+    public UrlFetchResponse fetch(String fileUrl, long maxSize) {
+        return fetch(fileUrl, maxSize, Collections.emptyMap());
+    }
+
+    /**
+     * 抓取图片，可附带条件请求头
+     *
+     * @param fileUrl        图片地址
+     * @param maxSize        最大字节数
+     * @param requestHeaders 附加请求头（如 If-None-Match），源站返回 304 时响应体为空
+     * @return 抓取响应，调用方负责关闭
+     */
+    public UrlFetchResponse fetch(String fileUrl, long maxSize, Map<String, String> requestHeaders) {
+        HttpGet httpGet = new HttpGet(fileUrl);
+        requestHeaders.forEach(httpGet::setHeader);
+        CloseableHttpResponse httpResponse = null;
+        try {
+            httpResponse = httpClient.execute(httpGet);
+            int statusCode = httpResponse.getStatusLine().getStatusCode();
+            if (statusCode == HttpStatus.SC_NOT_MODIFIED) {
+                return new UrlFetchResponse(statusCode, null, -1, null, httpResponse);
+            }
+            HttpEntity entity = httpResponse.getEntity();
+            if (statusCode != HttpStatus.SC_OK || entity == null) {
+                throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件下载失败");
+            }
+            // 1. 文件类型校验，不为空才校验是否合法，这样校验规则相对宽松
+            String contentType = entity.getContentType() != null ? entity.getContentType().getValue() : null;
+            if (StrUtil.isNotBlank(contentType)) {
+                String mimeType = StrUtil.subBefore(contentType, ";", false).trim().toLowerCase();
+                if (!ALLOW_CONTENT_TYPES.contains(mimeType)) {
+                    throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件类型错误");
+                }
+            }
+            // 2. 文件大小校验，响应头已声明超限则不再读取响应体
+            long contentLength = entity.getContentLength();
+            if (contentLength > maxSize) {
+                throw new BusinessException(ErrorCode.PARAMS_ERROR,
+                        String.format("文件大小不能超过 %dMB", maxSize / 1024 / 1024));
+            }
+            // 3. 响应体边读边计数，超过上限立即中断
+            InputStream body = new SizeLimitInputStream(entity.getContent(), maxSize);
+            return new UrlFetchResponse(statusCode, contentType, contentLength, body, httpResponse);
+        } catch (BusinessException e) {
+            closeQuietly(httpResponse);
+            throw e;
+        } catch (ConnectionPoolTimeoutException e) {
+            log.warn("URL 抓取连接池繁忙, url = {}", fileUrl);
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "该图片源站请求过多，请稍后再试");
+        } catch (SocketTimeoutException e) {
+            closeQuietly(httpResponse);
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件下载超时");
+        } catch (IOException e) {
+            closeQuietly(httpResponse);
+            log.warn("URL 抓取失败, url = {}", fileUrl, e);
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件下载失败");
+        }
+    }
+
+    private void closeQuietly(CloseableHttpResponse httpResponse) {
+        if (httpResponse == null) {
+            return;
+        }
+        try {
+            httpResponse.close();
+        } catch (IOException e) {
+            log.debug("关闭 HTTP 响应失败", e);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() throws IOException {
+        httpClient.close();
+    }
+}
@@ -1,21 +1,19 @@
 package com.yupi.yupicturebackend.manager.upload;
 
 import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.http.HttpResponse;
-import cn.hutool.http.HttpStatus;
-import cn.hutool.http.HttpUtil;
-import cn.hutool.http.Method;
 import com.yupi.yupicturebackend.exception.BusinessException;
 import com.yupi.yupicturebackend.exception.ErrorCode;
 import com.yupi.yupicturebackend.exception.ThrowUtils;
+import com.yupi.yupicturebackend.manager.PictureUrlCacheManager;
+import com.yupi.yupicturebackend.model.dto.file.UploadPictureResult;
+import com.yupi.yupicturebackend.model.entity.PictureUrlCache;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
+import javax.annotation.Resource;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.Arrays;
-import java.util.List;
 
 /**
  * URL 图片上传
@@ -23,6 +21,12 @@ import java.util.List;
 @Service
 public class UrlPictureUpload extends PictureUploadTemplate {
 
+    @Resource
+    private UrlPictureFetcher urlPictureFetcher;
+
+    @Resource
+    private PictureUrlCacheManager pictureUrlCacheManager;
+
     @Override
     protected void validPicture(Object inputSource) {
         String fileUrl = (String) inputSource;
@@ -39,41 +43,7 @@ public class UrlPictureUpload extends PictureUploadTemplate {
         ThrowUtils.throwif(!fileUrl.startsWith("http://") && !fileUrl.startsWith("https://"),
                 ErrorCode.PARAMS_ERROR, "仅支持 HTTP 或 HTTPS 协议的文件地址"
         );
-        // 4. 发送 HEAD 请求验证文件是否存在
-        HttpResponse httpResponse = null;
-        try {
-            httpResponse = HttpUtil.createRequest(Method.HEAD, fileUrl)
-                    .execute();
-            // 未正常返回，无需执行其他判断
-            if (httpResponse.getStatus() != HttpStatus.HTTP_OK) {
-                return;
-            }
-            // 5. 文件存在，文件类型校验
-            String contentType = httpResponse.header("Content-Type");
-            // 不为空，才校验是否合法，这样校验规则相对宽松
-            if (StrUtil.isNotBlank(contentType)) {
-                // 允许的图片类型
-                final List<String> ALLOW_CONTENT_TYPES = Arrays.asList("image/jpeg", "image/jpg", "image/png", "image/webp");
-                ThrowUtils.throwif(!ALLOW_CONTENT_TYPES.contains(contentType.toLowerCase()),
-                        ErrorCode.PARAMS_ERROR, "文件类型错误");
-            }
-            // 6. 文件存在，文件大小校验
-            String contentLengthStr = httpResponse.header("Content-Length");
-            if (StrUtil.isNotBlank(contentLengthStr)) {
-                try {
-                    long contentLength = Long.parseLong(contentLengthStr);
-                    final long ONE_M = 1024 * 1024;
-                    ThrowUtils.throwif(contentLength > 2 * ONE_M, ErrorCode.PARAMS_ERROR, "文件大小不能超过 2MB");
-                } catch (NumberFormatException e) {
-                    throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件大小格式异常");
-                }
-            }
-        } finally {
-            // 记得释放资源
-            if (httpResponse != null) {
-                httpResponse.close();
-            }
-        }
+        // 文件类型和大小在下载时根据响应头和实际读取量校验，不再单独发送 HEAD 请求
     }
 
     @Override
@@ -83,9 +53,31 @@ public class UrlPictureUpload extends PictureUploadTemplate {
     }
 
     @Override
-    protected void processFile(Object inputSource, File file) throws Exception {
+    protected PictureUploadSource openUploadSource(Object inputSource) {
         String fileUrl = (String) inputSource;
-        // 下载文件到临时目录
-        HttpUtil.downloadFile(fileUrl, file);
+        // 导入过的地址发送条件请求，源站内容未变化则直接复用已存储的对象
+        PictureUrlCache urlCache = pictureUrlCacheManager.getByUrl(fileUrl);
+        UrlFetchResponse fetchResponse = urlPictureFetcher.fetch(fileUrl, MAX_FILE_SIZE,
+                pictureUrlCacheManager.buildConditionalHeaders(urlCache));
+        if (fetchResponse.isNotModified()) {
+            IoUtil.close(fetchResponse);
+            UploadPictureResult reusedResult = urlCache != null ? pictureUrlCacheManager.reuse(urlCache) : null;
+            if (reusedResult != null) {
+                return PictureUploadSource.reused(reusedResult);
+            }
+            // 已存储的对象不可用，重新完整下载
+            fetchResponse = urlPictureFetcher.fetch(fileUrl, MAX_FILE_SIZE);
+        } else if (urlCache != null) {
+            pictureUrlCacheManager.recordMiss();
+        }
+        // 响应体保持为流，由上传过程边读边写
+        return fetchResponse.toUploadSource();
+    }
+
+    @Override
+    protected void afterUpload(Object inputSource, PictureUploadSource uploadSource, UploadPictureResult result) {
+        UrlFetchResponse fetchResponse = (UrlFetchResponse) uploadSource.getResource();
+        pictureUrlCacheManager.save((String) inputSource, result.getContentHash(),
+                fetchResponse.getHeader("ETag"), fetchResponse.getHeader("Last-Modified"));
     }
 }
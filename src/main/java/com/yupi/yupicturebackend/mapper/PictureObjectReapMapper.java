@@ -0,0 +1,12 @@
+package com.yupi.yupicturebackend.mapper;
+
+import com.yupi.yupicturebackend.model.entity.PictureObjectReap;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+/**
+* @description 针对表【picture_object_reap(存储对象回收队列)】的数据库操作Mapper
+* @Entity com.yupi.yupicturebackend.model.entity.PictureObjectReap
+*/
+public interface PictureObjectReapMapper extends BaseMapper<PictureObjectReap> {
+
+}
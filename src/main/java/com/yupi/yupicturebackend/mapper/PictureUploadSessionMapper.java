@@ -0,0 +1,12 @@
+package com.yupi.yupicturebackend.mapper;
+
+import com.yupi.yupicturebackend.model.entity.PictureUploadSession;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+/**
+* @description 针对表【picture_upload_session(分片上传会话)】的数据库操作Mapper
+* @Entity com.yupi.yupicturebackend.model.entity.PictureUploadSession
+*/
+public interface PictureUploadSessionMapper extends BaseMapper<PictureUploadSession> {
+
+}
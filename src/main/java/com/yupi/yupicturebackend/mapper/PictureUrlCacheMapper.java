@@ -0,0 +1,12 @@
+package com.yupi.yupicturebackend.mapper;
+
+import com.yupi.yupicturebackend.model.entity.PictureUrlCache;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+/**
+* @description 针对表【picture_url_cache(URL 抓取缓存)】的数据库操作Mapper
+* @Entity com.yupi.yupicturebackend.model.entity.PictureUrlCache
+*/
+public interface PictureUrlCacheMapper extends BaseMapper<PictureUrlCache> {
+
+}
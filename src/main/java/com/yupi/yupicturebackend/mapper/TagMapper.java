@@ -0,0 +1,12 @@
+package com.yupi.yupicturebackend.mapper;
+
+import com.yupi.yupicturebackend.model.entity.Tag;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+/**
+* @description 针对表【tag(标签)】的数据库操作Mapper
+* @Entity com.yupi.yupicturebackend.model.entity.Tag
+*/
+public interface TagMapper extends BaseMapper<Tag> {
+
+}
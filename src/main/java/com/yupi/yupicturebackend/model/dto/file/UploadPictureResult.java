@@ -17,6 +17,16 @@ public class UploadPictureResult {
      * 图片地址  
      */  
     private String url;  
+
+    /**
+     * 缩略图地址
+     */
+    private String thumbnailUrl;
+
+    /**
+     * 预览图地址
+     */
+    private String previewUrl;
   
     /**  
      * 图片名称  
@@ -47,5 +57,30 @@ public class UploadPictureResult {
      * 图片格式  
      */  
     private String picFormat;  
+
+    /**
+     * 内容哈希（SHA-256）
+     */
+    private String contentHash;
+
+    /**
+     * 感知哈希（64 位 dHash）
+     */
+    private Long phash;
+
+    /**
+     * 主色调
+     */
+    private String dominantColor;
+
+    /**
+     * 颜色直方图
+     */
+    private String colorHistogram;
+
+    /**
+     * 是否命中内容去重（复用了已有的存储对象，未重新上传）
+     */
+    private boolean deduplicated;
   
 }
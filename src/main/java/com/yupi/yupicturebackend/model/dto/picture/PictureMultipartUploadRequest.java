@@ -0,0 +1,19 @@
+package com.yupi.yupicturebackend.model.dto.picture;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 分片上传操作请求（完成 / 终止）
+ */
+@Data
+public class PictureMultipartUploadRequest implements Serializable {
+
+    /**
+     * 分片上传 ID
+     */
+    private String uploadId;
+
+    private static final long serialVersionUID = 1L;
+}
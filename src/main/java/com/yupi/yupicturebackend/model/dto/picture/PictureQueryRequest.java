@@ -5,6 +5,7 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 
 import java.io.Serializable;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -94,5 +95,55 @@ public class PictureQueryRequest extends PageRequest implements Serializable {
     private Long reviewerId;
 
 
+    /**
+     * 最小宽度（包含）
+     */
+    private Integer minPicWidth;
+
+    /**
+     * 最大宽度（包含）
+     */
+    private Integer maxPicWidth;
+
+    /**
+     * 最小高度（包含）
+     */
+    private Integer minPicHeight;
+
+    /**
+     * 最大高度（包含）
+     */
+    private Integer maxPicHeight;
+
+    /**
+     * 最小文件体积（包含）
+     */
+    private Long minPicSize;
+
+    /**
+     * 最大文件体积（包含）
+     */
+    private Long maxPicSize;
+
+    /**
+     * 最小宽高比（包含）
+     */
+    private Double minPicScale;
+
+    /**
+     * 最大宽高比（包含）
+     */
+    private Double maxPicScale;
+
+    /**
+     * 创建时间起点（包含）
+     */
+    private Date startCreateTime;
+
+    /**
+     * 创建时间终点（不包含）
+     */
+    private Date endCreateTime;
+
     private static final long serialVersionUID = 1L;  
 }
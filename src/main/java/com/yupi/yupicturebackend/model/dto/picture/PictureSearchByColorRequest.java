@@ -0,0 +1,24 @@
+package com.yupi.yupicturebackend.model.dto.picture;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 按颜色搜索图片请求
+ */
+@Data
+public class PictureSearchByColorRequest implements Serializable {
+
+    /**
+     * 目标颜色，如 #3A7BD5
+     */
+    private String picColor;
+
+    /**
+     * 返回数量（1-50）
+     */
+    private int limit = 20;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -3,6 +3,8 @@ package com.yupi.yupicturebackend.model.entity;
 import com.baomidou.mybatisplus.annotation.IdType;
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
+
+import java.io.Serializable;
 import java.util.Date;
 import lombok.Data;
 
@@ -12,7 +14,7 @@ import lombok.Data;
  */
 @TableName(value ="picture")
 @Data
-public class Picture {
+public class Picture implements Serializable {
     /**
      * id
      */
@@ -24,6 +26,16 @@ public class Picture {
      */
     private String url;
 
+    /**
+     * 缩略图 url
+     */
+    private String thumbnailUrl;
+
+    /**
+     * 预览图 url
+     */
+    private String previewUrl;
+
     /**
      * 图片名称
      */
@@ -69,6 +81,26 @@ public class Picture {
      */
     private String picFormat;
 
+    /**
+     * 内容哈希（SHA-256），相同内容的图片共用同一个存储对象
+     */
+    private String contentHash;
+
+    /**
+     * 感知哈希（64 位 dHash），用于查找近似重复的图片
+     */
+    private Long phash;
+
+    /**
+     * 主色调，如 #3A7BD5
+     */
+    private String dominantColor;
+
+    /**
+     * 颜色直方图：RGB 每通道 4 段共 64 个区间的占比（0-255），十六进制编码
+     */
+    private String colorHistogram;
+
     /**
      * 创建用户 id
      */
@@ -115,4 +147,5 @@ public class Picture {
      */
     private Date reviewTime;
 
+    private static final long serialVersionUID = 1L;
 }
\ No newline at end of file
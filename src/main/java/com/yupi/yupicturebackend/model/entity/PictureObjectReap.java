@@ -0,0 +1,56 @@
+package com.yupi.yupicturebackend.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.util.Date;
+import lombok.Data;
+
+/**
+ * 存储对象回收队列
+ * @TableName picture_object_reap
+ */
+@TableName(value ="picture_object_reap")
+@Data
+public class PictureObjectReap {
+    /**
+     * id
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 待回收对象的访问地址
+     */
+    private String url;
+
+    /**
+     * 所属图片的内容哈希，用于确认是否仍被去重图片引用
+     */
+    private String contentHash;
+
+    /**
+     * 回收原因：delete/replace/abandon
+     */
+    private String reason;
+
+    /**
+     * 宽限期结束时间，之后才会删除
+     */
+    private Date deleteAfter;
+
+    /**
+     * 删除失败次数
+     */
+    private Integer retryCount;
+
+    /**
+     * 认领标识，实例每轮回收前写入，只处理自己认领的记录
+     */
+    private String claimToken;
+
+    /**
+     * 创建时间
+     */
+    private Date createTime;
+}
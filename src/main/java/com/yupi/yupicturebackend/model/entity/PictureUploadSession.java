@@ -0,0 +1,71 @@
+package com.yupi.yupicturebackend.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.util.Date;
+import lombok.Data;
+
+/**
+ * 分片上传会话
+ * @TableName picture_upload_session
+ */
+@TableName(value ="picture_upload_session")
+@Data
+public class PictureUploadSession {
+    /**
+     * id
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 存储的分片上传 ID
+     */
+    private String uploadId;
+
+    /**
+     * 对象键
+     */
+    private String objectKey;
+
+    /**
+     * 原始文件名
+     */
+    private String originalFilename;
+
+    /**
+     * 文件总大小
+     */
+    private Long fileSize;
+
+    /**
+     * 分片大小
+     */
+    private Long partSize;
+
+    /**
+     * 分片总数
+     */
+    private Integer partCount;
+
+    /**
+     * 发起上传的用户 id
+     */
+    private Long userId;
+
+    /**
+     * 图片 id（重新上传时不为空）
+     */
+    private Long pictureId;
+
+    /**
+     * 过期时间
+     */
+    private Date expireTime;
+
+    /**
+     * 创建时间
+     */
+    private Date createTime;
+}
@@ -0,0 +1,61 @@
+package com.yupi.yupicturebackend.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.util.Date;
+import lombok.Data;
+
+/**
+ * URL 抓取缓存
+ * @TableName picture_url_cache
+ */
+@TableName(value ="picture_url_cache")
+@Data
+public class PictureUrlCache {
+    /**
+     * id
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 来源地址哈希（SHA-256）
+     */
+    private String urlHash;
+
+    /**
+     * 来源地址
+     */
+    private String url;
+
+    /**
+     * 内容哈希（SHA-256）
+     */
+    private String contentHash;
+
+    /**
+     * ETag 响应头
+     */
+    private String etag;
+
+    /**
+     * Last-Modified 响应头
+     */
+    private String lastModified;
+
+    /**
+     * 最近访问时间
+     */
+    private Date lastAccessTime;
+
+    /**
+     * 创建时间
+     */
+    private Date createTime;
+
+    /**
+     * 更新时间
+     */
+    private Date updateTime;
+}
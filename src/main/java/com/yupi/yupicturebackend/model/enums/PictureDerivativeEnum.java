@@ -0,0 +1,45 @@
+package com.yupi.yupicturebackend.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 图片衍生尺寸
+ * 上传时由数据万象按规则生成，以 webp 格式存储在原图旁边
+ */
+@Getter
+public enum PictureDerivativeEnum {
+
+    THUMBNAIL("缩略图", "thumbnail", 256),
+    PREVIEW("预览图", "preview", 1024);
+
+    private final String text;
+
+    private final String value;
+
+    /**
+     * 最长边像素（原图更小时不放大）
+     */
+    private final int maxSize;
+
+    PictureDerivativeEnum(String text, String value, int maxSize) {
+        this.text = text;
+        this.value = value;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     */
+    public static PictureDerivativeEnum getEnumByValue(String value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (PictureDerivativeEnum derivativeEnum : PictureDerivativeEnum.values()) {
+            if (derivativeEnum.value.equals(value)) {
+                return derivativeEnum;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,39 @@
+package com.yupi.yupicturebackend.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 存储对象回收原因
+ */
+@Getter
+public enum PictureReapReasonEnum {
+
+    DELETE("图片删除", "delete"),
+    REPLACE("重新上传", "replace"),
+    ABANDON("上传未入库", "abandon");
+
+    private final String text;
+
+    private final String value;
+
+    PictureReapReasonEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     */
+    public static PictureReapReasonEnum getEnumByValue(String value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (PictureReapReasonEnum reasonEnum : PictureReapReasonEnum.values()) {
+            if (reasonEnum.value.equals(value)) {
+                return reasonEnum;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,69 @@
+package com.yupi.yupicturebackend.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 图片宽高比区间，用于分面统计
+ */
+@Getter
+public enum PictureScaleBucketEnum {
+
+    TALL("长竖图", "tall", 0, 0.75),
+    PORTRAIT("竖图", "portrait", 0.75, 0.95),
+    SQUARE("方图", "square", 0.95, 1.05),
+    LANDSCAPE("横图", "landscape", 1.05, 1.5),
+    WIDE("宽屏", "wide", 1.5, 2.0),
+    PANORAMA("全景", "panorama", 2.0, Double.MAX_VALUE);
+
+    private final String text;
+
+    private final String value;
+
+    /**
+     * 宽高比下限（包含）
+     */
+    private final double minScale;
+
+    /**
+     * 宽高比上限（不包含）
+     */
+    private final double maxScale;
+
+    PictureScaleBucketEnum(String text, String value, double minScale, double maxScale) {
+        this.text = text;
+        this.value = value;
+        this.minScale = minScale;
+        this.maxScale = maxScale;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     */
+    public static PictureScaleBucketEnum getEnumByValue(String value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (PictureScaleBucketEnum bucketEnum : PictureScaleBucketEnum.values()) {
+            if (bucketEnum.value.equals(value)) {
+                return bucketEnum;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 根据宽高比获取所在区间
+     */
+    public static PictureScaleBucketEnum getEnumByScale(Double scale) {
+        if (scale == null || scale.isNaN() || scale < 0) {
+            return null;
+        }
+        for (PictureScaleBucketEnum bucketEnum : PictureScaleBucketEnum.values()) {
+            if (scale < bucketEnum.maxScale) {
+                return bucketEnum;
+            }
+        }
+        return PANORAMA;
+    }
+}
@@ -0,0 +1,38 @@
+package com.yupi.yupicturebackend.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 图片存储类型
+ */
+@Getter
+public enum PictureStorageTypeEnum {
+
+    COS("腾讯云对象存储", "cos"),
+    LOCAL("本地文件系统", "local");
+
+    private final String text;
+
+    private final String value;
+
+    PictureStorageTypeEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     */
+    public static PictureStorageTypeEnum getEnumByValue(String value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (PictureStorageTypeEnum storageTypeEnum : PictureStorageTypeEnum.values()) {
+            if (storageTypeEnum.value.equals(value)) {
+                return storageTypeEnum;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,47 @@
+package com.yupi.yupicturebackend.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 异步上传任务状态
+ */
+@Getter
+public enum PictureUploadTaskStatusEnum {
+
+    WAITING("等待中", "waiting"),
+    RUNNING("上传中", "running"),
+    SUCCEED("成功", "succeed"),
+    FAILED("失败", "failed");
+
+    private final String text;
+
+    private final String value;
+
+    PictureUploadTaskStatusEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     */
+    public static PictureUploadTaskStatusEnum getEnumByValue(String value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (PictureUploadTaskStatusEnum statusEnum : PictureUploadTaskStatusEnum.values()) {
+            if (statusEnum.value.equals(value)) {
+                return statusEnum;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 是否已结束
+     */
+    public boolean isFinished() {
+        return this == SUCCEED || this == FAILED;
+    }
+}
@@ -0,0 +1,64 @@
+package com.yupi.yupicturebackend.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 批量上传结果
+ */
+@Data
+public class PictureBatchUploadVO implements Serializable {
+
+    /**
+     * 成功数量
+     */
+    private Integer successCount;
+
+    /**
+     * 失败数量
+     */
+    private Integer failCount;
+
+    /**
+     * 每个文件的上传结果，顺序与请求中的文件一致
+     */
+    private List<Item> items;
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 单个文件的上传结果
+     */
+    @Data
+    public static class Item implements Serializable {
+
+        /**
+         * 文件在请求中的序号（从 0 开始）
+         */
+        private Integer index;
+
+        /**
+         * 原始文件名
+         */
+        private String fileName;
+
+        /**
+         * 是否成功
+         */
+        private Boolean success;
+
+        /**
+         * 失败原因
+         */
+        private String message;
+
+        /**
+         * 上传成功后的图片信息
+         */
+        private PictureVO picture;
+
+        private static final long serialVersionUID = 1L;
+    }
+}
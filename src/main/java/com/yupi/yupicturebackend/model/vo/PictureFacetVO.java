@@ -0,0 +1,59 @@
+package com.yupi.yupicturebackend.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 图片分面统计结果
+ */
+@Data
+public class PictureFacetVO implements Serializable {
+
+    /**
+     * 符合条件的图片总数
+     */
+    private Long total;
+
+    /**
+     * 按分类统计，数量从多到少
+     */
+    private List<Bucket> categoryList;
+
+    /**
+     * 按图片格式统计，数量从多到少
+     */
+    private List<Bucket> formatList;
+
+    /**
+     * 按宽高比区间统计，区间从窄到宽
+     */
+    private List<Bucket> scaleList;
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 单个取值的统计
+     */
+    @Data
+    public static class Bucket implements Serializable {
+
+        /**
+         * 取值（分类、格式或宽高比区间的 value）
+         */
+        private String value;
+
+        /**
+         * 展示名称
+         */
+        private String text;
+
+        /**
+         * 图片数量
+         */
+        private Long count;
+
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -0,0 +1,35 @@
+package com.yupi.yupicturebackend.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 分片上传会话信息
+ */
+@Data
+public class PictureMultipartUploadVO implements Serializable {
+
+    /**
+     * 分片上传 ID
+     */
+    private String uploadId;
+
+    /**
+     * 分片大小（字节）
+     */
+    private Long partSize;
+
+    /**
+     * 分片总数
+     */
+    private Integer partCount;
+
+    /**
+     * 已上传的分片编号，续传时跳过这些分片
+     */
+    private List<Integer> uploadedPartNumbers;
+
+    private static final long serialVersionUID = 1L;
+}
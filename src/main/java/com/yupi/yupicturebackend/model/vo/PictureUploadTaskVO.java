@@ -0,0 +1,50 @@
+package com.yupi.yupicturebackend.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 异步上传任务视图
+ */
+@Data
+public class PictureUploadTaskVO implements Serializable {
+
+    /**
+     * 任务 id
+     */
+    private String taskId;
+
+    /**
+     * 任务状态：waiting / running / succeed / failed
+     */
+    private String status;
+
+    /**
+     * 进度（0-100）
+     */
+    private Integer progress;
+
+    /**
+     * 当前阶段或失败原因
+     */
+    private String message;
+
+    /**
+     * 上传成功后的图片信息
+     */
+    private PictureVO picture;
+
+    /**
+     * 创建时间
+     */
+    private Date createTime;
+
+    /**
+     * 结束时间
+     */
+    private Date finishTime;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -21,6 +21,16 @@ public class PictureVO implements Serializable {
      * 图片 url  
      */  
     private String url;  
+
+    /**
+     * 缩略图 url（列表默认使用，未生成时与原图相同）
+     */
+    private String thumbnailUrl;
+
+    /**
+     * 预览图 url
+     */
+    private String previewUrl;
   
     /**  
      * 图片名称  
@@ -66,6 +76,11 @@ public class PictureVO implements Serializable {
      * 图片格式  
      */  
     private String picFormat;  
+
+    /**
+     * 主色调
+     */
+    private String dominantColor;
   
     /**  
      * 用户 id  
@@ -91,6 +106,16 @@ public class PictureVO implements Serializable {
      * 创建用户信息  
      */  
     private UserVO user;  
+
+    /**
+     * 近似重复的已有图片 id（仅上传时返回，用于提示重复）
+     */
+    private List<Long> similarPictureIds;
+
+    /**
+     * 是否命中内容去重，复用了已有的存储对象（仅上传时返回）
+     */
+    private Boolean deduplicated;
   
     private static final long serialVersionUID = 1L;  
   
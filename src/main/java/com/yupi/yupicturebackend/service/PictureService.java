@@ -1,17 +1,27 @@
 package com.yupi.yupicturebackend.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.yupi.yupicturebackend.common.CountedPage;
+import com.yupi.yupicturebackend.common.CursorPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.yupi.yupicturebackend.model.dto.picture.PictureEditRequest;
+import com.yupi.yupicturebackend.model.dto.picture.PictureMultipartUploadInitRequest;
 import com.yupi.yupicturebackend.model.dto.picture.PictureQueryRequest;
 import com.yupi.yupicturebackend.model.dto.picture.PictureReviewRequest;
+import com.yupi.yupicturebackend.model.dto.picture.PictureSearchByColorRequest;
+import com.yupi.yupicturebackend.model.dto.picture.PictureUpdateRequest;
 import com.yupi.yupicturebackend.model.dto.picture.PictureUploadRequest;
 import com.yupi.yupicturebackend.model.entity.Picture;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.yupi.yupicturebackend.model.entity.User;
+import com.yupi.yupicturebackend.model.vo.PictureBatchUploadVO;
+import com.yupi.yupicturebackend.model.vo.PictureMultipartUploadVO;
+import com.yupi.yupicturebackend.model.vo.PictureUploadTaskVO;
 import com.yupi.yupicturebackend.model.vo.PictureVO;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.List;
 
 /**
 * @author longweixu
@@ -29,6 +39,80 @@ public interface PictureService extends IService<Picture> {
      * @return
      */
     PictureVO uploadPicture(Object inputSource, PictureUploadRequest pictureUploadRequest, User loginUser);
+
+    /**
+     * 批量上传图片
+     * 文件并行上传到对象存储，成功的图片统一批量入库
+     *
+     * @param multipartFiles 上传的文件列表
+     * @param loginUser      当前登录用户
+     * @return 每个文件的上传结果
+     */
+    PictureBatchUploadVO uploadPictureBatch(List<MultipartFile> multipartFiles, User loginUser);
+
+    /**
+     * 提交异步上传任务，立即返回任务 id
+     *
+     * @param inputSource          输入源（文件或 URL）
+     * @param pictureUploadRequest 上传请求参数
+     * @param loginUser            当前登录用户
+     * @return 任务 id
+     */
+    String submitUploadTask(Object inputSource, PictureUploadRequest pictureUploadRequest, User loginUser);
+
+    /**
+     * 查询异步上传任务状态
+     *
+     * @param taskId    任务 id
+     * @param loginUser 当前登录用户
+     * @return 任务状态及上传结果
+     */
+    PictureUploadTaskVO getUploadTask(String taskId, User loginUser);
+
+    /**
+     * 初始化分片上传
+     *
+     * @param initRequest 初始化请求
+     * @param loginUser   当前登录用户
+     * @return 分片上传会话信息
+     */
+    PictureMultipartUploadVO initMultipartUpload(PictureMultipartUploadInitRequest initRequest, User loginUser);
+
+    /**
+     * 上传单个分片
+     *
+     * @param uploadId      分片上传 ID
+     * @param partNumber    分片编号（从 1 开始）
+     * @param multipartFile 分片内容
+     * @param loginUser     当前登录用户
+     */
+    void uploadPicturePart(String uploadId, int partNumber, MultipartFile multipartFile, User loginUser);
+
+    /**
+     * 查询分片上传进度（断点续传）
+     *
+     * @param uploadId  分片上传 ID
+     * @param loginUser 当前登录用户
+     * @return 分片上传会话信息，包含已上传的分片编号
+     */
+    PictureMultipartUploadVO getMultipartUpload(String uploadId, User loginUser);
+
+    /**
+     * 完成分片上传并保存图片
+     *
+     * @param uploadId  分片上传 ID
+     * @param loginUser 当前登录用户
+     * @return 图片信息
+     */
+    PictureVO completeMultipartUpload(String uploadId, User loginUser);
+
+    /**
+     * 终止分片上传
+     *
+     * @param uploadId  分片上传 ID
+     * @param loginUser 当前登录用户
+     */
+    void abortMultipartUpload(String uploadId, User loginUser);
     /**
      * @Author longweixu
      * @Description 构造 QueryWrapper 对象来生成SQL 查询
@@ -38,6 +122,22 @@ public interface PictureService extends IService<Picture> {
      **/
     QueryWrapper<Picture> getQueryWrapper(PictureQueryRequest pictureQueryRequest);
 
+    /**
+     * 游标分页查询图片
+     *
+     * @param pictureQueryRequest 查询条件（useCursor 为 true）
+     * @return 分页结果，包含下一页游标
+     */
+    CursorPage<Picture> listPictureByCursor(PictureQueryRequest pictureQueryRequest);
+
+    /**
+     * 分页查询图片，总数优先取自计数器或缓存，不再对每一页执行 COUNT(*)
+     *
+     * @param pictureQueryRequest 查询条件
+     * @return 分页结果，totalEstimated 表示总数是否为近似值
+     */
+    CountedPage<Picture> listPictureByPage(PictureQueryRequest pictureQueryRequest);
+
 
     /**
      * 获取图片包装类（单条）
@@ -48,6 +148,13 @@ public interface PictureService extends IService<Picture> {
      */
     PictureVO getPictureVO(Picture picture, HttpServletRequest request);
 
+    /**
+     * 填充图片包装类的作者信息
+     *
+     * @param pictureVO
+     */
+    void fillPictureUser(PictureVO pictureVO);
+
 
     /**
      * 分页获取图片VO列表
@@ -70,4 +177,47 @@ public interface PictureService extends IService<Picture> {
 
 
     void fillReviewParams(Picture picture, User loginUser);
+
+    /**
+     * 更新图片信息（管理员）
+     *
+     * @param pictureUpdateRequest 更新请求
+     * @param loginUser            当前登录用户
+     */
+    void updatePicture(PictureUpdateRequest pictureUpdateRequest, User loginUser);
+
+    /**
+     * 编辑图片信息（仅本人或管理员）
+     *
+     * @param pictureEditRequest 编辑请求
+     * @param loginUser          当前登录用户
+     */
+    void editPicture(PictureEditRequest pictureEditRequest, User loginUser);
+
+    /**
+     * 删除图片（仅本人或管理员）
+     *
+     * @param pictureId 图片 id
+     * @param loginUser 当前登录用户
+     */
+    void deletePicture(long pictureId, User loginUser);
+
+    /**
+     * 查找与指定图片近似重复的已过审图片
+     *
+     * @param pictureId   图片 id
+     * @param maxDistance 感知哈希的最大汉明距离
+     * @param request     HTTP请求对象
+     * @return 相似图片，按相似度从高到低排序
+     */
+    List<PictureVO> listSimilarPictureVO(long pictureId, int maxDistance, HttpServletRequest request);
+
+    /**
+     * 按主色调搜索已过审的图片
+     *
+     * @param searchByColorRequest 颜色搜索请求
+     * @param request              HTTP请求对象
+     * @return 图片列表，按颜色相近程度排序
+     */
+    List<PictureVO> searchPictureByColor(PictureSearchByColorRequest searchByColorRequest, HttpServletRequest request);
 }
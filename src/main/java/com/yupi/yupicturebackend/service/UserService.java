@@ -2,6 +2,7 @@ package com.yupi.yupicturebackend.service;
 
 import cn.hutool.core.annotation.Link;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.yupi.yupicturebackend.common.CursorPage;
 import com.yupi.yupicturebackend.model.dto.user.UserQueryRequest;
 import com.yupi.yupicturebackend.model.entity.User;
 import com.baomidou.mybatisplus.extension.service.IService;
@@ -106,6 +107,14 @@ public interface UserService extends IService<User> {
      **/
     QueryWrapper<User> getQueryWrapper(UserQueryRequest userQueryRequest);
 
+    /**
+     * 游标分页查询用户
+     *
+     * @param userQueryRequest 查询条件（useCursor 为 true）
+     * @return 分页结果，包含下一页游标
+     */
+    CursorPage<User> listUserByCursor(UserQueryRequest userQueryRequest);
+
 
     /**
      * 是否为管理员
@@ -3,37 +3,72 @@ package com.yupi.yupicturebackend.service.impl;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.ObjUtil;
 import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.yupi.yupicturebackend.common.CountedPage;
+import com.yupi.yupicturebackend.common.CursorPage;
+import com.yupi.yupicturebackend.common.PageCursor;
+import com.yupi.yupicturebackend.config.PictureUploadConfig;
 import com.yupi.yupicturebackend.exception.BusinessException;
 import com.yupi.yupicturebackend.exception.ErrorCode;
 import com.yupi.yupicturebackend.exception.ThrowUtils;
+import com.yupi.yupicturebackend.event.PictureChangedEvent;
 import com.yupi.yupicturebackend.manager.FileManager;
+import com.yupi.yupicturebackend.manager.PictureCountManager;
+import com.yupi.yupicturebackend.manager.PictureReapManager;
+import com.yupi.yupicturebackend.manager.color.PictureColorManager;
+import com.yupi.yupicturebackend.manager.search.PictureSearchManager;
+import com.yupi.yupicturebackend.manager.tag.PictureTagManager;
+import com.yupi.yupicturebackend.manager.similar.PictureSimilarManager;
+import com.yupi.yupicturebackend.manager.upload.ByteArrayMultipartFile;
 import com.yupi.yupicturebackend.manager.upload.FilePictureUpload;
+import com.yupi.yupicturebackend.manager.upload.MultipartPictureUpload;
+import com.yupi.yupicturebackend.manager.upload.MultipartUploadSession;
+import com.yupi.yupicturebackend.manager.upload.PictureUploadTask;
+import com.yupi.yupicturebackend.manager.upload.PictureUploadTaskManager;
 import com.yupi.yupicturebackend.manager.upload.PictureUploadTemplate;
 import com.yupi.yupicturebackend.manager.upload.UrlPictureUpload;
 import com.yupi.yupicturebackend.model.dto.file.UploadPictureResult;
+import com.yupi.yupicturebackend.model.dto.picture.PictureEditRequest;
+import com.yupi.yupicturebackend.model.dto.picture.PictureMultipartUploadInitRequest;
 import com.yupi.yupicturebackend.model.dto.picture.PictureQueryRequest;
 import com.yupi.yupicturebackend.model.dto.picture.PictureReviewRequest;
+import com.yupi.yupicturebackend.model.dto.picture.PictureSearchByColorRequest;
+import com.yupi.yupicturebackend.model.dto.picture.PictureUpdateRequest;
 import com.yupi.yupicturebackend.model.dto.picture.PictureUploadRequest;
 import com.yupi.yupicturebackend.model.entity.Picture;
 import com.yupi.yupicturebackend.model.entity.User;
+import com.yupi.yupicturebackend.model.enums.PictureReapReasonEnum;
 import com.yupi.yupicturebackend.model.enums.PictureReviewStatusEnum;
+import com.yupi.yupicturebackend.model.vo.PictureBatchUploadVO;
+import com.yupi.yupicturebackend.model.vo.PictureMultipartUploadVO;
+import com.yupi.yupicturebackend.model.vo.PictureUploadTaskVO;
 import com.yupi.yupicturebackend.model.vo.PictureVO;
 import com.yupi.yupicturebackend.service.PictureService;
 import com.yupi.yupicturebackend.mapper.PictureMapper;
 import com.yupi.yupicturebackend.service.UserService;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 /**
@@ -41,19 +76,55 @@ import java.util.stream.Collectors;
 * @description 针对表【picture(图片)】的数据库操作Service实现
 * @createDate 2025-06-12 10:56:50
 */
+@Slf4j
 @Service
 public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
     implements PictureService{
 
+    /**
+     * 游标分页允许的排序字段，均有以其结尾的索引
+     */
+    private static final Set<String> CURSOR_SORT_FIELDS = new HashSet<>(Arrays.asList("id", "createTime"));
+
     @Resource
     private FilePictureUpload filePictureUpload;
 
     @Resource
     private UrlPictureUpload urlPictureUpload;
 
+    @Resource
+    private MultipartPictureUpload multipartPictureUpload;
+
+    @Resource
+    private PictureUploadTaskManager pictureUploadTaskManager;
+
+    @Resource
+    private PictureUploadConfig pictureUploadConfig;
+
     @Resource
     private UserService userService;
 
+    @Resource
+    private PictureSimilarManager pictureSimilarManager;
+
+    @Resource
+    private PictureColorManager pictureColorManager;
+
+    @Resource
+    private PictureReapManager pictureReapManager;
+
+    @Resource
+    private PictureSearchManager pictureSearchManager;
+
+    @Resource
+    private PictureTagManager pictureTagManager;
+
+    @Resource
+    private PictureCountManager pictureCountManager;
+
+    @Resource
+    private ApplicationEventPublisher applicationEventPublisher;
+
     @Override
     public PictureVO uploadPicture(Object inputSource, PictureUploadRequest pictureUploadRequest, User loginUser) {
         ThrowUtils.throwif(loginUser == null, ErrorCode.NO_AUTH_ERROR);
@@ -66,48 +137,448 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
             throw new BusinessException(ErrorCode.PARAMS_ERROR,"图片为空");
         }
         // 如果是更新图片，需要校验图片是否存在
-        if (pictureId != null) {
-            Picture oldPicture = this.getById(pictureId);
-            ThrowUtils.throwif(oldPicture == null, ErrorCode.NOT_FOUND_ERROR, "图片不存在");
-            // 仅本人或管理员可编辑
-            if (!oldPicture.getUserId().equals(loginUser.getId()) && !userService.isAdmin(loginUser)) {
-                throw new BusinessException(ErrorCode.NO_AUTH_ERROR);
+        checkReuploadAuth(pictureId, loginUser);
+        // 上传图片，得到信息
+        UploadPictureResult uploadPictureResult = uploadToStorage(inputSource, loginUser);
+        // 图片信息入库
+        return savePicture(uploadPictureResult, pictureId, loginUser);
+    }
+
+    @Override
+    public String submitUploadTask(Object inputSource, PictureUploadRequest pictureUploadRequest, User loginUser) {
+        ThrowUtils.throwif(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+        ThrowUtils.throwif(inputSource == null, ErrorCode.PARAMS_ERROR, "图片为空");
+        Long pictureId = pictureUploadRequest != null ? pictureUploadRequest.getId() : null;
+        // 权限在提交时同步校验，尽早失败
+        checkReuploadAuth(pictureId, loginUser);
+        Object taskInputSource = inputSource;
+        if (inputSource instanceof MultipartFile) {
+            // 请求结束后容器会清理上传内容，需先复制到内存（大小受上限约束）
+            MultipartFile multipartFile = (MultipartFile) inputSource;
+            ThrowUtils.throwif(multipartFile.getSize() > PictureUploadTemplate.MAX_FILE_SIZE,
+                    ErrorCode.PARAMS_ERROR, "文件大小不能超过 2MB");
+            try {
+                taskInputSource = ByteArrayMultipartFile.copyOf(multipartFile);
+            } catch (IOException e) {
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "读取上传文件失败");
             }
         }
-        // 上传图片，得到信息
+        Object finalInputSource = taskInputSource;
+        return pictureUploadTaskManager.submit(loginUser.getId(), task -> {
+            task.updateProgress(10, "正在上传到对象存储");
+            UploadPictureResult uploadPictureResult = uploadToStorage(finalInputSource, loginUser);
+            task.updateProgress(80, "正在保存图片信息");
+            return savePicture(uploadPictureResult, pictureId, loginUser);
+        });
+    }
+
+    @Override
+    public PictureUploadTaskVO getUploadTask(String taskId, User loginUser) {
+        ThrowUtils.throwif(StrUtil.isBlank(taskId), ErrorCode.PARAMS_ERROR);
+        PictureUploadTask task = pictureUploadTaskManager.getTask(taskId, loginUser.getId());
+        PictureUploadTaskVO taskVO = new PictureUploadTaskVO();
+        taskVO.setTaskId(task.getTaskId());
+        taskVO.setStatus(task.getStatus().getValue());
+        taskVO.setProgress(task.getProgress());
+        taskVO.setMessage(task.getMessage());
+        taskVO.setPicture(task.getPictureVO());
+        taskVO.setCreateTime(task.getCreateTime());
+        taskVO.setFinishTime(task.getFinishTime());
+        return taskVO;
+    }
+
+    @Override
+    public PictureBatchUploadVO uploadPictureBatch(List<MultipartFile> multipartFiles, User loginUser) {
+        ThrowUtils.throwif(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+        ThrowUtils.throwif(CollUtil.isEmpty(multipartFiles), ErrorCode.PARAMS_ERROR, "文件不能为空");
+        int maxCount = pictureUploadConfig.getBatchMaxCount();
+        ThrowUtils.throwif(multipartFiles.size() > maxCount, ErrorCode.PARAMS_ERROR,
+                "单次最多上传 " + maxCount + " 个文件");
+
+        // 1. 并行上传到对象存储，并行度由批量上传线程池控制
+        List<CompletableFuture<UploadPictureResult>> futureList = new ArrayList<>();
+        for (MultipartFile multipartFile : multipartFiles) {
+            futureList.add(pictureUploadTaskManager.submitBatchItem(() -> uploadToStorage(multipartFile, loginUser)));
+        }
+
+        // 2. 收集结果，成功的图片统一批量入库
+        List<PictureBatchUploadVO.Item> itemList = new ArrayList<>();
+        List<Picture> pictureList = new ArrayList<>();
+        List<Boolean> deduplicatedList = new ArrayList<>();
+        List<PictureBatchUploadVO.Item> successItemList = new ArrayList<>();
+        for (int i = 0; i < multipartFiles.size(); i++) {
+            PictureBatchUploadVO.Item item = new PictureBatchUploadVO.Item();
+            item.setIndex(i);
+            item.setFileName(multipartFiles.get(i).getOriginalFilename());
+            try {
+                UploadPictureResult uploadPictureResult = futureList.get(i).join();
+                pictureList.add(buildPicture(uploadPictureResult, loginUser));
+                deduplicatedList.add(uploadPictureResult.isDeduplicated());
+                successItemList.add(item);
+                item.setSuccess(true);
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                if (!(cause instanceof BusinessException)) {
+                    log.error("批量上传单个文件失败, fileName = {}", item.getFileName(), cause);
+                }
+                item.setSuccess(false);
+                item.setMessage(cause instanceof BusinessException ? cause.getMessage() : "上传失败");
+            }
+            itemList.add(item);
+        }
+        if (CollUtil.isNotEmpty(pictureList)) {
+            boolean result = this.saveBatch(pictureList);
+            ThrowUtils.throwif(!result, ErrorCode.OPERATION_ERROR, "图片保存失败");
+            publishPictureChanged(PictureChangedEvent.ChangeType.SAVE, pictureList);
+            for (int i = 0; i < pictureList.size(); i++) {
+                PictureVO pictureVO = PictureVO.objToVo(pictureList.get(i));
+                pictureVO.setDeduplicated(deduplicatedList.get(i));
+                successItemList.get(i).setPicture(pictureVO);
+            }
+        }
+
+        PictureBatchUploadVO batchUploadVO = new PictureBatchUploadVO();
+        batchUploadVO.setSuccessCount(pictureList.size());
+        batchUploadVO.setFailCount(itemList.size() - pictureList.size());
+        batchUploadVO.setItems(itemList);
+        log.info("批量上传完成: 成功 {} 个, 失败 {} 个", batchUploadVO.getSuccessCount(), batchUploadVO.getFailCount());
+        return batchUploadVO;
+    }
+
+    /**
+     * 根据输入源类型选择上传策略，将图片写入对象存储
+     *
+     * @param inputSource 输入源（文件、URL 或分片上传会话）
+     * @param loginUser   当前登录用户
+     * @return 上传结果
+     */
+    private UploadPictureResult uploadToStorage(Object inputSource, User loginUser) {
+        if (inputSource instanceof MultipartUploadSession) {
+            // 分片上传：文件已在对象存储中，合并分片即可；感知哈希和颜色特征由定时回填补算，不在请求中读回大文件
+            return multipartPictureUpload.completeUpload((MultipartUploadSession) inputSource);
+        }
         // 按照用户 id 划分目录
         String uploadPathPrefix = String.format("public/%s", loginUser.getId());
 
         // 根据输入源类型选择上传策略
         PictureUploadTemplate pictureUploadTemplate = filePictureUpload;
-        if(inputSource instanceof String) {
+        if (inputSource instanceof String) {
             pictureUploadTemplate = urlPictureUpload;
         }
         // 使用选择的策略上传图片
-        UploadPictureResult uploadPictureResult = pictureUploadTemplate.uploadPicture(inputSource, uploadPathPrefix);
+        return pictureUploadTemplate.uploadPicture(inputSource, uploadPathPrefix);
+    }
 
-        // 构造要入库的图片信息
+    /**
+     * 根据上传结果构造要入库的图片信息
+     */
+    private Picture buildPicture(UploadPictureResult uploadPictureResult, User loginUser) {
         Picture picture = new Picture();
         picture.setUrl(uploadPictureResult.getUrl());
+        picture.setThumbnailUrl(uploadPictureResult.getThumbnailUrl());
+        picture.setPreviewUrl(uploadPictureResult.getPreviewUrl());
         picture.setName(uploadPictureResult.getPicName());
         picture.setPicSize(uploadPictureResult.getPicSize());
         picture.setPicWidth(uploadPictureResult.getPicWidth());
         picture.setPicHeight(uploadPictureResult.getPicHeight());
         picture.setPicScale(uploadPictureResult.getPicScale());
         picture.setPicFormat(uploadPictureResult.getPicFormat());
+        picture.setContentHash(uploadPictureResult.getContentHash());
+        picture.setPhash(uploadPictureResult.getPhash());
+        picture.setDominantColor(uploadPictureResult.getDominantColor());
+        picture.setColorHistogram(uploadPictureResult.getColorHistogram());
         picture.setUserId(loginUser.getId());
         // 补充审核参数
         fillReviewParams(picture, loginUser);
+        return picture;
+    }
+
+    /**
+     * 保存上传的图片（新增或重新上传）
+     *
+     * @param uploadPictureResult 上传结果
+     * @param pictureId           图片 id，不为空表示重新上传
+     * @param loginUser           当前登录用户
+     */
+    private PictureVO savePicture(UploadPictureResult uploadPictureResult, Long pictureId, User loginUser) {
+        // 构造要入库的图片信息
+        Picture picture = buildPicture(uploadPictureResult, loginUser);
 
         // 如果 pictureId 不为空，表示更新，否则是新增
+        Picture oldPicture = null;
+        boolean result;
         if (pictureId != null) {
             // 如果是更新，需要补充 id 和编辑时间
             picture.setId(pictureId);
             picture.setEditTime(new Date());
+            oldPicture = this.getById(pictureId);
+            result = updateReuploadedPicture(picture);
+        } else {
+            result = this.save(picture);
         }
-        boolean result = this.saveOrUpdate(picture);
         ThrowUtils.throwif(!result, ErrorCode.OPERATION_ERROR, "图片上传失败");
-        return PictureVO.objToVo(picture);
+        // 重新上传后旧的存储对象不再被引用，等待回收
+        pictureReapManager.enqueue(oldPicture, picture, PictureReapReasonEnum.REPLACE);
+        PictureVO pictureVO = PictureVO.objToVo(picture);
+        // 提示近似重复的已有图片
+        List<Long> similarPictureIds = new ArrayList<>(pictureSimilarManager
+                .searchSimilar(picture.getPhash(), pictureUploadConfig.getSimilarMaxDistance()).keySet());
+        similarPictureIds.remove(picture.getId());
+        pictureVO.setSimilarPictureIds(similarPictureIds);
+        pictureVO.setDeduplicated(uploadPictureResult.isDeduplicated());
+        publishPictureChanged(PictureChangedEvent.ChangeType.SAVE, picture, oldPicture);
+        return pictureVO;
+    }
+
+    /**
+     * 重新上传时更新图片
+     * 按实体更新会跳过空字段，新图片没有的内容哈希、缩略图和特征会残留旧值，这些字段需要显式写入（包括 null）
+     */
+    private boolean updateReuploadedPicture(Picture picture) {
+        UpdateWrapper<Picture> updateWrapper = new UpdateWrapper<>();
+        updateWrapper.eq("id", picture.getId())
+                .set("contentHash", picture.getContentHash())
+                .set("thumbnailUrl", picture.getThumbnailUrl())
+                .set("previewUrl", picture.getPreviewUrl())
+                .set("phash", picture.getPhash())
+                .set("dominantColor", picture.getDominantColor())
+                .set("colorHistogram", picture.getColorHistogram());
+        // 其余字段按实体更新，已显式写入的字段不再重复
+        Picture updatePicture = new Picture();
+        BeanUtils.copyProperties(picture, updatePicture, "contentHash", "thumbnailUrl", "previewUrl", "phash",
+                "dominantColor", "colorHistogram");
+        return this.update(updatePicture, updateWrapper);
+    }
+
+    private void publishPictureChanged(PictureChangedEvent.ChangeType changeType, List<Picture> pictureList) {
+        applicationEventPublisher.publishEvent(new PictureChangedEvent(this, changeType, pictureList));
+    }
+
+    private void publishPictureChanged(PictureChangedEvent.ChangeType changeType, Picture picture, Picture oldPicture) {
+        applicationEventPublisher.publishEvent(new PictureChangedEvent(this, changeType,
+                Collections.singletonList(picture), Collections.singletonList(oldPicture)));
+    }
+
+    @Override
+    public void updatePicture(PictureUpdateRequest pictureUpdateRequest, User loginUser) {
+        // DTO转Entity
+        Picture picture = new Picture();
+        BeanUtils.copyProperties(pictureUpdateRequest, picture);
+        // 处理标签列表转JSON字符串
+        picture.setTags(JSONUtil.toJsonStr(pictureUpdateRequest.getTags()));
+
+        // 数据校验
+        validPicture(picture);
+
+        // 检查图片是否存在
+        Picture oldPicture = this.getById(pictureUpdateRequest.getId());
+        ThrowUtils.throwif(oldPicture == null, ErrorCode.NOT_FOUND_ERROR, "图片不存在");
+
+        //补充审核参数
+        fillReviewParams(picture, loginUser);
+
+        // 执行更新操作
+        boolean result = this.updateById(picture);
+        ThrowUtils.throwif(!result, ErrorCode.OPERATION_ERROR, "更新失败");
+        publishPictureChanged(PictureChangedEvent.ChangeType.SAVE, picture, oldPicture);
+    }
+
+    @Override
+    public void editPicture(PictureEditRequest pictureEditRequest, User loginUser) {
+        // DTO转Entity
+        Picture picture = new Picture();
+        BeanUtils.copyProperties(pictureEditRequest, picture);
+        // 处理标签列表
+        picture.setTags(JSONUtil.toJsonStr(pictureEditRequest.getTags()));
+        // 设置编辑时间
+        picture.setEditTime(new Date());
+
+        // 数据校验
+        validPicture(picture);
+
+        // 权限校验
+        Picture oldPicture = this.getById(pictureEditRequest.getId());
+        ThrowUtils.throwif(oldPicture == null, ErrorCode.NOT_FOUND_ERROR, "图片不存在");
+
+        // 仅本人或管理员可编辑
+        if (!oldPicture.getUserId().equals(loginUser.getId()) && !userService.isAdmin(loginUser)) {
+            throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "无编辑权限");
+        }
+
+        // 补充审核参数
+        fillReviewParams(picture, loginUser);
+
+        // 执行更新
+        boolean result = this.updateById(picture);
+        ThrowUtils.throwif(!result, ErrorCode.OPERATION_ERROR, "更新失败");
+        publishPictureChanged(PictureChangedEvent.ChangeType.SAVE, picture, oldPicture);
+    }
+
+    @Override
+    public void deletePicture(long pictureId, User loginUser) {
+        // 检查图片是否存在
+        Picture oldPicture = this.getById(pictureId);
+        ThrowUtils.throwif(oldPicture == null, ErrorCode.NOT_FOUND_ERROR, "图片不存在");
+
+        // 权限校验：仅本人或管理员可删除
+        if (!oldPicture.getUserId().equals(loginUser.getId()) && !userService.isAdmin(loginUser)) {
+            throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "无操作权限");
+        }
+
+        // 执行删除操作
+        boolean result = this.removeById(pictureId);
+        ThrowUtils.throwif(!result, ErrorCode.OPERATION_ERROR, "删除失败");
+        pictureReapManager.enqueue(oldPicture, null, PictureReapReasonEnum.DELETE);
+        publishPictureChanged(PictureChangedEvent.ChangeType.DELETE, oldPicture, oldPicture);
+    }
+
+    @Override
+    public List<PictureVO> listSimilarPictureVO(long pictureId, int maxDistance, HttpServletRequest request) {
+        // 优先使用内存索引中的哈希，未收录时查库
+        Long phash = pictureSimilarManager.getHash(pictureId);
+        if (phash == null) {
+            Picture picture = this.getById(pictureId);
+            ThrowUtils.throwif(picture == null, ErrorCode.NOT_FOUND_ERROR, "图片不存在");
+            phash = picture.getPhash();
+        }
+        if (phash == null) {
+            return Collections.emptyList();
+        }
+        Map<Long, Integer> similarMap = pictureSimilarManager.searchSimilar(phash, maxDistance);
+        similarMap.remove(pictureId);
+        if (similarMap.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // 只返回已过审的图片，并保持相似度顺序
+        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        queryWrapper.in("id", similarMap.keySet())
+                .eq("reviewStatus", PictureReviewStatusEnum.PASS.getValue());
+        Map<Long, Picture> pictureMap = this.list(queryWrapper).stream()
+                .collect(Collectors.toMap(Picture::getId, picture -> picture));
+        List<Picture> pictureList = new ArrayList<>();
+        for (Long similarPictureId : similarMap.keySet()) {
+            Picture picture = pictureMap.get(similarPictureId);
+            if (picture != null) {
+                pictureList.add(picture);
+            }
+        }
+        return toPictureVOList(pictureList, request);
+    }
+
+    @Override
+    public List<PictureVO> searchPictureByColor(PictureSearchByColorRequest searchByColorRequest, HttpServletRequest request) {
+        ThrowUtils.throwif(searchByColorRequest == null, ErrorCode.PARAMS_ERROR);
+        String picColor = searchByColorRequest.getPicColor();
+        ThrowUtils.throwif(PictureColorManager.parseColor(picColor) < 0, ErrorCode.PARAMS_ERROR, "颜色格式应为 #RRGGBB");
+        int limit = searchByColorRequest.getLimit();
+        ThrowUtils.throwif(limit <= 0 || limit > 50, ErrorCode.PARAMS_ERROR, "数量需在 1-50 之间");
+
+        // 只搜索已过审的图片
+        Map<Long, Integer> nearestMap = pictureColorManager.searchByColor(picColor, limit,
+                PictureReviewStatusEnum.PASS.getValue());
+        if (nearestMap.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, Picture> pictureMap = this.listByIds(nearestMap.keySet()).stream()
+                .collect(Collectors.toMap(Picture::getId, picture -> picture));
+        List<Picture> pictureList = new ArrayList<>();
+        for (Long pictureId : nearestMap.keySet()) {
+            Picture picture = pictureMap.get(pictureId);
+            if (picture != null) {
+                pictureList.add(picture);
+            }
+        }
+        return toPictureVOList(pictureList, request);
+    }
+
+    /**
+     * 按给定顺序转换为 VO 列表（复用分页转换逻辑）
+     */
+    private List<PictureVO> toPictureVOList(List<Picture> pictureList, HttpServletRequest request) {
+        Page<Picture> picturePage = new Page<>(1, pictureList.size(), pictureList.size());
+        picturePage.setRecords(pictureList);
+        return getPictureVOPage(picturePage, request).getRecords();
+    }
+
+    @Override
+    public PictureMultipartUploadVO initMultipartUpload(PictureMultipartUploadInitRequest initRequest, User loginUser) {
+        ThrowUtils.throwif(initRequest == null || initRequest.getFileSize() == null, ErrorCode.PARAMS_ERROR);
+        ThrowUtils.throwif(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+        // 重新上传时提前校验权限，避免白白上传分片
+        checkReuploadAuth(initRequest.getId(), loginUser);
+        MultipartUploadSession session = multipartPictureUpload.initUpload(initRequest.getFileName(),
+                initRequest.getFileSize(), initRequest.getId(), loginUser.getId());
+        return toMultipartUploadVO(session, Collections.emptyList());
+    }
+
+    @Override
+    public void uploadPicturePart(String uploadId, int partNumber, MultipartFile multipartFile, User loginUser) {
+        MultipartUploadSession session = multipartPictureUpload.getSession(uploadId, loginUser.getId());
+        multipartPictureUpload.uploadPart(session, partNumber, multipartFile);
+    }
+
+    @Override
+    public PictureMultipartUploadVO getMultipartUpload(String uploadId, User loginUser) {
+        MultipartUploadSession session = multipartPictureUpload.getSession(uploadId, loginUser.getId());
+        return toMultipartUploadVO(session, multipartPictureUpload.listUploadedPartNumbers(session));
+    }
+
+    @Override
+    public PictureVO completeMultipartUpload(String uploadId, User loginUser) {
+        ThrowUtils.throwif(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+        MultipartUploadSession session = multipartPictureUpload.getSession(uploadId, loginUser.getId());
+        // 复用普通上传的入库流程
+        checkReuploadAuth(session.getPictureId(), loginUser);
+        UploadPictureResult uploadPictureResult = uploadToStorage(session, loginUser);
+        PictureVO pictureVO;
+        try {
+            pictureVO = savePicture(uploadPictureResult, session.getPictureId(), loginUser);
+        } catch (RuntimeException e) {
+            // 分片已合并，会话无法再次完成；合并出的对象没有图片引用，登记回收后结束会话
+            Picture abandonedPicture = new Picture();
+            abandonedPicture.setUrl(uploadPictureResult.getUrl());
+            abandonedPicture.setThumbnailUrl(uploadPictureResult.getThumbnailUrl());
+            abandonedPicture.setPreviewUrl(uploadPictureResult.getPreviewUrl());
+            pictureReapManager.enqueue(abandonedPicture, null, PictureReapReasonEnum.ABANDON);
+            multipartPictureUpload.finishSession(session);
+            throw e;
+        }
+        // 图片入库后才结束会话
+        multipartPictureUpload.finishSession(session);
+        return pictureVO;
+    }
+
+    @Override
+    public void abortMultipartUpload(String uploadId, User loginUser) {
+        MultipartUploadSession session = multipartPictureUpload.getSession(uploadId, loginUser.getId());
+        multipartPictureUpload.abortUpload(session);
+    }
+
+    /**
+     * 重新上传时校验图片是否存在，且仅本人或管理员可编辑
+     *
+     * @param pictureId 图片 id，为空表示新增
+     * @param loginUser 当前登录用户
+     */
+    private void checkReuploadAuth(Long pictureId, User loginUser) {
+        if (pictureId == null) {
+            return;
+        }
+        Picture oldPicture = this.getById(pictureId);
+        ThrowUtils.throwif(oldPicture == null, ErrorCode.NOT_FOUND_ERROR, "图片不存在");
+        // 仅本人或管理员可编辑
+        if (!oldPicture.getUserId().equals(loginUser.getId()) && !userService.isAdmin(loginUser)) {
+            throw new BusinessException(ErrorCode.NO_AUTH_ERROR);
+        }
+    }
+
+    private PictureMultipartUploadVO toMultipartUploadVO(MultipartUploadSession session, List<Integer> uploadedPartNumbers) {
+        PictureMultipartUploadVO multipartUploadVO = new PictureMultipartUploadVO();
+        multipartUploadVO.setUploadId(session.getUploadId());
+        multipartUploadVO.setPartSize(session.getPartSize());
+        multipartUploadVO.setPartCount(session.getPartCount());
+        multipartUploadVO.setUploadedPartNumbers(uploadedPartNumbers);
+        return multipartUploadVO;
     }
 
     /**
@@ -147,14 +618,32 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         Integer reviewStatus = pictureQueryRequest.getReviewStatus();
         String reviewMessage = pictureQueryRequest.getReviewMessage();
         Long reviewerId = pictureQueryRequest.getReviewerId();
-
-        // 处理综合搜索条件：在名称和简介字段中模糊搜索
+        // 范围条件
+        Integer minPicWidth = pictureQueryRequest.getMinPicWidth();
+        Integer maxPicWidth = pictureQueryRequest.getMaxPicWidth();
+        Integer minPicHeight = pictureQueryRequest.getMinPicHeight();
+        Integer maxPicHeight = pictureQueryRequest.getMaxPicHeight();
+        Long minPicSize = pictureQueryRequest.getMinPicSize();
+        Long maxPicSize = pictureQueryRequest.getMaxPicSize();
+        Double minPicScale = pictureQueryRequest.getMinPicScale();
+        Double maxPicScale = pictureQueryRequest.getMaxPicScale();
+        Date startCreateTime = pictureQueryRequest.getStartCreateTime();
+        Date endCreateTime = pictureQueryRequest.getEndCreateTime();
+
+        // 处理综合搜索条件：优先由内存倒排索引得到命中的图片 id
         if (StrUtil.isNotBlank(searchText)) {
-            // 使用 and 连接条件，括号内是 or 关系
-            queryWrapper.and(qw -> qw.like("name", searchText)  // 名称字段模糊匹配
-                    .or()
-                    .like("introduction", searchText)           // 或简介字段模糊匹配
-            );
+            List<Long> matchedIds = pictureSearchManager.search(searchText);
+            if (matchedIds == null) {
+                // 索引不可用时在名称和简介字段中模糊搜索，使用 and 连接条件，括号内是 or 关系
+                queryWrapper.and(qw -> qw.like("name", searchText)  // 名称字段模糊匹配
+                        .or()
+                        .like("introduction", searchText)           // 或简介字段模糊匹配
+                );
+            } else if (matchedIds.isEmpty()) {
+                queryWrapper.apply("1 = 0");
+            } else {
+                queryWrapper.in("id", matchedIds);
+            }
         }
 
 
@@ -177,23 +666,70 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         queryWrapper.eq(ObjUtil.isNotEmpty(picSize), "picSize", picSize);      // 大小精确匹配
         queryWrapper.eq(ObjUtil.isNotEmpty(picScale), "picScale", picScale);   // 宽高比精确匹配
 
-        // 处理标签数组查询：JSON数组字段中查询包含指定标签的记录
+        // 添加数值型字段和创建时间的范围条件（配合以这些字段结尾的联合索引做范围扫描）
+        queryWrapper.ge(ObjUtil.isNotEmpty(minPicWidth), "picWidth", minPicWidth);
+        queryWrapper.le(ObjUtil.isNotEmpty(maxPicWidth), "picWidth", maxPicWidth);
+        queryWrapper.ge(ObjUtil.isNotEmpty(minPicHeight), "picHeight", minPicHeight);
+        queryWrapper.le(ObjUtil.isNotEmpty(maxPicHeight), "picHeight", maxPicHeight);
+        queryWrapper.ge(ObjUtil.isNotEmpty(minPicSize), "picSize", minPicSize);
+        queryWrapper.le(ObjUtil.isNotEmpty(maxPicSize), "picSize", maxPicSize);
+        queryWrapper.ge(ObjUtil.isNotEmpty(minPicScale), "picScale", minPicScale);
+        queryWrapper.le(ObjUtil.isNotEmpty(maxPicScale), "picScale", maxPicScale);
+        queryWrapper.ge(ObjUtil.isNotEmpty(startCreateTime), "createTime", startCreateTime);
+        queryWrapper.lt(ObjUtil.isNotEmpty(endCreateTime), "createTime", endCreateTime);
+
+        // 处理标签数组查询：优先由标签位图索引求交，得到同时带有全部标签的图片 id
         if (CollUtil.isNotEmpty(tags)) {
-            for (String tag : tags) {
-                // 对每个标签，查询JSON数组中包含该标签的记录
-                // 添加引号是为了精确匹配标签值，避免部分匹配
-                queryWrapper.like("tags", "\"" + tag + "\"");
+            List<Long> taggedIds = pictureTagManager.findPictureIds(tags, reviewStatus);
+            if (taggedIds == null) {
+                // 索引不可用或命中过多时，对每个标签通过标签关系表子查询（走 idx_tagId_pictureId）
+                for (String tag : tags) {
+                    queryWrapper.apply("id in (select pt.pictureId from picture_tag pt join tag t on t.id = pt.tagId"
+                            + " where t.name = {0})", StrUtil.trim(tag));
+                }
+            } else if (taggedIds.isEmpty()) {
+                queryWrapper.apply("1 = 0");
+            } else {
+                queryWrapper.in("id", taggedIds);
             }
         }
 
-        // 添加排序条件（当排序字段不为空时）
-        // sortOrder.equals("ascend") 判断是否为升序，否则为降序
-        queryWrapper.orderBy(StrUtil.isNotEmpty(sortField), sortOrder.equals("ascend"), sortField);
+        if (pictureQueryRequest.isUseCursor()) {
+            // 游标分页：按 (排序字段, id) 定位，排序和数量限制由游标统一添加
+            PageCursor.apply(queryWrapper, pictureQueryRequest, CURSOR_SORT_FIELDS);
+        } else {
+            // 添加排序条件（当排序字段不为空时）
+            // sortOrder.equals("ascend") 判断是否为升序，否则为降序
+            queryWrapper.orderBy(StrUtil.isNotEmpty(sortField), sortOrder.equals("ascend"), sortField);
+        }
 
         // 返回构建好的 QueryWrapper 对象
         return queryWrapper;
     }
 
+    @Override
+    public CursorPage<Picture> listPictureByCursor(PictureQueryRequest pictureQueryRequest) {
+        QueryWrapper<Picture> queryWrapper = getQueryWrapper(pictureQueryRequest);
+        CursorPage<Picture> picturePage = PageCursor.toPage(this.list(queryWrapper), pictureQueryRequest, Picture::getId);
+        // 只在第一页按需统计总数
+        if (pictureQueryRequest.isWithTotal() && StrUtil.isBlank(pictureQueryRequest.getCursor())) {
+            picturePage.setTotal(this.count(queryWrapper));
+            picturePage.setSearchCount(true);
+        }
+        return picturePage;
+    }
+
+    @Override
+    public CountedPage<Picture> listPictureByPage(PictureQueryRequest pictureQueryRequest) {
+        QueryWrapper<Picture> queryWrapper = getQueryWrapper(pictureQueryRequest);
+        // 关闭分页插件的 COUNT(*)，总数由计数器或缓存提供
+        CountedPage<Picture> picturePage = new CountedPage<>(pictureQueryRequest.getCurrent(),
+                pictureQueryRequest.getPageSize());
+        this.page(picturePage, queryWrapper);
+        pictureCountManager.fillTotal(picturePage, pictureQueryRequest, queryWrapper);
+        return picturePage;
+    }
+
 
     /**
      * 获取图片VO对象（单条）
@@ -207,13 +743,18 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         PictureVO pictureVO = PictureVO.objToVo(picture);
 
         // 处理关联用户信息
-        Long userId = picture.getUserId();
+        fillPictureUser(pictureVO);
+
+        return pictureVO;
+    }
+
+    @Override
+    public void fillPictureUser(PictureVO pictureVO) {
+        Long userId = pictureVO.getUserId();
         if (userId != null && userId > 0) {
             User user = userService.getById(userId);
             pictureVO.setUser(userService.getUserVO(user));
         }
-
-        return pictureVO;
     }
 
     /**
@@ -225,7 +766,7 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
     @Override
     public Page<PictureVO> getPictureVOPage(Page<Picture> picturePage, HttpServletRequest request) {
         // 1. 初始化返回的分页对象（保持原分页参数）
-        Page<PictureVO> pictureVOPage = new Page<>(picturePage.getCurrent(), picturePage.getSize(), picturePage.getTotal());
+        Page<PictureVO> pictureVOPage = CountedPage.newPageLike(picturePage);
 
         // 2. 处理空数据情况
         List<Picture> pictureList = picturePage.getRecords();
@@ -249,6 +790,10 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
 
         // 5. 填充关联数据
         pictureVOList.forEach(pictureVO -> {
+            // 列表默认展示缩略图，未生成缩略图的图片使用原图
+            if (StrUtil.isBlank(pictureVO.getThumbnailUrl())) {
+                pictureVO.setThumbnailUrl(pictureVO.getUrl());
+            }
             List<User> users = userMap.get(pictureVO.getUserId());
             User user = CollUtil.isNotEmpty(users) ? users.get(0) : null;
             pictureVO.setUser(user != null ? userService.getUserVO(user) : null);
@@ -336,6 +881,7 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         boolean result = this.updateById(updatePicture);
         // 如果更新失败则抛出异常
         ThrowUtils.throwif(!result, ErrorCode.OPERATION_ERROR);
+        publishPictureChanged(PictureChangedEvent.ChangeType.SAVE, updatePicture, oldPicture);
     }
 
 
@@ -7,6 +7,8 @@ import cn.hutool.core.util.StrUtil;
 import cn.hutool.crypto.digest.DigestUtil;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.yupi.yupicturebackend.common.CursorPage;
+import com.yupi.yupicturebackend.common.PageCursor;
 import com.yupi.yupicturebackend.exception.BusinessException;
 import com.yupi.yupicturebackend.exception.ErrorCode;
 import com.yupi.yupicturebackend.exception.ThrowUtils;
@@ -25,7 +27,10 @@ import org.springframework.util.DigestUtils;
 import javax.servlet.http.HttpServletRequest;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static com.yupi.yupicturebackend.model.constant.UserConstant.USER_LOGIN_STATE;
@@ -39,6 +44,11 @@ import static com.yupi.yupicturebackend.model.constant.UserConstant.USER_LOGIN_S
 @Slf4j
 public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements UserService{
 
+    /**
+     * 游标分页允许的排序字段，均有以其结尾的索引
+     */
+    private static final Set<String> CURSOR_SORT_FIELDS = new HashSet<>(Arrays.asList("id", "createTime"));
+
     /**
      *对传进去的密码进行加密（登录/注册）
      * @param userPassword
@@ -280,13 +290,30 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         queryWrapper.like(StrUtil.isNotBlank(userProfile), "userProfile", userProfile);
 
         // 5. 构建排序条件（当排序字段不为空时添加排序）
-        // 参数说明：1. 是否添加排序条件 2. 是否升序 3. 排序字段
-        queryWrapper.orderBy(StrUtil.isNotEmpty(sortField), sortOrder.equals("ascend"), sortField);
+        if (userQueryRequest.isUseCursor()) {
+            // 游标分页：按 (排序字段, id) 定位，排序和数量限制由游标统一添加
+            PageCursor.apply(queryWrapper, userQueryRequest, CURSOR_SORT_FIELDS);
+        } else {
+            // 参数说明：1. 是否添加排序条件 2. 是否升序 3. 排序字段
+            queryWrapper.orderBy(StrUtil.isNotEmpty(sortField), sortOrder.equals("ascend"), sortField);
+        }
 
         // 6. 返回构建好的查询条件包装器
         return queryWrapper;
     }
 
+    @Override
+    public CursorPage<User> listUserByCursor(UserQueryRequest userQueryRequest) {
+        QueryWrapper<User> queryWrapper = getQueryWrapper(userQueryRequest);
+        CursorPage<User> userPage = PageCursor.toPage(this.list(queryWrapper), userQueryRequest, User::getId);
+        // 只在第一页按需统计总数
+        if (userQueryRequest.isWithTotal() && StrUtil.isBlank(userQueryRequest.getCursor())) {
+            userPage.setTotal(this.count(queryWrapper));
+            userPage.setSearchCount(true);
+        }
+        return userPage;
+    }
+
     /**
      * @Author longweixu
      * @Description //判断是不是管理员
@@ -0,0 +1,111 @@
+package com.yupi.yupicturebackend.common;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.yupi.yupicturebackend.exception.BusinessException;
+import com.yupi.yupicturebackend.model.entity.Picture;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 游标分页：游标的生成与解析、行条件和排序
+ */
+class PageCursorTest {
+
+    private static final Set<String> SORT_FIELDS = new HashSet<>(Arrays.asList("id", "createTime"));
+
+    @Test
+    void toPageEncodesLastRowAndApplyDecodesIt() {
+        PageRequest pageRequest = pageRequest("createTime", "descend", null);
+        List<Picture> rows = Arrays.asList(picture(30L, 3000L), picture(20L, 2000L), picture(10L, 2000L));
+        CursorPage<Picture> page = PageCursor.toPage(new ArrayList<>(rows), pageRequest, Picture::getId);
+        assertTrue(page.isHasMore());
+        assertEquals(2, page.getRecords().size());
+        assertEquals(20L, page.getRecords().get(1).getId());
+
+        pageRequest.setCursor(page.getNextCursor());
+        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        PageCursor.apply(queryWrapper, pageRequest, SORT_FIELDS);
+        String sqlSegment = queryWrapper.getSqlSegment();
+        // 行条件从上一页最后一条（createTime = 2000, id = 20）之后开始
+        assertTrue(sqlSegment.contains("(createTime, id) < ("), sqlSegment);
+        assertTrue(sqlSegment.contains("ORDER BY createTime DESC,id DESC"), sqlSegment);
+        assertTrue(queryWrapper.getParamNameValuePairs().containsValue(new Date(2000L)));
+        assertTrue(queryWrapper.getParamNameValuePairs().containsValue(20L));
+        // 多查一条用于判断是否还有下一页
+        assertTrue(sqlSegment.trim().endsWith("limit 3"), sqlSegment);
+    }
+
+    @Test
+    void idCursorUsesSingleColumnPredicate() {
+        PageRequest pageRequest = pageRequest(null, "ascend", null);
+        List<Picture> rows = new ArrayList<>(Arrays.asList(picture(1L, 0L), picture(2L, 0L), picture(3L, 0L)));
+        CursorPage<Picture> page = PageCursor.toPage(rows, pageRequest, Picture::getId);
+
+        pageRequest.setCursor(page.getNextCursor());
+        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        PageCursor.apply(queryWrapper, pageRequest, SORT_FIELDS);
+        String sqlSegment = queryWrapper.getSqlSegment();
+        assertTrue(sqlSegment.contains("id > "), sqlSegment);
+        assertFalse(sqlSegment.contains("(createTime"), sqlSegment);
+        assertTrue(sqlSegment.contains("ORDER BY id ASC"), sqlSegment);
+        assertTrue(queryWrapper.getParamNameValuePairs().containsValue(2L));
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        PageRequest pageRequest = pageRequest("createTime", "descend", null);
+        CursorPage<Picture> page = PageCursor.toPage(new ArrayList<>(Arrays.asList(picture(2L, 2000L),
+                picture(1L, 1000L))), pageRequest, Picture::getId);
+        assertFalse(page.isHasMore());
+        assertNull(page.getNextCursor());
+        assertEquals(2, page.getRecords().size());
+    }
+
+    @Test
+    void rejectsMismatchedOrInvalidCursor() {
+        PageRequest pageRequest = pageRequest("createTime", "descend", null);
+        CursorPage<Picture> page = PageCursor.toPage(new ArrayList<>(Arrays.asList(picture(3L, 3000L),
+                picture(2L, 2000L), picture(1L, 1000L))), pageRequest, Picture::getId);
+        String cursor = page.getNextCursor();
+
+        // 排序方式或排序字段与生成游标时不一致
+        assertThrows(BusinessException.class, () -> PageCursor.apply(new QueryWrapper<>(),
+                pageRequest("createTime", "ascend", cursor), SORT_FIELDS));
+        assertThrows(BusinessException.class, () -> PageCursor.apply(new QueryWrapper<>(),
+                pageRequest("id", "descend", cursor), SORT_FIELDS));
+        assertThrows(BusinessException.class, () -> PageCursor.apply(new QueryWrapper<>(),
+                pageRequest("createTime", "descend", "not-a-cursor"), SORT_FIELDS));
+        // 排序字段不在白名单中
+        assertThrows(BusinessException.class, () -> PageCursor.apply(new QueryWrapper<>(),
+                pageRequest("name", "descend", null), SORT_FIELDS));
+    }
+
+    private static PageRequest pageRequest(String sortField, String sortOrder, String cursor) {
+        PageRequest pageRequest = new PageRequest();
+        pageRequest.setPageSize(2);
+        pageRequest.setSortField(sortField);
+        pageRequest.setSortOrder(sortOrder);
+        pageRequest.setUseCursor(true);
+        pageRequest.setCursor(cursor);
+        return pageRequest;
+    }
+
+    private static Picture picture(long id, long createTime) {
+        Picture picture = new Picture();
+        picture.setId(id);
+        picture.setCreateTime(new Date(createTime));
+        return picture;
+    }
+}
@@ -0,0 +1,58 @@
+package com.yupi.yupicturebackend.manager;
+
+import com.yupi.yupicturebackend.config.RateLimitConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * GCRA 限流：突发容量、等待时长和令牌恢复
+ */
+class RateLimitManagerTest {
+
+    private RateLimitManager rateLimitManager;
+
+    @BeforeEach
+    void setUp() {
+        rateLimitManager = new RateLimitManager();
+        ReflectionTestUtils.setField(rateLimitManager, "rateLimitConfig", new RateLimitConfig());
+        ReflectionTestUtils.setField(rateLimitManager, "meterRegistry", new SimpleMeterRegistry());
+        rateLimitManager.init();
+    }
+
+    @Test
+    void allowsBurstThenReturnsWaitTime() {
+        // 每秒 1 个，允许 5 秒突发：连续 5 个通过，第 6 个约需等待 1 秒
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, rateLimitManager.tryAcquire("user:1", 1, 5));
+        }
+        long waitNanos = rateLimitManager.tryAcquire("user:1", 1, 5);
+        assertTrue(waitNanos > TimeUnit.MILLISECONDS.toNanos(900), "等待时长过短: " + waitNanos);
+        assertTrue(waitNanos <= TimeUnit.SECONDS.toNanos(1), "等待时长过长: " + waitNanos);
+        // 被拒绝的请求不占用令牌
+        assertTrue(rateLimitManager.tryAcquire("user:1", 1, 5) > 0);
+    }
+
+    @Test
+    void bucketsAreIndependent() {
+        assertEquals(0, rateLimitManager.tryAcquire("user:1", 1, 0));
+        assertTrue(rateLimitManager.tryAcquire("user:1", 1, 0) > 0);
+        assertEquals(0, rateLimitManager.tryAcquire("user:2", 1, 0));
+    }
+
+    @Test
+    void recoversAfterInterval() throws InterruptedException {
+        // 每秒 50 个，突发容量不足 1 个时按 1 个计算
+        assertEquals(0, rateLimitManager.tryAcquire("ip:1", 50, 0));
+        long waitNanos = rateLimitManager.tryAcquire("ip:1", 50, 0);
+        assertTrue(waitNanos > 0);
+        TimeUnit.NANOSECONDS.sleep(waitNanos + TimeUnit.MILLISECONDS.toNanos(5));
+        assertEquals(0, rateLimitManager.tryAcquire("ip:1", 50, 0));
+    }
+}
@@ -0,0 +1,64 @@
+package com.yupi.yupicturebackend.manager.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Count-Min Sketch：频率估计只偏大不偏小，并按周期减半
+ */
+class CountMinSketchTest {
+
+    @Test
+    void incrementReturnsEstimate() {
+        CountMinSketch sketch = new CountMinSketch(1024, Long.MAX_VALUE);
+        assertEquals(0, sketch.estimate(7L));
+        for (int i = 1; i <= 10; i++) {
+            assertEquals(i, sketch.increment(7L));
+        }
+        assertEquals(10, sketch.estimate(7L));
+        assertEquals(1, sketch.increment(8L));
+    }
+
+    @Test
+    void neverUnderestimates() {
+        // 计数器远少于键数，必然产生冲突
+        CountMinSketch sketch = new CountMinSketch(64, Long.MAX_VALUE);
+        Random random = new Random(42);
+        Map<Long, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            // 少量热点键占大部分访问
+            long key = random.nextInt(10) < 7 ? random.nextInt(5) : random.nextInt(1000);
+            counts.merge(key, 1, Integer::sum);
+            sketch.increment(key);
+        }
+        for (Map.Entry<Long, Integer> entry : counts.entrySet()) {
+            assertTrue(sketch.estimate(entry.getKey()) >= entry.getValue(), "键 " + entry.getKey() + " 的估计值偏小");
+        }
+        for (long key = 0; key < 5; key++) {
+            assertTrue(sketch.estimate(key) > 2000);
+        }
+    }
+
+    @Test
+    void halvesAfterSampleSize() {
+        CountMinSketch sketch = new CountMinSketch(1024, 100);
+        for (int i = 0; i < 99; i++) {
+            sketch.increment(1L);
+        }
+        assertEquals(99, sketch.estimate(1L));
+        // 第 100 次递增后所有计数器减半
+        assertEquals(100, sketch.increment(1L));
+        assertEquals(50, sketch.estimate(1L));
+        for (int i = 0; i < 100; i++) {
+            sketch.increment(2L);
+        }
+        assertEquals(25, sketch.estimate(1L));
+        assertEquals(50, sketch.estimate(2L));
+    }
+}
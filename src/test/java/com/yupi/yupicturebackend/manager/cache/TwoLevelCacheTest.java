@@ -0,0 +1,215 @@
+package com.yupi.yupicturebackend.manager.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 两级缓存：加载合并、二级缓存共享和跨实例失效
+ * 两个实例共用一个内存实现的远程缓存，发布的消息同步投递给所有订阅者
+ */
+class TwoLevelCacheTest {
+
+    private static final String CACHE_NAME = "test";
+
+    private static final String KEY = "1";
+
+    private InMemoryRemoteCache remoteCache;
+
+    private TwoLevelCache<ArrayList<String>> nodeA;
+
+    private TwoLevelCache<ArrayList<String>> nodeB;
+
+    @BeforeEach
+    void setUp() {
+        remoteCache = new InMemoryRemoteCache();
+        nodeA = newNode();
+        nodeB = newNode();
+    }
+
+    @Test
+    void loaderRunsOnceAndEachReadGetsACopy() {
+        AtomicInteger loads = new AtomicInteger();
+        ArrayList<String> first = nodeA.get(KEY, () -> value(loads, "a"));
+        ArrayList<String> second = nodeA.get(KEY, () -> value(loads, "b"));
+        assertEquals(1, loads.get());
+        assertEquals(first, second);
+        assertNotSame(first, second);
+        assertTrue(remoteCache.values.containsKey(CACHE_NAME + ":" + KEY));
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<ArrayList<String>>> futures = new ArrayList<>();
+            futures.add(executor.submit(() -> nodeA.get(KEY, () -> {
+                loading.countDown();
+                await(release);
+                return value(loads, "a");
+            })));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 7; i++) {
+                futures.add(executor.submit(() -> nodeA.get(KEY, () -> value(loads, "b"))));
+            }
+            release.countDown();
+            for (Future<ArrayList<String>> future : futures) {
+                assertEquals(Collections.singletonList("a"), future.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void otherNodeReadsFromRemote() {
+        AtomicInteger loads = new AtomicInteger();
+        nodeA.get(KEY, () -> value(loads, "a"));
+        assertEquals(Collections.singletonList("a"), nodeB.get(KEY, () -> value(loads, "b")));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void invalidateClearsBothLevelsOnAllNodes() {
+        AtomicInteger loads = new AtomicInteger();
+        nodeA.get(KEY, () -> value(loads, "a"));
+        nodeB.get(KEY, () -> value(loads, "b"));
+        assertEquals(1, loads.get());
+
+        nodeA.invalidate(Collections.singletonList(KEY));
+        assertFalse(remoteCache.values.containsKey(CACHE_NAME + ":" + KEY));
+        assertEquals(1, remoteCache.published.size());
+        // 实例 B 收到通知后清除本地缓存，重新加载
+        assertEquals(Collections.singletonList("c"), nodeB.get(KEY, () -> value(loads, "c")));
+        assertEquals(Collections.singletonList("c"), nodeA.get(KEY, () -> value(loads, "d")));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void invalidationDuringLoadSkipsRemoteWrite() {
+        ArrayList<String> loaded = nodeA.get(KEY, () -> {
+            nodeB.invalidate(Collections.singletonList(KEY));
+            return new ArrayList<>(Collections.singletonList("stale"));
+        });
+        assertEquals(Collections.singletonList("stale"), loaded);
+        assertFalse(remoteCache.values.containsKey(CACHE_NAME + ":" + KEY));
+    }
+
+    @Test
+    void nullIsNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+        assertNull(nodeA.get(KEY, () -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        assertEquals(Collections.singletonList("a"), nodeA.get(KEY, () -> value(loads, "a")));
+        assertEquals(2, loads.get());
+    }
+
+    private TwoLevelCache<ArrayList<String>> newNode() {
+        CacheInvalidationBus invalidationBus = new CacheInvalidationBus();
+        ReflectionTestUtils.setField(invalidationBus, "remoteCache", remoteCache);
+        invalidationBus.init();
+        return new TwoLevelCache<>(CACHE_NAME, 1024 * 1024, 60, 60, remoteCache, invalidationBus,
+                new SimpleMeterRegistry());
+    }
+
+    private static ArrayList<String> value(AtomicInteger loads, String value) {
+        loads.incrementAndGet();
+        return new ArrayList<>(Arrays.asList(value));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 内存实现的远程缓存，代替 Redis
+     */
+    private static class InMemoryRemoteCache implements RemoteCache {
+
+        private final Map<String, byte[]> values = new ConcurrentHashMap<>();
+
+        private final Map<String, Long> counters = new ConcurrentHashMap<>();
+
+        private final List<String> published = new CopyOnWriteArrayList<>();
+
+        private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public byte[] get(String key) {
+            return values.get(key);
+        }
+
+        @Override
+        public void set(String key, byte[] value, long ttlSeconds) {
+            values.put(key, value);
+        }
+
+        @Override
+        public void delete(Collection<String> keys) {
+            for (String key : keys) {
+                values.remove(key);
+            }
+        }
+
+        @Override
+        public Long getCounter(String key) {
+            return counters.get(key);
+        }
+
+        @Override
+        public Long increment(String key) {
+            return counters.merge(key, 1L, Long::sum);
+        }
+
+        @Override
+        public void publish(String message) {
+            published.add(message);
+            for (Consumer<String> listener : listeners) {
+                listener.accept(message);
+            }
+        }
+
+        @Override
+        public void subscribe(Consumer<String> listener) {
+            listeners.add(listener);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.yupi.yupicturebackend.manager.color;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 颜色网格索引查询性能基准：不同图库规模下的最近邻查询耗时
+ * 运行方式：执行 main 方法
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorGridIndexBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int catalogSize;
+
+    private ColorGridIndex colorIndex;
+
+    private int[] queryColors;
+
+    private int queryIndex;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        colorIndex = new ColorGridIndex();
+        for (int i = 0; i < catalogSize; i++) {
+            // 审核状态：0-待审核; 1-通过; 2-拒绝
+            colorIndex.put(i, random.nextInt(1 << 24), random.nextInt(3));
+        }
+        queryColors = new int[1024];
+        for (int i = 0; i < queryColors.length; i++) {
+            queryColors[i] = random.nextInt(1 << 24);
+        }
+    }
+
+    @Benchmark
+    public Map<Long, Integer> searchNearest() {
+        int rgb = queryColors[queryIndex++ & (queryColors.length - 1)];
+        return colorIndex.searchNearest(rgb, 20, 1);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ColorGridIndexBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
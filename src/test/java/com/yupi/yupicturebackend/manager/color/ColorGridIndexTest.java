@@ -0,0 +1,98 @@
+package com.yupi.yupicturebackend.manager.color;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 颜色网格索引：最近邻排序、审核状态过滤、替换和删除
+ */
+class ColorGridIndexTest {
+
+    private static final int PASS = 1;
+
+    private static final int REVIEWING = 0;
+
+    @Test
+    void searchNearestSortedByDistance() {
+        ColorGridIndex index = new ColorGridIndex();
+        index.put(1L, 0xFF0000, PASS);
+        index.put(2L, 0xF00000, PASS);
+        index.put(3L, 0x0000FF, PASS);
+        // 与目标颜色落在相邻格子中
+        index.put(4L, 0xEF0000, PASS);
+
+        Map<Long, Integer> result = index.searchNearest(0xFF0000, 3, null);
+        assertEquals(Arrays.asList(1L, 2L, 4L), new ArrayList<>(result.keySet()));
+        assertEquals(Arrays.asList(0, 15 * 15, 16 * 16), new ArrayList<>(result.values()));
+        assertTrue(index.searchNearest(0xFF0000, 0, null).isEmpty());
+    }
+
+    @Test
+    void reviewStatusFilterAndUpdate() {
+        ColorGridIndex index = new ColorGridIndex();
+        index.put(1L, 0x808080, REVIEWING);
+        index.put(2L, 0x000000, PASS);
+
+        assertEquals(Collections.singletonList(2L), new ArrayList<>(index.searchNearest(0x808080, 2, PASS).keySet()));
+        index.updateReviewStatus(1L, PASS);
+        assertEquals(Arrays.asList(1L, 2L), new ArrayList<>(index.searchNearest(0x808080, 2, PASS).keySet()));
+        assertTrue(index.searchNearest(0x808080, 2, REVIEWING).isEmpty());
+    }
+
+    @Test
+    void putReplacesAndRemoveDeletes() {
+        ColorGridIndex index = new ColorGridIndex();
+        index.put(1L, 0x000000, PASS);
+        index.put(1L, 0xFFFFFF, PASS);
+        assertEquals(1, index.size());
+        assertEquals(0, index.searchNearest(0xFFFFFF, 5, null).get(1L));
+        assertEquals(1, index.searchNearest(0x000000, 5, null).size());
+
+        index.remove(1L);
+        assertEquals(0, index.size());
+        assertTrue(index.searchNearest(0xFFFFFF, 5, null).isEmpty());
+    }
+
+    @Test
+    void matchesBruteForceOnRandomColors() {
+        Random random = new Random(42);
+        ColorGridIndex index = new ColorGridIndex();
+        Map<Long, Integer> colors = new HashMap<>();
+        for (long id = 1; id <= 2000; id++) {
+            int rgb = random.nextInt(0x1000000);
+            colors.put(id, rgb);
+            index.put(id, rgb, PASS);
+        }
+        for (int i = 0; i < 50; i++) {
+            int target = random.nextInt(0x1000000);
+            List<Integer> expected = new ArrayList<>();
+            for (int rgb : colors.values()) {
+                expected.add(distance(rgb, target));
+            }
+            Collections.sort(expected);
+            Map<Long, Integer> result = index.searchNearest(target, 10, null);
+            // 距离相同时 id 可能不同，只比较距离序列
+            assertEquals(expected.subList(0, 10), new ArrayList<>(result.values()));
+            for (Map.Entry<Long, Integer> entry : result.entrySet()) {
+                assertEquals(distance(colors.get(entry.getKey()), target), entry.getValue());
+            }
+        }
+    }
+
+    private static int distance(int a, int b) {
+        int dr = ((a >> 16) & 0xFF) - ((b >> 16) & 0xFF);
+        int dg = ((a >> 8) & 0xFF) - ((b >> 8) & 0xFF);
+        int db = (a & 0xFF) - (b & 0xFF);
+        return dr * dr + dg * dg + db * db;
+    }
+}
@@ -0,0 +1,77 @@
+package com.yupi.yupicturebackend.manager.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 压缩倒排列表：追加、乱序加入、删除以及合并后的解码结果
+ */
+class PostingListTest {
+
+    @Test
+    void appendsIncreasingIds() {
+        PostingList postingList = new PostingList();
+        long[] ids = {1L, 127L, 128L, 16384L, 1_900_000_000_000_000_000L};
+        for (long id : ids) {
+            postingList.add(id);
+        }
+        assertArrayEquals(ids, postingList.toArray());
+        assertEquals(ids.length, postingList.size());
+    }
+
+    @Test
+    void mergesOutOfOrderAdditionsAndRemovals() {
+        PostingList postingList = new PostingList();
+        postingList.add(10L);
+        postingList.add(30L);
+        postingList.add(20L);
+        postingList.add(5L);
+        postingList.remove(30L);
+        postingList.remove(5L);
+        assertArrayEquals(new long[]{10L, 20L}, postingList.toArray());
+
+        // 删除后重新加入
+        postingList.add(30L);
+        assertArrayEquals(new long[]{10L, 20L, 30L}, postingList.toArray());
+    }
+
+    @Test
+    void removingEverythingLeavesEmptyList() {
+        PostingList postingList = new PostingList();
+        for (long id = 1; id <= 100; id++) {
+            postingList.add(id);
+        }
+        for (long id = 1; id <= 100; id++) {
+            postingList.remove(id);
+        }
+        assertTrue(postingList.isEmpty());
+        assertArrayEquals(new long[0], postingList.toArray());
+    }
+
+    @Test
+    void matchesSortedSetUnderRandomChanges() {
+        Random random = new Random(42);
+        PostingList postingList = new PostingList();
+        TreeSet<Long> expected = new TreeSet<>();
+        long base = 1_800_000_000_000_000_000L;
+        for (int i = 0; i < 20000; i++) {
+            long id = base + random.nextInt(5000);
+            if (expected.contains(id)) {
+                postingList.remove(id);
+                expected.remove(id);
+            } else {
+                postingList.add(id);
+                expected.add(id);
+            }
+        }
+        long[] expectedIds = expected.stream().mapToLong(Long::longValue).toArray();
+        assertArrayEquals(expectedIds, postingList.toArray());
+        assertEquals(expectedIds.length, postingList.size());
+    }
+}
@@ -0,0 +1,51 @@
+package com.yupi.yupicturebackend.manager.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 文本分词：中日韩文字单字加 bigram，单词小写，查询词的匹配方式
+ */
+class TextTokenizerTest {
+
+    @Test
+    void tokenizeSplitsCjkIntoUnigramsAndBigrams() {
+        assertEquals(new LinkedHashSet<>(Arrays.asList("hello", "风", "风景", "景", "景照", "照", "照片", "片", "2024")),
+                TextTokenizer.tokenize("Hello, 风景照片2024"));
+    }
+
+    @Test
+    void tokenizeLowercasesAndTruncatesWords() {
+        String longWord = "ABCDEFGHIJKLMNOPQRSTUVWXYZABCDEFGHIJ";
+        assertEquals(new LinkedHashSet<>(Arrays.asList("cat", longWord.substring(0, TextTokenizer.MAX_WORD_LENGTH)
+                .toLowerCase())), TextTokenizer.tokenize("  CAT--" + longWord + "  "));
+        assertTrue(TextTokenizer.tokenize("   ").isEmpty());
+        assertTrue(TextTokenizer.tokenize(null).isEmpty());
+    }
+
+    @Test
+    void tokenizeQueryUsesBigramsAndWordPrefixes() {
+        List<TextTokenizer.QueryToken> tokens = TextTokenizer.tokenizeQuery("风景照 Cat");
+        assertEquals(Arrays.asList("风景", "景照", "cat"),
+                tokens.stream().map(token -> token.term).collect(Collectors.toList()));
+        assertFalse(tokens.get(0).prefix);
+        assertFalse(tokens.get(1).prefix);
+        assertTrue(tokens.get(2).prefix);
+    }
+
+    @Test
+    void tokenizeQueryKeepsSingleCjkCharacter() {
+        List<TextTokenizer.QueryToken> tokens = TextTokenizer.tokenizeQuery("猫");
+        assertEquals(1, tokens.size());
+        assertEquals("猫", tokens.get(0).term);
+        assertFalse(tokens.get(0).prefix);
+    }
+}
@@ -0,0 +1,76 @@
+package com.yupi.yupicturebackend.manager.similar;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 多索引哈希表：按汉明距离查找、替换和删除
+ */
+class MultiIndexHashTableTest {
+
+    private static final long HASH = 0x0123456789ABCDEFL;
+
+    @Test
+    void searchReturnsMatchesWithinDistanceSortedByDistance() {
+        MultiIndexHashTable table = new MultiIndexHashTable();
+        table.put(1L, HASH ^ 0b111L);
+        table.put(2L, HASH);
+        table.put(3L, HASH ^ (1L << 63));
+        // 每段各翻转一位，距离为 4，超出支持的最大距离
+        table.put(4L, HASH ^ 1L ^ (1L << 16) ^ (1L << 32) ^ (1L << 48));
+
+        Map<Long, Integer> result = table.search(HASH, MultiIndexHashTable.MAX_DISTANCE);
+        assertEquals(Arrays.asList(2L, 3L, 1L), new ArrayList<>(result.keySet()));
+        assertEquals(Arrays.asList(0, 1, 3), new ArrayList<>(result.values()));
+        assertEquals(2, table.search(HASH, 1).size());
+    }
+
+    @Test
+    void putReplacesAndRemoveDeletes() {
+        MultiIndexHashTable table = new MultiIndexHashTable();
+        table.put(1L, HASH);
+        table.put(1L, ~HASH);
+        assertEquals(1, table.size());
+        assertEquals(~HASH, table.get(1L));
+        assertTrue(table.search(HASH, MultiIndexHashTable.MAX_DISTANCE).isEmpty());
+        assertEquals(0, table.search(~HASH, 0).get(1L));
+
+        table.remove(1L);
+        assertEquals(0, table.size());
+        assertNull(table.get(1L));
+        assertTrue(table.search(~HASH, MultiIndexHashTable.MAX_DISTANCE).isEmpty());
+    }
+
+    @Test
+    void matchesBruteForceOnRandomHashes() {
+        Random random = new Random(7);
+        MultiIndexHashTable table = new MultiIndexHashTable();
+        Map<Long, Long> hashById = new HashMap<>();
+        for (long id = 1; id <= 5000; id++) {
+            long hash = random.nextLong();
+            if (id % 10 == 0) {
+                // 构造一部分近似重复
+                hash = HASH ^ (1L << random.nextInt(64)) ^ (1L << random.nextInt(64));
+            }
+            table.put(id, hash);
+            hashById.put(id, hash);
+        }
+        Map<Long, Integer> expected = new HashMap<>();
+        for (Map.Entry<Long, Long> entry : hashById.entrySet()) {
+            int distance = Long.bitCount(entry.getValue() ^ HASH);
+            if (distance <= MultiIndexHashTable.MAX_DISTANCE) {
+                expected.put(entry.getKey(), distance);
+            }
+        }
+        assertEquals(expected, new HashMap<>(table.search(HASH, MultiIndexHashTable.MAX_DISTANCE)));
+    }
+}
@@ -0,0 +1,92 @@
+package com.yupi.yupicturebackend.manager.storage;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 本地存储的分片上传：分片暂存、按编号合并、终止后清理
+ */
+class LocalPictureStorageTest {
+
+    private static final String KEY = "public/1/multipart.png";
+
+    private File rootDir;
+
+    private LocalPictureStorage pictureStorage;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        rootDir = Files.createTempDirectory("local-storage-test").toFile();
+        pictureStorage = new LocalPictureStorage(rootDir.getPath(), "http://localhost/object");
+    }
+
+    @AfterEach
+    void tearDown() {
+        FileUtil.del(rootDir);
+    }
+
+    @Test
+    void completeMergesPartsInPartNumberOrder() throws IOException {
+        String uploadId = pictureStorage.initiateMultipartUpload(KEY);
+        uploadPart(uploadId, 2, "world");
+        uploadPart(uploadId, 1, "hello ");
+        // 重复上传同一分片会覆盖之前的内容
+        uploadPart(uploadId, 1, "Hello ");
+
+        List<StoragePart> parts = pictureStorage.listParts(KEY, uploadId);
+        assertEquals(2, parts.size());
+        assertEquals(1, parts.get(0).getPartNumber());
+        assertEquals(6, parts.get(0).getSize());
+        assertEquals(2, parts.get(1).getPartNumber());
+
+        pictureStorage.completeMultipartUpload(KEY, uploadId, parts);
+        try (StorageObject storageObject = pictureStorage.getObject(KEY)) {
+            assertEquals("Hello world", IoUtil.read(storageObject.getInputStream(), StandardCharsets.UTF_8));
+        }
+        // 分片暂存目录不会被当作对象列出
+        assertEquals(Collections.singletonList(KEY), pictureStorage.listKeys(null, null, 10));
+        assertThrows(UncheckedIOException.class, () -> pictureStorage.listParts(KEY, uploadId));
+    }
+
+    @Test
+    void completeRejectsReplacedPart() {
+        String uploadId = pictureStorage.initiateMultipartUpload(KEY);
+        uploadPart(uploadId, 1, "first");
+        List<StoragePart> parts = pictureStorage.listParts(KEY, uploadId);
+        parts.get(0).setEtag("stale");
+
+        assertThrows(UncheckedIOException.class, () -> pictureStorage.completeMultipartUpload(KEY, uploadId, parts));
+        assertNull(pictureStorage.headObject(KEY));
+    }
+
+    @Test
+    void abortRemovesUploadedParts() {
+        String uploadId = pictureStorage.initiateMultipartUpload(KEY);
+        uploadPart(uploadId, 1, "part");
+
+        pictureStorage.abortMultipartUpload(KEY, uploadId);
+        assertThrows(UncheckedIOException.class, () -> pictureStorage.listParts(KEY, uploadId));
+        assertThrows(IllegalArgumentException.class, () -> pictureStorage.abortMultipartUpload(KEY, "../escape"));
+    }
+
+    private void uploadPart(String uploadId, int partNumber, String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        pictureStorage.uploadPart(KEY, uploadId, partNumber, new ByteArrayInputStream(bytes), bytes.length);
+    }
+}
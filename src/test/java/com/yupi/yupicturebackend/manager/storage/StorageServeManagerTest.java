@@ -0,0 +1,131 @@
+package com.yupi.yupicturebackend.manager.storage;
+
+import cn.hutool.core.io.FileUtil;
+import com.yupi.yupicturebackend.config.StorageConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 存储对象输出：Range 解析、206/416 响应和 If-Range 判断
+ */
+class StorageServeManagerTest {
+
+    private static final String KEY = "public/1/test.png";
+
+    private static final String CONTENT = "0123456789";
+
+    private File rootDir;
+
+    private StorageServeManager storageServeManager;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        rootDir = Files.createTempDirectory("serve-test").toFile();
+        LocalPictureStorage pictureStorage = new LocalPictureStorage(rootDir.getPath(), "http://localhost/object");
+        byte[] bytes = CONTENT.getBytes(StandardCharsets.UTF_8);
+        pictureStorage.putPicture(KEY, new ByteArrayInputStream(bytes), bytes.length);
+        storageServeManager = new StorageServeManager();
+        ReflectionTestUtils.setField(storageServeManager, "pictureStorage", pictureStorage);
+        ReflectionTestUtils.setField(storageServeManager, "storageConfig", new StorageConfig());
+        storageServeManager.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        FileUtil.del(rootDir);
+    }
+
+    @Test
+    void parseRange() {
+        assertArrayEquals(new long[]{0, 4}, StorageServeManager.parseRange("bytes=0-4", 10));
+        assertArrayEquals(new long[]{5, 9}, StorageServeManager.parseRange("bytes=5-", 10));
+        assertArrayEquals(new long[]{7, 9}, StorageServeManager.parseRange("bytes=-3", 10));
+        // 结束位置和后缀长度超出对象长度时截断
+        assertArrayEquals(new long[]{8, 9}, StorageServeManager.parseRange("bytes=8-100", 10));
+        assertArrayEquals(new long[]{0, 9}, StorageServeManager.parseRange("bytes=-100", 10));
+        // 不可满足
+        assertArrayEquals(new long[0], StorageServeManager.parseRange("bytes=10-", 10));
+        assertArrayEquals(new long[0], StorageServeManager.parseRange("bytes=-0", 10));
+        assertArrayEquals(new long[0], StorageServeManager.parseRange("bytes=-5", 0));
+        // 格式不支持，按完整内容响应
+        assertNull(StorageServeManager.parseRange(null, 10));
+        assertNull(StorageServeManager.parseRange("items=0-4", 10));
+        assertNull(StorageServeManager.parseRange("bytes=0-1,3-4", 10));
+        assertNull(StorageServeManager.parseRange("bytes=5-2", 10));
+        assertNull(StorageServeManager.parseRange("bytes=a-b", 10));
+        assertNull(StorageServeManager.parseRange("bytes=5", 10));
+    }
+
+    @Test
+    void serveRange() throws IOException {
+        MockHttpServletResponse response = serve(rangeRequest("bytes=2-5"));
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-5/10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("2345", response.getContentAsString());
+
+        response = serve(rangeRequest("bytes=20-"));
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+
+        response = serve(rangeRequest("bytes=0-1,3-4"));
+        assertEquals(200, response.getStatus());
+        assertEquals(CONTENT, response.getContentAsString());
+    }
+
+    @Test
+    void serveIfRange() throws IOException {
+        MockHttpServletResponse fullResponse = serve(new MockHttpServletRequest("GET", "/"));
+        String etag = fullResponse.getHeader(HttpHeaders.ETAG);
+        long lastModified = fullResponse.getDateHeader(HttpHeaders.LAST_MODIFIED);
+
+        // 实体标签一致，返回部分内容
+        MockHttpServletRequest request = rangeRequest("bytes=0-1");
+        request.addHeader(HttpHeaders.IF_RANGE, etag);
+        assertEquals(206, serve(request).getStatus());
+
+        // 实体标签不一致或为弱标签，忽略 Range
+        request = rangeRequest("bytes=0-1");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"other\"");
+        MockHttpServletResponse response = serve(request);
+        assertEquals(200, response.getStatus());
+        assertEquals(CONTENT, response.getContentAsString());
+        request = rangeRequest("bytes=0-1");
+        request.addHeader(HttpHeaders.IF_RANGE, "W/" + etag);
+        assertEquals(200, serve(request).getStatus());
+
+        // 日期与最后修改时间一致时返回部分内容，不一致时返回完整内容
+        request = rangeRequest("bytes=0-1");
+        request.addHeader(HttpHeaders.IF_RANGE, lastModified);
+        assertEquals(206, serve(request).getStatus());
+        request = rangeRequest("bytes=0-1");
+        request.addHeader(HttpHeaders.IF_RANGE, lastModified - 60_000);
+        assertEquals(200, serve(request).getStatus());
+    }
+
+    private MockHttpServletRequest rangeRequest(String range) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, range);
+        return request;
+    }
+
+    private MockHttpServletResponse serve(MockHttpServletRequest request) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        storageServeManager.serve(KEY, false, request, response);
+        return response;
+    }
+}
@@ -0,0 +1,59 @@
+package com.yupi.yupicturebackend.manager.tag;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 标签位图索引：多标签求交、替换标签、删除图片
+ */
+class TagBitmapIndexTest {
+
+    @Test
+    void queryIntersectsTagsAndReviewStatus() {
+        TagBitmapIndex index = new TagBitmapIndex();
+        index.put(300L, Arrays.asList(1L, 2L), 1);
+        index.put(100L, Arrays.asList(1L, 2L), 1);
+        index.put(200L, Collections.singletonList(1L), 1);
+        index.put(400L, Arrays.asList(1L, 2L), 0);
+
+        assertArrayEquals(new long[]{100L, 300L, 400L}, index.query(Arrays.asList(1L, 2L), null, 10));
+        assertArrayEquals(new long[]{100L, 300L}, index.query(Arrays.asList(1L, 2L), 1, 10));
+        assertArrayEquals(new long[0], index.query(Collections.singletonList(9L), null, 10));
+        assertNull(index.query(Collections.singletonList(1L), null, 3));
+    }
+
+    @Test
+    void putReplacesPreviousTagsAndReviewStatus() {
+        TagBitmapIndex index = new TagBitmapIndex();
+        index.put(100L, Arrays.asList(1L, 2L), 0);
+        index.put(100L, Collections.singletonList(3L), 1);
+
+        assertArrayEquals(new long[0], index.query(Collections.singletonList(1L), null, 10));
+        assertArrayEquals(new long[0], index.query(Collections.singletonList(3L), 0, 10));
+        assertArrayEquals(new long[]{100L}, index.query(Collections.singletonList(3L), 1, 10));
+    }
+
+    @Test
+    void addTagAndRemove() {
+        TagBitmapIndex index = new TagBitmapIndex();
+        index.put(100L, Collections.emptyList(), 1);
+        index.addTag(100L, 5L);
+        index.addTag(100L, 5L);
+        index.addTag(999L, 5L);
+        assertArrayEquals(new long[]{100L}, index.query(Collections.singletonList(5L), 1, 10));
+
+        index.put(100L, Collections.singletonList(6L), 1);
+        assertArrayEquals(new long[0], index.query(Collections.singletonList(5L), null, 10));
+
+        index.remove(100L);
+        assertEquals(0, index.size());
+        assertArrayEquals(new long[0], index.query(Collections.singletonList(6L), null, 10));
+        assertEquals(0, index.memoryBytes());
+    }
+}
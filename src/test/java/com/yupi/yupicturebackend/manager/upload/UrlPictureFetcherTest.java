@@ -0,0 +1,86 @@
+package com.yupi.yupicturebackend.manager.upload;
+
+import com.sun.net.httpserver.HttpServer;
+import com.yupi.yupicturebackend.config.PictureUploadConfig;
+import com.yupi.yupicturebackend.exception.BusinessException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * URL 抓取：超限的分块响应体在关闭数据源时不会被继续下载
+ */
+class UrlPictureFetcherTest {
+
+    private static final long MAX_SIZE = 1024 * 1024L;
+
+    private static final long BODY_SIZE = 256 * 1024 * 1024L;
+
+    private final AtomicLong writtenBytes = new AtomicLong();
+
+    private final CountDownLatch responseFinished = new CountDownLatch(1);
+
+    private HttpServer server;
+
+    private UrlPictureFetcher urlPictureFetcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/big.png", exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "image/png");
+            // 响应长度为 0 表示使用分块传输，不声明内容长度
+            exchange.sendResponseHeaders(200, 0);
+            byte[] chunk = new byte[64 * 1024];
+            try (OutputStream out = exchange.getResponseBody()) {
+                while (writtenBytes.get() < BODY_SIZE) {
+                    out.write(chunk);
+                    writtenBytes.addAndGet(chunk.length);
+                }
+            } catch (IOException e) {
+                // 客户端断开连接
+            } finally {
+                responseFinished.countDown();
+            }
+        });
+        server.start();
+        urlPictureFetcher = new UrlPictureFetcher();
+        ReflectionTestUtils.setField(urlPictureFetcher, "pictureUploadConfig", new PictureUploadConfig());
+        urlPictureFetcher.init();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        urlPictureFetcher.destroy();
+        server.stop(0);
+    }
+
+    @Test
+    void closeAbortsOversizedChunkedBody() throws Exception {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/big.png";
+        PictureUploadSource uploadSource = urlPictureFetcher.fetch(url, MAX_SIZE).toUploadSource();
+        InputStream inputStream = uploadSource.getInputStream();
+        byte[] buffer = new byte[8192];
+        assertThrows(BusinessException.class, () -> {
+            while (inputStream.read(buffer) != -1) {
+                // 读到超限为止
+            }
+        });
+        uploadSource.close();
+        assertTrue(responseFinished.await(10, TimeUnit.SECONDS), "服务端未感知到连接断开");
+        assertTrue(writtenBytes.get() < BODY_SIZE / 4,
+                "关闭数据源后仍下载了 " + writtenBytes.get() + " 字节");
+    }
+}